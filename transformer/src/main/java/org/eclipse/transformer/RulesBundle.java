@@ -0,0 +1,369 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.OrderedProperties;
+
+import aQute.lib.utf8properties.UTF8Properties;
+
+/**
+ * Compiled transformation rules.
+ *
+ * A rules bundle holds the properties of each rule option, the properties of
+ * each XML substitution file, and the references of the sources from which the
+ * properties were loaded.  A bundle is written to a single binary file, which
+ * is read without parsing properties files, and without resolving the sources.
+ *
+ * The bundle records a checksum of the contents of its sources, which
+ * identifies the rules, and ends with a checksum of the bundle data, which
+ * is verified when the bundle is read.
+ *
+ * A bundle is stale when any of its sources has been modified after the
+ * bundle was written.  See {@link #isStale(File)}.
+ */
+public class RulesBundle {
+	public static final int MAGIC = 0x54524231; // "TRB1"
+	public static final int FORMAT_VERSION = 1;
+
+	public static final String DIGEST_ALGORITHM = "SHA-256";
+
+	public RulesBundle() {
+		this.sources = new LinkedHashMap<String, String>();
+		this.ruleProperties = new LinkedHashMap<String, UTF8Properties>();
+		this.xmlProperties = new LinkedHashMap<String, UTF8Properties>();
+		this.sourcesChecksum = null;
+	}
+
+	//
+
+	/** Source references, keyed by the name of the source. */
+	private final Map<String, String> sources;
+	private byte[] sourcesChecksum;
+
+	public Map<String, String> getSources() {
+		return Collections.unmodifiableMap(sources);
+	}
+
+	/**
+	 * Answer the checksum of the contents of the sources of the bundle.
+	 *
+	 * @return The checksum of the sources.
+	 */
+	public byte[] getSourcesChecksum() {
+		return sourcesChecksum;
+	}
+
+	public String getSourcesChecksumText() {
+		StringBuilder text = new StringBuilder( sourcesChecksum.length * 2 );
+		for ( byte checksumByte : sourcesChecksum ) {
+			text.append( Character.forDigit((checksumByte >> 4) & 0x0F, 16) );
+			text.append( Character.forDigit(checksumByte & 0x0F, 16) );
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Record a source of the bundle.
+	 *
+	 * @param name The name of the source.
+	 * @param sourceUrl The URL of the source.
+	 */
+	public void addSource(String name, URL sourceUrl) {
+		sources.put( name, sourceUrl.toExternalForm() );
+	}
+
+	/**
+	 * Compute the checksum of the contents of the sources of this bundle.
+	 *
+	 * @throws IOException Thrown if a source cannot be read.
+	 */
+	public void computeSourcesChecksum() throws IOException {
+		MessageDigest digest = createDigest();
+		byte[] buffer = new byte[FileUtils.BUFFER_ADJUSTMENT];
+
+		for ( Map.Entry<String, String> sourceEntry : sources.entrySet() ) {
+			digest.update( sourceEntry.getKey().getBytes(StandardCharsets.UTF_8) );
+			try ( InputStream inputStream = new URL( sourceEntry.getValue() ).openStream() ) {
+				int bytesRead;
+				while ( (bytesRead = inputStream.read(buffer)) != -1 ) {
+					digest.update(buffer, 0, bytesRead);
+				}
+			}
+		}
+
+		sourcesChecksum = digest.digest();
+	}
+
+	private static MessageDigest createDigest() throws IOException {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch ( NoSuchAlgorithmException e ) {
+			throw new IOException("Digest [ " + DIGEST_ALGORITHM + " ] is not available", e);
+		}
+	}
+
+	/**
+	 * Tell if any source of the bundle was modified after the bundle file.
+	 * Sources which do not answer a modification time are not considered.
+	 *
+	 * @param bundleFile The file from which the bundle was read.
+	 *
+	 * @return True or false telling if any source is newer than the bundle.
+	 *
+	 * @throws IOException Thrown if a source cannot be accessed.
+	 */
+	public boolean isStale(File bundleFile) throws IOException {
+		return ( getNewerSource(bundleFile) != null );
+	}
+
+	/**
+	 * Answer the name of the first source which was modified after the bundle
+	 * file.
+	 *
+	 * @param bundleFile The file from which the bundle was read.
+	 *
+	 * @return The name of the first newer source.  Null if no source is newer.
+	 *
+	 * @throws IOException Thrown if a source cannot be accessed.
+	 */
+	public String getNewerSource(File bundleFile) throws IOException {
+		long bundleModified = bundleFile.lastModified();
+
+		for ( Map.Entry<String, String> sourceEntry : sources.entrySet() ) {
+			URLConnection connection = new URL( sourceEntry.getValue() ).openConnection();
+			connection.setUseCaches(false);
+			long sourceModified = connection.getLastModified();
+			try {
+				connection.getInputStream().close();
+			} catch ( IOException e ) {
+				return sourceEntry.getKey(); // The source is gone: The bundle cannot be verified.
+			}
+			if ( sourceModified > bundleModified ) {
+				return sourceEntry.getKey();
+			}
+		}
+		return null;
+	}
+
+	//
+
+	/** Properties of rule options, keyed by option name. */
+	private final Map<String, UTF8Properties> ruleProperties;
+
+	/** Properties of XML substitutions, keyed by file name selector. */
+	private final Map<String, UTF8Properties> xmlProperties;
+
+	public void putRuleProperties(String optionName, UTF8Properties properties) {
+		ruleProperties.put(optionName, properties);
+	}
+
+	/**
+	 * Answer the properties of a rule option.
+	 *
+	 * @param optionName The name of the rule option.
+	 *
+	 * @return The properties of the option.  Null if the bundle does not
+	 *     have properties for the option.
+	 */
+	public UTF8Properties getRuleProperties(String optionName) {
+		return ruleProperties.get(optionName);
+	}
+
+	public void putXmlProperties(String selector, UTF8Properties properties) {
+		xmlProperties.put(selector, properties);
+	}
+
+	/**
+	 * Answer the XML substitution properties for a file name selector.
+	 *
+	 * @param selector A file name selector of the XML master properties.
+	 *
+	 * @return The substitution properties of the selector.  Null if the bundle
+	 *     does not have properties for the selector.
+	 */
+	public UTF8Properties getXmlProperties(String selector) {
+		return xmlProperties.get(selector);
+	}
+
+	//
+
+	/**
+	 * Write this bundle to a file.
+	 *
+	 * @param bundleFile The file to which to write the bundle.
+	 *
+	 * @throws IOException Thrown if the write fails.
+	 */
+	public void write(File bundleFile) throws IOException {
+		if ( sourcesChecksum == null ) {
+			computeSourcesChecksum();
+		}
+
+		ByteArrayOutputStream bytesStream = new ByteArrayOutputStream();
+		DataOutputStream dataStream = new DataOutputStream(bytesStream);
+
+		dataStream.writeInt(MAGIC);
+		dataStream.writeInt(FORMAT_VERSION);
+
+		dataStream.writeInt(sourcesChecksum.length);
+		dataStream.write(sourcesChecksum);
+
+		dataStream.writeInt( sources.size() );
+		for ( Map.Entry<String, String> sourceEntry : sources.entrySet() ) {
+			writeString( dataStream, sourceEntry.getKey() );
+			writeString( dataStream, sourceEntry.getValue() );
+		}
+
+		writePropertiesMap(dataStream, ruleProperties);
+		writePropertiesMap(dataStream, xmlProperties);
+
+		dataStream.flush();
+
+		CRC32 crc = new CRC32();
+		byte[] bundleBytes = bytesStream.toByteArray();
+		crc.update(bundleBytes, 0, bundleBytes.length);
+		dataStream.writeLong( crc.getValue() );
+		dataStream.flush();
+
+		try ( OutputStream outputStream = Files.newOutputStream( bundleFile.toPath() ) ) {
+			bytesStream.writeTo(outputStream);
+		}
+	}
+
+	private static void writeString(DataOutputStream dataStream, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		dataStream.writeInt(bytes.length);
+		dataStream.write(bytes);
+	}
+
+	private static void writePropertiesMap(DataOutputStream dataStream, Map<String, UTF8Properties> propertiesMap)
+		throws IOException {
+
+		dataStream.writeInt( propertiesMap.size() );
+		for ( Map.Entry<String, UTF8Properties> propertiesEntry : propertiesMap.entrySet() ) {
+			writeString( dataStream, propertiesEntry.getKey() );
+
+			UTF8Properties properties = propertiesEntry.getValue();
+			dataStream.writeInt( properties.size() );
+			for ( String propertyKey : OrderedProperties.getOrderedKeys(properties) ) {
+				writeString( dataStream, propertyKey );
+				writeString( dataStream, properties.getProperty(propertyKey) );
+			}
+		}
+	}
+
+	/**
+	 * Read a bundle from a file.
+	 *
+	 * @param bundleFile The file from which to read the bundle.
+	 *
+	 * @return The bundle which was read.
+	 *
+	 * @throws IOException Thrown if the read fails, or if the file is not a
+	 *     valid bundle.
+	 */
+	public static RulesBundle read(File bundleFile) throws IOException {
+		byte[] bundleBytes = Files.readAllBytes( bundleFile.toPath() );
+		int dataLength = bundleBytes.length - 8;
+		if ( dataLength < 8 ) {
+			throw new IOException("Rules bundle [ " + bundleFile + " ] is truncated");
+		}
+
+		DataInputStream dataStream = new DataInputStream( new ByteArrayInputStream(bundleBytes) );
+
+		if ( dataStream.readInt() != MAGIC ) {
+			throw new IOException("File [ " + bundleFile + " ] is not a rules bundle");
+		}
+		int formatVersion = dataStream.readInt();
+		if ( formatVersion != FORMAT_VERSION ) {
+			throw new IOException("Rules bundle [ " + bundleFile + " ] has unsupported format [ " + formatVersion + " ]");
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(bundleBytes, 0, dataLength);
+		long storedCrc = new DataInputStream( new ByteArrayInputStream(bundleBytes, dataLength, 8) ).readLong();
+		if ( crc.getValue() != storedCrc ) {
+			throw new IOException("Rules bundle [ " + bundleFile + " ] is corrupt: Checksum mismatch");
+		}
+
+		RulesBundle bundle = new RulesBundle();
+
+		byte[] checksum = new byte[ readCount(dataStream, dataLength) ];
+		dataStream.readFully(checksum);
+		bundle.sourcesChecksum = checksum;
+
+		int numSources = readCount(dataStream, dataLength);
+		for ( int sourceNo = 0; sourceNo < numSources; sourceNo++ ) {
+			String name = readString(dataStream, dataLength);
+			String reference = readString(dataStream, dataLength);
+			bundle.sources.put(name, reference);
+		}
+
+		readPropertiesMap(dataStream, dataLength, bundle.ruleProperties);
+		readPropertiesMap(dataStream, dataLength, bundle.xmlProperties);
+
+		return bundle;
+	}
+
+	private static int readCount(DataInputStream dataStream, int limit) throws IOException {
+		int count = dataStream.readInt();
+		if ( (count < 0) || (count > limit) ) {
+			throw new IOException("Rules bundle count [ " + count + " ] is not valid");
+		}
+		return count;
+	}
+
+	private static String readString(DataInputStream dataStream, int limit) throws IOException {
+		byte[] bytes = new byte[ readCount(dataStream, limit) ];
+		dataStream.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void readPropertiesMap(DataInputStream dataStream, int limit, Map<String, UTF8Properties> propertiesMap)
+		throws IOException {
+
+		int numProperties = readCount(dataStream, limit);
+		for ( int propertiesNo = 0; propertiesNo < numProperties; propertiesNo++ ) {
+			String key = readString(dataStream, limit);
+
+			UTF8Properties properties = FileUtils.createProperties();
+			int numEntries = readCount(dataStream, limit);
+			for ( int entryNo = 0; entryNo < numEntries; entryNo++ ) {
+				String propertyKey = readString(dataStream, limit);
+				String propertyValue = readString(dataStream, limit);
+				properties.put(propertyKey, propertyValue);
+			}
+
+			propertiesMap.put(key, properties);
+		}
+	}
+}
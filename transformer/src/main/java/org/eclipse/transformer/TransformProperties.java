@@ -16,11 +16,13 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.transformer.action.BundleData;
 import org.eclipse.transformer.action.impl.BundleDataImpl;
+import org.eclipse.transformer.util.OrderedProperties;
 
 import aQute.lib.utf8properties.UTF8Properties;
 
@@ -138,11 +140,11 @@ public class TransformProperties {
 	}
 	
 	public static Map<String, String> convertPropertiesToMap(UTF8Properties properties) {
-	    Map<String, String> map = new HashMap<String, String>( properties.size() );
-	    for ( Map.Entry<Object, Object> fileEntry : properties.entrySet() ) {
-	        map.put(
-	                (String) fileEntry.getKey(),
-	                (String) fileEntry.getValue());
+	    // Keep the order of the properties file, which sets the precedence
+	    // of wildcard XML file name selectors.
+	    Map<String, String> map = new LinkedHashMap<String, String>( properties.size() );
+	    for ( String key : OrderedProperties.getOrderedKeys(properties) ) {
+	        map.put( key, properties.getProperty(key) );
 	    }
 	    return map;
 	}
@@ -21,9 +21,13 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 import org.slf4j.Logger;
 
@@ -42,6 +46,7 @@ import org.eclipse.transformer.action.BundleData;
 import org.eclipse.transformer.action.impl.ActionImpl;
 import org.eclipse.transformer.action.impl.ClassActionImpl;
 import org.eclipse.transformer.action.impl.CompositeActionImpl;
+import org.eclipse.transformer.action.impl.CompressionPolicyImpl;
 import org.eclipse.transformer.action.impl.DirectoryActionImpl;
 import org.eclipse.transformer.action.impl.EarActionImpl;
 import org.eclipse.transformer.action.impl.InputBufferImpl;
@@ -56,7 +61,10 @@ import org.eclipse.transformer.action.impl.SignatureRuleImpl;
 import org.eclipse.transformer.action.impl.WarActionImpl;
 import org.eclipse.transformer.action.impl.XmlActionImpl;
 import org.eclipse.transformer.action.impl.ZipActionImpl;
+import org.eclipse.transformer.util.BoundedCache;
 import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.ParallelDeflater;
+import org.eclipse.transformer.util.PersistentMemo;
 
 import aQute.lib.io.IO;
 import aQute.lib.utf8properties.UTF8Properties;
@@ -289,6 +297,13 @@ public class Transformer {
             OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS,
             !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
 
+        RULES_COMPILED("tc", "compiled", "Compiled transformation rules file",
+            OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS,
+            !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        COMPILE_RULES("cr", "compile-rules", "Compile the transformation rules to the specified file",
+            OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS,
+            !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+
         INVERT("i", "invert", "Invert transformation rules",
                !OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS,
                !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
@@ -300,6 +315,31 @@ public class Transformer {
             !OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS,
             !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
 
+        THREADS("th", "threads", "Number of threads used to transform archive entries and directories",
+            OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS,
+            !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        COMPRESSION("c", "compression", "Compression of archive entries ('default', or 'selector=setting,...')",
+            OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS,
+            !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        DEFLATE_THRESHOLD("dt", "deflate-threshold", "Size above which archive entries are compressed using multiple threads (-1 to disable)",
+            OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS,
+            !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        CACHE_SIZE("cs", "cache-size", "Maximum number of entries of each signature cache",
+            OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS,
+            !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        MEMO_FILE("mf", "memo", "File which retains signature transformations between runs",
+            OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS,
+            !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        MEMO_SIZE("ms", "memo-size", "Maximum number of entries of each section of the memo file",
+            OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS,
+            !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        COPY_UNCHANGED("cu", "copy-unchanged", "Copy nested archives which have no changes without rewriting them",
+            !OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS,
+            !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+        COMPACT_CONSTANTS("cc", "compact-constants", "Remove unused constants from rebuilt classes",
+            !OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS,
+            !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP),
+
         DRYRUN("d", "dryrun", "Dry run",
             !OptionSettings.HAS_ARG, !OptionSettings.HAS_ARGS,
             !OptionSettings.IS_REQUIRED, OptionSettings.NO_GROUP);
@@ -658,16 +698,109 @@ public class Transformer {
     protected UTF8Properties loadProperties(AppOption ruleOption) throws IOException, URISyntaxException {
         String rulesReference = getOptionValue(ruleOption, DO_NORMALIZE);
 
+        UTF8Properties properties;
         if ( rulesReference == null ) {
+            properties = getCompiledProperties(ruleOption);
+            if ( properties != null ) {
+                dual_info("Compiled [ %s ]", ruleOption);
+                return properties;
+            }
+
             rulesReference = getDefaultReference(ruleOption);
             if ( rulesReference == null ) {
                 dual_info("Skipping option [ %s ]", ruleOption);
-                return FileUtils.createProperties();
+                properties = FileUtils.createProperties();
             } else {
-                return loadInternalProperties(ruleOption, rulesReference);
+                properties = loadInternalProperties(ruleOption, rulesReference);
             }
         } else {
-            return loadExternalProperties(ruleOption, rulesReference);
+            properties = loadExternalProperties(ruleOption, rulesReference);
+        }
+
+        if ( compilingRules != null ) {
+            compilingRules.putRuleProperties( ruleOption.name(), properties );
+        }
+        return properties;
+    }
+
+    //
+
+    /** Rules which were read from a compiled rules file. */
+    private RulesBundle compiledRules;
+
+    /** Rules which are being compiled.  Loaded properties are recorded. */
+    private RulesBundle compilingRules;
+
+    public RulesBundle getCompiledRules() {
+        return compiledRules;
+    }
+
+    /**
+     * Read the compiled rules file, if one was specified.
+     *
+     * The compiled rules are not used if any of their sources was modified
+     * after the compiled rules file was written.  The properties files are
+     * used instead.
+     *
+     * @throws IOException Thrown if the compiled rules file cannot be read.
+     */
+    protected void readCompiledRules() throws IOException {
+        compiledRules = null;
+
+        String compiledReference = getOptionValue(AppOption.RULES_COMPILED, DO_NORMALIZE);
+        if ( (compiledReference == null) || (compilingRules != null) ) {
+            return;
+        }
+
+        File compiledFile = new File(compiledReference);
+        RulesBundle rulesBundle = RulesBundle.read(compiledFile); // throws IOException
+
+        String newerSource = rulesBundle.getNewerSource(compiledFile); // throws IOException
+        if ( newerSource != null ) {
+            dual_info(
+                "Compiled rules [ %s ] are older than [ %s ]: Using properties files",
+                compiledFile.getAbsolutePath(), newerSource);
+            return;
+        }
+
+        dual_info(
+            "Compiled rules [ %s ] Checksum [ %s ]",
+            compiledFile.getAbsolutePath(), rulesBundle.getSourcesChecksumText());
+        compiledRules = rulesBundle;
+    }
+
+    /**
+     * Answer the compiled properties of a rule option.  Answer null if no
+     * compiled rules are in use, or if the compiled rules do not have
+     * properties for the option.
+     *
+     * @param ruleOption The option for which to answer properties.
+     *
+     * @return The compiled properties of the option.
+     */
+    protected UTF8Properties getCompiledProperties(AppOption ruleOption) {
+        return ( (compiledRules == null) ? null : compiledRules.getRuleProperties( ruleOption.name() ) );
+    }
+
+    /**
+     * Answer the compiled XML substitution properties for a file name selector.
+     * Compiled substitutions are not used when a master XML file was specified.
+     *
+     * @param simpleNameSelector A file name selector of the master XML properties.
+     *
+     * @return The compiled substitution properties of the selector.
+     */
+    protected UTF8Properties getCompiledXmlProperties(String simpleNameSelector) {
+        if ( (compiledRules == null) || hasOption(AppOption.RULES_MASTER_XML) ) {
+            return null;
+        } else {
+            return compiledRules.getXmlProperties(simpleNameSelector);
+        }
+    }
+
+    protected void recordRuleSource(String sourceName, URL sourceUrl) {
+        if ( compilingRules != null ) {
+            compilingRules.addSource(sourceName, sourceUrl);
         }
     }
 
@@ -696,6 +829,7 @@ public class Transformer {
         } else {
             dual_info("Internal [ %s ] URL [ %s ]", ruleOption, rulesUrl);
         }
+        recordRuleSource(ruleOption, rulesUrl);
         return FileUtils.loadProperties(rulesUrl);
     }
 
@@ -712,6 +846,7 @@ public class Transformer {
         URI currentDirectoryUri = IO.work.toURI();
         URL rulesUrl = URIUtil.resolve(currentDirectoryUri, externalReference).toURL();
         dual_info("External [ %s ] URL [ %s ]", referenceName, rulesUrl);
+        recordRuleSource(referenceName, rulesUrl);
 
         return FileUtils.loadProperties(rulesUrl);
     }
@@ -821,6 +956,19 @@ public class Transformer {
         public String outputPath;
         public File outputFile;
 
+        public int threads;
+        public ExecutorService executor;
+        public ExecutorService rootExecutor; // The executor used by the root action.
+
+        public CompressionPolicyImpl compressionPolicy;
+        public int deflateThreshold;
+
+        public int cacheSize = SignatureRuleImpl.DEFAULT_CACHE_SIZE;
+
+        public File memoFile;
+        public int memoSize;
+        private PersistentMemo memo;
+
         //
 
         public void setLogging() throws TransformException {
@@ -869,6 +1017,8 @@ public class Transformer {
         }
 
         public boolean setRules() throws IOException, URISyntaxException, IllegalArgumentException {
+            readCompiledRules(); // throws IOException
+
             UTF8Properties selectionProperties = loadProperties(AppOption.RULES_SELECTIONS);
             UTF8Properties renameProperties = loadProperties(AppOption.RULES_RENAMES);
             UTF8Properties versionProperties = loadProperties(AppOption.RULES_VERSIONS);
@@ -924,13 +1074,17 @@ public class Transformer {
                 Map<String, String> substitutionRefs =
                     TransformProperties.convertPropertiesToMap(xmlMasterProperties); // throws IllegalArgumentException
 
-                Map<String, Map<String, String>> masterUpdates = new HashMap<String, Map<String, String>>();
+                // Wildcard selectors take precedence in the order of the master
+                // XML properties.
+                Map<String, Map<String, String>> masterUpdates = new LinkedHashMap<String, Map<String, String>>();
                 for ( Map.Entry<String, String> substitutionRefEntry : substitutionRefs.entrySet() ) {
                     String simpleNameSelector = substitutionRefEntry.getKey();
                     String substitutionsRef = FileUtils.normalize( substitutionRefEntry.getValue() );
 
-                    UTF8Properties substitutions;
-                    if ( masterXmlRef == null ) {
+                    UTF8Properties substitutions = getCompiledXmlProperties(simpleNameSelector);
+                    if ( substitutions != null ) {
+                        dual_info("Compiled [ %s ]", "Substitions matching [ " + simpleNameSelector + " ]");
+                    } else if ( masterXmlRef == null ) {
                         substitutions = loadInternalProperties("Substitions matching [ " + simpleNameSelector + " ]", substitutionsRef);
                     } else {
                         String relativeSubstitutionsRef = relativize(substitutionsRef, masterXmlRef);
@@ -941,6 +1095,9 @@ public class Transformer {
                         }
                         substitutions = loadExternalProperties("Substitions matching [ " + simpleNameSelector + " ]", relativeSubstitutionsRef);
                     }
+                    if ( compilingRules != null ) {
+                        compilingRules.putXmlProperties(simpleNameSelector, substitutions);
+                    }
                     Map<String, String> substitutionsMap =
                         TransformProperties.convertPropertiesToMap(substitutions); // throws IllegalArgumentException
                     masterUpdates.put(simpleNameSelector, substitutionsMap);
@@ -965,6 +1122,34 @@ public class Transformer {
             return validateRules(packageRenames, packageVersions);
         }
 
+        /**
+         * Load the transformation rules from their properties files, and write
+         * the loaded rules to the compiled rules file.
+         *
+         * @return True or false telling if the rules were compiled.
+         */
+        public boolean compileRules() {
+            String compiledReference = getOptionValue(AppOption.COMPILE_RULES, DO_NORMALIZE);
+            File compiledFile = new File(compiledReference);
+
+            compilingRules = new RulesBundle();
+            try {
+                if ( !setRules() ) {
+                    dual_error("Transformation rules cannot be used");
+                    return false;
+                }
+                compilingRules.write(compiledFile); // throws IOException
+            } catch ( Exception e ) {
+                dual_error("Exception compiling rules:", e);
+                return false;
+            } finally {
+                compilingRules = null;
+            }
+
+            dual_info("Compiled rules [ %s ]", compiledFile.getAbsolutePath());
+            return true;
+        }
+
         protected boolean validateRules(Map<String, String> renamesMap, 
                                         Map<String, String> versionsMap) {
 
@@ -1118,7 +1303,8 @@ public class Transformer {
                     packageVersions, 
                     bundleUpdates,
                     masterXmlUpdates,
-                    directStrings);
+                    directStrings,
+                    cacheSize);
             }
             return signatureRules;
         }
@@ -1237,6 +1423,218 @@ public class Transformer {
             return true;
         }
 
+        public static final int PENDING_PER_THREAD = 4;
+
+        public boolean setThreads() {
+            String threadsText = getOptionValue(AppOption.THREADS);
+            if ( threadsText == null ) {
+                threads = 1;
+                return true;
+            }
+
+            int useThreads;
+            try {
+                useThreads = Integer.parseInt(threadsText);
+            } catch ( NumberFormatException e ) {
+                useThreads = -1;
+            }
+            if ( useThreads < 1 ) {
+                dual_error("Thread count must be a positive integer [ %s ]", threadsText);
+                return false;
+            }
+
+            threads = useThreads;
+            if ( threads > 1 ) {
+                dual_info("Threads   [ %s ]", Integer.valueOf(threads));
+            }
+            return true;
+        }
+
+        /**
+         * Answer the executor used to transform archive entries and
+         * directories.  Null when a single thread is used.
+         *
+         * The executor is a fork/join pool: Directories are traversed using
+         * recursive tasks, and a worker thread which waits for a task helps
+         * to run other tasks.
+         *
+         * Worker threads are daemon threads: An incomplete transformation
+         * does not prevent the JVM from exiting.
+         *
+         * @return The executor used to transform archive entries and
+         *     directories.
+         */
+        public ExecutorService getExecutor() {
+            if ( (executor == null) && (threads > 1) ) {
+                executor = new ForkJoinPool(threads, (ForkJoinPool pool) -> {
+                    ForkJoinWorkerThread thread =
+                        ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("transformer-worker-" + thread.getPoolIndex());
+                    thread.setDaemon(true);
+                    return thread;
+                }, null, false);
+            }
+            return executor;
+        }
+
+        public void shutdownExecutor() {
+            if ( executor != null ) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+
+        public boolean setDeflateThreshold() {
+            String thresholdText = getOptionValue(AppOption.DEFLATE_THRESHOLD);
+            if ( thresholdText == null ) {
+                deflateThreshold = ParallelDeflater.DEFAULT_THRESHOLD;
+                return true;
+            }
+
+            try {
+                deflateThreshold = Integer.parseInt(thresholdText);
+            } catch ( NumberFormatException e ) {
+                dual_error("Deflate threshold must be an integer [ %s ]", thresholdText);
+                return false;
+            }
+
+            if ( threads > 1 ) {
+                if ( deflateThreshold < 0 ) {
+                    dual_info("Deflate threshold [ disabled ]");
+                } else {
+                    dual_info("Deflate threshold [ %s ]", Integer.valueOf(deflateThreshold));
+                }
+            }
+            return true;
+        }
+
+        public boolean setCacheSize() {
+            String cacheSizeText = getOptionValue(AppOption.CACHE_SIZE);
+            if ( cacheSizeText == null ) {
+                cacheSize = SignatureRuleImpl.DEFAULT_CACHE_SIZE;
+                return true;
+            }
+
+            int useCacheSize;
+            try {
+                useCacheSize = Integer.parseInt(cacheSizeText);
+            } catch ( NumberFormatException e ) {
+                useCacheSize = -1;
+            }
+            if ( useCacheSize < 1 ) {
+                dual_error("Cache size must be a positive integer [ %s ]", cacheSizeText);
+                return false;
+            }
+
+            cacheSize = useCacheSize;
+            dual_info("Cache size [ %s ]", Integer.valueOf(cacheSize));
+            return true;
+        }
+
+        public boolean setMemo() {
+            String memoName = getOptionValue(AppOption.MEMO_FILE, DO_NORMALIZE);
+            if ( memoName == null ) {
+                memoFile = null;
+                return true;
+            }
+            memoFile = new File(memoName);
+
+            String memoSizeText = getOptionValue(AppOption.MEMO_SIZE);
+            if ( memoSizeText == null ) {
+                memoSize = PersistentMemo.DEFAULT_MAX_ENTRIES;
+            } else {
+                int useMemoSize;
+                try {
+                    useMemoSize = Integer.parseInt(memoSizeText);
+                } catch ( NumberFormatException e ) {
+                    useMemoSize = -1;
+                }
+                if ( useMemoSize < 1 ) {
+                    dual_error("Memo size must be a positive integer [ %s ]", memoSizeText);
+                    return false;
+                }
+                memoSize = useMemoSize;
+            }
+
+            dual_info("Memo [ %s ] Size [ %s ]", memoFile.getAbsolutePath(), Integer.valueOf(memoSize));
+            return true;
+        }
+
+        /**
+         * Load the memo file into the signature caches.  A memo which cannot
+         * be read, or which was written using different rules, is discarded:
+         * The memo is an optimization, and is never required.
+         */
+        public void loadMemo() {
+            if ( memoFile == null ) {
+                return;
+            }
+
+            SignatureRuleImpl signatureRule = getSignatureRule();
+            memo = new PersistentMemo( signatureRule.getMemoKey(), memoSize );
+
+            boolean didRead;
+            try {
+                didRead = memo.read(memoFile); // throws IOException
+            } catch ( IOException e ) {
+                dual_info("Memo [ %s ] cannot be read: %s", memoFile.getAbsolutePath(), e.getMessage());
+                memo = new PersistentMemo( signatureRule.getMemoKey(), memoSize );
+                return;
+            }
+
+            if ( !didRead ) {
+                dual_info("Memo [ %s ] is not available for the current rules", memoFile.getAbsolutePath());
+            } else {
+                int loaded = signatureRule.loadMemo(memo);
+                dual_info("Memo [ %s ] Loaded [ %s ]", memoFile.getAbsolutePath(), Integer.valueOf(loaded));
+            }
+        }
+
+        /**
+         * Merge the signature caches into the memo, and write the memo file.
+         */
+        public void storeMemo() {
+            if ( memo == null ) {
+                return;
+            }
+
+            getSignatureRule().storeMemo(memo);
+
+            try {
+                int dropped = memo.write(memoFile); // throws IOException
+                dual_info(
+                    "Memo [ %s ] Written [ %s ] Dropped [ %s ]",
+                    memoFile.getAbsolutePath(), Integer.valueOf(memo.size()), Integer.valueOf(dropped));
+            } catch ( IOException e ) {
+                dual_error("Memo [ " + memoFile.getAbsolutePath() + " ] cannot be written:", e);
+            }
+        }
+
+        public void logCaches() {
+            for ( BoundedCache<String, String> cache : getSignatureRule().getCaches() ) {
+                dual_info("%s", cache);
+            }
+        }
+
+        public boolean setCompression() {
+            String compressionText = getOptionValue(AppOption.COMPRESSION);
+            if ( compressionText == null ) {
+                return true;
+            }
+
+            try {
+                compressionPolicy = new CompressionPolicyImpl(
+                    getLogger(),
+                    CompressionPolicyImpl.parseSettings(compressionText) );
+            } catch ( IllegalArgumentException e ) {
+                dual_error("Compression settings [ %s ] are not valid: %s", compressionText, e.getMessage());
+                return false;
+            }
+
+            dual_info("Compression [ %s ]", compressionText);
+            return true;
+        }
+
         public CompositeActionImpl getRootAction() {
             if ( rootAction == null ) {
                 CompositeActionImpl useRootAction = new CompositeActionImpl(
@@ -1336,7 +1734,52 @@ public class Transformer {
                 zipAction.addAction(xmlAction);
                 zipAction.addAction(nullAction);
 
+                if ( compressionPolicy != null ) {
+                    jarAction.setCompressionPolicy(compressionPolicy);
+                    warAction.setCompressionPolicy(compressionPolicy);
+                    rarAction.setCompressionPolicy(compressionPolicy);
+                    earAction.setCompressionPolicy(compressionPolicy);
+                    zipAction.setCompressionPolicy(compressionPolicy);
+                }
+
+                // Nested archives which have no changes may be copied.
+
+                if ( hasOption(AppOption.COMPACT_CONSTANTS) ) {
+                    classAction.setCompactConstants(true);
+                }
+
+                if ( hasOption(AppOption.COPY_UNCHANGED) ) {
+                    jarAction.setCopyUnchanged(true);
+                    warAction.setCopyUnchanged(true);
+                    rarAction.setCopyUnchanged(true);
+                    earAction.setCopyUnchanged(true);
+                    zipAction.setCopyUnchanged(true);
+                }
+
+                // Entries of archives and files of directories may be transformed
+                // using multiple threads.
+
+                ExecutorService useExecutor = getExecutor();
+                if ( useExecutor != null ) {
+                    int maxPending = threads * PENDING_PER_THREAD;
+
+                    directoryAction.setExecutor(useExecutor, maxPending);
+
+                    jarAction.setExecutor(useExecutor, maxPending);
+                    warAction.setExecutor(useExecutor, maxPending);
+                    rarAction.setExecutor(useExecutor, maxPending);
+                    earAction.setExecutor(useExecutor, maxPending);
+                    zipAction.setExecutor(useExecutor, maxPending);
+
+                    jarAction.setDeflateThreshold(deflateThreshold);
+                    warAction.setDeflateThreshold(deflateThreshold);
+                    rarAction.setDeflateThreshold(deflateThreshold);
+                    earAction.setDeflateThreshold(deflateThreshold);
+                    zipAction.setDeflateThreshold(deflateThreshold);
+                }
+
                 rootAction = useRootAction;
+                rootExecutor = useExecutor;
             }
 
             return rootAction;
@@ -1370,7 +1813,29 @@ public class Transformer {
         public void transform()
             throws TransformException {
 
-            acceptedAction.apply(inputName, inputFile, outputFile);
+            loadMemo();
+
+            // The executor is shut down after each transformation, but the
+            // container actions, and the copies which they make for worker
+            // threads, retain the executor.  A later transformation rebuilds
+            // the actions with a new executor.
+
+            if ( (rootAction != null) && (rootExecutor != getExecutor()) ) {
+                int actionNo = rootAction.getActions().indexOf(acceptedAction);
+                rootAction = null;
+                acceptedAction = getRootAction().getActions().get(actionNo);
+            }
+
+            try {
+                acceptedAction.apply(inputName, inputFile, outputFile);
+            } finally {
+                shutdownExecutor();
+                storeMemo();
+            }
+
+            if ( isVerbose ) {
+                logCaches();
+            }
 
             if ( isTerse ) {
                 if ( !toSysOut && !toSysErr ) {
@@ -1421,6 +1886,10 @@ public class Transformer {
         }
         detectLogFile();
 
+        if ( hasOption(AppOption.COMPILE_RULES) ) {
+            return ( options.compileRules() ? SUCCESS_RC : RULES_ERROR_RC );
+        }
+
         if ( !options.setInput() ) { 
             return TRANSFORM_ERROR_RC;
         }
@@ -1429,6 +1898,26 @@ public class Transformer {
             return TRANSFORM_ERROR_RC;
         }
 
+        if ( !options.setThreads() ) {
+            return TRANSFORM_ERROR_RC;
+        }
+
+        if ( !options.setDeflateThreshold() ) {
+            return TRANSFORM_ERROR_RC;
+        }
+
+        if ( !options.setCompression() ) {
+            return TRANSFORM_ERROR_RC;
+        }
+
+        if ( !options.setCacheSize() ) {
+            return TRANSFORM_ERROR_RC;
+        }
+
+        if ( !options.setMemo() ) {
+            return TRANSFORM_ERROR_RC;
+        }
+
         boolean loadedRules;
         try {
             loadedRules = options.setRules();
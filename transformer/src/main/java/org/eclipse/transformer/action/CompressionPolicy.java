@@ -0,0 +1,25 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action;
+
+public interface CompressionPolicy {
+	/** Compression method of entries which are not compressed. */
+	int STORED = 0;
+	/** Compression method of entries which are compressed. */
+	int DEFLATED = 8;
+
+	/** Compression level used when no level is specified. */
+	int DEFAULT_LEVEL = -1;
+
+	int getMethod(String resourceName, ActionType actionType);
+	int getLevel(String resourceName, ActionType actionType);
+}
@@ -41,6 +41,19 @@ public interface ContainerChanges extends Changes {
 	boolean hasNestedChanges();
 	ContainerChanges getNestedChanges();
 	void addNested(ContainerChanges otherChanges);
+	void merge(ContainerChanges otherChanges);
+
+	//
+
+	int getCompactedClasses();
+	long getCompactedBytes();
+
+	/**
+	 * Record a class which was compacted by removing unused constants.
+	 *
+	 * @param compactedBytes The number of bytes which were removed.
+	 */
+	void addCompacted(int compactedBytes);
 
 	//
 
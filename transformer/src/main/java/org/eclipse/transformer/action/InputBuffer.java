@@ -14,4 +14,8 @@ package org.eclipse.transformer.action;
 public interface InputBuffer {
 	byte[] getInputBuffer();
 	void setInputBuffer(byte[] inputBuffer);
+
+	byte[] borrowInputBuffer(int minLength);
+	void detachInputBuffer();
+	void releaseInputBuffer();
 }
@@ -70,6 +70,20 @@ public interface SignatureRule {
 	 */
 	String replaceBinaryPackage(String initialName);
 
+	/**
+	 * Replace a single package according to the package rename rules.
+	 * The package name is a range of characters of text, and has '/'
+	 * separators.  No string is created for the range.
+	 *
+	 * @param text Text which contains the package name.
+	 * @param start The offset of the first character of the package name.
+	 * @param end The offset following the last character of the package name.
+	 *
+	 * @return The replacement for the package name.  Null if no
+	 *     replacement is available.
+	 */
+	String replaceBinaryPackage(CharSequence text, int start, int end);
+
 	/**
 	 * Replace all embedded packages of specified text with replacement
 	 * packages.
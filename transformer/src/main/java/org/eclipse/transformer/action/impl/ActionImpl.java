@@ -15,6 +15,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +28,8 @@ import org.eclipse.transformer.action.SignatureRule.SignatureType;
 import org.eclipse.transformer.util.ByteData;
 import org.eclipse.transformer.util.FileUtils;
 import org.eclipse.transformer.util.InputStreamData;
+import org.eclipse.transformer.util.PackageMatcher;
+import org.eclipse.transformer.util.PooledOutputStream;
 import org.slf4j.Logger;
 
 import aQute.bnd.signatures.ArrayTypeSignature;
@@ -73,9 +77,67 @@ public abstract class ActionImpl implements Action {
 	}
 
 	public <A extends ActionImpl> A createUsing(ActionInit<A> init) {
-		return init.apply(
+		A action = init.apply(
 			getLogger(), getIsTerse(), getIsVerbose(),
 			getBuffer(), getSelectionRule(), getSignatureRule() );
+		action.setActionInit(init);
+		return action;
+	}
+
+	// The initializer is retained so that copies of the action can be
+	// created for use by worker threads.  A copy shares the rules of this
+	// action but has its own buffer and its own record of changes.
+
+	private ActionInit<? extends ActionImpl> actionInit;
+
+	protected void setActionInit(ActionInit<? extends ActionImpl> actionInit) {
+		this.actionInit = actionInit;
+	}
+
+	public ActionInit<? extends ActionImpl> getActionInit() {
+		return actionInit;
+	}
+
+	/**
+	 * Create a copy of this action which uses a different buffer.
+	 *
+	 * @param useBuffer The buffer to be used by the copy.
+	 *
+	 * @return A copy of this action.  Null if this action was not
+	 *     created using an initializer.
+	 */
+	public ActionImpl createCopy(InputBufferImpl useBuffer) {
+		ActionInit<? extends ActionImpl> init = getActionInit();
+		if ( init == null ) {
+			return null;
+		}
+
+		ActionImpl copy = init.apply(
+			getLogger(), getIsTerse(), getIsVerbose(),
+			useBuffer, getSelectionRule(), getSignatureRule() );
+		copy.setActionInit(init);
+		return copy;
+	}
+
+	/**
+	 * Create a copy of this action and of the actions which it uses.  An
+	 * action which is used more than once is copied once.
+	 *
+	 * @param useBuffer The buffer to be used by the copies.
+	 * @param copies Table of actions which were already copied.
+	 *
+	 * @return A copy of this action.  Null if this action or any of the
+	 *     actions which it uses was not created using an initializer.
+	 */
+	public ActionImpl createCopy(InputBufferImpl useBuffer, Map<ActionImpl, ActionImpl> copies) {
+		ActionImpl copy = copies.get(this);
+		if ( copy == null ) {
+			copy = createCopy(useBuffer);
+			if ( copy != null ) {
+				copies.put(this, copy);
+			}
+		}
+		return copy;
 	}
 
 	//
@@ -201,6 +263,10 @@ public abstract class ActionImpl implements Action {
 		return getSignatureRule().getPackageVersions();
 	}
 
+	public PackageMatcher getPackageMatcher() {
+		return getSignatureRule().getPackageMatcher();
+	}
+
 	public String replacePackage(String initialName) {
 		return getSignatureRule().replacePackage(initialName);
 	}
@@ -209,6 +275,10 @@ public abstract class ActionImpl implements Action {
 		return getSignatureRule().replaceBinaryPackage(initialName);
 	}
 
+	public String replaceBinaryPackage(CharSequence text, int start, int end) {
+		return getSignatureRule().replaceBinaryPackage(text, start, end);
+	}
+
 	public String replaceEmbeddedPackages(String embeddingText) {
 		return getSignatureRule().replacePackages(embeddingText);
 	}
@@ -415,6 +485,22 @@ public abstract class ActionImpl implements Action {
 		return lastActiveChanges;
 	}
 
+	/**
+	 * Answer the changes of the last transformation, and give them up:
+	 * Changes are reused by later transformations, except for changes
+	 * which were given up.  Used when the changes are retained after this
+	 * action moves on to other resources.
+	 *
+	 * @return The changes of the last transformation.
+	 */
+	public ChangesImpl detachLastActiveChanges() {
+		ChangesImpl detachedChanges = lastActiveChanges;
+		if ( (numActiveChanges < changes.size()) && (changes.get(numActiveChanges) == detachedChanges) ) {
+			changes.set( numActiveChanges, newChanges() );
+		}
+		return detachedChanges;
+	}
+
 	@Override
 	public boolean hadChanges() {
 		return getLastActiveChanges().hasChanges();
@@ -451,20 +537,48 @@ public abstract class ActionImpl implements Action {
 	 * @throws TransformException Indicates a read failure.
 	 */
 	protected ByteData read(String inputName, InputStream inputStream, int inputCount) throws TransformException {
-		byte[] readBytes = getInputBuffer();
+		InputBufferImpl useBuffer = getBuffer();
 
 		ByteData readData;
 		try {
-			readData = FileUtils.read(inputName, inputStream, readBytes, inputCount); // throws IOException
+			readData = FileUtils.read(
+				inputName, inputStream,
+				useBuffer.getInputBuffer(), inputCount, useBuffer.getPool()); // throws IOException
 		} catch ( IOException e ) {
 			throw new TransformException("Failed to read raw bytes [ " + inputName + " ] count [ " + inputCount + " ]", e);
 		}
 
-		setInputBuffer(readData.data);
+		useBuffer.setInputBuffer(readData.data);
 
 		return readData;
 	}
 
+	/**
+	 * Create a stream which writes output data into a buffer borrowed from
+	 * the buffer pool of this action.
+	 *
+	 * @param initialSize The initial size of the buffer.
+	 *
+	 * @return A stream which writes into a pooled buffer.
+	 */
+	protected PooledOutputStream createOutputStream(int initialSize) {
+		return new PooledOutputStream( getBuffer().getPool(), initialSize );
+	}
+
+	/**
+	 * Release the buffer of output data to the buffer pool.  Done after the
+	 * output data has been written.  Nothing is done if the output data uses
+	 * the input buffer, which is held for the next read.
+	 *
+	 * @param inputData The input data.
+	 * @param outputData The output data, which was written.
+	 */
+	protected void releaseOutput(ByteData inputData, ByteData outputData) {
+		if ( outputData.data != inputData.data ) {
+			getBuffer().getPool().release(outputData.data);
+		}
+	}
+
 	/**
 	 * Write data to an output stream.
 	 * 
@@ -583,16 +697,30 @@ public abstract class ActionImpl implements Action {
 				   className, methodName, outputData.name, outputData.length );
 		}
 
-		write(outputData, outputStream); // throws JakartaTransformException		
+		write(outputData, outputStream); // throws JakartaTransformException
+
+		releaseOutput(inputData, outputData);
 	}
 
 	protected abstract ByteData apply(String inputName, byte[] inputBytes, int inputLength) 
 		throws TransformException;
 
+	// Files are transformed using file channels: The file is read directly
+	// into the input buffer, or is mapped if the file is large.  A file which
+	// is not changed by the action is copied using a channel transfer, which
+	// allows the operating system to copy the file.
+	//
+	// Stream based actions transform files using streams.
+
     @Override
 	public void apply(String inputName, File inputFile, File outputFile)
 		throws TransformException {
 
+		if ( !useStreams() ) {
+			applyChannels(inputName, inputFile, outputFile); // throws TransformException
+			return;
+		}
+
 		long inputLength = inputFile.length();
         debug("Input [ {} ] Length [ {} ]", inputName, inputLength);
 
@@ -609,8 +737,104 @@ public abstract class ActionImpl implements Action {
 		}
 	}
 
+	protected void applyChannels(String inputName, File inputFile, File outputFile)
+		throws TransformException {
+
+		startRecording(inputName);
+		try {
+			FileChannel inputChannel = openInputChannel(inputFile);
+			try {
+				FileChannel outputChannel = openOutputChannel(outputFile);
+				try {
+					basicApply(inputName, inputChannel, outputChannel); // throws TransformException
+				} finally {
+					closeChannel(outputFile, outputChannel);
+				}
+			} finally {
+				closeChannel(inputFile, inputChannel);
+			}
+		} finally {
+			stopRecording(inputName);
+		}
+	}
+
+	public void basicApply(
+		String inputName, FileChannel inputChannel,
+		FileChannel outputChannel) throws TransformException {
+
+		String className = getClass().getSimpleName();
+		String methodName = "apply";
+
+		ByteData inputData;
+		try {
+			int inputCount = FileUtils.verifyArray(0, inputChannel.size()); // throws IOException
+			byte[] inputBytes = getBuffer().borrowInputBuffer(inputCount);
+			inputData = FileUtils.read(inputName, inputChannel, inputBytes); // throws IOException
+		} catch ( IOException e ) {
+			throw new TransformException("Failed to read [ " + inputName + " ]", e);
+		}
+		debug("[ {}.{} ]: Obtained [ {} ] [ {} ]", className, methodName, inputName, inputData.length);
+
+		ByteData outputData;
+		try {
+			outputData = apply(inputName, inputData.data, inputData.length);
+			// throws JakartaTransformException
+		} catch ( Throwable th ) {
+			error("Transform failure [ {} ]", th, inputName);
+			outputData = null;
+		}
+
+		try {
+			if ( outputData == null ) {
+				debug("[ {}.{} ]: Null transform; transferring [ {} ]", className, methodName, inputName);
+				FileUtils.transfer(inputChannel, outputChannel); // throws IOException
+			} else {
+				debug( "[ {}.{} ]: Active transform [ {} ] [ {} ]",
+					   className, methodName, outputData.name, outputData.length );
+				FileUtils.write(outputChannel, outputData.data, outputData.offset, outputData.length); // throws IOException
+			}
+		} catch ( IOException e ) {
+			throw new TransformException("Failed to write [ " + inputName + " ]", e);
+		}
+
+		if ( outputData != null ) {
+			releaseOutput(inputData, outputData);
+		}
+	}
+
 	//
 
+    protected FileChannel openInputChannel(File inputFile)
+    	throws TransformException {
+
+    	try {
+    		return FileChannel.open( inputFile.toPath(), StandardOpenOption.READ );
+    	} catch ( IOException e ) {
+        	throw new TransformException("Failed to open input [ " + inputFile.getAbsolutePath() + " ]", e);
+        }
+    }
+
+    protected FileChannel openOutputChannel(File outputFile)
+    	throws TransformException {
+
+    	try {
+    		return FileChannel.open( outputFile.toPath(),
+    			StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE );
+    	} catch ( IOException e ) {
+    		throw new TransformException("Failed to open output [ " + outputFile.getAbsolutePath() + " ]", e);
+    	}
+    }
+
+    protected void closeChannel(File file, FileChannel channel)
+    	throws TransformException {
+
+    	try {
+    		channel.close();
+    	} catch ( IOException e ) {
+        	throw new TransformException("Failed to close [ " + file.getAbsolutePath() + " ]", e);
+        }
+    }
+
     protected InputStream openInputStream(File inputFile)
     	throws TransformException {
 
@@ -631,7 +855,7 @@ public abstract class ActionImpl implements Action {
         }        		
     }
 
-    private OutputStream openOutputStream(File outputFile)
+    protected OutputStream openOutputStream(File outputFile)
     	throws TransformException {
 
     	try {
@@ -641,7 +865,7 @@ public abstract class ActionImpl implements Action {
     	}
     }
 
-    private void closeOutputStream(File outputFile, OutputStream outputStream)
+    protected void closeOutputStream(File outputFile, OutputStream outputStream)
     	throws TransformException {
 
     	try {
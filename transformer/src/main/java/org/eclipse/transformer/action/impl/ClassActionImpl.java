@@ -12,16 +12,28 @@
 package org.eclipse.transformer.action.impl;
 
 import java.io.DataInput;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.action.SignatureRule;
 import org.eclipse.transformer.action.SignatureRule.SignatureType;
 import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.ByteMatcher;
+import org.eclipse.transformer.util.ConstantPoolCompactor;
 import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.PooledOutputStream;
+import org.eclipse.transformer.util.RawClassReferences;
+import org.eclipse.transformer.util.RawConstantPool;
 import org.slf4j.Logger;
 
 import aQute.bnd.classfile.AnnotationDefaultAttribute;
@@ -77,7 +89,6 @@ import aQute.bnd.classfile.TypeAnnotationsAttribute;
 import aQute.bnd.classfile.builder.ClassFileBuilder;
 import aQute.bnd.classfile.builder.MutableConstantPool;
 import aQute.lib.io.ByteBufferDataInput;
-import aQute.lib.io.ByteBufferDataOutput;
 
 /**
  * Transform class bytes.
@@ -216,6 +227,199 @@ public class ClassActionImpl extends ActionImpl {
 		super(logger, isTerse, isVerbose, buffer, selectionRule, signatureRule);
 	}
 
+	@Override
+	public ActionImpl createCopy(InputBufferImpl useBuffer) {
+		ClassActionImpl copy = (ClassActionImpl) super.createCopy(useBuffer);
+		if ( copy != null ) {
+			copy.setCompactConstants( getCompactConstants() );
+		}
+		return copy;
+	}
+
+	//
+
+	private boolean compactConstants;
+
+	/**
+	 * Set whether unused constants are removed from classes which are
+	 * transformed by parsing and rebuilding the class.  Rebuilding adds
+	 * constants for transformed names and descriptors, and leaves the
+	 * initial constants in place, unused.
+	 *
+	 * @param compactConstants True to remove unused constants.
+	 */
+	public void setCompactConstants(boolean compactConstants) {
+		this.compactConstants = compactConstants;
+	}
+
+	public boolean getCompactConstants() {
+		return compactConstants;
+	}
+
+	// Concurrent transformation of classes:
+	//
+	// Actions are not thread safe: An action records the changes of the
+	// class which it is transforming, and holds an input buffer.  The rules
+	// of an action are thread safe, and are shared by copies of the action.
+	//
+	// Each class is transformed by a copy of this action, which is borrowed
+	// from a pool of copies.  A pool is used instead of a thread local value,
+	// since a worker thread which is waiting for a task may run another task.
+	// The changes of each class are given up by the copy, and are answered
+	// with the transformed class.
+
+	/**
+	 * A class which was transformed.  The changes are not used by the action
+	 * which transformed the class.
+	 */
+	public static class TransformedClass {
+		public final String inputName;
+		public final ByteData outputData;
+		public final ClassChangesImpl changes;
+
+		public TransformedClass(String inputName, ByteData outputData, ClassChangesImpl changes) {
+			this.inputName = inputName;
+			this.outputData = outputData;
+			this.changes = changes;
+		}
+
+		public boolean hasChanges() {
+			return changes.hasChanges();
+		}
+
+		public String getOutputName() {
+			String outputName = changes.getOutputResourceName();
+			return ( (outputName == null) ? inputName : outputName );
+		}
+	}
+
+	private final ConcurrentLinkedDeque<ClassActionImpl> copies =
+		new ConcurrentLinkedDeque<ClassActionImpl>();
+
+	/**
+	 * Borrow a copy of this action for use by a task.
+	 *
+	 * @return A copy of this action.  Null if a copy cannot be created.
+	 */
+	protected ClassActionImpl borrowCopy() {
+		ClassActionImpl copy = copies.pollFirst();
+		if ( copy == null ) {
+			copy = (ClassActionImpl) createCopy( new InputBufferImpl(getBuffer().getPool()) );
+		}
+		return copy;
+	}
+
+	protected void returnCopy(ClassActionImpl copy) {
+		copies.addFirst(copy);
+	}
+
+	/**
+	 * Transform a class.  The changes of the class are given up by this
+	 * action, and are answered with the transformed class.
+	 *
+	 * A class which is not changed is answered with the input data.  A class
+	 * which cannot be transformed is logged, and is answered with the input
+	 * data, as is done by {@link #apply(String, java.io.InputStream, int)}.
+	 *
+	 * The output data of a changed class uses a buffer which is borrowed
+	 * from the buffer pool of this action.  The buffer is owned by the
+	 * caller, which may release it to the pool after the class is written.
+	 *
+	 * @param inputData The class which is to be transformed.
+	 *
+	 * @return The transformed class.
+	 */
+	public TransformedClass transform(ByteData inputData) {
+		String inputName = inputData.name;
+
+		byte[] inputBytes;
+		if ( inputData.offset == 0 ) {
+			inputBytes = inputData.data;
+		} else {
+			inputBytes = Arrays.copyOfRange(inputData.data, inputData.offset, inputData.offset + inputData.length);
+		}
+
+		ByteData outputData;
+		startRecording(inputName);
+		try {
+			outputData = apply(inputName, inputBytes, inputData.length); // throws TransformException
+		} catch ( Throwable th ) {
+			error("Transform failure [ {} ]", th, inputName);
+			outputData = null;
+		} finally {
+			stopRecording(inputName);
+		}
+
+		if ( outputData == null ) {
+			outputData = inputData;
+		}
+
+		return new TransformedClass( inputName, outputData, detachLastActiveChanges() );
+	}
+
+	/**
+	 * Transform classes using worker threads.  Each class is transformed by
+	 * a copy of this action.  The classes are transformed by the calling
+	 * thread if this action cannot be copied.
+	 *
+	 * Changes are not recorded by this action.  The changes of each class
+	 * are answered with the transformed class.
+	 *
+	 * @param executor The executor which runs the transformations.
+	 * @param inputClasses The classes which are to be transformed.
+	 *
+	 * @return The transformed classes, in the order of the input classes.
+	 *
+	 * @throws TransformException Thrown if the transformations were interrupted.
+	 */
+	public List<TransformedClass> transform(ExecutorService executor, List<ByteData> inputClasses)
+		throws TransformException {
+
+		List<TransformedClass> outputClasses = new ArrayList<TransformedClass>( inputClasses.size() );
+
+		ClassActionImpl firstCopy = borrowCopy();
+		if ( firstCopy == null ) {
+			for ( ByteData inputData : inputClasses ) {
+				outputClasses.add( transform(inputData) );
+			}
+			return outputClasses;
+		}
+		returnCopy(firstCopy);
+
+		List<Future<TransformedClass>> futures = new ArrayList<Future<TransformedClass>>( inputClasses.size() );
+		try {
+			for ( ByteData inputData : inputClasses ) {
+				futures.add( executor.submit( () -> {
+					ClassActionImpl copy = borrowCopy();
+					try {
+						return copy.transform(inputData);
+					} finally {
+						returnCopy(copy);
+					}
+				} ) );
+			}
+
+			for ( Future<TransformedClass> future : futures ) {
+				outputClasses.add( future.get() ); // throws InterruptedException, ExecutionException
+			}
+
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new TransformException("Interrupted while transforming classes", e);
+
+		} catch ( ExecutionException e ) {
+			// Failures to transform a class are logged and are not thrown.
+			throw new TransformException("Failed to transform classes", e.getCause());
+
+		} finally {
+			for ( Future<TransformedClass> future : futures ) {
+				future.cancel(false);
+			}
+		}
+
+		return outputClasses;
+	}
+
 	//
 
 	public String getName() {
@@ -244,6 +448,11 @@ public class ClassActionImpl extends ActionImpl {
 		return (ClassChangesImpl) super.getActiveChanges();
 	}
 
+	@Override
+	public ClassChangesImpl detachLastActiveChanges() {
+		return (ClassChangesImpl) super.detachLastActiveChanges();
+	}
+
 	protected void setClassNames(String inputClassName, String outputClassName) {
 		ClassChangesImpl useChanges = getActiveChanges();
 		useChanges.setInputClassName(inputClassName);
@@ -292,6 +501,22 @@ public class ClassActionImpl extends ActionImpl {
 		debug("Read [ {} ] Bytes [ {} ]", inputName, inputLength);
 		debugDump(inputBytes, 0, inputLength);
 
+		RawConstantPool rawConstants = readConstants(inputName, inputBytes, inputLength);
+		if ( rawConstants != null ) {
+			if ( isUnaffected(inputName, rawConstants) ) {
+				verbose("  Class bytes: {} {} (prescan)", inputName, inputLength);
+				return null;
+			}
+
+			RawClassReferences references = readReferences(inputName, rawConstants);
+			if ( references != null ) {
+				byte[][] rewrites = transformConstants(inputName, rawConstants, references);
+				if ( rewrites != null ) {
+					return rewriteConstants(inputName, rawConstants, references, rewrites);
+				}
+			}
+		}
+
 		ClassFile inputClass;
 		try {
 			DataInput inputClassData = ByteBufferDataInput.wrap(inputBytes, 0, inputLength);
@@ -442,17 +667,380 @@ public class ClassActionImpl extends ActionImpl {
 
 		ClassFile outputClass = classBuilder.build();
 
-		ByteBufferDataOutput outputClassData = new ByteBufferDataOutput( inputLength + FileUtils.PAGE_SIZE );
+		// The class is written into a pooled buffer, which is answered as the
+		// output data without copying the buffer.
+
+		PooledOutputStream outputStream = createOutputStream( inputLength + FileUtils.PAGE_SIZE );
 		try {
-			outputClass.write(outputClassData); // throws IOException
+			outputClass.write( new DataOutputStream(outputStream) ); // throws IOException
 		} catch ( IOException e ) {
+			outputStream.release();
 			throw new TransformException("Failed to write transformed class bytes", e);
 		}
 
-		byte[] outputBytes = outputClassData.toByteArray();
-		verbose("  Class size: {}: {} -> {}", inputName, inputLength, outputBytes.length);
+		if ( getCompactConstants() ) {
+			compactConstants(inputName, outputStream);
+		}
+
+		ByteData outputData = outputStream.toByteData(outputName);
+		verbose("  Class size: {}: {} -> {}", inputName, inputLength, outputData.length);
+
+		return outputData;
+	}
+
+	/**
+	 * Locate the constant pool of raw class bytes.
+	 *
+	 * @param inputName The name of the class resource.
+	 * @param inputBytes The raw class bytes.
+	 * @param inputLength The length of the raw class bytes.
+	 *
+	 * @return The constant pool of the class.  Null if the constant pool
+	 *     cannot be located.  The full parse reports the problem.
+	 */
+	protected RawConstantPool readConstants(String inputName, byte[] inputBytes, int inputLength) {
+		try {
+			return RawConstantPool.read(inputBytes, 0, inputLength); // throws IOException
+		} catch ( IOException e ) {
+			debug("Prescan failed [ {} ]: {}", inputName, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Prescan raw class bytes: Tell if the class cannot be changed by the
+	 * transformation rules.  Every transformation of a class changes a UTF8
+	 * constant which contains a package rename key or a direct string key.
+	 * The UTF8 constants are matched in place, without parsing the class.
+	 *
+	 * When the class is unaffected, the class names are recorded as unchanged.
+	 *
+	 * @param inputName The name of the class resource.
+	 * @param constants The constant pool of the class.
+	 *
+	 * @return True or false telling if the class cannot be changed.
+	 */
+	protected boolean isUnaffected(String inputName, RawConstantPool constants) {
+		if ( constants.matchesUtf8( getSignatureRule().getConstantMatcher() ) ) {
+			return false;
+		}
+
+		String inputClassName;
+		String inputSuperName;
+		try {
+			inputClassName = constants.getThisClassName(); // throws IOException
+			inputSuperName = constants.getSuperClassName(); // throws IOException
+		} catch ( IOException e ) {
+			debug("Prescan failed [ {} ]: {}", inputName, e.getMessage());
+			return false;
+		}
+
+		setClassNames(inputClassName, inputClassName);
+		setResourceNames(inputName, inputName);
+		if ( inputSuperName != null ) {
+			setSuperClassNames(inputSuperName, inputSuperName);
+		}
+
+		debug("Class [ {} ] as [ {} ]: No transformable constants", inputName, inputClassName);
+		return true;
+	}
+
+	/**
+	 * Walk the members and attributes of raw class bytes, recording the uses
+	 * of the UTF8 constants of the class.
+	 *
+	 * @param inputName The name of the class resource.
+	 * @param constants The constant pool of the class.
+	 *
+	 * @return The uses of the UTF8 constants of the class.  Null if the class
+	 *     cannot be walked, or if the constants of the class cannot be
+	 *     rewritten in place.
+	 */
+	protected RawClassReferences readReferences(String inputName, RawConstantPool constants) {
+		RawClassReferences references;
+		try {
+			references = RawClassReferences.read(constants); // throws IOException
+		} catch ( IOException e ) {
+			debug("Constant rewrite failed [ {} ]: {}", inputName, e.getMessage());
+			return null;
+		}
+
+		if ( !references.isRewritable() ) {
+			debug("Constant rewrite skipped [ {} ]: Module attributes", inputName);
+			return null;
+		}
+		return references;
+	}
+
+	/**
+	 * Transform the UTF8 constants of raw class bytes, for a rewrite of the
+	 * constant pool which copies the rest of the class unchanged.  Only UTF8
+	 * constants which contain a key of the constant matcher are decoded.
+	 *
+	 * A UTF8 constant is changed in place, as is done by the full
+	 * transformation, which changes every use of the constant.  The full
+	 * transformation also transforms uses of constants as class names,
+	 * descriptors, and signatures, and keeps names unchanged.  The rewrite is
+	 * possible only when each use of each constant transforms to the value
+	 * of the changed constant.
+	 *
+	 * @param inputName The name of the class resource.
+	 * @param constants The constant pool of the class.
+	 * @param references The uses of the UTF8 constants of the class.
+	 *
+	 * @return The encoded UTF8 constants, indexed by constant.  Null entries
+	 *     for unchanged constants.  Null if the constants cannot be rewritten
+	 *     in place.
+	 */
+	protected byte[][] transformConstants(
+		String inputName, RawConstantPool constants, RawClassReferences references) {
+
+		ByteMatcher constantMatcher = getSignatureRule().getConstantMatcher();
+		byte[] inputBytes = constants.getBytes();
+
+		int numConstants = constants.getCount();
+		byte[][] rewrites = new byte[numConstants][];
+
+		for ( int constantNo = 1; constantNo < numConstants; constantNo++ ) {
+			if ( (constants.getTag(constantNo) != RawConstantPool.CONSTANT_Utf8) ||
+				 !constantMatcher.matches(inputBytes, constants.getUtf8Offset(constantNo), constants.getUtf8Length(constantNo)) ) {
+				continue;
+			}
+
+			String inputUtf8;
+			try {
+				inputUtf8 = constants.getUtf8(constantNo); // throws IOException
+			} catch ( IOException e ) {
+				debug("Constant rewrite failed [ {} ]: {}", inputName, e.getMessage());
+				return null;
+			}
+
+			String transformCase = "constant";  // dotted package format
+			String outputUtf8 = transformConstantAsDescriptor(inputUtf8, SignatureRule.ALLOW_SIMPLE_SUBSTITUTION);
+			if ( outputUtf8 == null ) {
+				transformCase = "resource";  // url format (slashes)
+				outputUtf8 = transformConstantAsBinaryType(inputUtf8, SignatureRule.ALLOW_SIMPLE_SUBSTITUTION);
+				if ( outputUtf8 == null ) {
+					transformCase = "Direct";
+					outputUtf8 = transformDirectString(inputUtf8);
+				}
+			}
+
+			String finalUtf8 = ( (outputUtf8 == null) ? inputUtf8 : outputUtf8 );
+			int uses = references.getUses(constantNo);
+			if ( !isRewritable(inputUtf8, finalUtf8, uses) ) {
+				debug("Constant rewrite skipped [ {} ]: UTF8 [ {} ] [ {} ] is transformed by use", inputName, constantNo, inputUtf8);
+				return null;
+			}
+
+			if ( outputUtf8 != null ) {
+				byte[] encodedUtf8 = ByteMatcher.encode(outputUtf8);
+				if ( encodedUtf8.length > 0xFFFF ) {
+					debug("Constant rewrite skipped [ {} ]: UTF8 [ {} ] is too long", inputName, constantNo);
+					return null;
+				}
+				rewrites[constantNo] = encodedUtf8;
+
+				debug("    UTF8: {} -> {} ({})", inputUtf8, outputUtf8, transformCase);
+				verbose("UTF8: {} -> {} ({})", inputUtf8, outputUtf8, transformCase);
+			}
+		}
+
+		return rewrites;
+	}
+
+	/**
+	 * Tell if each use of a UTF8 constant transforms to the changed value of
+	 * the constant.  Names are never transformed.  A use which is not
+	 * transformed keeps the initial value.
+	 */
+	private boolean isRewritable(String inputUtf8, String finalUtf8, int uses) {
+		if ( (uses & RawClassReferences.USE_NAME) != 0 ) {
+			if ( !finalUtf8.equals(inputUtf8) ) {
+				return false;
+			}
+		}
+		if ( (uses & RawClassReferences.USE_CLASS) != 0 ) {
+			if ( !isTransformedTo(transformBinaryType(inputUtf8), inputUtf8, finalUtf8) ) {
+				return false;
+			}
+		}
+		if ( (uses & RawClassReferences.USE_DESCRIPTOR) != 0 ) {
+			if ( !isTransformedTo(transformDescriptor(inputUtf8), inputUtf8, finalUtf8) ) {
+				return false;
+			}
+		}
+		if ( (uses & RawClassReferences.USE_CLASS_SIGNATURE) != 0 ) {
+			if ( !isTransformedTo(transform(inputUtf8, SignatureType.CLASS), inputUtf8, finalUtf8) ) {
+				return false;
+			}
+		}
+		if ( (uses & RawClassReferences.USE_FIELD_SIGNATURE) != 0 ) {
+			if ( !isTransformedTo(transform(inputUtf8, SignatureType.FIELD), inputUtf8, finalUtf8) ) {
+				return false;
+			}
+		}
+		if ( (uses & RawClassReferences.USE_METHOD_SIGNATURE) != 0 ) {
+			if ( !isTransformedTo(transform(inputUtf8, SignatureType.METHOD), inputUtf8, finalUtf8) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isTransformedTo(String outputUtf8, String inputUtf8, String finalUtf8) {
+		return finalUtf8.equals( (outputUtf8 == null) ? inputUtf8 : outputUtf8 );
+	}
+
+	/**
+	 * Rewrite the constant pool of raw class bytes.  Changed UTF8 constants
+	 * are written in place.  All other constants, and all of the class which
+	 * follows the constant pool, are copied unchanged: Members and attributes
+	 * reference constants by index, and the indexes are not changed.
+	 *
+	 * @param inputName The name of the class resource.
+	 * @param constants The constant pool of the class.
+	 * @param references The uses of the UTF8 constants of the class.
+	 * @param rewrites The encoded changed UTF8 constants, indexed by constant.
+	 *
+	 * @return The rewritten class bytes.  Null if no constants were changed.
+	 *
+	 * @throws TransformException Thrown if the class names cannot be read.
+	 */
+	protected ByteData rewriteConstants(
+		String inputName, RawConstantPool constants,
+		RawClassReferences references, byte[][] rewrites) throws TransformException {
+
+		int numConstants = constants.getCount();
+		boolean[] changed = new boolean[numConstants];
+		int modifiedConstants = 0;
+		int outputLength = constants.getLength();
+
+		for ( int constantNo = 1; constantNo < numConstants; constantNo++ ) {
+			if ( rewrites[constantNo] != null ) {
+				changed[constantNo] = true;
+				modifiedConstants++;
+				outputLength += rewrites[constantNo].length - constants.getUtf8Length(constantNo);
+			}
+		}
+		for ( int constantNo = 1; constantNo < numConstants; constantNo++ ) {
+			int utf8No = constants.getUtf8Reference(constantNo);
+			if ( (utf8No != 0) && changed[utf8No] ) {
+				modifiedConstants++;
+			}
+		}
+
+		String inputClassName;
+		String inputSuperName;
+		try {
+			inputClassName = constants.getThisClassName(); // throws IOException
+			inputSuperName = constants.getSuperClassName(); // throws IOException
+			references.countChanges(changed); // throws IOException
+		} catch ( IOException e ) {
+			throw new TransformException("Failed to read class structure [ " + inputName + " ]", e);
+		}
+
+		String outputClassName = transformBinaryType(inputClassName);
+		String outputName;
+		if ( outputClassName != null ) {
+			outputName = relocateClass( getLogger(), inputName, inputClassName, outputClassName );
+			verbose("Class name [ {} ] -> [ {} ]", inputName, outputName);
+		} else {
+			outputClassName = inputClassName;
+			outputName = inputName;
+		}
+
+		setClassNames(inputClassName, outputClassName);
+		setResourceNames(inputName, outputName);
+
+		if ( inputSuperName != null ) {
+			String outputSuperName = transformBinaryType(inputSuperName);
+			setSuperClassNames( inputSuperName, ((outputSuperName == null) ? inputSuperName : outputSuperName) );
+		}
+
+		ClassChangesImpl useChanges = getActiveChanges();
+		useChanges.setModifiedInterfaces( references.getModifiedInterfaces() );
+		useChanges.setModifiedFields( references.getModifiedFields() );
+		useChanges.setModifiedMethods( references.getModifiedMethods() );
+		useChanges.setModifiedAttributes( references.getModifiedAttributes() );
+		if ( modifiedConstants > 0 ) {
+			setModifiedConstants(modifiedConstants);
+		}
+
+		if ( !hasNonResourceNameChanges() ) {
+			verbose("  Class bytes: {} {}", inputName, constants.getLength());
+			return null;
+		}
+
+		// Copy the class in runs of unchanged bytes, which are broken only by
+		// the changed UTF8 constants.
+
+		byte[] inputBytes = constants.getBytes();
+		int copyOffset = constants.getOffset();
+
+		PooledOutputStream outputStream = createOutputStream(outputLength);
+		for ( int constantNo = 1; constantNo < numConstants; constantNo++ ) {
+			byte[] rewrite = rewrites[constantNo];
+			if ( rewrite == null ) {
+				continue;
+			}
+			int entryOffset = constants.getEntryOffset(constantNo);
+			outputStream.write(inputBytes, copyOffset, entryOffset - copyOffset);
+			outputStream.write(RawConstantPool.CONSTANT_Utf8);
+			outputStream.write(rewrite.length >>> 8);
+			outputStream.write(rewrite.length);
+			outputStream.write(rewrite, 0, rewrite.length);
+			copyOffset = constants.getUtf8Offset(constantNo) + constants.getUtf8Length(constantNo);
+		}
+		outputStream.write(inputBytes, copyOffset, constants.getOffset() + constants.getLength() - copyOffset);
+
+		ByteData outputData = outputStream.toByteData(outputName);
+		verbose("  Class size: {}: {} -> {} (constants)", inputName, constants.getLength(), outputData.length);
+
+		return outputData;
+	}
+
+	/**
+	 * Remove unused constants from a rebuilt class.  The class is compacted
+	 * in place, in the buffer of the stream which holds the class.  The class
+	 * is not changed if it has no unused constants, or if it has attributes
+	 * which are not known, and which might reference the constants.
+	 *
+	 * @param inputName The name of the class resource.
+	 * @param outputStream The stream which holds the rebuilt class.
+	 */
+	protected void compactConstants(String inputName, PooledOutputStream outputStream) {
+		int outputLength = outputStream.size();
+
+		ConstantPoolCompactor compactor;
+		try {
+			RawConstantPool constants = RawConstantPool.read(outputStream.getBuffer(), 0, outputLength); // throws IOException
+			compactor = ConstantPoolCompactor.read(constants); // throws IOException
+		} catch ( IOException e ) {
+			debug("Compaction failed [ {} ]: {}", inputName, e.getMessage());
+			return;
+		}
+
+		if ( !compactor.isCompactable() ) {
+			debug("Compaction skipped [ {} ]: Unknown attributes", inputName);
+			return;
+		} else if ( compactor.getUnusedCount() == 0 ) {
+			return;
+		}
+
+		int compactedLength;
+		try {
+			compactedLength = compactor.compact(); // throws IOException
+		} catch ( IOException e ) {
+			debug("Compaction failed [ {} ]: {}", inputName, e.getMessage());
+			return;
+		}
+		outputStream.truncate(compactedLength);
 
-		return new ByteData(outputName, outputBytes, 0, outputBytes.length);
+		int compactedBytes = outputLength - compactedLength;
+		getActiveChanges().setCompacted( compactor.getUnusedCount(), compactedBytes );
+		verbose("  Class constants: {}: Removed [ {} ] unused constants [ {} ] bytes",
+			inputName, compactor.getUnusedCount(), compactedBytes);
 	}
 
 	//
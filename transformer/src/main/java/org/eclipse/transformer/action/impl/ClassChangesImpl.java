@@ -13,6 +13,7 @@ package org.eclipse.transformer.action.impl;
 
 import java.io.PrintStream;
 
+import org.eclipse.transformer.action.ContainerChanges;
 import org.slf4j.Logger;
 
 public class ClassChangesImpl extends ChangesImpl {
@@ -31,6 +32,9 @@ public class ClassChangesImpl extends ChangesImpl {
 		modifiedAttributes = 0;
 
 		modifiedConstants = 0;
+
+		compactedConstants = 0;
+		compactedBytes = 0;
 	}
 
 	@Override
@@ -164,6 +168,43 @@ public class ClassChangesImpl extends ChangesImpl {
 
 	//
 
+	private int compactedConstants;
+	private int compactedBytes;
+
+	/**
+	 * Answer the number of unused constants which were removed from the
+	 * transformed class.
+	 *
+	 * @return The number of removed constants.
+	 */
+	public int getCompactedConstants() {
+		return compactedConstants;
+	}
+
+	/**
+	 * Answer the number of bytes by which the transformed class was reduced
+	 * by removing unused constants.
+	 *
+	 * @return The number of removed bytes.
+	 */
+	public int getCompactedBytes() {
+		return compactedBytes;
+	}
+
+	public void setCompacted(int compactedConstants, int compactedBytes) {
+		this.compactedConstants = compactedConstants;
+		this.compactedBytes = compactedBytes;
+	}
+
+	@Override
+	public void addNestedInto(ContainerChanges containerChanges) {
+		if ( compactedConstants > 0 ) {
+			containerChanges.addCompacted(compactedBytes);
+		}
+	}
+
+	//
+
 	@Override
 	public void displayVerbose(PrintStream printStream, String inputPath, String outputPath) {
 		printStream.printf(
@@ -189,6 +230,9 @@ public class ClassChangesImpl extends ChangesImpl {
 		printStream.printf( "Modified fields     [ %s ]\n", getModifiedFields() );
 		printStream.printf( "Modified methods    [ %s ]\n", getModifiedMethods() );
 		printStream.printf( "Modified constants  [ %s ]\n", getModifiedConstants() );	
+		if ( getCompactedConstants() > 0 ) {
+			printStream.printf( "Removed constants   [ %s ] [ %s bytes ]\n", getCompactedConstants(), getCompactedBytes() );
+		}
 	}
 
 	@Override
@@ -220,5 +264,8 @@ public class ClassChangesImpl extends ChangesImpl {
 		logger.info( "Modified fields     [ {} ]", getModifiedFields() );
 		logger.info( "Modified methods    [ {} ]", getModifiedMethods() );
 		logger.info( "Modified constants  [ {} ]", getModifiedConstants() );	
+		if ( getCompactedConstants() > 0 ) {
+			logger.info( "Removed constants   [ {} ] [ {} bytes ]", getCompactedConstants(), getCompactedBytes() );
+		}
 	}
 }
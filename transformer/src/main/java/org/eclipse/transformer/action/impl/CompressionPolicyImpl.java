@@ -0,0 +1,207 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.action.impl;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.transformer.action.ActionType;
+import org.eclipse.transformer.action.CompressionPolicy;
+import org.slf4j.Logger;
+
+/**
+ * Compression settings for entries written to output containers.
+ *
+ * Settings are keyed by selectors, which are one of:
+ *
+ * <ul>
+ * <li>An extension, for example, "*.jar".  Extensions are matched without
+ *     regard to case.</li>
+ * <li>An action type, for example, "class" or "war".</li>
+ * <li>The wildcard "*", which provides the setting used by all other entries.</li>
+ * </ul>
+ *
+ * Extensions are matched before action types.
+ *
+ * Settings are one of "stored", "deflated", or a deflate level
+ * from "0" to "9".
+ */
+public class CompressionPolicyImpl implements CompressionPolicy {
+	public static final String WILDCARD_SELECTOR = "*";
+	public static final String EXTENSION_SELECTOR = "*.";
+
+	public static final String STORED_SETTING = "stored";
+	public static final String DEFLATED_SETTING = "deflated";
+
+	public static final String DEFAULT_POLICY = "default";
+
+	/**
+	 * Default settings: Nested archives and media which is already compressed
+	 * are stored, and classes are compressed using a fast level.
+	 */
+	public static final Map<String, String> DEFAULT_SETTINGS;
+
+	static {
+		Map<String, String> defaultSettings = new LinkedHashMap<String, String>();
+
+		String[] storedExtensions = {
+			"*.jar", "*.war", "*.rar", "*.ear", "*.zip",
+			"*.gz", "*.tgz", "*.bz2", "*.xz", "*.7z",
+			"*.png", "*.jpg", "*.jpeg", "*.gif", "*.ico", "*.webp",
+			"*.mp3", "*.mp4", "*.ogg", "*.woff", "*.woff2"
+		};
+		for ( String storedExtension : storedExtensions ) {
+			defaultSettings.put(storedExtension, STORED_SETTING);
+		}
+
+		defaultSettings.put("class", "1");
+
+		DEFAULT_SETTINGS = defaultSettings;
+	}
+
+	/**
+	 * Parse compression settings from text.  The text is a comma
+	 * delimited list of selector and setting pairs, for example,
+	 * "*.jar=stored,class=1".  The text "default" selects the
+	 * {@link #DEFAULT_SETTINGS}.
+	 *
+	 * @param text Compression settings text.
+	 *
+	 * @return The parsed settings.
+	 *
+	 * @throws IllegalArgumentException Thrown if the text is not valid.
+	 */
+	public static Map<String, String> parseSettings(String text) {
+		text = text.trim();
+		if ( text.equalsIgnoreCase(DEFAULT_POLICY) ) {
+			return DEFAULT_SETTINGS;
+		}
+
+		Map<String, String> settings = new LinkedHashMap<String, String>();
+
+		for ( String pair : text.split(",") ) {
+			pair = pair.trim();
+			if ( pair.isEmpty() ) {
+				continue;
+			}
+
+			int equalsOffset = pair.indexOf('=');
+			if ( equalsOffset == -1 ) {
+				throw new IllegalArgumentException("Compression setting [ " + pair + " ] does not have the form [ selector=setting ]");
+			}
+
+			settings.put( pair.substring(0, equalsOffset).trim(), pair.substring(equalsOffset + 1).trim() );
+		}
+
+		return settings;
+	}
+
+	//
+
+	public CompressionPolicyImpl(Logger logger, Map<String, String> settings) {
+		this.logger = logger;
+
+		Map<String, int[]> useExtensions = new HashMap<String, int[]>();
+		Map<ActionType, int[]> useActionTypes = new EnumMap<ActionType, int[]>(ActionType.class);
+		int[] useDefault = new int[] { DEFLATED, DEFAULT_LEVEL };
+
+		for ( Map.Entry<String, String> settingEntry : settings.entrySet() ) {
+			String selector = settingEntry.getKey();
+			int[] setting = parseSetting( selector, settingEntry.getValue() );
+
+			debug("Compression [ {} ]: [ {} ]", selector, settingEntry.getValue());
+
+			if ( selector.equals(WILDCARD_SELECTOR) ) {
+				useDefault = setting;
+
+			} else if ( selector.startsWith(EXTENSION_SELECTOR) ) {
+				useExtensions.put( selector.substring(1).toLowerCase(), setting );
+
+			} else {
+				ActionType actionType;
+				try {
+					actionType = ActionType.valueOf( selector.toUpperCase() );
+				} catch ( IllegalArgumentException e ) {
+					throw new IllegalArgumentException("Compression selector [ " + selector + " ] is not an extension or an action type", e);
+				}
+				useActionTypes.put(actionType, setting);
+			}
+		}
+
+		this.extensions = useExtensions;
+		this.actionTypes = useActionTypes;
+		this.defaultSetting = useDefault;
+	}
+
+	private static int[] parseSetting(String selector, String setting) {
+		if ( setting.equalsIgnoreCase(STORED_SETTING) ) {
+			return new int[] { STORED, DEFAULT_LEVEL };
+		} else if ( setting.equalsIgnoreCase(DEFLATED_SETTING) ) {
+			return new int[] { DEFLATED, DEFAULT_LEVEL };
+		} else if ( (setting.length() == 1) && (setting.charAt(0) >= '0') && (setting.charAt(0) <= '9') ) {
+			return new int[] { DEFLATED, setting.charAt(0) - '0' };
+		} else {
+			throw new IllegalArgumentException("Compression setting [ " + setting + " ] of [ " + selector + " ] is not valid");
+		}
+	}
+
+	//
+
+	private final Logger logger;
+
+	public Logger getLogger() {
+		return logger;
+	}
+
+	public void debug(String message, Object... parms) {
+		getLogger().debug(message, parms);
+	}
+
+	//
+
+	private final Map<String, int[]> extensions;
+	private final Map<ActionType, int[]> actionTypes;
+	private final int[] defaultSetting;
+
+	protected int[] getSetting(String resourceName, ActionType actionType) {
+		if ( !extensions.isEmpty() ) {
+			int lastDot = resourceName.lastIndexOf('.');
+			if ( lastDot != -1 ) {
+				int[] setting = extensions.get( resourceName.substring(lastDot).toLowerCase() );
+				if ( setting != null ) {
+					return setting;
+				}
+			}
+		}
+
+		if ( actionType != null ) {
+			int[] setting = actionTypes.get(actionType);
+			if ( setting != null ) {
+				return setting;
+			}
+		}
+
+		return defaultSetting;
+	}
+
+	@Override
+	public int getMethod(String resourceName, ActionType actionType) {
+		return getSetting(resourceName, actionType)[0];
+	}
+
+	@Override
+	public int getLevel(String resourceName, ActionType actionType) {
+		return getSetting(resourceName, actionType)[1];
+	}
+}
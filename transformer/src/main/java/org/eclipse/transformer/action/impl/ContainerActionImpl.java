@@ -11,23 +11,39 @@
 
 package org.eclipse.transformer.action.impl;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
 
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.Action;
 import org.eclipse.transformer.action.ActionType;
+import org.eclipse.transformer.action.CompressionPolicy;
 import org.eclipse.transformer.action.ContainerAction;
 import org.eclipse.transformer.action.ContainerChanges;
+import org.eclipse.transformer.util.BufferPool;
 import org.eclipse.transformer.util.ByteData;
 import org.eclipse.transformer.util.FileUtils;
 import org.eclipse.transformer.util.InputStreamData;
+import org.eclipse.transformer.util.ParallelDeflater;
+import org.eclipse.transformer.util.RawZipEntry;
+import org.eclipse.transformer.util.RawZipFile;
+import org.eclipse.transformer.util.RawZipInputStream;
+import org.eclipse.transformer.util.RawZipOutputStream;
+import org.eclipse.transformer.util.SpillBuffer;
 import org.slf4j.Logger;
 
 public abstract class ContainerActionImpl extends ActionImpl implements ContainerAction {
@@ -108,24 +124,81 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 
 	//
 
+	/**
+	 * Create a copy of this container action and of the actions which it
+	 * uses.  The settings of this action are copied.
+	 *
+	 * @param useBuffer The buffer to be used by the copies.
+	 * @param copies Table of actions which were already copied.
+	 *
+	 * @return A copy of this action.  Null if this action or any of the
+	 *     actions which it uses was not created using an initializer.
+	 */
+	@Override
+	public ActionImpl createCopy(InputBufferImpl useBuffer, Map<ActionImpl, ActionImpl> copies) {
+		ActionImpl priorCopy = copies.get(this);
+		if ( priorCopy != null ) {
+			return priorCopy;
+		}
+
+		ContainerActionImpl copy = (ContainerActionImpl) createCopy(useBuffer);
+		if ( copy == null ) {
+			return null;
+		}
+		copies.put(this, copy);
+
+		copy.setExecutor( getExecutor(), getMaxPending() );
+		copy.setDeflateThreshold( getDeflateThreshold() );
+		copy.setCompressionPolicy( getCompressionPolicy() );
+		copy.setCopyUnchanged( getCopyUnchanged() );
+
+		for ( ActionImpl action : getActions() ) {
+			ActionImpl actionCopy = action.createCopy(useBuffer, copies);
+			if ( actionCopy == null ) {
+				return null;
+			}
+			copy.addAction(actionCopy);
+		}
+
+		return copy;
+	}
+
+	//
+
 	protected void recordUnaccepted(String resourceName) {
+		recordUnaccepted( resourceName, getActiveChanges() );
+	}
+
+	protected void recordUnselected(Action action, String resourceName) {
+		recordUnselected( action, resourceName, getActiveChanges() );
+	}
+
+	protected void recordTransform(Action action, String resourceName) {
+		recordTransform( action, resourceName, getActiveChanges() );
+	}
+
+	// Variations which record into specified changes.  These are used when
+	// resources are transformed by several threads, each of which records
+	// its own changes.
+
+	protected void recordUnaccepted(String resourceName, ContainerChangesImpl useChanges) {
 		debug("Resource [ {} ]: Not accepted", resourceName);
 
-		getActiveChanges().record();
+		useChanges.record();
 	}
 
-	protected void recordUnselected(Action action, String resourceName) {
+	protected void recordUnselected(Action action, String resourceName, ContainerChangesImpl useChanges) {
 		debug( "Resource [ {} ] Action [ {} ]: Accepted but not selected",
 			   resourceName, action.getName() );
 
-		getActiveChanges().record( action, !ContainerChanges.HAS_CHANGES );
+		useChanges.record( action, !ContainerChanges.HAS_CHANGES );
 	}
 
-	protected void recordTransform(Action action, String resourceName) {
+	protected void recordTransform(Action action, String resourceName, ContainerChangesImpl useChanges) {
 		debug( "Resource [ {} ] Action [ {} ]: Changes [ {} ]",
 			   resourceName, action.getName(), action.hadChanges() );
 
-		getActiveChanges().record(action);
+		useChanges.record(action);
 	}
 
 	// Byte base container conversion is not supported.
@@ -152,12 +225,15 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 		try {
 			setResourceNames(inputPath, inputPath);
 
-			// Use Zip streams instead of Jar streams.
+			// Use raw zip streams instead of Jar or Zip streams.
 			//
 			// Jar streams automatically read and consume the manifest, which we don't want.
+			//
+			// Raw zip streams allow entries which are not transformed to be copied
+			// without decompressing and recompressing their data.
 
-			ZipInputStream zipInputStream = new ZipInputStream(inputStream);
-			ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+			RawZipInputStream zipInputStream = new RawZipInputStream(inputStream);
+			RawZipOutputStream zipOutputStream = createZipOutputStream(outputStream);
 
 			try {
 				apply(inputPath, zipInputStream, zipOutputStream);
@@ -177,8 +253,13 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 	}
 
 	protected void apply(
-		String inputPath, ZipInputStream zipInputStream,
-		ZipOutputStream zipOutputStream) throws TransformException {
+		String inputPath, RawZipInputStream zipInputStream,
+		RawZipOutputStream zipOutputStream) throws TransformException {
+
+		if ( getExecutor() != null ) {
+			applyParallel(inputPath, zipInputStream, zipOutputStream); // throws TransformException
+			return;
+		}
 
 		String prevName = null;
 		String inputName = null;
@@ -186,100 +267,956 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 		try {
 			byte[] buffer = new byte[FileUtils.BUFFER_ADJUSTMENT];
 
-			ZipEntry inputEntry;
+			RawZipEntry inputEntry;
 			while ( (inputEntry = zipInputStream.getNextEntry()) != null ) {
 				inputName = inputEntry.getName();
-				long inputLength = inputEntry.getSize();
 
-				debug( "[ {}.{} ] [ {} ] Size [ {} ]",
-					getClass().getSimpleName(), "apply", inputName, inputLength );
+				Action acceptedAction = selectEntryAction(inputEntry);
+				if ( acceptedAction == null ) {
+					// Copy the entry as compressed data: The entry data is
+					// not inflated, and is not deflated a second time.  The
+					// CRC, sizes, and other entry details are retained.
 
-				boolean selected = select(inputName);
-				Action acceptedAction = acceptAction(inputName);
+					zipInputStream.transferRaw(zipOutputStream); // throws IOException
 
-				if ( !selected || (acceptedAction == null) ) {
-					if ( acceptedAction == null ) {
-						recordUnaccepted(inputName);
-					} else {
-						recordUnselected(acceptedAction, inputName);
+				} else {
+					transformEntry(inputEntry, acceptedAction, zipInputStream, zipOutputStream, buffer);
+					// throws IOException, TransformException
+				}
+
+				prevName = inputName;
+				inputName = null;
+			}
+
+		} catch ( IOException e ) {
+			String message;
+			if ( inputName != null ) { // Actively processing an entry.
+				message = "Failure while processing [ " + inputName + " ] from [ " + inputPath + " ]";
+			} else if ( prevName != null ) { // Moving to a new entry but not the first entry.
+				message = "Failure after processing [ " + prevName + " ] from [ " + inputPath + " ]";
+			} else { // Moving to the first entry.
+				message = "Failed to process first entry of [ " + inputPath + " ]";
+			}
+			throw new TransformException(message, e);
+		}
+	}
+
+	// Containers which are files are processed using the central directory
+	// of the file.  That provides exact entry sizes before any entry is read,
+	// and allows entries to be read in any order.
+	//
+	// Nested containers, and containers which are not files, are processed as
+	// streams.
+
+	@Override
+	public void apply(String inputPath, File inputFile, File outputFile)
+		throws TransformException {
+
+		if ( !inputFile.isFile() ) {
+			super.apply(inputPath, inputFile, outputFile); // throws TransformException
+			return;
+		}
+
+		RawZipFile zipFile;
+		try {
+			zipFile = new RawZipFile(inputFile); // throws IOException
+		} catch ( ZipException e ) {
+			debug("Input [ {} ]: Central directory not available; processing as a stream: {}", inputPath, e.getMessage());
+			super.apply(inputPath, inputFile, outputFile); // throws TransformException
+			return;
+		} catch ( IOException e ) {
+			throw new TransformException("Failed to open input [ " + inputFile.getAbsolutePath() + " ]", e);
+		}
+
+		try {
+			startRecording(inputPath);
+			try {
+				setResourceNames(inputPath, inputPath);
+
+				OutputStream outputStream = openOutputStream(outputFile);
+				try {
+					RawZipOutputStream zipOutputStream = createZipOutputStream(
+						new BufferedOutputStream(outputStream, FileUtils.BUFFER_ADJUSTMENT) );
+
+					apply(inputPath, zipFile, zipOutputStream); // throws TransformException
+
+					try {
+						zipOutputStream.finish(); // throws IOException
+					} catch ( IOException e ) {
+						throw new TransformException("Failed to complete output [ " + inputPath + " ]", e);
 					}
 
-					// TODO: Should more of the entry details be transferred?
+				} finally {
+					closeOutputStream(outputFile, outputStream);
+				}
 
-					ZipEntry outputEntry = new ZipEntry(inputName);
-					zipOutputStream.putNextEntry(outputEntry); // throws IOException
-					FileUtils.transfer(zipInputStream, zipOutputStream, buffer); // throws IOException 
-					zipOutputStream.closeEntry(); // throws IOException
+			} finally {
+				stopRecording(inputPath);
+			}
+
+		} finally {
+			try {
+				zipFile.close(); // throws IOException
+			} catch ( IOException e ) {
+				throw new TransformException("Failed to close input [ " + inputFile.getAbsolutePath() + " ]", e);
+			}
+		}
+	}
+
+	protected void apply(
+		String inputPath, RawZipFile zipFile,
+		RawZipOutputStream zipOutputStream) throws TransformException {
+
+		if ( getExecutor() != null ) {
+			applyParallel(inputPath, zipFile, zipOutputStream); // throws TransformException
+			return;
+		}
+
+		String inputName = null;
+
+		try {
+			byte[] buffer = new byte[FileUtils.BUFFER_ADJUSTMENT];
+
+			for ( RawZipEntry inputEntry : zipFile.getEntries() ) {
+				inputName = inputEntry.getName();
+
+				Action acceptedAction = selectEntryAction(inputEntry);
+				if ( acceptedAction == null ) {
+					// The central directory provides the sizes and CRC:
+					// Entries are copied without being inflated, even entries
+					// which were written using data descriptors.
+
+					zipFile.transferRaw(inputEntry, zipOutputStream, buffer); // throws IOException
 
 				} else {
-//					long inputCRC = inputEntry.getCrc();
-//
-//					int inputMethod = inputEntry.getMethod();
-//					long inputCompressed = inputEntry.getCompressedSize();
-//
-//					FileTime inputCreation = inputEntry.getCreationTime();
-//					FileTime inputAccess = inputEntry.getLastAccessTime();
-//					FileTime inputModified = inputEntry.getLastModifiedTime();
-//
-//					String className = getClass().getSimpleName();
-//					String methodName = "applyZip";
-//
-//					debug( "[ {}.{} ] [ {} ] Size [ {} ] CRC [ {} ]",
-//						   className, methodName, inputName, inputLength, inputCRC);
-//					debug( "[ {}.{} ] [ {} ] Compressed size [ {} ] Method [ {} ]",
-//						   className, methodName, inputName, inputCompressed, inputMethod);
-//					debug( "[ {}.{} ] [ {} ] Created [ {} ] Accessed [ {} ] Modified [ {} ]",
-//						   className, methodName, inputName, inputCreation, inputAccess, inputModified);
-
-					// Archive type actions are processed using streams,
-					// while non-archive type actions do a full read of the entry
-					// data and process the resulting byte array.
-					//
-					// Ideally, a single pattern would be used for both cases, but
-					// but that is not possible:
-					//
-					// A full read of a nested archive is not possible because the nested
-					// archive can be very large.
-					//
-					// A read of non-archive data must be performed, since non-archive data
-					// may change the name associated with the data, and that can only be
-					// determined after reading the data.
-
-					if ( acceptedAction.useStreams() ) {
-						// TODO: Should more of the entry details be transferred?
-
-						ZipEntry outputEntry = new ZipEntry(inputName);
-						zipOutputStream.putNextEntry(outputEntry); // throws IOException
-
-						acceptedAction.apply(inputName, zipInputStream, inputLength, zipOutputStream);
-						recordTransform(acceptedAction, inputName);
-						zipOutputStream.closeEntry(); // throws IOException
+					transformEntry(inputEntry, acceptedAction, zipFile, zipOutputStream, buffer);
+					// throws IOException, TransformException
+				}
 
-					} else {
-						int intInputLength;
-						if ( inputLength == -1L ) {
-							intInputLength = -1;
-						} else {
-							intInputLength = FileUtils.verifyArray(0, inputLength);
+				inputName = null;
+			}
+
+		} catch ( IOException e ) {
+			String message;
+			if ( inputName != null ) {
+				message = "Failure while processing [ " + inputName + " ] from [ " + inputPath + " ]";
+			} else {
+				message = "Failure while processing [ " + inputPath + " ]";
+			}
+			throw new TransformException(message, e);
+		}
+	}
+
+	//
+
+	/**
+	 * Select the action which is to transform an entry.  Record the entry
+	 * as unaccepted or unselected if there is no such action.
+	 *
+	 * @param inputEntry The entry which is to be transformed.
+	 *
+	 * @return The action which is to transform the entry.  Null if the
+	 *     entry is to be copied without changes.
+	 */
+	protected Action selectEntryAction(RawZipEntry inputEntry) {
+		String inputName = inputEntry.getName();
+
+		debug( "[ {}.{} ] [ {} ] Size [ {} ]",
+			getClass().getSimpleName(), "apply", inputName, inputEntry.getSize() );
+
+		boolean selected = select(inputName);
+		Action acceptedAction = acceptAction(inputName);
+
+		if ( acceptedAction == null ) {
+			recordUnaccepted(inputName);
+			return null;
+		} else if ( !selected ) {
+			recordUnselected(acceptedAction, inputName);
+			return null;
+		} else {
+			return acceptedAction;
+		}
+	}
+
+	// Nested containers which have no changes may be copied using their
+	// original data.  The nested container is transformed to a buffer, which
+	// is written only if the nested container has changes.  Otherwise, the
+	// original entry is copied without inflating or deflating its data.
+	//
+	// An entry of a zip file is copied from the zip file.  An entry of a zip
+	// stream is copied from its compressed data, which is captured as the
+	// entry is read.
+
+	private boolean copyUnchanged;
+
+	/**
+	 * Set whether nested containers which have no changes are copied
+	 * using their original data.
+	 *
+	 * @param copyUnchanged True to copy nested containers which have no
+	 *     changes.  False to always write transformed nested containers.
+	 */
+	public void setCopyUnchanged(boolean copyUnchanged) {
+		this.copyUnchanged = copyUnchanged;
+	}
+
+	public boolean getCopyUnchanged() {
+		return copyUnchanged;
+	}
+
+	/**
+	 * Tell if an entry is to be copied when its transformation has no
+	 * changes.  That is the case for nested containers when copying
+	 * unchanged containers is enabled.
+	 *
+	 * @param acceptedAction The action which is to transform the entry.
+	 *
+	 * @return True or false telling if an unchanged entry is to be copied.
+	 */
+	protected boolean copyIfUnchanged(Action acceptedAction) {
+		return ( getCopyUnchanged() && (acceptedAction instanceof ContainerAction) );
+	}
+
+	/**
+	 * Transform an entry of a zip stream and write the transformed entry.
+	 *
+	 * @param inputEntry The entry which is to be transformed.
+	 * @param acceptedAction The action which is to transform the entry.
+	 * @param zipInputStream The stream positioned at the entry data.
+	 * @param zipOutputStream The stream which is to receive the transformed entry.
+	 * @param buffer A buffer to use to transfer data.
+	 *
+	 * @throws IOException Thrown if the entry could not be read or written.
+	 * @throws TransformException Thrown if the transformation failed.
+	 */
+	protected void transformEntry(
+		RawZipEntry inputEntry, Action acceptedAction,
+		RawZipInputStream zipInputStream,
+		RawZipOutputStream zipOutputStream, byte[] buffer) throws IOException, TransformException {
+
+		if ( !copyIfUnchanged(acceptedAction) ) {
+			transformEntry(
+				inputEntry, acceptedAction,
+				zipInputStream, inputEntry.getSize(),
+				zipOutputStream, buffer); // throws IOException, TransformException
+			return;
+		}
+
+		String inputName = inputEntry.getName();
+
+		try ( SpillBuffer rawData = new SpillBuffer(inputName);
+			  SpillBuffer outputData = new SpillBuffer(inputName) ) {
+
+			zipInputStream.setRawCapture(rawData); // throws IOException
+			try {
+				acceptedAction.apply(inputName, zipInputStream, inputEntry.getSize(), outputData);
+				// throws TransformException
+				zipInputStream.closeEntry(); // throws IOException
+			} finally {
+				zipInputStream.setRawCapture(null); // throws IOException
+			}
+			recordTransform(acceptedAction, inputName);
+
+			if ( acceptedAction.hadChanges() ) {
+				RawZipEntry outputEntry = createOutputEntry(inputEntry, inputName, acceptedAction.getActionType());
+				writeEntry(outputEntry, outputData, zipOutputStream, buffer); // throws IOException
+
+			} else {
+				debug("[ {} ]: Unchanged; copying original data", inputName);
+
+				zipOutputStream.putRawEntry(inputEntry); // throws IOException
+				rawData.writeTo(zipOutputStream, buffer); // throws IOException
+				zipOutputStream.closeEntry(); // throws IOException
+			}
+		}
+	}
+
+	/**
+	 * Transform an entry of a zip file and write the transformed entry.
+	 *
+	 * @param inputEntry The entry which is to be transformed.
+	 * @param acceptedAction The action which is to transform the entry.
+	 * @param zipFile The zip file which contains the entry.
+	 * @param zipOutputStream The stream which is to receive the transformed entry.
+	 * @param buffer A buffer to use to transfer data.
+	 *
+	 * @throws IOException Thrown if the entry could not be read or written.
+	 * @throws TransformException Thrown if the transformation failed.
+	 */
+	protected void transformEntry(
+		RawZipEntry inputEntry, Action acceptedAction,
+		RawZipFile zipFile,
+		RawZipOutputStream zipOutputStream, byte[] buffer) throws IOException, TransformException {
+
+		if ( !copyIfUnchanged(acceptedAction) ) {
+			try ( InputStream entryStream = zipFile.getInputStream(inputEntry) ) { // throws IOException
+				transformEntry(
+					inputEntry, acceptedAction,
+					entryStream, inputEntry.getSize(),
+					zipOutputStream, buffer); // throws IOException, TransformException
+			}
+			return;
+		}
+
+		String inputName = inputEntry.getName();
+
+		try ( SpillBuffer outputData = new SpillBuffer(inputName) ) {
+			try ( InputStream entryStream = zipFile.getInputStream(inputEntry) ) { // throws IOException
+				acceptedAction.apply(inputName, entryStream, inputEntry.getSize(), outputData);
+				// throws TransformException
+			}
+			recordTransform(acceptedAction, inputName);
+
+			if ( acceptedAction.hadChanges() ) {
+				RawZipEntry outputEntry = createOutputEntry(inputEntry, inputName, acceptedAction.getActionType());
+				writeEntry(outputEntry, outputData, zipOutputStream, buffer); // throws IOException
+
+			} else {
+				debug("[ {} ]: Unchanged; copying original data", inputName);
+
+				zipFile.transferRaw(inputEntry, zipOutputStream, buffer); // throws IOException
+			}
+		}
+	}
+
+	/**
+	 * Transform an entry and write the transformed entry.
+	 *
+	 * @param inputEntry The entry which is to be transformed.
+	 * @param acceptedAction The action which is to transform the entry.
+	 * @param entryStream A stream providing the uncompressed entry data.
+	 * @param inputLength The uncompressed length of the entry.  -1 if
+	 *     the length is not known.
+	 * @param zipOutputStream The stream which is to receive the transformed entry.
+	 * @param buffer A buffer to use to transfer data.
+	 *
+	 * @throws IOException Thrown if the entry could not be read or written.
+	 * @throws TransformException Thrown if the transformation failed.
+	 */
+	protected void transformEntry(
+		RawZipEntry inputEntry, Action acceptedAction,
+		InputStream entryStream, long inputLength,
+		RawZipOutputStream zipOutputStream, byte[] buffer) throws IOException, TransformException {
+
+		String inputName = inputEntry.getName();
+
+		// Archive type actions are processed using streams,
+		// while non-archive type actions do a full read of the entry
+		// data and process the resulting byte array.
+		//
+		// Ideally, a single pattern would be used for both cases, but
+		// but that is not possible:
+		//
+		// A full read of a nested archive is not possible because the nested
+		// archive can be very large.
+		//
+		// A read of non-archive data must be performed, since non-archive data
+		// may change the name associated with the data, and that can only be
+		// determined after reading the data.
+
+		if ( acceptedAction.useStreams() ) {
+			RawZipEntry outputEntry = createOutputEntry(inputEntry, inputName, acceptedAction.getActionType());
+
+			if ( outputEntry.getMethod() == RawZipEntry.STORED ) {
+				// The CRC and size of a stored entry must be written before
+				// the entry data: Retain the data until it is complete.
+				try ( SpillBuffer storedData = new SpillBuffer(inputName) ) {
+					acceptedAction.apply(inputName, entryStream, inputLength, storedData);
+					recordTransform(acceptedAction, inputName);
+
+					writeEntry(outputEntry, storedData, zipOutputStream, buffer); // throws IOException
+				}
+
+			} else {
+				zipOutputStream.putNextEntry(outputEntry); // throws IOException
+				acceptedAction.apply(inputName, entryStream, inputLength, zipOutputStream);
+				recordTransform(acceptedAction, inputName);
+				zipOutputStream.closeEntry(); // throws IOException
+			}
+
+		} else {
+			int intInputLength;
+			if ( inputLength == -1L ) {
+				intInputLength = -1;
+			} else {
+				intInputLength = FileUtils.verifyArray(0, inputLength);
+			}
+
+			InputStreamData outputData =
+				acceptedAction.apply(inputName, entryStream, intInputLength);
+			recordTransform(acceptedAction, inputName);
+
+			RawZipEntry outputEntry = createOutputEntry(
+				inputEntry,
+				acceptedAction.getLastActiveChanges().getOutputResourceName(),
+				acceptedAction.getActionType() );
+			writeEntry(outputEntry, outputData, zipOutputStream, buffer); // throws IOException
+
+			// The entry is written: The buffer of transformed data may be
+			// reused.  The input buffer is held by the action for the next read.
+
+			ByteData byteData = outputData.byteData;
+			if ( (byteData != null) && (byteData.data != acceptedAction.getInputBuffer()) ) {
+				getBuffer().getPool().release(byteData.data);
+			}
+		}
+	}
+
+	//
+
+	// Output entries are compressed according to a compression policy.
+	// Without a policy, all output entries are deflated using the default
+	// compression level.
+	//
+	// The policy applies to entries which are written by actions.  Entries
+	// which are copied retain their compressed data.
+
+	private CompressionPolicy compressionPolicy;
+
+	public void setCompressionPolicy(CompressionPolicy compressionPolicy) {
+		this.compressionPolicy = compressionPolicy;
+	}
+
+	public CompressionPolicy getCompressionPolicy() {
+		return compressionPolicy;
+	}
+
+	/**
+	 * Create an output entry.  The entry has the time of the input entry,
+	 * and has the compression method which is selected by the compression
+	 * policy.
+	 *
+	 * @param inputEntry The entry which was transformed.
+	 * @param outputName The name of the output entry.
+	 * @param actionType The type of the action which transformed the entry.
+	 *
+	 * @return The output entry.
+	 */
+	protected RawZipEntry createOutputEntry(RawZipEntry inputEntry, String outputName, ActionType actionType) {
+		RawZipEntry outputEntry = new RawZipEntry(outputName);
+		outputEntry.setTime( inputEntry.getTime() );
+
+		CompressionPolicy policy = getCompressionPolicy();
+		if ( policy == null ) {
+			outputEntry.setMethod(RawZipEntry.DEFLATED);
+			outputEntry.setLevel(RawZipEntry.DEFAULT_LEVEL);
+		} else {
+			outputEntry.setMethod( policy.getMethod(outputName, actionType) );
+			outputEntry.setLevel( policy.getLevel(outputName, actionType) );
+		}
+
+		return outputEntry;
+	}
+
+	/**
+	 * Write transformed entry data.
+	 *
+	 * The CRC and size of a stored entry are computed from the entry data
+	 * before the entry is put.  Data which was transformed in memory is
+	 * used directly.
+	 *
+	 * @param outputEntry The output entry.
+	 * @param outputData The transformed entry data.
+	 * @param zipOutputStream The stream which is to receive the entry.
+	 * @param buffer A buffer to use to transfer data.
+	 *
+	 * @throws IOException Thrown if the entry could not be written.
+	 */
+	protected void writeEntry(
+		RawZipEntry outputEntry, InputStreamData outputData,
+		RawZipOutputStream zipOutputStream, byte[] buffer) throws IOException {
+
+		ByteData byteData = outputData.byteData;
+
+		if ( outputEntry.getMethod() != RawZipEntry.STORED ) {
+			zipOutputStream.putNextEntry(outputEntry); // throws IOException
+			if ( byteData != null ) {
+				zipOutputStream.write(byteData.data, byteData.offset, byteData.length); // throws IOException
+			} else {
+				FileUtils.transfer(outputData.stream, zipOutputStream, buffer); // throws IOException
+			}
+			zipOutputStream.closeEntry(); // throws IOException
+
+		} else if ( byteData != null ) {
+			CRC32 crc = new CRC32();
+			crc.update(byteData.data, byteData.offset, byteData.length);
+			outputEntry.setSize(byteData.length);
+			outputEntry.setCrc( crc.getValue() );
+
+			zipOutputStream.putNextEntry(outputEntry); // throws IOException
+			zipOutputStream.write(byteData.data, byteData.offset, byteData.length); // throws IOException
+			zipOutputStream.closeEntry(); // throws IOException
+
+		} else {
+			try ( SpillBuffer storedData = new SpillBuffer(outputEntry.getName()) ) {
+				FileUtils.transfer(outputData.stream, storedData, buffer); // throws IOException
+				writeEntry(outputEntry, storedData, zipOutputStream, buffer); // throws IOException
+			}
+		}
+	}
+
+	/**
+	 * Write buffered entry data.  The CRC and size of a stored entry are
+	 * obtained from the buffer.
+	 *
+	 * @param outputEntry The output entry.
+	 * @param outputData The buffered entry data.
+	 * @param zipOutputStream The stream which is to receive the entry.
+	 * @param buffer A buffer to use to transfer data.
+	 *
+	 * @throws IOException Thrown if the entry could not be written.
+	 */
+	protected void writeEntry(
+		RawZipEntry outputEntry, SpillBuffer outputData,
+		RawZipOutputStream zipOutputStream, byte[] buffer) throws IOException {
+
+		if ( outputEntry.getMethod() == RawZipEntry.STORED ) {
+			outputEntry.setSize( outputData.size() );
+			outputEntry.setCrc( outputData.getCrc() );
+		}
+
+		zipOutputStream.putNextEntry(outputEntry); // throws IOException
+		outputData.writeTo(zipOutputStream, buffer); // throws IOException
+		zipOutputStream.closeEntry(); // throws IOException
+	}
+
+	// Entries may be transformed using worker threads.
+	//
+	// Entries are read in their original order, and are written in their
+	// original order by the calling thread, which is the single writer of
+	// the output archive.  The output is the same as when all entries are
+	// transformed by the calling thread.
+	//
+	// Only byte based actions are run by worker threads.  Each worker thread
+	// uses its own copy of the action, which shares the rules of the action
+	// but which has its own buffer and its own record of changes.  The
+	// changes of each entry are recorded by the calling thread when the entry
+	// is written.
+	//
+	// Stream based actions, which includes nested containers, are run by the
+	// calling thread, in order with the other entries.
+
+	private ExecutorService executor;
+	private int maxPending;
+
+	/**
+	 * Set the executor which is used to transform entries.
+	 *
+	 * @param executor The executor which is used to transform entries.
+	 *     Null to transform entries using the calling thread.
+	 * @param maxPending The maximum number of entries which may be
+	 *     transformed but not yet written.
+	 */
+	public void setExecutor(ExecutorService executor, int maxPending) {
+		this.executor = executor;
+		this.maxPending = maxPending;
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	public int getMaxPending() {
+		return maxPending;
+	}
+
+	// Large deflated output entries may be compressed in parallel, using the
+	// executor which transforms entries.  Entries are compressed in parallel
+	// only when their size exceeds the parallel deflate threshold.
+
+	private int deflateThreshold = -1;
+
+	/**
+	 * Set the size above which deflated output entries are compressed in
+	 * parallel.  Entries are compressed in parallel only when an executor
+	 * is set.
+	 *
+	 * @param deflateThreshold The size above which entries are compressed
+	 *     in parallel.  A negative value disables parallel compression.
+	 */
+	public void setDeflateThreshold(int deflateThreshold) {
+		this.deflateThreshold = deflateThreshold;
+	}
+
+	public int getDeflateThreshold() {
+		return deflateThreshold;
+	}
+
+	/**
+	 * Create the zip stream which writes the output container.
+	 *
+	 * @param outputStream The stream which receives the output container.
+	 *
+	 * @return The zip stream which writes the output container.
+	 */
+	protected RawZipOutputStream createZipOutputStream(OutputStream outputStream) {
+		RawZipOutputStream zipOutputStream = new RawZipOutputStream(outputStream);
+
+		ExecutorService useExecutor = getExecutor();
+		int useThreshold = getDeflateThreshold();
+		if ( (useExecutor != null) && (useThreshold >= 0) ) {
+			zipOutputStream.setParallelDeflater(
+				new ParallelDeflater(useExecutor, ParallelDeflater.DEFAULT_CHUNK_SIZE, getMaxPending()),
+				useThreshold );
+		}
+
+		return zipOutputStream;
+	}
+
+	private final ThreadLocal<Map<ActionImpl, ActionImpl>> workerActions =
+		ThreadLocal.withInitial( IdentityHashMap::new );
+
+	/**
+	 * Tell if an action can be run by a worker thread.  That is the case
+	 * for byte based actions which can be copied.
+	 *
+	 * @param action An action selected to transform an entry.
+	 *
+	 * @return True or false telling if the action can be run by a worker thread.
+	 */
+	protected boolean isParallel(Action action) {
+		return ( !action.useStreams() &&
+			     (action instanceof ActionImpl) &&
+			     (((ActionImpl) action).getActionInit() != null) );
+	}
+
+	/**
+	 * Obtain the copy of an action which is used by the current worker thread.
+	 *
+	 * @param action The action which is to be run.
+	 *
+	 * @return The copy of the action for the current thread.
+	 */
+	protected ActionImpl getWorkerAction(ActionImpl action) {
+		Map<ActionImpl, ActionImpl> actions = workerActions.get();
+
+		ActionImpl workerAction = actions.get(action);
+		if ( workerAction == null ) {
+			workerAction = action.createCopy( new InputBufferImpl(getBuffer().getPool()) );
+			actions.put(action, workerAction);
+		}
+
+		return workerAction;
+	}
+
+	/**
+	 * An entry which was transformed by a worker thread.
+	 */
+	protected static class TransformedEntry {
+		public final RawZipEntry inputEntry;
+		public final String actionName;
+		public final ActionType actionType;
+		public final boolean hasChanges;
+		public final String outputName;
+		public final InputStreamData outputData;
+		public final byte[] inputBuffer;
+		/** Bytes removed by compacting the constants of a class.  0 if the class was not compacted. */
+		public final int compactedBytes;
+
+		public TransformedEntry(
+			RawZipEntry inputEntry, String actionName, ActionType actionType, boolean hasChanges,
+			String outputName, InputStreamData outputData, byte[] inputBuffer, int compactedBytes) {
+
+			this.inputEntry = inputEntry;
+			this.actionName = actionName;
+			this.actionType = actionType;
+			this.hasChanges = hasChanges;
+			this.outputName = outputName;
+			this.outputData = outputData;
+			this.inputBuffer = inputBuffer;
+			this.compactedBytes = compactedBytes;
+		}
+	}
+
+	/**
+	 * An entry which is waiting to be written.  Either, an entry which is being
+	 * transformed by a worker thread, an entry which is to be transformed by
+	 * a stream based action when the entry is written, or an entry which is
+	 * to be copied.
+	 */
+	protected static class PendingEntry {
+		public final RawZipEntry inputEntry;
+		public final Future<TransformedEntry> future;
+		public final Action streamAction;
+
+		public PendingEntry(RawZipEntry inputEntry, Future<TransformedEntry> future, Action streamAction) {
+			this.inputEntry = inputEntry;
+			this.future = future;
+			this.streamAction = streamAction;
+		}
+
+		public boolean isDone() {
+			return ( (future == null) || future.isDone() );
+		}
+	}
+
+	/**
+	 * Transform an entry using the worker copy of an action.  Invoked
+	 * by worker threads.
+	 *
+	 * @param inputEntry The entry which is to be transformed.
+	 * @param action The action which is to transform the entry.
+	 * @param entryStream A stream providing the uncompressed entry data.
+	 * @param inputLength The uncompressed length of the entry.  -1 if
+	 *     the length is not known.
+	 *
+	 * @return The transformed entry.
+	 *
+	 * @throws TransformException Thrown if the transformation failed.
+	 */
+	protected TransformedEntry transformEntry(
+		RawZipEntry inputEntry, ActionImpl action,
+		InputStream entryStream, long inputLength) throws TransformException {
+
+		String inputName = inputEntry.getName();
+
+		int intInputLength;
+		if ( inputLength == -1L ) {
+			intInputLength = -1;
+		} else {
+			intInputLength = FileUtils.verifyArray(0, inputLength);
+		}
+
+		ActionImpl workerAction = getWorkerAction(action);
+
+		InputStreamData outputData =
+			workerAction.apply(inputName, entryStream, intInputLength); // throws TransformException
+
+		// The transformed data may be the data which was read into the buffer,
+		// and is written after the worker has moved on to other entries: The
+		// worker gives up the buffer, which is released after the entry is
+		// written.
+		InputBufferImpl workerBuffer = workerAction.getBuffer();
+		byte[] inputBuffer = workerBuffer.getInputBuffer();
+		workerBuffer.detachInputBuffer();
+
+		ChangesImpl workerChanges = workerAction.getLastActiveChanges();
+		int compactedBytes = ( (workerChanges instanceof ClassChangesImpl)
+			? ((ClassChangesImpl) workerChanges).getCompactedBytes() : 0 );
+
+		return new TransformedEntry(
+			inputEntry, workerAction.getName(), workerAction.getActionType(), workerChanges.hasChanges(),
+			workerChanges.getOutputResourceName(), outputData, inputBuffer, compactedBytes);
+	}
+
+	/**
+	 * Write entries until no more than a specified number of entries are pending.
+	 * Entries at the head of the queue which are complete are always written.
+	 *
+	 * @param inputPath The path of the container.
+	 * @param zipFile The container file.  Null when the container is
+	 *     processed as a stream, in which case there are no pending copies.
+	 * @param pending The entries which are waiting to be written.
+	 * @param maxRemaining The maximum number of entries which may remain pending.
+	 * @param zipOutputStream The stream which is to receive the entries.
+	 * @param buffer A buffer to use to transfer data.
+	 *
+	 * @throws TransformException Thrown if an entry could not be transformed
+	 *     or could not be written.
+	 */
+	protected void writePending(
+		String inputPath, RawZipFile zipFile,
+		Deque<PendingEntry> pending, int maxRemaining,
+		RawZipOutputStream zipOutputStream, byte[] buffer) throws TransformException {
+
+		while ( !pending.isEmpty() &&
+			    ((pending.size() > maxRemaining) || pending.peekFirst().isDone()) ) {
+
+			PendingEntry nextEntry = pending.removeFirst();
+			String inputName = nextEntry.inputEntry.getName();
+
+			try {
+				if ( nextEntry.streamAction != null ) {
+					transformEntry(nextEntry.inputEntry, nextEntry.streamAction, zipFile, zipOutputStream, buffer);
+					// throws IOException, TransformException
+				} else if ( nextEntry.future == null ) {
+					zipFile.transferRaw(nextEntry.inputEntry, zipOutputStream, buffer); // throws IOException
+				} else {
+					writeEntry( getTransformed(inputPath, nextEntry), zipOutputStream, buffer );
+					// throws IOException, TransformException
+				}
+			} catch ( IOException e ) {
+				throw new TransformException("Failure while processing [ " + inputName + " ] from [ " + inputPath + " ]", e);
+			}
+		}
+	}
+
+	protected TransformedEntry getTransformed(String inputPath, PendingEntry pendingEntry)
+		throws IOException, TransformException {
+
+		String inputName = pendingEntry.inputEntry.getName();
+
+		try {
+			return pendingEntry.future.get(); // throws InterruptedException, ExecutionException
+
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new TransformException("Interrupted while transforming [ " + inputName + " ] from [ " + inputPath + " ]", e);
+
+		} catch ( ExecutionException e ) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof TransformException ) {
+				throw (TransformException) cause;
+			} else if ( cause instanceof IOException ) {
+				throw (IOException) cause;
+			} else {
+				throw new TransformException("Failed to transform [ " + inputName + " ] from [ " + inputPath + " ]", cause);
+			}
+		}
+	}
+
+	/**
+	 * Record and write an entry which was transformed by a worker thread.
+	 *
+	 * @param transformedEntry The transformed entry.
+	 * @param zipOutputStream The stream which is to receive the entry.
+	 * @param buffer A buffer to use to transfer data.
+	 *
+	 * @throws IOException Thrown if the entry could not be written.
+	 */
+	protected void writeEntry(
+		TransformedEntry transformedEntry,
+		RawZipOutputStream zipOutputStream, byte[] buffer) throws IOException {
+
+		debug( "Resource [ {} ] Action [ {} ]: Changes [ {} ]",
+			   transformedEntry.inputEntry.getName(), transformedEntry.actionName, transformedEntry.hasChanges );
+
+		getActiveChanges().record(transformedEntry.actionName, transformedEntry.hasChanges);
+		if ( transformedEntry.compactedBytes > 0 ) {
+			getActiveChanges().addCompacted(transformedEntry.compactedBytes);
+		}
+
+		RawZipEntry outputEntry = createOutputEntry(
+			transformedEntry.inputEntry, transformedEntry.outputName, transformedEntry.actionType);
+		writeEntry(outputEntry, transformedEntry.outputData, zipOutputStream, buffer); // throws IOException
+
+		// The entry is written: The buffers of the entry may be reused.
+
+		BufferPool pool = getBuffer().getPool();
+		ByteData outputData = transformedEntry.outputData.byteData;
+		if ( (outputData != null) && (outputData.data != transformedEntry.inputBuffer) ) {
+			pool.release(outputData.data);
+		}
+		pool.release(transformedEntry.inputBuffer);
+	}
+
+	protected void cancelPending(Deque<PendingEntry> pending) {
+		for ( PendingEntry pendingEntry : pending ) {
+			if ( pendingEntry.future != null ) {
+				pendingEntry.future.cancel(true);
+			}
+		}
+		pending.clear();
+	}
+
+	protected void applyParallel(
+		String inputPath, RawZipFile zipFile,
+		RawZipOutputStream zipOutputStream) throws TransformException {
+
+		ExecutorService useExecutor = getExecutor();
+		int useMaxPending = getMaxPending();
+
+		Deque<PendingEntry> pending = new ArrayDeque<PendingEntry>();
+
+		try {
+			byte[] buffer = new byte[FileUtils.BUFFER_ADJUSTMENT];
+
+			for ( RawZipEntry inputEntry : zipFile.getEntries() ) {
+				Action acceptedAction = selectEntryAction(inputEntry);
+
+				if ( acceptedAction == null ) {
+					// Copies are written in order with the transformed entries.
+					pending.addLast( new PendingEntry(inputEntry, null, null) );
+
+				} else if ( isParallel(acceptedAction) ) {
+					// Worker threads read the entry: The file is read
+					// using positional reads, which may be concurrent.
+					ActionImpl useAction = (ActionImpl) acceptedAction;
+					Future<TransformedEntry> future = useExecutor.submit( () -> {
+						try ( InputStream entryStream = zipFile.getInputStream(inputEntry) ) { // throws IOException
+							return transformEntry(inputEntry, useAction, entryStream, inputEntry.getSize());
+							// throws TransformException
 						}
+					} );
+					pending.addLast( new PendingEntry(inputEntry, future, null) );
+
+				} else {
+					// Stream based actions are run by the calling thread
+					// when the entry is written.
+					pending.addLast( new PendingEntry(inputEntry, null, acceptedAction) );
+				}
+
+				writePending(inputPath, zipFile, pending, useMaxPending, zipOutputStream, buffer); // throws TransformException
+			}
+
+			writePending(inputPath, zipFile, pending, 0, zipOutputStream, buffer); // throws TransformException
+
+		} finally {
+			cancelPending(pending);
+		}
+	}
 
-						InputStreamData outputData =
-							acceptedAction.apply(inputName, zipInputStream, intInputLength);
-						recordTransform(acceptedAction, inputName);
+	protected void applyParallel(
+		String inputPath, RawZipInputStream zipInputStream,
+		RawZipOutputStream zipOutputStream) throws TransformException {
 
-						// TODO: Should more of the entry details be transferred?
+		ExecutorService useExecutor = getExecutor();
+		int useMaxPending = getMaxPending();
 
-						ZipEntry outputEntry = new ZipEntry( acceptedAction.getLastActiveChanges().getOutputResourceName() );
-						zipOutputStream.putNextEntry(outputEntry); // throws IOException
-						FileUtils.transfer(outputData.stream, zipOutputStream, buffer); // throws IOException 
-						zipOutputStream.closeEntry(); // throws IOException
+		Deque<PendingEntry> pending = new ArrayDeque<PendingEntry>();
+		String prevName = null;
+		String inputName = null;
+
+		try {
+			byte[] buffer = new byte[FileUtils.BUFFER_ADJUSTMENT];
+
+			RawZipEntry inputEntry;
+			while ( (inputEntry = zipInputStream.getNextEntry()) != null ) {
+				inputName = inputEntry.getName();
+
+				Action acceptedAction = selectEntryAction(inputEntry);
+
+				if ( acceptedAction == null ) {
+					// Compressed data can only be copied as it is read:
+					// Earlier entries must be written first.
+					writePending(inputPath, null, pending, 0, zipOutputStream, buffer); // throws TransformException
+					zipInputStream.transferRaw(zipOutputStream); // throws IOException
+
+				} else if ( isParallel(acceptedAction) ) {
+					// The stream is read by the calling thread.  The entry
+					// data is transformed by a worker thread.
+					int intInputLength;
+					long inputLength = inputEntry.getSize();
+					if ( inputLength == -1L ) {
+						intInputLength = -1;
+					} else {
+						intInputLength = FileUtils.verifyArray(0, inputLength);
 					}
+					ByteData inputData = FileUtils.read(inputName, zipInputStream, intInputLength); // throws IOException
+
+					RawZipEntry useEntry = inputEntry;
+					ActionImpl useAction = (ActionImpl) acceptedAction;
+					Future<TransformedEntry> future = useExecutor.submit( () -> {
+						InputStream entryStream = new ByteArrayInputStream(inputData.data, inputData.offset, inputData.length);
+						return transformEntry(useEntry, useAction, entryStream, inputData.length);
+						// throws TransformException
+					} );
+					pending.addLast( new PendingEntry(inputEntry, future, null) );
+
+				} else {
+					writePending(inputPath, null, pending, 0, zipOutputStream, buffer); // throws TransformException
+					transformEntry(inputEntry, acceptedAction, zipInputStream, zipOutputStream, buffer);
+					// throws IOException, TransformException
 				}
 
+				writePending(inputPath, null, pending, useMaxPending, zipOutputStream, buffer); // throws TransformException
+
 				prevName = inputName;
 				inputName = null;
 			}
 
+			writePending(inputPath, null, pending, 0, zipOutputStream, buffer); // throws TransformException
+
 		} catch ( IOException e ) {
 			String message;
 			if ( inputName != null ) { // Actively processing an entry.
@@ -290,6 +1227,9 @@ public abstract class ContainerActionImpl extends ActionImpl implements Containe
 				message = "Failed to process first entry of [ " + inputPath + " ]";
 			}
 			throw new TransformException(message, e);
+
+		} finally {
+			cancelPending(pending);
 		}
 	}
 }
@@ -37,6 +37,9 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		this.allUnselected = 0;
 		this.allResources = 0;
 
+		this.compactedClasses = 0;
+		this.compactedBytes = 0L;
+
 		this.allNestedChanges = null;
 	}
 
@@ -59,6 +62,9 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		allUnselected = 0;
 		allResources = 0;
 
+		compactedClasses = 0;
+		compactedBytes = 0L;
+
 		allNestedChanges = null;
 
 		super.clearChanges();
@@ -76,6 +82,9 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 	private int allUnselected;	
 	private int allResources;
 
+	private int compactedClasses;
+	private long compactedBytes;
+
 	//
 
 	@Override
@@ -131,6 +140,22 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		return allChanged;
 	}
 
+	@Override
+	public int getCompactedClasses() {
+		return compactedClasses;
+	}
+
+	@Override
+	public long getCompactedBytes() {
+		return compactedBytes;
+	}
+
+	@Override
+	public void addCompacted(int classCompactedBytes) {
+		compactedClasses++;
+		compactedBytes += classCompactedBytes;
+	}
+
 	@Override
 	public int getChanged(Action action) {
 		return getChanged( action.getName() );
@@ -234,6 +259,27 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		}
 	}
 
+	/**
+	 * Merge other changes into these changes.  The other changes are
+	 * changes of the same container, for example, changes which were
+	 * recorded by another thread.  Both the changes and the nested changes
+	 * are merged.
+	 *
+	 * @param otherChanges Changes which are to be merged into these changes.
+	 */
+	@Override
+	public void merge(ContainerChanges otherChanges) {
+		add(otherChanges);
+
+		ContainerChanges otherNestedChanges = otherChanges.getNestedChanges();
+		if ( otherNestedChanges != null ) {
+			if ( allNestedChanges == null ) {
+				allNestedChanges = new ContainerChangesImpl();
+			}
+			allNestedChanges.add(otherNestedChanges);
+		}
+	}
+
 	@Override
 	public void add(ContainerChanges otherChanges) {
 		addChangeMap( this.changedByAction, otherChanges.getChangedByAction() );
@@ -245,6 +291,9 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		this.allSelected += otherChanges.getAllSelected();
 		this.allUnselected += otherChanges.getAllUnselected();
 		this.allResources += otherChanges.getAllResources();
+
+		this.compactedClasses += otherChanges.getCompactedClasses();
+		this.compactedBytes += otherChanges.getCompactedBytes();
 	}
 
 	private void addChangeMap(
@@ -275,6 +324,16 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 		return String.format(DATA_LINE, parms);
 	}
 
+	private static final String COMPACTED_LINE =
+		"[ %22s ] [ %6s ] %10s [ %6s ]%s";
+
+	private String formatCompacted(String title, ContainerChangesImpl changes, String suffix) {
+		return String.format(COMPACTED_LINE,
+			title, changes.getCompactedClasses(),
+			"Bytes", changes.getCompactedBytes(),
+			suffix);
+	}
+
 	protected void displayChanges(PrintStream stream) {
 		stream.print( formatData(
 			"All Resources", getAllResources(),
@@ -300,6 +359,10 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 				"Changed", useChangedByAction,
 				"\n" ) );
 		}
+
+		if ( getCompactedClasses() > 0 ) {
+			stream.print( formatCompacted("Compacted Classes", this, "\n") );
+		}
 	}
 
 	protected void displayChanges(Logger logger) {
@@ -325,6 +388,10 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 				"Changed", useChangedByAction,
 				"" ) );
 		}
+
+		if ( getCompactedClasses() > 0 ) {
+			logger.info( formatCompacted("Compacted Classes", this, "") );
+		}
 	}
 
 	
@@ -437,6 +504,12 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 				"Changed", allNestedChanges.getAllChanged(),
 				"\n" ) );
 		}
+		if ( getCompactedClasses() > 0 ) {
+			stream.print( formatCompacted("Compacted Classes", this, "\n") );
+		}
+		if ( (allNestedChanges != null) && (allNestedChanges.getCompactedClasses() > 0) ) {
+			stream.print( formatCompacted("Nested Compacted", allNestedChanges, "\n") );
+		}
 	}
 
 	@Override
@@ -475,5 +548,11 @@ public class ContainerChangesImpl extends ChangesImpl implements ContainerChange
 				"Changed", allNestedChanges.getAllChanged(),
 				"" ) );
 		}
+		if ( getCompactedClasses() > 0 ) {
+			logger.info( formatCompacted("Compacted Classes", this, "") );
+		}
+		if ( (allNestedChanges != null) && (allNestedChanges.getCompactedClasses() > 0) ) {
+			logger.info( formatCompacted("Nested Compacted", allNestedChanges, "") );
+		}
 	}
 }
@@ -12,6 +12,20 @@
 package org.eclipse.transformer.action.impl;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.Action;
@@ -62,7 +76,13 @@ public class DirectoryActionImpl extends ContainerActionImpl {
     	startRecording(inputPath);
     	try {
     		setResourceNames(inputPath, inputPath);
-    		transform(".", inputFile, outputFile);
+
+    		ExecutorService useExecutor = getExecutor();
+    		if ( useExecutor instanceof ForkJoinPool ) {
+    			transformParallel( (ForkJoinPool) useExecutor, inputFile, outputFile );
+    		} else {
+    			transform(".", inputFile, outputFile);
+    		}
     	} finally {
     		stopRecording(inputPath);
     	}
@@ -95,15 +115,208 @@ public class DirectoryActionImpl extends ContainerActionImpl {
 	    	}
 
 	    } else {
-	    	Action selectedAction = acceptAction(inputPath, inputFile);
-	    	if ( selectedAction == null ) {
-	    		recordUnaccepted(inputPath);
-	    	} else if ( !select(inputPath) ) {
-	    		recordUnselected(selectedAction, inputPath);
-	    	} else {
-	    		selectedAction.apply(inputPath, inputFile, outputFile);
-	    		recordTransform(selectedAction, inputPath);
-	    	}
+	    	transformFile( inputPath, inputFile, outputFile, getActiveChanges() );
 	    }
 	}
+
+	/**
+	 * Transform a single file.
+	 *
+	 * @param inputPath The path to the file, relative to the root directory.
+	 * @param inputFile The file which is to be transformed.
+	 * @param outputFile The file which is to be written.
+	 * @param useChanges The changes into which to record the transformation.
+	 *
+	 * @throws TransformException Thrown if the transformation failed.
+	 */
+	protected void transformFile(
+		String inputPath, File inputFile, File outputFile,
+		ContainerChangesImpl useChanges) throws TransformException {
+
+		Action selectedAction = acceptAction(inputPath, inputFile);
+		if ( selectedAction == null ) {
+			recordUnaccepted(inputPath, useChanges);
+		} else if ( !select(inputPath) ) {
+			recordUnselected(selectedAction, inputPath, useChanges);
+		} else {
+			selectedAction.apply(inputPath, inputFile, outputFile);
+			recordTransform(selectedAction, inputPath, useChanges);
+		}
+	}
+
+	// Parallel transformation:
+	//
+	// When the executor is a fork/join pool, the directory tree is traversed
+	// by recursive tasks: A task is created for each sub-directory and for
+	// each file.  Directories are listed using a directory stream, and the
+	// attributes of each path are read once, during the listing.
+	//
+	// Actions are not thread safe: Each file is transformed by a copy of
+	// this action, which is borrowed from a pool of copies.  The copy has
+	// copies of all of the actions used by this action, and shares the rules
+	// of this action.  A pool is used instead of a thread local value, since
+	// a worker thread which is waiting for a task may run another task.
+	//
+	// Each task records its changes into changes which are local to the task.
+	// The changes of sub-tasks are merged when the sub-tasks are joined, and
+	// the changes of the root task are merged into the active changes of
+	// this action.  Changes are counts, which are independent of the order
+	// in which files are transformed.
+
+	private final ConcurrentLinkedDeque<DirectoryActionImpl> copies =
+		new ConcurrentLinkedDeque<DirectoryActionImpl>();
+
+	/**
+	 * Borrow a copy of this action for use by a task.
+	 *
+	 * @return A copy of this action.  Null if a copy cannot be created.
+	 */
+	protected DirectoryActionImpl borrowCopy() {
+		DirectoryActionImpl copy = copies.pollFirst();
+		if ( copy == null ) {
+			copy = (DirectoryActionImpl) createCopy(
+				new InputBufferImpl(getBuffer().getPool()), new IdentityHashMap<ActionImpl, ActionImpl>() );
+		}
+		return copy;
+	}
+
+	protected void returnCopy(DirectoryActionImpl copy) {
+		copies.addFirst(copy);
+	}
+
+	protected void transformParallel(ForkJoinPool pool, File inputFile, File outputFile)
+		throws TransformException {
+
+		if ( !isParallelCopyable() ) {
+			transform(".", inputFile, outputFile);
+			return;
+		}
+
+		String inputPath = "." + '/' + inputFile.getName();
+
+		ContainerChangesImpl taskChanges;
+		try {
+			taskChanges = pool.invoke( new DirectoryTask(inputPath, inputFile.toPath(), outputFile.toPath()) );
+		} catch ( CompletionException e ) {
+			// The pool may wrap the exception of a task when the exception
+			// is rethrown by a different thread.
+			Throwable cause = e;
+			while ( (cause instanceof CompletionException) && (cause.getCause() != null) ) {
+				cause = cause.getCause();
+			}
+			if ( cause instanceof TransformException ) {
+				throw (TransformException) cause;
+			} else {
+				throw new TransformException("Failed to transform [ " + inputPath + " ]", cause);
+			}
+		}
+
+		getActiveChanges().merge(taskChanges);
+	}
+
+	/**
+	 * Tell if this action can be copied for use by parallel tasks.  Copies
+	 * can be created when this action and all of the actions which it uses
+	 * were created using initializers.
+	 *
+	 * @return True or false telling if this action can be copied.
+	 */
+	protected boolean isParallelCopyable() {
+		DirectoryActionImpl copy = borrowCopy();
+		if ( copy == null ) {
+			return false;
+		}
+		returnCopy(copy);
+		return true;
+	}
+
+	/**
+	 * Task which transforms a directory.  A sub-task is created for each
+	 * child of the directory.
+	 */
+	protected class DirectoryTask extends RecursiveTask<ContainerChangesImpl> {
+		private static final long serialVersionUID = 1L;
+
+		private final String inputPath;
+		private final Path inputDir;
+		private final Path outputDir;
+
+		public DirectoryTask(String inputPath, Path inputDir, Path outputDir) {
+			this.inputPath = inputPath;
+			this.inputDir = inputDir;
+			this.outputDir = outputDir;
+		}
+
+		@Override
+		protected ContainerChangesImpl compute() {
+			ContainerChangesImpl taskChanges = newChanges();
+
+			List<RecursiveTask<ContainerChangesImpl>> childTasks =
+				new ArrayList<RecursiveTask<ContainerChangesImpl>>();
+
+			try {
+				Files.createDirectories(outputDir); // throws IOException
+
+				try ( DirectoryStream<Path> children = Files.newDirectoryStream(inputDir) ) { // throws IOException
+					for ( Path childInput : children ) {
+						String childName = childInput.getFileName().toString();
+						String childPath = inputPath + '/' + childName;
+						Path childOutput = outputDir.resolve(childName);
+
+						BasicFileAttributes attributes =
+							Files.readAttributes(childInput, BasicFileAttributes.class); // throws IOException
+
+						if ( attributes.isDirectory() ) {
+							childTasks.add( new DirectoryTask(childPath, childInput, childOutput) );
+						} else {
+							childTasks.add( new FileTask(childPath, childInput, childOutput) );
+						}
+					}
+				}
+			} catch ( IOException e ) {
+				throw new CompletionException(
+					new TransformException("Failed to list directory [ " + inputPath + " ]", e) );
+			}
+
+			for ( RecursiveTask<ContainerChangesImpl> childTask : ForkJoinTask.invokeAll(childTasks) ) {
+				taskChanges.merge( childTask.join() );
+			}
+
+			return taskChanges;
+		}
+	}
+
+	/**
+	 * Task which transforms a single file, using a borrowed copy of the
+	 * directory action.
+	 */
+	protected class FileTask extends RecursiveTask<ContainerChangesImpl> {
+		private static final long serialVersionUID = 1L;
+
+		private final String inputPath;
+		private final Path inputFile;
+		private final Path outputFile;
+
+		public FileTask(String inputPath, Path inputFile, Path outputFile) {
+			this.inputPath = inputPath;
+			this.inputFile = inputFile;
+			this.outputFile = outputFile;
+		}
+
+		@Override
+		protected ContainerChangesImpl compute() {
+			ContainerChangesImpl taskChanges = newChanges();
+
+			DirectoryActionImpl copy = borrowCopy();
+			try {
+				copy.transformFile( inputPath, inputFile.toFile(), outputFile.toFile(), taskChanges );
+			} catch ( TransformException e ) {
+				throw new CompletionException(e);
+			} finally {
+				returnCopy(copy);
+			}
+
+			return taskChanges;
+		}
+	}
 }
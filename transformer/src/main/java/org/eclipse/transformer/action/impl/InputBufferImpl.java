@@ -12,12 +12,37 @@
 package org.eclipse.transformer.action.impl;
 
 import org.eclipse.transformer.action.InputBuffer;
+import org.eclipse.transformer.util.BufferPool;
 
+/**
+ * Holder of the buffer into which actions read input data.  The buffer is
+ * borrowed from a buffer pool.  Actions which are created together share
+ * one input buffer holder.
+ *
+ * The held buffer is reused for successive reads.  When a larger buffer is
+ * needed, the held buffer is released to the pool and a larger buffer is
+ * borrowed.  Data read into the buffer is valid until the next read.
+ */
 public class InputBufferImpl implements InputBuffer {
 	public InputBufferImpl() {
+		this( BufferPool.getSharedPool() );
+	}
+
+	public InputBufferImpl(BufferPool pool) {
+		this.pool = pool;
 		this.inputBuffer = null;
 	}
 
+	//
+
+	private final BufferPool pool;
+
+	public BufferPool getPool() {
+		return pool;
+	}
+
+	//
+
 	private byte[] inputBuffer;
 
 	@Override
@@ -25,8 +50,50 @@ public class InputBufferImpl implements InputBuffer {
 		return inputBuffer;
 	}
 
+	/**
+	 * Set the held buffer.  A different buffer which was held is released
+	 * to the pool.
+	 *
+	 * @param inputBuffer The buffer which is to be held.
+	 */
 	@Override
 	public void setInputBuffer(byte[] inputBuffer) {
+		if ( (this.inputBuffer != null) && (this.inputBuffer != inputBuffer) ) {
+			pool.release(this.inputBuffer);
+		}
 		this.inputBuffer = inputBuffer;
 	}
+
+	/**
+	 * Answer the held buffer, replacing it with a buffer borrowed from
+	 * the pool if it is smaller than a specified length.
+	 *
+	 * @param minLength The minimum length of the buffer.
+	 *
+	 * @return The held buffer.
+	 */
+	@Override
+	public byte[] borrowInputBuffer(int minLength) {
+		if ( (inputBuffer == null) || (inputBuffer.length < minLength) ) {
+			setInputBuffer( pool.borrow(minLength) );
+		}
+		return inputBuffer;
+	}
+
+	/**
+	 * Forget the held buffer without releasing it to the pool.  Used when
+	 * data in the buffer is used after the next read.
+	 */
+	@Override
+	public void detachInputBuffer() {
+		inputBuffer = null;
+	}
+
+	/**
+	 * Release the held buffer to the pool.
+	 */
+	@Override
+	public void releaseInputBuffer() {
+		setInputBuffer(null);
+	}
 }
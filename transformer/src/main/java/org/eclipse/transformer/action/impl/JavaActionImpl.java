@@ -14,17 +14,16 @@ package org.eclipse.transformer.action.impl;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
-import java.util.Map;
 
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.PooledOutputStream;
 import org.slf4j.Logger;
 
 public class JavaActionImpl extends ActionImpl {
@@ -68,63 +67,7 @@ public class JavaActionImpl extends ActionImpl {
      *     replacements were performed.
      */
     protected String replacePackages(String text) {
-        //System.out.println("replacePackages: Initial text [ " + text + " ]");
-
-        String initialText = text;
-
-        for ( Map.Entry<String, String> renameEntry : getPackageRenames().entrySet() ) {
-            String key = renameEntry.getKey();
-            int keyLen = key.length();
-            
-            boolean matchSubpackages = SignatureRuleImpl.containsWildcard(key);
-            if (matchSubpackages) {
-                key = SignatureRuleImpl.stripWildcard(key);
-            }
-
-            //System.out.println("replacePackages: Next target [ " + key + " ]");
-            int textLimit = text.length() - keyLen;
-            
-            int lastMatchEnd = 0;
-            while ( lastMatchEnd <= textLimit ) {
-                int matchStart = text.indexOf(key, lastMatchEnd);
-                if ( matchStart == -1 ) {
-                    break;
-                }
-
-                if ( !SignatureRuleImpl.isTruePackageMatch(text, matchStart, keyLen, matchSubpackages) ) {
-                    lastMatchEnd = matchStart + keyLen;
-                    continue;
-                }
-
-                String value = renameEntry.getValue();
-                int valueLen = value.length();
-
-                String head = text.substring(0, matchStart);
-                String tail = text.substring(matchStart + keyLen);
-
-//                int tailLenBeforeReplaceVersion = tail.length();            
-//                tail = replacePackageVersion(tail, getPackageVersions().get(value));
-//                int tailLenAfterReplaceVersion = tail.length();
-
-                text = head + value + tail;
-
-                lastMatchEnd = matchStart + valueLen;
-
-                // Replacing the key or the version can increase or decrease the text length.
-                textLimit += (valueLen - keyLen);
-//                textLimit += (tailLenAfterReplaceVersion - tailLenBeforeReplaceVersion);
-
-                // System.out.println("Next text [ " + text + " ]");
-            }
-        }
-
-        if ( initialText == text) {
-            // System.out.println("Final text is unchanged");
-            return null;
-        } else {
-            // System.out.println("Final text [ " + text + " ]");
-            return text;
-        }
+        return getPackageMatcher().replace(text);
     }
 
 	@Override
@@ -152,12 +95,13 @@ public class JavaActionImpl extends ActionImpl {
 
 		BufferedReader reader = new BufferedReader(inputReader);
 
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(inputBytes.length);
+		PooledOutputStream outputStream = createOutputStream(inputLength);
 		OutputStreamWriter outputWriter;
 		try {
 			outputWriter = new OutputStreamWriter(outputStream, "UTF-8");
 		} catch ( UnsupportedEncodingException e ) {
 			error("Strange: UTF-8 is an unrecognized encoding for writing [ {} ]", e, inputName);
+			outputStream.release();
 			return null;
 		}
 
@@ -167,6 +111,7 @@ public class JavaActionImpl extends ActionImpl {
 			transform(reader, writer); // throws IOException
 		} catch ( IOException e ) {
 			error("Failed to transform [ {} ]", e, inputName);
+			outputStream.release();
 			return null;
 		}
 
@@ -174,15 +119,16 @@ public class JavaActionImpl extends ActionImpl {
 			writer.flush(); // throws
 		} catch ( IOException e ) {
 			error("Failed to flush [ {} ]", e, inputName);
+			outputStream.release();
 			return null;
 		}
 
 		if ( !hasNonResourceNameChanges() ) {
+			outputStream.release();
 			return null;
 		}
 
-		byte[] outputBytes = outputStream.toByteArray();
-		return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+		return outputStream.toByteData(inputName);
 	}
 
 	protected void transform(BufferedReader reader, BufferedWriter writer)
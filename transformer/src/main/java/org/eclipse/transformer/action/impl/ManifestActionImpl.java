@@ -11,11 +11,12 @@
 
 package org.eclipse.transformer.action.impl;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.jar.Attributes;
@@ -25,6 +26,9 @@ import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.action.BundleData;
 import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.PackageMatcher;
+import org.eclipse.transformer.util.PooledOutputStream;
+import org.eclipse.transformer.util.TextBuilders;
 import org.eclipse.transformer.util.ManifestWriter;
 import org.slf4j.Logger;
 
@@ -134,18 +138,19 @@ public class ManifestActionImpl extends ActionImpl {
 			return null;
 		}
 
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(initialCount);
+		PooledOutputStream outputStream = createOutputStream(initialCount);
 		try {
 			write(finalManifest, outputStream); // throws IOException
 		} catch ( IOException e ) {
 			error("Failed to write manifest [ {} ]", e, initialName);
+			outputStream.release();
 			return null;
 		}
 
-		byte[] finalBytes = outputStream.toByteArray();
-		debug("[ {}.{} ]: [ {} ] Active transform; final bytes [ {} ]", className, methodName, initialName, finalBytes.length);
+		ByteData finalData = outputStream.toByteData(initialName);
+		debug("[ {}.{} ]: [ {} ] Active transform; final bytes [ {} ]", className, methodName, initialName, finalData.length);
 
-		return new ByteData(initialName, finalBytes); 
+		return finalData;
 	}
 
 	protected void transform(String inputName, Manifest initialManifest, Manifest finalManifest) {
@@ -305,9 +310,29 @@ public class ManifestActionImpl extends ActionImpl {
 		return quotedValue;
 	}
 
+	/**
+	 * A replacement of a range of manifest text.
+	 */
+	private static class Replacement {
+		public Replacement(int start, int end, String value) {
+			this.start = start;
+			this.end = end;
+			this.value = value;
+		}
+
+		public final int start;
+		public final int end;
+		public final String value;
+	}
+
 	/**
 	 * Replace all embedded packages of specified text with replacement
-	 * packages.
+	 * packages.  Versions of replaced packages which have a new version
+	 * are also replaced.
+	 *
+	 * The packages and their versions are located in the initial text,
+	 * then the replaced text is written in one pass.  No text is built when
+	 * there is no match.
 	 *
 	 * @param text Text embedding zero, one, or more package names.
 	 *
@@ -315,71 +340,63 @@ public class ManifestActionImpl extends ActionImpl {
 	 *     replacements were performed.
 	 */
 	protected String replacePackages(String text) {
+		PackageMatcher matcher = getPackageMatcher();
 
-		// System.out.println("Initial text [ " + text + " ]");
-
-		String initialText = text;
-
-		for ( Map.Entry<String, String> renameEntry : getPackageRenames().entrySet() ) {
-			String key = renameEntry.getKey();
-			int keyLen = key.length();
-			
-			boolean matchSubpackages = SignatureRuleImpl.containsWildcard(key);
-            if (matchSubpackages) {
-                key = SignatureRuleImpl.stripWildcard(key);
-            }
-
-			// System.out.println("Next target [ " + key + " ]");
+		PackageMatcher.Match match = matcher.match(text, 0);
+		if ( match == null ) {
+			return null;
+		}
 
-			int textLimit = text.length() - keyLen;
+		int textLength = text.length();
 
-			int lastMatchEnd = 0;
-			while ( lastMatchEnd <= textLimit ) {
-				int matchStart = text.indexOf(key, lastMatchEnd);
-				if ( matchStart == -1 ) {
-					break;
-				}
+		// Replacing packages and versions does not change quotation marks:
+		// The quotation marks which follow a match are counted using the
+		// initial text.
 
-				if ( !SignatureRuleImpl.isTruePackageMatch(text, matchStart, keyLen, matchSubpackages) ) {
-					lastMatchEnd = matchStart + keyLen;
-					continue;
-				}
+		int followingQuotes = countQuotes(text, 0, textLength);
+		int countedOffset = 0;
 
-				String value = renameEntry.getValue();
-				int valueLen = value.length();
+		List<Replacement> replacements = new ArrayList<Replacement>();
+		int[] versionRange = new int[2];
 
-				String head = text.substring(0, matchStart);
-				String tail = text.substring(matchStart + keyLen);
+		while ( match != null ) {
+			replacements.add( new Replacement(match.start, match.end, match.value) );
 
-				int tailLenBeforeReplaceVersion = tail.length();			
+			String newVersion = getPackageVersions().get(match.value);
+			if ( newVersion != null ) {
+				followingQuotes -= countQuotes(text, countedOffset, match.end);
+				countedOffset = match.end;
 
-				String newVersion = getPackageVersions().get(value);
-				if ( newVersion != null ) {
-					tail = replacePackageVersion(tail, newVersion);
-				} else {
-					debug("replacePackages [ {} ]: [ {} -> {} ]; leaving version", initialText, key, value);
+				int attributeEnd = getPackageAttributeEnd(text, match.end, ((followingQuotes % 2) == 0));
+				if ( locatePackageVersion(text, match.end, attributeEnd, versionRange) ) {
+					replacements.add( new Replacement(versionRange[0], versionRange[1], newVersion) );
 				}
+			} else {
+				debug("replacePackages [ {} ]: [ {} -> {} ]; leaving version", text, match.key, match.value);
+			}
 
-				text = head + value + tail;
-				int tailLenAfterReplaceVersion = tail.length();					
+			match = matcher.match(text, match.end);
+		}
+
+		// A package which is embedded in the attributes of a prior package
+		// is located before the version of the prior package.
 
-				lastMatchEnd = matchStart + valueLen;
+		replacements.sort( (r1, r2) -> Integer.compare(r1.start, r2.start) );
 
-				// Replacing the key or the version can increase or decrease the text length.
-				textLimit += (valueLen - keyLen);
-				textLimit += (tailLenAfterReplaceVersion - tailLenBeforeReplaceVersion);
+		StringBuilder outputBuilder = TextBuilders.borrow( textLength + 16 );
 
-				// System.out.println("Next text [ " + text + " ]");
+		int lastEnd = 0;
+		for ( Replacement replacement : replacements ) {
+			if ( replacement.start < lastEnd ) {
+				continue; // Overlapping replacements are not expected.
 			}
+			outputBuilder.append(text, lastEnd, replacement.start);
+			outputBuilder.append(replacement.value);
+			lastEnd = replacement.end;
 		}
+		outputBuilder.append(text, lastEnd, textLength);
 
-		if ( initialText == text) {
-			// System.out.println("Final text is unchanged");
-			return null;
-		} else {
-			// System.out.println("Final text [ " + text + " ]");
-			return text;
-		}
+		return TextBuilders.release(outputBuilder);
 	}
 
 	// DynamicImport-Package: com.ibm.websphere.monitor.meters;version="1.0.0
@@ -424,36 +441,59 @@ public class ManifestActionImpl extends ActionImpl {
 	protected String replacePackageVersion(String text, String newVersion) {
 	    //debug("replacePackageVersion: ( {} )",  text );
 
-	    String packageText = getPackageAttributeText(text);
+	    int attributeEnd = getPackageAttributeEnd(text, 0, hasEvenNumberOfOccurrencesOfChar(text, '\"'));
 
-	    if ( packageText == null ) {
-	        return text;
-	    } else if ( packageText.isEmpty() ) {
+	    int[] versionRange = new int[2];
+	    if ( !locatePackageVersion(text, 0, attributeEnd, versionRange) ) {
 	        return text;
 	    }
 
-	    //debug("replacePackageVersion: (packageText: {} )", packageText);
+	    String head = text.substring(0, versionRange[0]);
+	    String tail = text.substring(versionRange[1]);
+
+	    String newText = head + newVersion + tail;
+	    //debug("Old [{}] New [{}]", text , newText);
+
+	    return newText;
+	}
+
+	/**
+	 * Locate the version range of package attribute text.
+	 *
+	 * The version range is the quoted value of the first "version" attribute
+	 * of the package attribute text.  See {@link #replacePackageVersion}.
+	 *
+	 * @param text Text containing the package attribute text.
+	 * @param start The offset of the package attribute text.
+	 * @param end The offset immediately after the package attribute text.
+	 * @param versionRange Storage for the offset of the version range and the
+	 *     offset immediately after the version range.  The offsets do not include
+	 *     the quotation marks.
+	 *
+	 * @return True or false telling if a version range was located.
+	 */
+	protected boolean locatePackageVersion(String text, int start, int end, int[] versionRange) {
+	    if ( start >= end ) {
+	        return false;
+	    }
 
 	    final String VERSION = "version";
 	    final int VERSION_LEN = 7;
 	    final char QUOTE_MARK = '\"';
 
-	    int versionIndex = packageText.indexOf(VERSION);
-	    if ( versionIndex == -1 ) { 
-	        return text;  // nothing to replace
+	    int versionIndex = text.indexOf(VERSION, start);
+	    if ( (versionIndex == -1) || (versionIndex + VERSION_LEN > end) ) {
+	        return false;  // nothing to replace
 	    }
 
 	    // The actual version numbers are after the "version" and the "=" and between quotation marks ("").
 	    // Ignore white space that occurs around the "=", but do not ignore white space between quotation marks.
 	    // Everything inside the "" is part of the version and will be replaced.
 	    boolean foundEquals = false;
-	    boolean foundQuotationMark = false; 
-	    int versionBeginIndex = -1;
-	    int versionEndIndex = -1;
 
 	    // skip to actual version number which is after "=".  Version begins inside double quotation marks 
-	    for (int i=versionIndex + VERSION_LEN; i < packageText.length(); i++) {
-	        char ch = packageText.charAt(i);
+	    for ( int i = versionIndex + VERSION_LEN; i < end; i++ ) {
+	        char ch = text.charAt(i);
 
 	        // skip white space until we find equals sign
 	        if ( !foundEquals ) {
@@ -465,53 +505,33 @@ public class ManifestActionImpl extends ActionImpl {
 	            if ( Character.isWhitespace(ch)) {
 	                continue;
 	            }
-	            error("Syntax error found non-white-space character before equals sign in version [{}]", packageText);
-	            return text;   // Syntax error - returning original text
+	            error("Syntax error found non-white-space character before equals sign in version [{}]", text.substring(start, end));
+	            return false;   // Syntax error - leave the original text
 	        }
 
 	        // Skip white space past the equals sign
 	        if ( Character.isWhitespace(ch) ) {
-	            // debug("ch is \'{}\' and is whitespace.", ch);
 	            continue;
 	        }
 
 	        // When we find the quotation marks past the equals sign, we are finished.
-	        if ( !foundQuotationMark ) {
-	            if ( ch == QUOTE_MARK ) {
-	                versionBeginIndex = i+1;  // just past the 1st quotation mark
-
-	                versionEndIndex = packageText.indexOf('\"', i+1);
-	                if (versionEndIndex == -1) {
-	                    error("Syntax error, package version does not have closing quotation mark");
-	                    return text; // Syntax error - returning original text
-	                }
-	                versionEndIndex--; // just before the 2nd quotation mark
-
-	                //debug("versionBeginIndex = [{}]", versionBeginIndex);
-	                //debug("versionEndIndex = [{}]", versionEndIndex);
-	                foundQuotationMark = true; // not necessary, just leave loop
-	                break;
-	            }
-
-	            if ( Character.isWhitespace(ch) ) {
-	                continue;
+	        if ( ch == QUOTE_MARK ) {
+	            int versionEndIndex = text.indexOf(QUOTE_MARK, i + 1);
+	            if ( (versionEndIndex == -1) || (versionEndIndex >= end) ) {
+	                error("Syntax error, package version does not have closing quotation mark");
+	                return false; // Syntax error - leave the original text
 	            }
 
-	            error("Syntax error found non-white-space character after equals sign  in version [{}]", packageText);
-	            return text;   // Syntax error - returning original text
+	            versionRange[0] = i + 1; // just past the 1st quotation mark
+	            versionRange[1] = versionEndIndex; // at the 2nd quotation mark
+	            return true;
 	        }
-	    }
-
-	    //String oldVersion = packageText.substring(versionBeginIndex, versionEndIndex+1);
-	    //debug("old version[{}] new version[{}]", oldVersion, newVersion);
 
-	    String head = text.substring(0, versionBeginIndex);
-	    String tail = text.substring(versionEndIndex+1);
-
-	    String newText = head + newVersion + tail;
-	    //debug("Old [{}] New [{}]", text , newText);
+	        error("Syntax error found non-white-space character after equals sign  in version [{}]", text.substring(start, end));
+	        return false;   // Syntax error - leave the original text
+	    }
 
-	    return newText;
+	    return false; // No version value
 	}
 
 	//
@@ -535,47 +555,68 @@ public class ManifestActionImpl extends ActionImpl {
 			return null;
 		}
 
-		if ( !firstCharIsSemicolon(text) ) {
-			return "";  // no package attributes
+		int attributeEnd = getPackageAttributeEnd(text, 0, hasEvenNumberOfOccurrencesOfChar(text, '\"'));
+		String packageText = text.substring(0, attributeEnd);
+
+		debug("getPackageAttributeText returning: [ {} ]", packageText);
+		return packageText;
+	}
+
+	/**
+	 * Locate the end of package attribute text.  See {@link #getPackageAttributeText(String)}.
+	 *
+	 * @param text Text containing package attribute text.
+	 * @param start The offset of the package attribute text, immediately after
+	 *     the package name.
+	 * @param evenQuotes Tell if the text starting at the offset has an even
+	 *     number of quotation marks.
+	 *
+	 * @return The offset immediately after the package attribute text.  The
+	 *     start offset if there is no package attribute text.
+	 */
+	protected int getPackageAttributeEnd(String text, int start, boolean evenQuotes) {
+		if ( !firstCharIsSemicolon(text, start) ) {
+			return start; // no package attributes
 		}
 
-		int commaIndex = text.indexOf(',');
-		debug("Comma index: [{}]", commaIndex);
+		int textLength = text.length();
+
 		// If there is no comma, then the whole text is the packageAttributeText
+		int commaIndex = text.indexOf(',', start);
 		if ( commaIndex == -1 ) {
-			return text;
+			return textLength;
 		}
 
-		// packageText is beginning of text up to and including comma.
 		// Need to test whether the comma is within quotes - thus not the true end of the packageText.
 		// If an odd number of quotes are found, then the comma is in quotes and we need to find the next comma.
-		String packageText = text.substring(0, commaIndex+1);   
-		debug("packageText [ {} ]", packageText);
-
-		while (!isPackageDelimitingComma(text, packageText, commaIndex)) {
-		    commaIndex = text.indexOf(',', packageText.length());
-		    if ( commaIndex == -1 ) {
-		        packageText = text;  // No trailing comma indicates embedding text is the package text.
-		        break;
-		    } else {
-		        packageText = text.substring(0, commaIndex+1);
-		    }
-		    
-		    // If there is a syntax error (missing closing quotes) return what we have
-		    if ( !hasEvenNumberOfOccurrencesOfChar(text, '\"') ) {
-		        break;
-		    }
+		int packageQuotes = countQuotes(text, start, commaIndex + 1);
+
+		while ( !isPackageDelimitingComma(text, commaIndex, packageQuotes) ) {
+			int nextCommaIndex = text.indexOf(',', commaIndex + 1);
+			if ( nextCommaIndex == -1 ) {
+				return textLength; // No trailing comma indicates embedding text is the package text.
+			}
+			packageQuotes += countQuotes(text, commaIndex + 1, nextCommaIndex + 1);
+			commaIndex = nextCommaIndex;
+
+			// If there is a syntax error (missing closing quotes) return what we have
+			if ( !evenQuotes ) {
+				break;
+			}
 		}
 
-		debug("getPackageAttributeText returning: [ {} ]", packageText);
-		return packageText;
+		return commaIndex + 1;
 	}
 
 	/**
 	 * Tell if the first non-white space character of the parameter is a semi-colon.
 	 */
 	protected boolean firstCharIsSemicolon(String s) {
-	    for ( int i=0; i < s.length(); i++ ) {
+	    return firstCharIsSemicolon(s, 0);
+	}
+
+	protected boolean firstCharIsSemicolon(String s, int start) {
+	    for ( int i=start; i < s.length(); i++ ) {
 	        if ( Character.isWhitespace(s.charAt(i)) ) {
 	            continue;
 	        }
@@ -598,31 +639,46 @@ public class ManifestActionImpl extends ActionImpl {
 	}	
 
 	/**
-	 * 
-	 * @param testString - The entire remaining unprocessed text of a MANIFEST.MF attribute that immediately follows a package name
-	 * @param packageText - Text that immediately follows a package name in a MANIFEST.MF attribute
-	 * @param indexOfComma
-	 * @return
+	 * Tell if a comma delimits package attribute text.  The comma delimits the
+	 * text if it is followed by a package name and is not inside quotation marks.
+	 *
+	 * @param text The text containing the comma.
+	 * @param indexOfComma The offset of the comma.
+	 * @param packageQuotes The number of quotation marks of the package attribute
+	 *     text up to and including the comma.
+	 *
+	 * @return True or false telling if the comma delimits package attribute text.
 	 */
-    private boolean isPackageDelimitingComma(String testString, 
-                                             String packageText, 
-                                             int indexOfComma) {
-        
-        int indexOfNextNonWhiteSpaceCharAfterComma = indexOfNextNonWhiteSpaceChar(testString, indexOfComma+1);
-        char characterAfterComma = testString.charAt(indexOfNextNonWhiteSpaceCharAfterComma);
-        if (Character.isAlphabetic(characterAfterComma)) { 
-            if ( !hasEvenNumberOfOccurrencesOfChar(packageText, '\"') ) {
-                return false;
-           }
-            return true;
-        }
-
-        return false;
-    }	
-	
+	private boolean isPackageDelimitingComma(String text, int indexOfComma, int packageQuotes) {
+		int indexOfNextNonWhiteSpaceCharAfterComma = indexOfNextNonWhiteSpaceChar(text, indexOfComma + 1);
+		if ( indexOfNextNonWhiteSpaceCharAfterComma == -1 ) {
+			return false;
+		}
+
+		char characterAfterComma = text.charAt(indexOfNextNonWhiteSpaceCharAfterComma);
+		if ( Character.isAlphabetic(characterAfterComma) ) {
+			return ( (packageQuotes % 2) == 0 );
+		}
+
+		return false;
+	}
+
 	private boolean hasEvenNumberOfOccurrencesOfChar(String testString, char testChar) {
-		long occurrences = testString.chars().filter(ch -> ch == '\"').count();
-		return ((occurrences % 2 ) == 0);
+		return ( (countOccurrences(testString, testChar, 0, testString.length()) % 2) == 0 );
+	}
+
+	private static int countQuotes(String text, int start, int end) {
+		return countOccurrences(text, '\"', start, end);
+	}
+
+	private static int countOccurrences(String text, char testChar, int start, int end) {
+		int occurrences = 0;
+		for ( int charNo = start; charNo < end; charNo++ ) {
+			if ( text.charAt(charNo) == testChar ) {
+				occurrences++;
+			}
+		}
+		return occurrences;
 	}
 
 	//
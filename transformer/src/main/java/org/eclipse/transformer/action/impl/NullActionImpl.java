@@ -12,10 +12,15 @@
 package org.eclipse.transformer.action.impl;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
 import org.slf4j.Logger;
 
 public class NullActionImpl extends ActionImpl {
@@ -52,6 +57,65 @@ public class NullActionImpl extends ActionImpl {
 		return true;
 	}
 
+	// The null action does not change data: Data is transferred from the input
+	// stream to the output stream without reading the data fully into memory.
+
+	@Override
+	public boolean useStreams() {
+		return true;
+	}
+
+	@Override
+	public void apply(
+		String inputName, InputStream inputStream, long inputCount,
+		OutputStream outputStream) throws TransformException {
+
+		startRecording(inputName);
+		try {
+			setResourceNames(inputName, inputName);
+
+			byte[] buffer = getBuffer().borrowInputBuffer(FileUtils.BUFFER_ADJUSTMENT);
+
+			try {
+				FileUtils.transfer(inputStream, outputStream, buffer); // throws IOException
+			} catch ( IOException e ) {
+				throw new TransformException("Failed to transfer [ " + inputName + " ] count [ " + inputCount + " ]", e);
+			}
+
+		} finally {
+			stopRecording(inputName);
+		}
+	}
+
+	// Files are copied using a channel transfer.
+
+	@Override
+	public void apply(String inputName, File inputFile, File outputFile)
+		throws TransformException {
+
+		startRecording(inputName);
+		try {
+			setResourceNames(inputName, inputName);
+
+			FileChannel inputChannel = openInputChannel(inputFile);
+			try {
+				FileChannel outputChannel = openOutputChannel(outputFile);
+				try {
+					FileUtils.transfer(inputChannel, outputChannel); // throws IOException
+				} catch ( IOException e ) {
+					throw new TransformException("Failed to transfer [ " + inputName + " ]", e);
+				} finally {
+					closeChannel(outputFile, outputChannel);
+				}
+			} finally {
+				closeChannel(inputFile, inputChannel);
+			}
+
+		} finally {
+			stopRecording(inputName);
+		}
+	}
+
 	@Override
 	public ByteData apply(String inputName, byte[] inputBytes, int inputLength)
 		throws TransformException {
@@ -17,6 +17,7 @@ import java.util.Set;
 
 import org.eclipse.transformer.TransformProperties;
 import org.eclipse.transformer.action.SelectionRule;
+import org.eclipse.transformer.util.SelectionMatcher;
 import org.slf4j.Logger;
 
 public class SelectionRuleImpl implements SelectionRule {
@@ -26,39 +27,41 @@ public class SelectionRuleImpl implements SelectionRule {
 
 		if ( includes == null ) {
 			this.included = Collections.emptySet();
-			this.includedExact = Collections.emptySet();
-			this.includedHead = Collections.emptySet();
-			this.includedTail = Collections.emptySet();
-			this.includedAny = Collections.emptySet();
+			this.includedMatcher = null;
 		} else {
-			this.included = new HashSet<String>(includes);		
-			this.includedExact = new HashSet<String>();
-			this.includedHead = new HashSet<String>();
-			this.includedTail = new HashSet<String>();
-			this.includedAny = new HashSet<String>();
-			TransformProperties.processSelections(
-				this.included,
-				this.includedExact, this.includedHead, this.includedTail, this.includedAny );
+			this.included = new HashSet<String>(includes);
+			this.includedMatcher = createMatcher(this.included);
 		}
 
 		if ( excludes == null ) {
 			this.excluded = Collections.emptySet();
-			this.excludedExact = Collections.emptySet();
-			this.excludedHead = Collections.emptySet();
-			this.excludedTail = Collections.emptySet();
-			this.excludedAny = Collections.emptySet();
+			this.excludedMatcher = null;
 		} else {
 			this.excluded = new HashSet<String>(excludes);
-			this.excludedExact = new HashSet<String>();
-			this.excludedHead = new HashSet<String>();
-			this.excludedTail = new HashSet<String>();
-			this.excludedAny = new HashSet<String>();
-			TransformProperties.processSelections(
-				this.excluded,
-				this.excludedExact, this.excludedHead, this.excludedTail, this.excludedAny );
+			this.excludedMatcher = createMatcher(this.excluded);
 		}
 	}
 
+	/**
+	 * Process selections, then compile the processed selections.  Processing
+	 * the selections clears them if they contain a single wildcard, which
+	 * selects all resources.
+	 *
+	 * @param selections The selections which are to be compiled.
+	 *
+	 * @return A matcher of the processed selections.
+	 */
+	private static SelectionMatcher createMatcher(Set<String> selections) {
+		Set<String> selectionsExact = new HashSet<String>();
+		Set<String> selectionsHead = new HashSet<String>();
+		Set<String> selectionsTail = new HashSet<String>();
+		Set<String> selectionsAny = new HashSet<String>();
+		TransformProperties.processSelections(
+			selections,
+			selectionsExact, selectionsHead, selectionsTail, selectionsAny );
+		return new SelectionMatcher(selectionsExact, selectionsHead, selectionsTail, selectionsAny);
+	}
+
 	//
 	
 	private final Logger logger;
@@ -74,16 +77,10 @@ public class SelectionRuleImpl implements SelectionRule {
 	//
 
 	private final Set<String> included;
-	private final Set<String> includedExact;
-	private final Set<String> includedHead;
-	private final Set<String> includedTail;
-	private final Set<String> includedAny;
-	
+	private final SelectionMatcher includedMatcher;
+
 	private final Set<String> excluded;
-	private final Set<String> excludedExact;
-	private final Set<String> excludedHead;
-	private final Set<String> excludedTail;	
-	private final Set<String> excludedAny;	
+	private final SelectionMatcher excludedMatcher;
 
 	@Override
 	public boolean select(String resourceName) {
@@ -93,37 +90,29 @@ public class SelectionRuleImpl implements SelectionRule {
 		return ( isIncluded && !isExcluded );
 	}
 
+	// Debug messages are issued only when debug logging is enabled:
+	// Selection is performed for every resource, and the debug parameters
+	// are otherwise constructed for every resource.
+
 	@Override
 	public boolean selectIncluded(String resourceName) {
 		if ( included.isEmpty() ) {
-			debug("Include [ {} ]: {}", resourceName, "No includes");
+			if ( logger.isDebugEnabled() ) {
+				debug("Include [ {} ]: {}", resourceName, "No includes");
+			}
 			return true;
+		}
 
-		} else if ( includedExact.contains(resourceName) ) {
-			debug("Include [ {} ]: {}", resourceName, "Exact include");
+		String selection = includedMatcher.match(resourceName);
+		if ( selection != null ) {
+			if ( logger.isDebugEnabled() ) {
+				debug("Include [ {} ]: {} ({})", resourceName, "Match", selection);
+			}
 			return true;
-
 		} else {
-			for ( String tail : includedHead ) {
-				if ( resourceName.endsWith(tail) ) {
-					debug("Include [ {} ]: {} ({})", resourceName, "Match tail", tail);
-					return true;
-				}
-			}
-			for ( String head : includedTail ) {
-				if ( resourceName.startsWith(head) ) {
-					debug("Include [ {} ]: {} ({})", resourceName, "Match head", head);
-					return true;
-				}
+			if ( logger.isDebugEnabled() ) {
+				debug("Do not include [ {} ]", resourceName);
 			}
-			for ( String middle : includedAny ) {
-				if ( resourceName.contains(middle) ) {
-					debug("Include [ {} ]: {} ({})", resourceName, "Match middle", middle);
-					return true;
-				}
-			}
-
-			debug("Do not include [ {} ]", resourceName);
 			return false;
 		}
 	}
@@ -131,34 +120,22 @@ public class SelectionRuleImpl implements SelectionRule {
 	@Override
 	public boolean rejectExcluded(String resourceName ) {
 		if ( excluded.isEmpty() ) {
-			debug("Do not exclude[ {} ]: {}", resourceName, "No excludes");
+			if ( logger.isDebugEnabled() ) {
+				debug("Do not exclude[ {} ]: {}", resourceName, "No excludes");
+			}
 			return false;
+		}
 
-		} else if ( excludedExact.contains(resourceName) ) {
-			debug("Exclude [ {} ]: {}", resourceName, "Exact exclude");
+		String selection = excludedMatcher.match(resourceName);
+		if ( selection != null ) {
+			if ( logger.isDebugEnabled() ) {
+				debug("Exclude [ {} ]: {} ({})", resourceName, "Match", selection);
+			}
 			return true;
-
 		} else {
-			for ( String tail : excludedHead ) {
-				if ( resourceName.endsWith(tail) ) {
-					debug("Exclude[ {} ]: {} ({})", resourceName, "Match tail", tail);
-					return true;
-				}
-			}
-			for ( String head : excludedTail ) {
-				if ( resourceName.startsWith(head) ) {
-					debug("Exclude[ {} ]: {} ({})", resourceName, "Match head", head);
-					return true;
-				}
+			if ( logger.isDebugEnabled() ) {
+				debug("Do not exclude [ {} ]", resourceName);
 			}
-			for ( String middle : excludedAny ) {
-				if ( resourceName.contains(middle) ) {
-					debug("Exclude[ {} ]: {} ({})", resourceName, "Match middle", middle);
-					return true;
-				}
-			}
-
-			debug("Do not exclude [ {} ]", resourceName);
 			return false;
 		}
 	}
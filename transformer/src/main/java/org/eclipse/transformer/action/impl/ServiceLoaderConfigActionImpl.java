@@ -14,7 +14,6 @@ package org.eclipse.transformer.action.impl;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -25,6 +24,7 @@ import java.io.UnsupportedEncodingException;
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.PooledOutputStream;
 import org.slf4j.Logger;
 
 /**
@@ -116,7 +116,7 @@ public class ServiceLoaderConfigActionImpl extends ActionImpl {
 		}
 		setResourceNames(inputName, outputName);
 
-		InputStream inputStream = new ByteArrayInputStream(inputBytes);
+		InputStream inputStream = new ByteArrayInputStream(inputBytes, 0, inputLength);
 		InputStreamReader inputReader;
 		try {
 			inputReader = new InputStreamReader(inputStream, "UTF-8");
@@ -127,12 +127,13 @@ public class ServiceLoaderConfigActionImpl extends ActionImpl {
 
 		BufferedReader reader = new BufferedReader(inputReader);
 
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(inputBytes.length);
+		PooledOutputStream outputStream = createOutputStream(inputLength);
 		OutputStreamWriter outputWriter;
 		try {
 			outputWriter = new OutputStreamWriter(outputStream, "UTF-8");
 		} catch ( UnsupportedEncodingException e ) {
 			error("Strange: UTF-8 is an unrecognized encoding for writing [ {} ]", e, inputName);
+			outputStream.release();
 			return null;
 		}
 
@@ -142,6 +143,7 @@ public class ServiceLoaderConfigActionImpl extends ActionImpl {
 			transform(reader, writer); // throws IOException
 		} catch ( IOException e ) {
 			error("Failed to transform [ {} ]", e, inputName);
+			outputStream.release();
 			return null;
 		}
 
@@ -149,15 +151,16 @@ public class ServiceLoaderConfigActionImpl extends ActionImpl {
 			writer.flush(); // throws
 		} catch ( IOException e ) {
 			error("Failed to flush [ {} ]", e, inputName);
+			outputStream.release();
 			return null;
 		}
 
 		if ( !hasNonResourceNameChanges() ) {
+			outputStream.release();
 			return null;
 		}
 
-		byte[] outputBytes = outputStream.toByteArray();
-		return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+		return outputStream.toByteData(inputName);
 	}
 
 	protected void transform(BufferedReader reader, BufferedWriter writer)
@@ -11,17 +11,25 @@
 
 package org.eclipse.transformer.action.impl;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.eclipse.transformer.action.BundleData;
 import org.eclipse.transformer.action.SignatureRule;
+import org.eclipse.transformer.util.BoundedCache;
+import org.eclipse.transformer.util.ByteMatcher;
+import org.eclipse.transformer.util.PersistentMemo;
+import org.eclipse.transformer.util.SubstitutionMatcher;
 import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.PackageMatcher;
+import org.eclipse.transformer.util.PackageTable;
 import org.slf4j.Logger;
 
 import aQute.bnd.signatures.ArrayTypeSignature;
@@ -40,7 +48,10 @@ import aQute.bnd.signatures.TypeParameter;
 import aQute.bnd.signatures.TypeVariableSignature;
 
 public class SignatureRuleImpl implements SignatureRule {
-    
+
+	/** Default maximum number of entries of each transformation cache. */
+	public static final int DEFAULT_CACHE_SIZE = 64 * 1024;
+
 	public SignatureRuleImpl(
 		Logger logger,
 
@@ -50,6 +61,19 @@ public class SignatureRuleImpl implements SignatureRule {
 		Map<String, Map<String, String>> masterXmlUpdates,
 		Map<String, String> directStrings) {
 
+		this(logger, renames, versions, bundleUpdates, masterXmlUpdates, directStrings, DEFAULT_CACHE_SIZE);
+	}
+
+	public SignatureRuleImpl(
+		Logger logger,
+
+		Map<String, String> renames,
+		Map<String, String> versions,
+		Map<String, BundleData> bundleUpdates,
+		Map<String, Map<String, String>> masterXmlUpdates,
+		Map<String, String> directStrings,
+		int cacheSize) {
+
 		this.logger = logger;
 
 		Map<String, String> useRenames;
@@ -80,6 +104,10 @@ public class SignatureRuleImpl implements SignatureRule {
 		this.dottedPackageRenames = useRenames;
 		this.slashedPackageRenames = useBinaryRenames;
 
+		this.dottedPackageMatcher = new PackageMatcher(useRenames);
+		this.slashedPackageMatcher = new PackageMatcher(useBinaryRenames);
+		this.slashedPackageTable = new PackageTable(useBinaryRenames);
+
 		Map<String, String> useVersions;
 		if ( (versions != null) && !versions.isEmpty() ) {
 			useVersions = new HashMap<String, String>(versions);
@@ -98,7 +126,7 @@ public class SignatureRuleImpl implements SignatureRule {
 
 		if ( (masterXmlUpdates != null) && !masterXmlUpdates.isEmpty() ) {
 		    Map<String,  Map<String, String>> useSpecificXmlUpdates = new HashMap<String,  Map<String, String>>();
-		    Map<Pattern, Map<String, String>> useWildCardXmlUpdates = new HashMap<Pattern, Map<String, String>>();
+		    Map<Pattern, Map<String, String>> useWildCardXmlUpdates = new LinkedHashMap<Pattern, Map<String, String>>();
 
 		    for ( Map.Entry<String, Map<String, String>> entry : masterXmlUpdates.entrySet() ) {
 		        String matchesFileName = entry.getKey();  
@@ -122,6 +150,32 @@ public class SignatureRuleImpl implements SignatureRule {
 		    this.wildCardXmlUpdates = null;
 		}
 
+		// Specific selectors precede wildcard selectors: The first alternative
+		// which matches the entire file name selects the substitutions.
+		// Wildcard selectors are in the iteration order of the master XML
+		// updates, which is the order of the master XML properties file.
+
+		List<Map<String, String>> useXmlSelections = new ArrayList<Map<String, String>>();
+		StringBuilder selectorBuilder = new StringBuilder();
+		if ( specificXmlUpdates != null ) {
+		    for ( Map.Entry<String, Map<String, String>> specificEntry : specificXmlUpdates.entrySet() ) {
+		        addXmlSelector( selectorBuilder, useXmlSelections, Pattern.quote(specificEntry.getKey()), specificEntry.getValue() );
+		    }
+		    for ( Map.Entry<Pattern, Map<String, String>> wildcardEntry : wildCardXmlUpdates.entrySet() ) {
+		        addXmlSelector( selectorBuilder, useXmlSelections, wildcardEntry.getKey().pattern(), wildcardEntry.getValue() );
+		    }
+		}
+		this.xmlSelections = useXmlSelections;
+
+		Map<Map<String, String>, SubstitutionMatcher> useXmlMatchers =
+		    new IdentityHashMap<Map<String, String>, SubstitutionMatcher>( useXmlSelections.size() );
+		for ( Map<String, String> substitutions : useXmlSelections ) {
+		    useXmlMatchers.put( substitutions, new SubstitutionMatcher(substitutions) );
+		}
+		this.xmlMatchers = useXmlMatchers;
+		this.xmlSelector = ( useXmlSelections.isEmpty() ? null : Pattern.compile( selectorBuilder.toString() ) );
+		this.xmlResolutions = new BoundedCache<String, Map<String, String>>("XML substitutions", XML_CACHE_SIZE);
+
 		Map<String, String> useDirectStrings;
 		if ( (directStrings == null) || directStrings.isEmpty() ) {
 			useDirectStrings = Collections.emptyMap();
@@ -130,14 +184,25 @@ public class SignatureRuleImpl implements SignatureRule {
 		}
 		this.directStrings = useDirectStrings;
 
-		this.unchangedBinaryTypes = new HashSet<>();
-		this.changedBinaryTypes = new HashMap<>();
+		List<String> constantKeys = new ArrayList<String>(
+		    useRenames.size() + useBinaryRenames.size() + useDirectStrings.size() );
+		for ( String initialName : useRenames.keySet() ) {
+		    constantKeys.add( PackageMatcher.stripWildcard(initialName) );
+		}
+		for ( String initialBinaryName : useBinaryRenames.keySet() ) {
+		    constantKeys.add( PackageMatcher.stripWildcard(initialBinaryName) );
+		}
+		constantKeys.addAll( useDirectStrings.keySet() );
+		this.constantMatcher = new ByteMatcher(constantKeys);
 
-		this.unchangedSignatures = new HashSet<>();
-		this.changedSignatures = new HashMap<>();
+		// The caches are concurrent: Rules are shared by actions which
+		// transform container entries using multiple threads.  The caches
+		// are bounded: Most values are seen only a few times, and are not
+		// retained for the entire transformation.
 
-		this.unchangedDescriptors = new HashSet<>();
-		this.changedDescriptors = new HashMap<>();
+		this.binaryTypes = new BoundedCache<String, String>("Binary types", cacheSize);
+		this.signatures = new BoundedCache<String, String>("Signatures", cacheSize);
+		this.descriptors = new BoundedCache<String, String>("Descriptors", cacheSize);
 	}
 
 	//
@@ -174,10 +239,82 @@ public class SignatureRuleImpl implements SignatureRule {
     	return wildCardXmlUpdates;
     }
 
+    /** Maximum number of file names which retain their XML substitutions. */
+    public static final int XML_CACHE_SIZE = 4 * 1024;
+
+    /**
+     * Value which is cached for file names which have no XML substitutions.
+     * Compared by identity.
+     */
+    private static final Map<String, String> NO_XML_SUBSTITUTIONS =
+        Collections.unmodifiableMap( new HashMap<String, String>(0) );
+
+    /**
+     * Selector of XML substitutions: An alternation of all file name selectors,
+     * each as a named group.  The index of the matching group is the index of
+     * the substitutions of the selector.
+     */
+    private final Pattern xmlSelector;
+    private final List<Map<String, String>> xmlSelections;
+
+    /** Compiled matchers of the XML substitutions, keyed by substitutions identity. */
+    private final Map<Map<String, String>, SubstitutionMatcher> xmlMatchers;
+
+    /**
+     * Answer the compiled matcher of substitutions.  The matchers of the XML
+     * substitutions of this rule are compiled once.  A matcher is compiled
+     * for other substitutions.
+     *
+     * @param substitutions Substitutions which are to be matched.
+     *
+     * @return The compiled matcher of the substitutions.
+     */
+    public SubstitutionMatcher getSubstitutionMatcher(Map<String, String> substitutions) {
+        SubstitutionMatcher matcher = xmlMatchers.get(substitutions);
+        if ( matcher == null ) {
+            matcher = new SubstitutionMatcher(substitutions);
+        }
+        return matcher;
+    }
+
+    /** XML substitutions resolved for simple file names. */
+    private final BoundedCache<String, Map<String, String>> xmlResolutions;
+
+    private static final String XML_SELECTOR_GROUP = "s";
+
+    private static void addXmlSelector(
+        StringBuilder selectorBuilder, List<Map<String, String>> selections,
+        String selectorRegex, Map<String, String> substitutions) {
+
+        if ( selectorBuilder.length() > 0 ) {
+            selectorBuilder.append('|');
+        }
+        selectorBuilder.append("(?<").append(XML_SELECTOR_GROUP).append( selections.size() ).append('>');
+        selectorBuilder.append(selectorRegex);
+        selectorBuilder.append(')');
+
+        selections.add(substitutions);
+    }
+
+    public BoundedCache<String, Map<String, String>> getXmlResolutions() {
+        return xmlResolutions;
+    }
+
 	//
 
 	private final Map<String, String> directStrings;
 
+	/**
+	 * Matcher of the encoded UTF8 constants which may be transformed: A UTF8
+	 * constant can be transformed only if it contains a package rename key,
+	 * in dotted or in binary form, or a direct string key.
+	 */
+	private final ByteMatcher constantMatcher;
+
+	public ByteMatcher getConstantMatcher() {
+		return constantMatcher;
+	}
+
 	@Override
 	public String getDirectString(String initialValue) {
 		return directStrings.get(initialValue);
@@ -192,11 +329,35 @@ public class SignatureRuleImpl implements SignatureRule {
 	protected final Map<String, String> dottedPackageRenames;
 	protected final Map<String, String> slashedPackageRenames;
 
+	protected final PackageMatcher dottedPackageMatcher;
+	protected final PackageMatcher slashedPackageMatcher;
+
+	protected final PackageTable slashedPackageTable;
+
 	@Override
 	public Map<String, String> getPackageRenames() {
 		return dottedPackageRenames;
 	}
 
+	/**
+	 * Answer the compiled matcher of the package renames.  The matcher is
+	 * shared by all text transformations which use this rule.
+	 *
+	 * @return The compiled matcher of the package renames.
+	 */
+	public PackageMatcher getPackageMatcher() {
+		return dottedPackageMatcher;
+	}
+
+	/**
+	 * Answer the compiled matcher of the package renames, in binary form.
+	 *
+	 * @return The compiled matcher of the binary package renames.
+	 */
+	public PackageMatcher getBinaryPackageMatcher() {
+		return slashedPackageMatcher;
+	}
+
 	//
 
 	protected final Map<String, String> packageVersions;
@@ -234,20 +395,30 @@ public class SignatureRuleImpl implements SignatureRule {
 	 */
 	@Override
 	public String replaceBinaryPackage(String initialName) {
-		String finalName = slashedPackageRenames.getOrDefault(initialName, null);
+		String finalName = slashedPackageTable.get(initialName);
 		// System.out.println("Initial binary [ " + initialName + " ] Final [ " + finalName + " ]");
 		return finalName;
 	}
+
+	@Override
+	public String replaceBinaryPackage(CharSequence text, int start, int end) {
+		return slashedPackageTable.get(text, start, end);
+	}
 	
 	@Override
 	public String replacePackages(String text) {
-	    return replacePackages(text, this.dottedPackageRenames);
+	    return dottedPackageMatcher.replace(text);
 	}
 
 	/**
 	 * Replace all embedded packages of specified text with replacement
 	 * packages.
 	 *
+	 * The package renames are matched using a compiled matcher.  Matchers of
+	 * the dotted and of the slashed package renames are compiled when the
+	 * rule is created.  A matcher of other package renames is compiled when
+	 * the replacement is performed.
+	 *
 	 * @param text String embedding zero, one, or more package names.
 	 * @param packageRenames map of names and replacement values
 	 * @return The text with all embedded package names replaced.  Null if no
@@ -255,136 +426,48 @@ public class SignatureRuleImpl implements SignatureRule {
 	 */
 	@Override
 	public String replacePackages(String text, Map<String, String> packageRenames ) {
-		// System.out.println("Initial text [ " + text + " ]");
-
-		String initialText = text;
-
-		for ( Map.Entry<String, String> renameEntry : packageRenames.entrySet() ) {
-			String key = renameEntry.getKey();
-			int keyLen = key.length();
-			
-            boolean matchSubpackages = containsWildcard(key);
-            if (matchSubpackages) {
-                key = stripWildcard(key);
-            }
-			     
-			// System.out.println("Next target [ " + key + " ]");
-
-			int textLimit = text.length() - keyLen;
-
-			int lastMatchEnd = 0;
-			while ( lastMatchEnd <= textLimit ) {
-				int matchStart = text.indexOf(key, lastMatchEnd);
-				if ( matchStart == -1 ) {
-					break;
-				}
-				
-                if ( !isTruePackageMatch(text, matchStart, keyLen, matchSubpackages) ) {
-                    lastMatchEnd = matchStart + keyLen;
-                    continue;
-                }
-
-				String value = renameEntry.getValue();
-				int valueLen = value.length();
-
-				String head = text.substring(0, matchStart);
-				String tail = text.substring(matchStart + keyLen);
-				text = head + value + tail;
-
-				lastMatchEnd = matchStart + valueLen;
-				textLimit += (valueLen - keyLen);
-
-				// System.out.println("Next text [ " + text + " ]");
-			}
-		}
-
-		if ( initialText == text) {
-		    //System.out.println("RETURN Final text is unchanged");
-			return null;
+		PackageMatcher matcher;
+		if ( packageRenames == dottedPackageRenames ) {
+			matcher = dottedPackageMatcher;
+		} else if ( packageRenames == slashedPackageRenames ) {
+			matcher = slashedPackageMatcher;
 		} else {
-			//System.out.println("RETURN Final text [ " + text + " ]");
-			return text;
+			matcher = new PackageMatcher(packageRenames);
 		}
+		return matcher.replace(text);
 	}
-	
-    /**
-     * Checks the character before and after a match to verify that the match
-     * is NOT a subset of a larger package, and thus not really a match.
-     */
-    public static boolean isTruePackageMatch(String text, int matchStart, int keyLen, boolean matchSubpackages ) {
-//        System.out.println("isTruePackageMatch:" 
-//                           + " text[" + text + "]"
-//                           + " key[" + text.substring(matchStart, matchStart + keyLen) + "]"
-//                           + " tail[" + text.substring(matchStart + keyLen)
-//                           + " *************");
-
-        int textLength = text.length();
-
-        if ( matchStart > 0 ) {
-            char charBeforeMatch = text.charAt(matchStart - 1);
-            if ( Character.isJavaIdentifierPart(charBeforeMatch) || (charBeforeMatch == '.')) { 
-                return false;
-            }
-        }
 
-        int matchEnd = matchStart + keyLen;
-        if ( textLength > matchEnd ) {
-
-            char charAfterMatch = text.charAt(matchEnd);
-
-            // Check the next character can also be part of a package name then 
-            // we are looking at a larger package name, and thus not a match.
-            if ( Character.isJavaIdentifierPart(charAfterMatch) ) {
-                return false;
-            }
-
-            // If the next char is dot, check the character after the dot.  Assume an upper case letter indicates the start of a 
-            // class name and thus the end of the package name which indicates a match. ( This means this doesn't work 
-            // for package names that do not follow the convention of using lower case characters ).            
-            // If lower case, then it indicates we are looking at a larger package name, and thus not a match.
-            // If the character after the dot is a number, also assume the number is a continuation of the package name.
-            if ( !matchSubpackages ) {
-                if (charAfterMatch == '.') {
-                    if ( textLength > (matchEnd+1) )  {
-                        char charAfterDot = text.charAt(matchEnd+1);
-                        if ( Character.isLowerCase(charAfterDot) || Character.isDigit(charAfterDot) ) {
-                            return false;
-                        }
-                    }
-                }
-            }
-        }
-        return true;
-    }
-    
-    /**
-     * Determines if the key contains a wildcard suffix which indicates
-     * that sub-package names are to be matched.
-     * 
-     * Packages names and their replacements are specified in properties files
-     * in key=value pairs or more specifically oldPackageName=newPackageName
-     * 
-     * The key can contain a ".*" suffix which indicates that sub-packages are a
-     * match.
-     * 
-     * @param key package name
-     * @return true if sub-packages are to be matched
-     */
-    public static boolean containsWildcard(String key) {
+	/**
+	 * Checks the character before and after a match to verify that the match
+	 * is NOT a subset of a larger package, and thus not really a match.
+	 *
+	 * See {@link PackageMatcher#isTruePackageMatch(CharSequence, int, int, boolean)}.
+	 */
+	public static boolean isTruePackageMatch(String text, int matchStart, int keyLen, boolean matchSubpackages ) {
+		return PackageMatcher.isTruePackageMatch(text, matchStart, keyLen, matchSubpackages);
+	}
+
+	/**
+	 * Determines if the key contains a wildcard suffix which indicates
+	 * that sub-package names are to be matched.
+	 * 
+	 * Packages names and their replacements are specified in properties files
+	 * in key=value pairs or more specifically oldPackageName=newPackageName
+	 * 
+	 * The key can contain a ".*" suffix which indicates that sub-packages are a
+	 * match.
+	 * 
+	 * @param key package name
+	 * @return true if sub-packages are to be matched
+	 */
+	public static boolean containsWildcard(String key) {
+		return PackageMatcher.containsWildcard(key);
+	}
+
+	public static String stripWildcard(String key) {
+		return PackageMatcher.stripWildcard(key);
+	}
 
-        if (key.endsWith(".*")) {
-            return true;
-        }
-        return false;
-    }
-    
-    public static String stripWildcard(String key) {
-        if (key.endsWith(".*")) {
-            key = key.substring(0, key.length() - 2 );
-        }
-        return key;
-    }
-	
 	/**
 	 * @param p a compiled pattern
 	 * @param input name to try to match against pattern p
@@ -394,21 +477,52 @@ public class SignatureRuleImpl implements SignatureRule {
         return m.matches();
     }
 
+	/**
+	 * Answer the XML substitutions which are selected for a file.  Only the
+	 * simple name of the file is used.  Specific file names are selected
+	 * before wildcard file names.  Of several matching wildcard file names,
+	 * the first in the master XML updates is selected.
+	 *
+	 * Resolutions are cached by simple file name: A file which is accepted
+	 * and then transformed has its substitutions resolved once.
+	 *
+	 * @param inputFileName The name of a file, which may include a path.
+	 *
+	 * @return The substitutions selected for the file.  Null if no
+	 *     substitutions are selected.
+	 */
 	public Map<String, String> getXmlSubstitutions(String inputFileName) {
+	    if ( xmlSelector == null ) {
+	        return null;
+	    }
+
 	    String simpleFileName = FileUtils.getFileNameFromFullyQualifiedFileName(inputFileName); 
 
-	    Map<String, String> specificUpdates = getSpecificXmlUpdates().get(simpleFileName);
-	    if ( specificUpdates != null ) {
-	    	return specificUpdates;
+	    Map<String, String> substitutions = xmlResolutions.get(simpleFileName);
+	    if ( substitutions == null ) {
+	        substitutions = resolveXmlSubstitutions(simpleFileName);
+	        xmlResolutions.put( simpleFileName, ((substitutions == null) ? NO_XML_SUBSTITUTIONS : substitutions) );
+	        return substitutions;
+	    } else if ( substitutions == NO_XML_SUBSTITUTIONS ) {
+	        return null;
+	    } else {
+	        return substitutions;
 	    }
+	}
 
-	    for ( Map.Entry<Pattern, Map<String, String>> wildcardEntry : getWildCardXmlUpdates().entrySet() ) {
-	    	if ( matches( wildcardEntry.getKey(), simpleFileName ) ) {
-	    		return wildcardEntry.getValue();
-	    	}
+	private Map<String, String> resolveXmlSubstitutions(String simpleFileName) {
+	    Matcher selectorMatcher = xmlSelector.matcher(simpleFileName);
+	    if ( !selectorMatcher.matches() ) {
+	        return null;
 	    }
 
-	    return null;
+	    int numSelections = xmlSelections.size();
+	    for ( int selectionNo = 0; selectionNo < numSelections; selectionNo++ ) {
+	        if ( selectorMatcher.start(XML_SELECTOR_GROUP + selectionNo) != -1 ) {
+	            return xmlSelections.get(selectionNo);
+	        }
+	    }
+	    return null; // Not reachable: The match is of one of the groups.
 	}
 
     public String replaceText(String inputFileName, String text) { 
@@ -416,45 +530,103 @@ public class SignatureRuleImpl implements SignatureRule {
         if ( substitutions == null ) {
         	throw new IllegalStateException("Input [ " + inputFileName + " ] selected for XML transformation, but found no substitutions");
         }
+        return replaceText(substitutions, text);
+    }
 
-        String initialText = text;
+    /**
+     * Apply substitutions to text.  The substitutions should be those which
+     * were resolved for the file which contains the text, using
+     * {@link #getXmlSubstitutions(String)}.
+     *
+     * @param substitutions The substitutions which are to be applied.
+     * @param text The text which is to be transformed.
+     *
+     * @return The transformed text.  Null if the text was not changed.
+     */
+    public String replaceText(Map<String, String> substitutions, String text) {
+        // Substitutions are applied one after another: A substitution may
+        // match text which was placed by a prior substitution.  The compiled
+        // matcher applies substitutions which cannot interact in one pass.
 
-        for ( Map.Entry<String, String> entry : substitutions.entrySet() ) {
-            String key = entry.getKey();
-            int keyLen = key.length();
+        return getSubstitutionMatcher(substitutions).replace(text);
+    }	
+	
+    //
 
-            int textLimit = text.length() - keyLen;
+	/**
+	 * Value which is cached for values which are not changed by the
+	 * transformation rules.  Compared by identity.
+	 */
+	private static final String UNCHANGED = new String("<unchanged>");
 
-            int lastMatchEnd = 0;
-            while ( lastMatchEnd <= textLimit ) {
-                int matchStart = text.indexOf(key, lastMatchEnd);
-                if ( matchStart == -1 ) {
-                    break;
-                }
+	private static void putCached(BoundedCache<String, String> cache, String input, String output) {
+		cache.put( input, ((output == null) ? UNCHANGED : output) );
+	}
 
-                String value = entry.getValue();
-                int valueLen = value.length();
+	/**
+	 * Answer the transformation caches of this rule: The binary type cache,
+	 * the signature cache, and the descriptor cache.
+	 *
+	 * @return The transformation caches of this rule.
+	 */
+	public List<BoundedCache<String, String>> getCaches() {
+		List<BoundedCache<String, String>> caches = new ArrayList<BoundedCache<String, String>>(3);
+		caches.add(binaryTypes);
+		caches.add(signatures);
+		caches.add(descriptors);
+		return caches;
+	}
 
-                String head = text.substring(0, matchStart);
-                String tail = text.substring(matchStart + keyLen);
-                text = head + value + tail;
+	/**
+	 * Answer the key of the rules which determine the cached transformations:
+	 * The transformations of binary types, signatures, and descriptors depend
+	 * only on the package renames.
+	 *
+	 * @return The key of the package renames of this rule.
+	 */
+	public String getMemoKey() {
+		return PersistentMemo.computeKey(dottedPackageRenames);
+	}
 
-                lastMatchEnd = matchStart + valueLen;
-                textLimit += (valueLen - keyLen);
-            }
-        }
+	/**
+	 * Add the entries of a memo to the transformation caches.  Each cache
+	 * is loaded from the memo section which has the name of the cache.
+	 *
+	 * The memo must have the key of this rule.  See {@link #getMemoKey()}.
+	 *
+	 * @param memo The memo which is to be loaded.
+	 *
+	 * @return The number of entries which were loaded.
+	 */
+	public int loadMemo(PersistentMemo memo) {
+		int loaded = 0;
+		for ( BoundedCache<String, String> cache : getCaches() ) {
+			Map<String, String> entries = memo.getSection( cache.getName() );
+			if ( entries == null ) {
+				continue;
+			}
+			for ( Map.Entry<String, String> entry : entries.entrySet() ) {
+				putCached( cache, entry.getKey(), entry.getValue() );
+			}
+			loaded += entries.size();
+		}
+		return loaded;
+	}
 
-        if ( initialText == text) {
-            return null;
-        } else {
-            return text;
-        }
-    }	
-	
-    //
+	/**
+	 * Merge the entries of the transformation caches into a memo.
+	 *
+	 * @param memo The memo which is to receive the cached entries.
+	 */
+	public void storeMemo(PersistentMemo memo) {
+		for ( BoundedCache<String, String> cache : getCaches() ) {
+			Map<String, String> entries = new LinkedHashMap<String, String>( cache.size() );
+			cache.forEach( (input, output) -> entries.put(input, ((output == UNCHANGED) ? null : output)) );
+			memo.merge( cache.getName(), entries );
+		}
+	}
 
-	private final Map<String, String> changedBinaryTypes;
-	private final Set<String> unchangedBinaryTypes;
+	private final BoundedCache<String, String> binaryTypes;
 
 	@Override
 	public String transformConstantAsBinaryType(String inputConstant) {
@@ -488,19 +660,24 @@ public class SignatureRuleImpl implements SignatureRule {
 	protected String transformBinaryType(String inputName, boolean allowSimpleSubstitution) {
 		// System.out.println("Input type [ " + inputName + " ]");
 
-		if ( unchangedBinaryTypes.contains(inputName) ) {
+		String outputName = binaryTypes.get(inputName);
+		if ( outputName == UNCHANGED ) {
 			// System.out.println("Unchanged (Prior)");
 			return null;
-		}
-
-		String outputName = changedBinaryTypes.get(inputName);
-		if ( outputName != null ) {
+		} else if ( outputName != null ) {
 			// System.out.println("Change to [ " + outputName + " ] (Prior)");
 			return outputName;
 		}
 
 		char c = inputName.charAt(0);
+		String scannedName;
 		if ( (c == '[') || ((c == 'L') && (inputName.charAt(inputName.length() - 1) == ';')) ) {
+		    scannedName = scanDescriptor(inputName, SignatureType.FIELD);
+		} else {
+		    scannedName = NOT_A_DESCRIPTOR;
+		}
+
+		if ( scannedName == CHANGED_SIGNATURE ) {
 		    JavaTypeSignature inputSignature = JavaTypeSignature.of( inputName.replace('$', '.') );
 		    JavaTypeSignature outputSignature = transform(inputSignature);
 		    if ( outputSignature != null ) {
@@ -509,15 +686,22 @@ public class SignatureRuleImpl implements SignatureRule {
 		        // Leave outputName null.
 		    }
 
+		} else if ( scannedName != NOT_A_DESCRIPTOR ) {
+		    outputName = scannedName;
+
 		} else {
 		    int lastSlashOffset = inputName.lastIndexOf('/');
 		    if ( lastSlashOffset != -1 ) {
-		        String inputPackage = inputName.substring(0, lastSlashOffset);
-		        // System.out.println("Input package [ " + inputPackage + " ]");
-		        String outputPackage = replaceBinaryPackage(inputPackage);
+		        // Look up the package in place: Most types are not renamed, and
+		        // a lookup which misses allocates nothing.
+		        String outputPackage = replaceBinaryPackage(inputName, 0, lastSlashOffset);
 		        if ( outputPackage != null ) {
 		            // System.out.println("Output package [ " + outputPackage + " ]");
-		            outputName = outputPackage + inputName.substring(lastSlashOffset);
+		            int inputLength = inputName.length();
+		            outputName = new StringBuilder( outputPackage.length() + (inputLength - lastSlashOffset) )
+		                .append(outputPackage)
+		                .append(inputName, lastSlashOffset, inputLength)
+		                .toString();
 		        } else {
 		            // Leave outputName null.
 		        }
@@ -530,13 +714,7 @@ public class SignatureRuleImpl implements SignatureRule {
 		    outputName = replacePackages(inputName, slashedPackageRenames);
 		}
 		
-		if ( outputName == null ) {
-			unchangedBinaryTypes.add(inputName);
-			// System.out.println("Unchanged");
-		} else {
-			changedBinaryTypes.put(inputName, outputName);
-			// System.out.println("Change to [ " + outputName + " ]");
-		}
+		putCached(binaryTypes, inputName, outputName);
 
 		return outputName;
 	}
@@ -558,8 +736,7 @@ public class SignatureRuleImpl implements SignatureRule {
 		}
 	}
 
-	private final Set<String> unchangedDescriptors;
-	private final Map<String, String> changedDescriptors;
+	private final BoundedCache<String, String> descriptors;
 
 	@Override
 	public String transformDescriptor(String inputDescriptor) {
@@ -568,35 +745,39 @@ public class SignatureRuleImpl implements SignatureRule {
 
 	@Override
 	public String transformDescriptor(String inputDescriptor, boolean allowSimpleSubstitution) {
-		if ( unchangedDescriptors.contains(inputDescriptor) ) {
+		String outputDescriptor = descriptors.get(inputDescriptor);
+		if ( outputDescriptor == UNCHANGED ) {
 			return null;
-		}
-
-		String outputDescriptor = changedDescriptors.get(inputDescriptor);
-		if ( outputDescriptor != null ) {
+		} else if ( outputDescriptor != null ) {
 		    return outputDescriptor;
 		}
 
 
 		char c = inputDescriptor.charAt(0);
+		SignatureType descriptorType;
 		if ( c == '(' ) {
-		    String inputSignature = inputDescriptor.replace('$', '.');
-		    String outputSignature = transform(inputSignature, SignatureType.METHOD);
-		    if ( outputSignature != null ) {
-		        outputDescriptor = outputSignature.replace('.', '$');
-		    } else {
-		        // leave outputDescriptor null
-		    }
+		    descriptorType = SignatureType.METHOD;
+		} else if ( (c == '[') || ((c == 'L') && (inputDescriptor.charAt(inputDescriptor.length() - 1) == ';')) ) {
+		    descriptorType = SignatureType.FIELD;
+		} else {
+		    descriptorType = null;
+		}
 
-		} else  if ( (c == '[') || ((c == 'L') && (inputDescriptor.charAt(inputDescriptor.length() - 1) == ';')) ) {
-		    String inputSignature = inputDescriptor.replace('$', '.');
-		    String outputSignature = transform(inputSignature, SignatureType.FIELD);
-		    if ( outputSignature != null ) {
-		        outputDescriptor = outputSignature.replace('.', '$');
+		if ( descriptorType != null ) {
+		    String scannedDescriptor = scanDescriptor(inputDescriptor, descriptorType);
+		    if ( scannedDescriptor == CHANGED_SIGNATURE ) {
+		        String inputSignature = inputDescriptor.replace('$', '.');
+		        String outputSignature = transform(inputSignature, descriptorType);
+		        if ( outputSignature != null ) {
+		            outputDescriptor = outputSignature.replace('.', '$');
+		        } else {
+		            // leave outputDescriptor null
+		        }
+		    } else if ( scannedDescriptor != NOT_A_DESCRIPTOR ) {
+		        outputDescriptor = scannedDescriptor;
 		    } else {
 		        // leave outputDescriptor null
 		    }
-
 		} else {
 		    // leave outputDescriptor null
 		}
@@ -605,12 +786,319 @@ public class SignatureRuleImpl implements SignatureRule {
 		    outputDescriptor = replacePackages(inputDescriptor, dottedPackageRenames);
 		}
 
-		if ( outputDescriptor == null ) {
-			unchangedDescriptors.add(inputDescriptor);
+		putCached(descriptors, inputDescriptor, outputDescriptor);
+		return outputDescriptor;
+	}
+
+	//
+
+	/**
+	 * Value answered by a descriptor scan when the scanned value is not a
+	 * descriptor.  Compared by identity.
+	 */
+	private static final String NOT_A_DESCRIPTOR = new String("<not a descriptor>");
+
+	/**
+	 * Value answered by a descriptor scan when the scanned value is a generic
+	 * signature which is changed by the package renames.  Changed generic
+	 * signatures are transformed by parsing the signature.  Compared by
+	 * identity.
+	 */
+	private static final String CHANGED_SIGNATURE = new String("<changed signature>");
+
+	/**
+	 * Scan a value as a descriptor, replacing the packages of the class
+	 * types of the descriptor.  The value is scanned as a signature: Type
+	 * arguments and type variables are accepted.
+	 *
+	 * The value is scanned in a single pass, without creating signature
+	 * objects, and without throwing an exception when the value is not a
+	 * descriptor.
+	 *
+	 * As when parsing a descriptor as a signature, '.' characters of the
+	 * descriptor are treated as inner class separators, and are answered as
+	 * '$' characters when the descriptor is changed.
+	 *
+	 * @param input The value which is to be scanned.
+	 * @param descriptorType The type of the descriptor: {@link SignatureType#FIELD}
+	 *     or {@link SignatureType#METHOD}.
+	 *
+	 * @return The transformed descriptor.  Null if the value is a descriptor
+	 *     which is not changed.  {@link #NOT_A_DESCRIPTOR} if the value is not
+	 *     a descriptor.  {@link #CHANGED_SIGNATURE} if the value is a generic
+	 *     signature which is changed.
+	 */
+	protected String scanDescriptor(String input, SignatureType descriptorType) {
+		String output = scanSignature(input, descriptorType);
+		if ( (output == null) || (output == NOT_A_DESCRIPTOR) || (output == CHANGED_SIGNATURE) ) {
+			return output;
+		} else if ( input.indexOf('.') == -1 ) {
+			return output;
 		} else {
-			changedDescriptors.put(inputDescriptor, outputDescriptor);
+			return output.replace('.', '$');
+		}
+	}
+
+	/**
+	 * Scan a value as a signature, replacing the packages of the class
+	 * types of the signature.  See {@link #scanDescriptor(String, SignatureType)}.
+	 *
+	 * @param input The value which is to be scanned.
+	 * @param signatureType The type of the signature.
+	 *
+	 * @return The transformed signature.  Null if the signature is not
+	 *     changed.  {@link #NOT_A_DESCRIPTOR} if the value is not a signature.
+	 *     {@link #CHANGED_SIGNATURE} if the value is a generic signature which
+	 *     is changed.
+	 */
+	protected String scanSignature(String input, SignatureType signatureType) {
+		SignatureScanner scanner = new SignatureScanner(input);
+
+		int end;
+		if ( signatureType == SignatureType.CLASS ) {
+			end = scanner.scanClassSignature(0);
+		} else if ( signatureType == SignatureType.FIELD ) {
+			end = scanner.scanReferenceType(0);
+		} else if ( signatureType == SignatureType.METHOD ) {
+			end = scanner.scanMethodSignature(0);
+		} else {
+			throw new IllegalArgumentException(
+				"Signature [ " + input + " ] uses unknown type [ " + signatureType + " ]");
+		}
+
+		if ( end != input.length() ) {
+			return NOT_A_DESCRIPTOR;
+		} else if ( scanner.output == null ) {
+			return null;
+		} else if ( scanner.isGeneric ) {
+			return CHANGED_SIGNATURE;
+		} else {
+			return scanner.output.append(input, scanner.copied, end).toString();
+		}
+	}
+
+	/**
+	 * Single pass scanner of signatures.
+	 *
+	 * Each scan step answers the offset following the scanned element, or -1
+	 * if the element is not valid.  The package of each class type is replaced
+	 * as the class type is scanned.  The output is created when the first
+	 * package is replaced.
+	 */
+	private class SignatureScanner {
+		private final String input;
+		private final int length;
+
+		public StringBuilder output;
+		public int copied;
+		public boolean isGeneric;
+
+		public SignatureScanner(String input) {
+			this.input = input;
+			this.length = input.length();
+		}
+
+		private char charAt(int offset) {
+			return ( ((offset < 0) || (offset >= length)) ? '\0' : input.charAt(offset) );
+		}
+
+		private int scanIdentifier(int offset) {
+			int start = offset;
+			while ( offset < length ) {
+				char c = input.charAt(offset);
+				if ( (c == '.') || (c == ';') || (c == '[') || (c == '/') ||
+					 (c == '<') || (c == '>') || (c == ':') ) {
+					break;
+				}
+				offset++;
+			}
+			return ( (offset == start) ? -1 : offset );
+		}
+
+		private void replacePackage(int packageStart, int packageEnd) {
+			String outputPackage = replaceBinaryPackage(input, packageStart, packageEnd);
+			if ( outputPackage == null ) {
+				return;
+			}
+			if ( output == null ) {
+				output = new StringBuilder( length + 16 );
+			}
+			output.append(input, copied, packageStart);
+			output.append(outputPackage);
+			copied = packageEnd;
+		}
+
+		public int scanFieldType(int offset) {
+			while ( charAt(offset) == '[' ) {
+				offset++;
+			}
+			switch ( charAt(offset) ) {
+				case 'B': case 'C': case 'D': case 'F':
+				case 'I': case 'J': case 'S': case 'Z':
+					return offset + 1;
+				case 'L':
+					return scanClassType(offset);
+				case 'T':
+					return scanTypeVariable(offset);
+				default:
+					return -1;
+			}
+		}
+
+		public int scanReferenceType(int offset) {
+			switch ( charAt(offset) ) {
+				case '[':
+					return scanFieldType(offset);
+				case 'L':
+					return scanClassType(offset);
+				case 'T':
+					return scanTypeVariable(offset);
+				default:
+					return -1;
+			}
+		}
+
+		public int scanClassType(int offset) {
+			if ( charAt(offset) != 'L' ) {
+				return -1;
+			}
+			int packageStart = ++offset;
+			int packageEnd = -1;
+
+			while ( (offset = scanIdentifier(offset)) != -1 ) {
+				if ( charAt(offset) != '/' ) {
+					break;
+				}
+				packageEnd = offset++;
+			}
+			if ( offset == -1 ) {
+				return -1;
+			}
+
+			if ( packageEnd != -1 ) {
+				replacePackage(packageStart, packageEnd);
+			}
+
+			while ( true ) {
+				char c = charAt(offset);
+				if ( c == '<' ) {
+					if ( (offset = scanTypeArguments(offset)) == -1 ) {
+						return -1;
+					}
+					c = charAt(offset);
+				}
+				if ( c == ';' ) {
+					return offset + 1;
+				} else if ( c == '.' ) {
+					if ( (offset = scanIdentifier(offset + 1)) == -1 ) {
+						return -1;
+					}
+				} else {
+					return -1;
+				}
+			}
+		}
+
+		public int scanTypeArguments(int offset) {
+			isGeneric = true;
+			offset++; // '<'
+			do {
+				char c = charAt(offset);
+				if ( c == '*' ) {
+					offset++;
+				} else {
+					if ( (c == '+') || (c == '-') ) {
+						offset++;
+					}
+					if ( (offset = scanReferenceType(offset)) == -1 ) {
+						return -1;
+					}
+				}
+			} while ( charAt(offset) != '>' );
+			return offset + 1;
+		}
+
+		public int scanTypeVariable(int offset) {
+			isGeneric = true;
+			offset = scanIdentifier(offset + 1); // 'T'
+			if ( (offset == -1) || (charAt(offset) != ';') ) {
+				return -1;
+			}
+			return offset + 1;
+		}
+
+		public int scanTypeParameters(int offset) {
+			if ( charAt(offset) != '<' ) {
+				return offset;
+			}
+			isGeneric = true;
+			offset++;
+			do {
+				offset = scanIdentifier(offset);
+				if ( (offset == -1) || (charAt(offset) != ':') ) {
+					return -1;
+				}
+				offset++;
+				if ( charAt(offset) != ':' ) {
+					if ( (offset = scanReferenceType(offset)) == -1 ) { // class bound
+						return -1;
+					}
+				}
+				while ( charAt(offset) == ':' ) {
+					if ( (offset = scanReferenceType(offset + 1)) == -1 ) { // interface bound
+						return -1;
+					}
+				}
+			} while ( charAt(offset) != '>' );
+			return offset + 1;
+		}
+
+		public int scanClassSignature(int offset) {
+			if ( (offset = scanTypeParameters(offset)) == -1 ) {
+				return -1;
+			}
+			if ( (offset = scanClassType(offset)) == -1 ) { // super class
+				return -1;
+			}
+			while ( (offset != -1) && (offset < length) ) {
+				offset = scanClassType(offset); // super interfaces
+			}
+			return offset;
+		}
+
+		public int scanMethodSignature(int offset) {
+			if ( (offset = scanTypeParameters(offset)) == -1 ) {
+				return -1;
+			}
+			if ( charAt(offset) != '(' ) {
+				return -1;
+			}
+			offset++;
+			while ( charAt(offset) != ')' ) {
+				if ( (offset = scanFieldType(offset)) == -1 ) {
+					return -1;
+				}
+			}
+			offset++;
+			if ( charAt(offset) == 'V' ) {
+				offset++;
+			} else if ( (offset = scanFieldType(offset)) == -1 ) {
+				return -1;
+			}
+			while ( charAt(offset) == '^' ) {
+				isGeneric = true;
+				offset++;
+				if ( charAt(offset) == 'T' ) {
+					offset = scanTypeVariable(offset);
+				} else {
+					offset = scanClassType(offset);
+				}
+				if ( offset == -1 ) {
+					return -1;
+				}
+			}
+			return offset;
 		}
-		return outputDescriptor;
 	}
 
 	/**
@@ -621,8 +1109,7 @@ public class SignatureRuleImpl implements SignatureRule {
 	 * own syntax, meaning, there are not equal values across signature types.
 	 */
 	
-	private final Set<String> unchangedSignatures;
-	private final Map<String, String> changedSignatures;
+	private final BoundedCache<String, String> signatures;
 
 	/**
 	 * Transform a class, field, or method signature.
@@ -638,13 +1125,20 @@ public class SignatureRuleImpl implements SignatureRule {
 	 */
 	@Override
 	public String transform(String input, SignatureType signatureType) {
-		if ( unchangedSignatures.contains(input) ) {
+		String output = signatures.get(input);
+		if ( output == UNCHANGED ) {
 			return null;
+		} else if ( output != null ) {
+			return output;
 		}
 
-		String output = changedSignatures.get(input);
-		if ( output != null ) {
-			return output;
+		// Only changed generic signatures, and values which the scan does not
+		// accept, are parsed.  A value which is not valid is rejected by the parse.
+
+		String scannedSignature = scanSignature(input, signatureType);
+		if ( (scannedSignature != CHANGED_SIGNATURE) && (scannedSignature != NOT_A_DESCRIPTOR) ) {
+			putCached(signatures, input, scannedSignature);
+			return scannedSignature;
 		}
 
 		if ( signatureType == SignatureType.CLASS ) {
@@ -679,11 +1173,7 @@ public class SignatureRuleImpl implements SignatureRule {
 				"Signature [ " + input + " ] uses unknown type [ " + signatureType + " ]");
 		}
 
-		if ( output == null ) {
-			unchangedSignatures.add(input);
-		} else {
-			changedSignatures.put(input, output);
-		}
+		putCached(signatures, input, output);
 
 		return output;
 	}
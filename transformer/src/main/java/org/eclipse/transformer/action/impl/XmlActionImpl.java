@@ -14,7 +14,6 @@ package org.eclipse.transformer.action.impl;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -23,6 +22,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
+import java.util.Map;
 
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
@@ -30,6 +30,7 @@ import javax.xml.parsers.SAXParserFactory;
 import org.eclipse.transformer.TransformException;
 import org.eclipse.transformer.action.ActionType;
 import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.PooledOutputStream;
 import org.slf4j.Logger;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
@@ -62,6 +63,22 @@ public class XmlActionImpl extends ActionImpl {
 		return ".xml";
 	}
 
+	/**
+	 * Answer the substitutions selected for an XML file.  The selection is
+	 * cached by the signature rule, and is shared by accept and apply.
+	 *
+	 * @param inputName The name of the XML file.
+	 *
+	 * @return The substitutions selected for the file.
+	 */
+	protected Map<String, String> getXmlSubstitutions(String inputName) {
+	    Map<String, String> substitutions = signatureRule.getXmlSubstitutions(inputName);
+	    if ( substitutions == null ) {
+	        throw new IllegalStateException("Input [ " + inputName + " ] selected for XML transformation, but found no substitutions");
+	    }
+	    return substitutions;
+	}
+
 	@Override
 	public boolean accept(String resourceName, File resourceFile) {
 	    if ( resourceName.toLowerCase().endsWith( getAcceptExtension() ) ) {
@@ -89,16 +106,16 @@ public class XmlActionImpl extends ActionImpl {
 		setResourceNames(inputName, inputName);
 
 		InputStream inputStream = new ByteArrayInputStream(inputBytes, 0, inputCount);
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(inputCount);
+		PooledOutputStream outputStream = createOutputStream(inputCount);
 
 		transformUsingSaxParser(inputName, inputStream, outputStream);
 
 		if ( !hasNonResourceNameChanges() ) {
+			outputStream.release();
 			return null;
 
 		} else {
-			byte[] outputBytes = outputStream.toByteArray();
-			return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+			return outputStream.toByteData(inputName);
 		}
 	}
 
@@ -121,12 +138,13 @@ public class XmlActionImpl extends ActionImpl {
 
 	    BufferedReader reader = new BufferedReader(inputReader);
 
-	    ByteArrayOutputStream outputStream = new ByteArrayOutputStream(inputBytes.length);
+	    PooledOutputStream outputStream = createOutputStream(inputLength);
 	    OutputStreamWriter outputWriter;
 	    try {
 	        outputWriter = new OutputStreamWriter(outputStream, "UTF-8");
 	    } catch ( UnsupportedEncodingException e ) {
 	        error("Strange: UTF-8 is an unrecognized encoding for writing [ {} ]", e, inputName);
+	        outputStream.release();
 	        return null;
 	    }
 
@@ -136,6 +154,7 @@ public class XmlActionImpl extends ActionImpl {
 	        transformAsPlainText(inputName, reader, writer); // throws IOException
 	    } catch ( IOException e ) {
 	        error("Failed to transform [ {} ]", e, inputName);
+	        outputStream.release();
 	        return null;
 	    }
 
@@ -143,15 +162,16 @@ public class XmlActionImpl extends ActionImpl {
 	        writer.flush(); // throws
 	    } catch ( IOException e ) {
 	        error("Failed to flush [ {} ]", e, inputName);
+	        outputStream.release();
 	        return null;
 	    }
 
 	    if ( !hasNonResourceNameChanges() ) {
+	        outputStream.release();
 	        return null;
 	    }
 
-	    byte[] outputBytes = outputStream.toByteArray();
-	    return new ByteData(inputName, outputBytes, 0, outputBytes.length);
+	    return outputStream.toByteData(inputName);
 	}
 
 	//
@@ -226,9 +246,12 @@ public class XmlActionImpl extends ActionImpl {
 	protected void transformAsPlainText(String inputName, BufferedReader reader, BufferedWriter writer)
 	        throws IOException {
 
+	    // Resolve the substitutions once, instead of once per line.
+	    Map<String, String> substitutions = getXmlSubstitutions(inputName);
+
 	    String inputLine;
 	    while ( (inputLine = reader.readLine()) != null ) {
-	        String outputLine = replaceText(inputName, inputLine);
+	        String outputLine = signatureRule.replaceText(substitutions, inputLine);
 	        if ( outputLine == null ) {
 	            outputLine = inputLine;
 	        } else {
@@ -251,12 +274,15 @@ public class XmlActionImpl extends ActionImpl {
 			this.outputStream = outputStream;
 
 			this.lineBuilder = new StringBuilder();
+
+			this.substitutions = getXmlSubstitutions(inputName);
 		}
 
 		//
 
 		private final String inputName;
-		
+		private final Map<String, String> substitutions;
+
 		private final String publicId;
 		private final String systemId;
 		private Charset charset;
@@ -429,7 +455,7 @@ public class XmlActionImpl extends ActionImpl {
 		    String initialText = new String(chars, start, length);
 		    debug("characters: initialText["+initialText+"]");
 
-		    String finalText = XmlActionImpl.this.replaceText(inputName, initialText);
+		    String finalText = signatureRule.replaceText(substitutions, initialText);
 		    if ( finalText == null ) {
 		        finalText = initialText;
 		        XmlActionImpl.this.addReplacement();
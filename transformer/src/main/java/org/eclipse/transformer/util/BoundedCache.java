@@ -0,0 +1,238 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Thread safe cache which has a maximum size.
+ *
+ * The cache is divided into stripes, each of which has its own lock: Threads
+ * which use different stripes do not contend.  Each stripe retains at most
+ * its share of the maximum size.  When a stripe is full, the least recently
+ * used entry of the stripe is evicted.
+ *
+ * Hits, misses, and evictions are counted, for use when sizing the cache.
+ *
+ * Null keys and null values are not supported.
+ *
+ * @param <K> The type of the keys of the cache.
+ * @param <V> The type of the values of the cache.
+ */
+public class BoundedCache<K, V> {
+	/** The maximum number of stripes of a cache. */
+	public static final int MAX_STRIPES = 16;
+
+	private static class Stripe<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+
+		public Stripe(int maxSize, LongAdder evictions) {
+			super(16, 0.75f, true); // Access order: The eldest entry is the least recently used.
+
+			this.maxSize = maxSize;
+			this.evictions = evictions;
+		}
+
+		private final int maxSize;
+		private final LongAdder evictions;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			if ( size() > maxSize ) {
+				evictions.increment();
+				return true;
+			} else {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param name The name of the cache.
+	 * @param maxSize The maximum number of entries of the cache.  Must be
+	 *     positive.
+	 */
+	public BoundedCache(String name, int maxSize) {
+		if ( maxSize < 1 ) {
+			throw new IllegalArgumentException("Cache [ " + name + " ] maximum size [ " + maxSize + " ] must be positive");
+		}
+
+		this.name = name;
+		this.maxSize = maxSize;
+
+		// A power of two, so that the stripe is selected by masking the hash.
+		// The stripes together retain no more than the maximum size.
+
+		int numStripes = Integer.highestOneBit( Math.min(MAX_STRIPES, maxSize) );
+		int stripeSize = maxSize / numStripes;
+
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.evictions = new LongAdder();
+
+		this.stripeMask = numStripes - 1;
+		List<Stripe<K, V>> useStripes = new ArrayList<Stripe<K, V>>(numStripes);
+		for ( int stripeNo = 0; stripeNo < numStripes; stripeNo++ ) {
+			useStripes.add( new Stripe<K, V>(stripeSize, this.evictions) );
+		}
+		this.stripes = useStripes;
+	}
+
+	//
+
+	private final String name;
+	private final int maxSize;
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	//
+
+	private final int stripeMask;
+	private final List<Stripe<K, V>> stripes;
+
+	private Stripe<K, V> getStripe(Object key) {
+		int hash = key.hashCode();
+		hash ^= ( hash >>> 16 );
+		return stripes.get( hash & stripeMask );
+	}
+
+	//
+
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private final LongAdder evictions;
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	//
+
+	/**
+	 * Answer the value which is cached for a key.  Count a hit or a miss.
+	 *
+	 * @param key The key which is to be retrieved.
+	 *
+	 * @return The value cached for the key.  Null if no value is cached.
+	 */
+	public V get(K key) {
+		Stripe<K, V> stripe = getStripe(key);
+		V value;
+		synchronized ( stripe ) {
+			value = stripe.get(key);
+		}
+
+		if ( value == null ) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return value;
+	}
+
+	/**
+	 * Cache a value.  Evict the least recently used entry of the stripe of the
+	 * key if the stripe is full.
+	 *
+	 * @param key The key of the value.
+	 * @param value The value which is to be cached.
+	 */
+	public void put(K key, V value) {
+		Stripe<K, V> stripe = getStripe(key);
+		synchronized ( stripe ) {
+			stripe.put(key, value);
+		}
+	}
+
+	/**
+	 * Answer the number of cached entries.  The size is not a snapshot: The
+	 * stripes are sized one after another.
+	 *
+	 * @return The number of cached entries.
+	 */
+	public int size() {
+		int size = 0;
+		for ( Stripe<K, V> stripe : stripes ) {
+			synchronized ( stripe ) {
+				size += stripe.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Visit the entries of the cache.  The entries of each stripe are copied
+	 * while the stripe is locked, then are visited from the least recently
+	 * used to the most recently used.  The visit does not change the order
+	 * of the entries, and does not count hits or misses.
+	 *
+	 * @param visitor The visitor of the entries.
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(BiConsumer<? super K, ? super V> visitor) {
+		for ( Stripe<K, V> stripe : stripes ) {
+			Object[] keys;
+			Object[] values;
+			synchronized ( stripe ) {
+				keys = new Object[ stripe.size() ];
+				values = new Object[ keys.length ];
+				int entryNo = 0;
+				for ( Map.Entry<K, V> entry : stripe.entrySet() ) {
+					keys[entryNo] = entry.getKey();
+					values[entryNo] = entry.getValue();
+					entryNo++;
+				}
+			}
+			for ( int entryNo = 0; entryNo < keys.length; entryNo++ ) {
+				visitor.accept( (K) keys[entryNo], (V) values[entryNo] );
+			}
+		}
+	}
+
+	public void clear() {
+		for ( Stripe<K, V> stripe : stripes ) {
+			synchronized ( stripe ) {
+				stripe.clear();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Cache [ " + name + " ]:" +
+			" Size [ " + size() + " / " + maxSize + " ]" +
+			" Hits [ " + getHits() + " ]" +
+			" Misses [ " + getMisses() + " ]" +
+			" Evictions [ " + getEvictions() + " ]";
+	}
+}
@@ -0,0 +1,252 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe pool of byte buffers.
+ *
+ * Buffers are allocated in size classes, which are powers of two from
+ * {@link #MIN_CLASS_SIZE} to {@link #MAX_CLASS_SIZE}.  A request for a buffer
+ * is answered with a buffer of the smallest class which is large enough for
+ * the request.  Requests which are larger than the largest class are answered
+ * with a new buffer of exactly the requested size, which is not retained when
+ * it is released.
+ *
+ * Released buffers are retained first by a cache which is local to the
+ * releasing thread, and then by a cache which is shared by all threads.  The
+ * local caches retain a small number of buffers of the smaller classes.  The
+ * shared cache retains buffers up to a maximum total size.  Buffers which are
+ * released when the shared cache is full are discarded.
+ *
+ * A buffer must not be used after it is released, and must not be released
+ * more than once.
+ */
+public class BufferPool {
+	public static final int MIN_CLASS_SIZE = FileUtils.PAGE_SIZE;
+	public static final int MAX_CLASS_SIZE = 16 * 1024 * 1024;
+
+	/** Largest class which is retained by thread local caches. */
+	public static final int MAX_LOCAL_CLASS_SIZE = 1024 * 1024;
+	/** Number of buffers of each class which are retained by a thread local cache. */
+	public static final int LOCAL_DEPTH = 2;
+
+	/** Default maximum total size of buffers retained by the shared cache. */
+	public static final long DEFAULT_MAX_RETAINED = 64L * 1024L * 1024L;
+
+	private static final int MIN_CLASS_SHIFT = Integer.numberOfTrailingZeros(MIN_CLASS_SIZE);
+	private static final int NUM_CLASSES = Integer.numberOfTrailingZeros(MAX_CLASS_SIZE) - MIN_CLASS_SHIFT + 1;
+	private static final int NUM_LOCAL_CLASSES = Integer.numberOfTrailingZeros(MAX_LOCAL_CLASS_SIZE) - MIN_CLASS_SHIFT + 1;
+
+	private static final BufferPool sharedPool = new BufferPool(DEFAULT_MAX_RETAINED);
+
+	/**
+	 * Answer the pool which is shared by default by all actions.
+	 *
+	 * @return The shared pool.
+	 */
+	public static BufferPool getSharedPool() {
+		return sharedPool;
+	}
+
+	/**
+	 * Answer the size class which is used for a requested size.
+	 *
+	 * @param size A requested size.
+	 *
+	 * @return The size of buffers which are used for the requested size.
+	 *     The requested size if the requested size is larger than the
+	 *     largest class.
+	 */
+	public static int getClassSize(int size) {
+		if ( size <= MIN_CLASS_SIZE ) {
+			return MIN_CLASS_SIZE;
+		} else if ( size > MAX_CLASS_SIZE ) {
+			return size;
+		} else {
+			return ( Integer.highestOneBit(size - 1) << 1 );
+		}
+	}
+
+	private static int getClassIndex(int classSize) {
+		return ( Integer.numberOfTrailingZeros(classSize) - MIN_CLASS_SHIFT );
+	}
+
+	private static boolean isClassSize(int size) {
+		return ( (size >= MIN_CLASS_SIZE) && (size <= MAX_CLASS_SIZE) && (Integer.bitCount(size) == 1) );
+	}
+
+	//
+
+	/**
+	 * Create a buffer pool.
+	 *
+	 * @param maxRetained The maximum total size of buffers which are
+	 *     retained by the shared cache.
+	 */
+	public BufferPool(long maxRetained) {
+		this.maxRetained = maxRetained;
+
+		List<ConcurrentLinkedDeque<byte[]>> useSharedBuffers = new ArrayList<ConcurrentLinkedDeque<byte[]>>(NUM_CLASSES);
+		for ( int classNo = 0; classNo < NUM_CLASSES; classNo++ ) {
+			useSharedBuffers.add( new ConcurrentLinkedDeque<byte[]>() );
+		}
+		this.sharedBuffers = useSharedBuffers;
+		this.retained = new AtomicLong();
+
+		this.localBuffers = ThreadLocal.withInitial( () -> new byte[NUM_LOCAL_CLASSES][LOCAL_DEPTH][] );
+
+		this.allocations = new AtomicLong();
+		this.reuses = new AtomicLong();
+		this.discards = new AtomicLong();
+	}
+
+	//
+
+	private final long maxRetained;
+
+	private final List<ConcurrentLinkedDeque<byte[]>> sharedBuffers;
+	private final AtomicLong retained;
+
+	private final ThreadLocal<byte[][][]> localBuffers;
+
+	public long getMaxRetained() {
+		return maxRetained;
+	}
+
+	/**
+	 * Answer the total size of the buffers which are retained by the shared
+	 * cache.  Buffers retained by thread local caches are not included.
+	 *
+	 * @return The total size of buffers retained by the shared cache.
+	 */
+	public long getRetained() {
+		return retained.get();
+	}
+
+	//
+
+	private final AtomicLong allocations;
+	private final AtomicLong reuses;
+	private final AtomicLong discards;
+
+	public long getAllocations() {
+		return allocations.get();
+	}
+
+	public long getReuses() {
+		return reuses.get();
+	}
+
+	public long getDiscards() {
+		return discards.get();
+	}
+
+	//
+
+	/**
+	 * Borrow a buffer.  The content of the buffer is not specified.
+	 *
+	 * @param size The minimum size of the buffer.
+	 *
+	 * @return A buffer which has at least the requested size.
+	 */
+	public byte[] borrow(int size) {
+		int classSize = getClassSize(size);
+		if ( classSize > MAX_CLASS_SIZE ) {
+			allocations.incrementAndGet();
+			return new byte[classSize];
+		}
+
+		int classNo = getClassIndex(classSize);
+
+		if ( classNo < NUM_LOCAL_CLASSES ) {
+			byte[][] local = localBuffers.get()[classNo];
+			for ( int slotNo = 0; slotNo < LOCAL_DEPTH; slotNo++ ) {
+				byte[] buffer = local[slotNo];
+				if ( buffer != null ) {
+					local[slotNo] = null;
+					reuses.incrementAndGet();
+					return buffer;
+				}
+			}
+		}
+
+		byte[] buffer = sharedBuffers.get(classNo).pollFirst();
+		if ( buffer != null ) {
+			retained.addAndGet(-classSize);
+			reuses.incrementAndGet();
+			return buffer;
+		}
+
+		allocations.incrementAndGet();
+		return new byte[classSize];
+	}
+
+	/**
+	 * Release a buffer to the pool.  Buffers which were not obtained from
+	 * the pool may be released, but are only retained if their size is a
+	 * class size.
+	 *
+	 * @param buffer The buffer which is to be released.  Ignored if null.
+	 */
+	public void release(byte[] buffer) {
+		if ( buffer == null ) {
+			return;
+		}
+
+		int classSize = buffer.length;
+		if ( !isClassSize(classSize) ) {
+			discards.incrementAndGet();
+			return;
+		}
+
+		int classNo = getClassIndex(classSize);
+
+		if ( classNo < NUM_LOCAL_CLASSES ) {
+			byte[][] local = localBuffers.get()[classNo];
+			for ( int slotNo = 0; slotNo < LOCAL_DEPTH; slotNo++ ) {
+				if ( local[slotNo] == null ) {
+					local[slotNo] = buffer;
+					return;
+				}
+			}
+		}
+
+		if ( retained.addAndGet(classSize) > maxRetained ) {
+			retained.addAndGet(-classSize);
+			discards.incrementAndGet();
+			return;
+		}
+		sharedBuffers.get(classNo).addFirst(buffer);
+	}
+
+	/**
+	 * Replace a buffer with a larger buffer.  The used bytes of the buffer
+	 * are copied to the new buffer.  The prior buffer is not released.
+	 *
+	 * @param buffer The buffer which is to be replaced.
+	 * @param used The count of bytes of the buffer which are in use.
+	 * @param size The minimum size of the new buffer.
+	 *
+	 * @return The new buffer.
+	 */
+	public byte[] grow(byte[] buffer, int used, int size) {
+		byte[] newBuffer = borrow(size);
+		System.arraycopy(buffer, 0, newBuffer, 0, used);
+		return newBuffer;
+	}
+}
@@ -0,0 +1,196 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compiled matcher which tells if a range of bytes contains any of a
+ * collection of keys.  Keys are encoded using modified UTF-8, which is the
+ * encoding of UTF8 constants of class files.
+ *
+ * The matcher is a deterministic automaton (Aho-Corasick), which examines
+ * each byte once.  Bytes which do not occur in any key share a single
+ * transition.
+ *
+ * Matchers are immutable, and may be shared between threads.
+ */
+public class ByteMatcher {
+
+	/**
+	 * Encode text using modified UTF-8: The NUL character is encoded using two
+	 * bytes, and supplementary characters are encoded as surrogate pairs.
+	 *
+	 * @param text The text which is to be encoded.
+	 *
+	 * @return The encoded text.
+	 */
+	public static byte[] encode(String text) {
+		int textLength = text.length();
+		int encodedLength = 0;
+		for ( int charNo = 0; charNo < textLength; charNo++ ) {
+			char c = text.charAt(charNo);
+			if ( (c >= 0x0001) && (c <= 0x007F) ) {
+				encodedLength += 1;
+			} else if ( c <= 0x07FF ) {
+				encodedLength += 2;
+			} else {
+				encodedLength += 3;
+			}
+		}
+
+		byte[] encoded = new byte[encodedLength];
+		int byteNo = 0;
+		for ( int charNo = 0; charNo < textLength; charNo++ ) {
+			char c = text.charAt(charNo);
+			if ( (c >= 0x0001) && (c <= 0x007F) ) {
+				encoded[byteNo++] = (byte) c;
+			} else if ( c <= 0x07FF ) {
+				encoded[byteNo++] = (byte) (0xC0 | ((c >> 6) & 0x1F));
+				encoded[byteNo++] = (byte) (0x80 | (c & 0x3F));
+			} else {
+				encoded[byteNo++] = (byte) (0xE0 | ((c >> 12) & 0x0F));
+				encoded[byteNo++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				encoded[byteNo++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		return encoded;
+	}
+
+	/**
+	 * Create a matcher of keys.  An empty key matches every range of bytes.
+	 *
+	 * @param keys The keys which are to be matched.
+	 */
+	public ByteMatcher(Collection<String> keys) {
+		List<byte[]> encodedKeys = new ArrayList<byte[]>( keys.size() );
+		for ( String key : keys ) {
+			encodedKeys.add( encode(key) );
+		}
+
+		// Assign a class to each byte which occurs in a key.  Class 0 is
+		// shared by all other bytes.
+
+		int[] useByteClasses = new int[256];
+		int useNumClasses = 1;
+		int maxStates = 1;
+		for ( byte[] encodedKey : encodedKeys ) {
+			for ( byte keyByte : encodedKey ) {
+				if ( useByteClasses[keyByte & 0xFF] == 0 ) {
+					useByteClasses[keyByte & 0xFF] = useNumClasses++;
+				}
+			}
+			maxStates += encodedKey.length;
+		}
+		this.byteClasses = useByteClasses;
+		this.numClasses = useNumClasses;
+
+		// Build the trie of the keys, as a table of goto transitions.
+		// A transition of -1 is a missing transition.
+
+		int[] useTransitions = new int[ maxStates * useNumClasses ];
+		Arrays.fill(useTransitions, -1);
+		boolean[] useMatches = new boolean[maxStates];
+		int numStates = 1;
+
+		for ( byte[] encodedKey : encodedKeys ) {
+			int state = 0;
+			for ( byte keyByte : encodedKey ) {
+				int slot = (state * useNumClasses) + useByteClasses[keyByte & 0xFF];
+				if ( useTransitions[slot] == -1 ) {
+					useTransitions[slot] = numStates++;
+				}
+				state = useTransitions[slot];
+			}
+			useMatches[state] = true;
+		}
+
+		// Complete the transitions, in breadth first order: A missing
+		// transition of a state is the transition of the failure state of
+		// that state.  A state matches if its failure state matches.
+
+		int[] failures = new int[numStates];
+		int[] queue = new int[numStates];
+		int queueHead = 0;
+		int queueTail = 0;
+
+		for ( int classNo = 0; classNo < useNumClasses; classNo++ ) {
+			int target = useTransitions[classNo];
+			if ( target == -1 ) {
+				useTransitions[classNo] = 0;
+			} else {
+				failures[target] = 0;
+				queue[queueTail++] = target;
+			}
+		}
+
+		while ( queueHead < queueTail ) {
+			int state = queue[queueHead++];
+			int failure = failures[state];
+			if ( useMatches[failure] ) {
+				useMatches[state] = true;
+			}
+
+			for ( int classNo = 0; classNo < useNumClasses; classNo++ ) {
+				int slot = (state * useNumClasses) + classNo;
+				int failureTarget = useTransitions[ (failure * useNumClasses) + classNo ];
+				int target = useTransitions[slot];
+				if ( target == -1 ) {
+					useTransitions[slot] = failureTarget;
+				} else {
+					failures[target] = failureTarget;
+					queue[queueTail++] = target;
+				}
+			}
+		}
+
+		this.transitions = Arrays.copyOf(useTransitions, numStates * useNumClasses);
+		this.matches = Arrays.copyOf(useMatches, numStates);
+	}
+
+	private final int[] byteClasses;
+	private final int numClasses;
+	private final int[] transitions;
+	private final boolean[] matches;
+
+	public int getStateCount() {
+		return matches.length;
+	}
+
+	/**
+	 * Tell if a range of bytes contains any key.
+	 *
+	 * @param bytes Bytes containing the range.
+	 * @param offset The offset of the range.
+	 * @param length The length of the range.
+	 *
+	 * @return True or false telling if the range contains any key.
+	 */
+	public boolean matches(byte[] bytes, int offset, int length) {
+		if ( matches[0] ) {
+			return true;
+		}
+
+		int state = 0;
+		int end = offset + length;
+		for ( int byteNo = offset; byteNo < end; byteNo++ ) {
+			state = transitions[ (state * numClasses) + byteClasses[ bytes[byteNo] & 0xFF ] ];
+			if ( matches[state] ) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,856 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Compaction of the constant pool of raw class bytes: Constants which are
+ * not used are removed, and the references to the remaining constants are
+ * renumbered.
+ *
+ * Every reference to the constant pool is located by walking the class,
+ * including the instructions of code attributes.  The offset of each
+ * reference is recorded, and the references are renumbered while the class
+ * is copied.
+ *
+ * A class which has an attribute which is not known cannot be compacted:
+ * The references of the attribute cannot be located.
+ */
+public class ConstantPoolCompactor {
+
+	/**
+	 * Walk raw class bytes, locating the constants which are used.
+	 *
+	 * @param constants The constant pool of the class.
+	 *
+	 * @return The compactor of the class.
+	 *
+	 * @throws IOException Thrown if the class is not valid.
+	 */
+	public static ConstantPoolCompactor read(RawConstantPool constants) throws IOException {
+		ConstantPoolCompactor compactor = new ConstantPoolCompactor(constants);
+		compactor.walk(); // throws IOException
+		if ( compactor.compactable ) {
+			compactor.renumber(); // throws IOException
+		}
+		return compactor;
+	}
+
+	private ConstantPoolCompactor(RawConstantPool constants) {
+		this.constants = constants;
+		this.bytes = constants.getBytes();
+		this.limit = constants.getOffset() + constants.getLength();
+
+		this.used = new boolean[ constants.getCount() ];
+		this.references = new int[64];
+		this.compactable = true;
+	}
+
+	private final RawConstantPool constants;
+	private final byte[] bytes;
+	private final int limit;
+
+	private final boolean[] used;
+
+	/**
+	 * Offsets of the references which follow the constant pool.  Offsets of
+	 * one byte references (of 'ldc' instructions) are stored as negative
+	 * values.
+	 */
+	private int[] references;
+	private int numReferences;
+
+	private boolean compactable;
+
+	private int[] newIndexes;
+	private int newCount;
+	private int unusedCount;
+	private int compactedLength;
+
+	/**
+	 * Tell if the class can be compacted.  A class cannot be compacted if
+	 * it has an attribute which is not known.
+	 *
+	 * @return True or false telling if the class can be compacted.
+	 */
+	public boolean isCompactable() {
+		return compactable;
+	}
+
+	/**
+	 * Answer the number of constant pool entries which are not used.
+	 *
+	 * @return The number of unused entries.  Long and double constants count
+	 *     as two entries.
+	 */
+	public int getUnusedCount() {
+		return unusedCount;
+	}
+
+	/**
+	 * Answer the length of the compacted class.
+	 *
+	 * @return The length of the compacted class.
+	 */
+	public int getCompactedLength() {
+		return compactedLength;
+	}
+
+	//
+
+	private void renumber() throws IOException {
+		int count = used.length;
+
+		// Constants used by used constants are used.  Entries reference
+		// entries which are both before and after them: Repeat until no
+		// new uses are found.
+
+		boolean marked = true;
+		while ( marked ) {
+			marked = false;
+			for ( int index = 1; index < count; index++ ) {
+				if ( used[index] ) {
+					int entryOffset = constants.getEntryOffset(index);
+					switch ( constants.getTag(index) ) {
+						case RawConstantPool.CONSTANT_Class:
+						case RawConstantPool.CONSTANT_String:
+						case RawConstantPool.CONSTANT_MethodType:
+						case RawConstantPool.CONSTANT_Module:
+						case RawConstantPool.CONSTANT_Package:
+							marked |= markEntry( readShort(entryOffset + 1) );
+							break;
+						case RawConstantPool.CONSTANT_Fieldref:
+						case RawConstantPool.CONSTANT_Methodref:
+						case RawConstantPool.CONSTANT_InterfaceMethodref:
+						case RawConstantPool.CONSTANT_NameAndType:
+							marked |= markEntry( readShort(entryOffset + 1) );
+							marked |= markEntry( readShort(entryOffset + 3) );
+							break;
+						case RawConstantPool.CONSTANT_MethodHandle:
+							marked |= markEntry( readShort(entryOffset + 2) );
+							break;
+						case RawConstantPool.CONSTANT_Dynamic:
+						case RawConstantPool.CONSTANT_InvokeDynamic:
+							// The bootstrap method index is an index into the
+							// bootstrap methods attribute.
+							marked |= markEntry( readShort(entryOffset + 3) );
+							break;
+						default:
+							break;
+					}
+				}
+			}
+		}
+
+		newIndexes = new int[count];
+		int nextIndex = 1;
+		int removedLength = 0;
+		for ( int index = 1; index < count; index++ ) {
+			int tag = constants.getTag(index);
+			int width = ( ((tag == RawConstantPool.CONSTANT_Long) || (tag == RawConstantPool.CONSTANT_Double)) ? 2 : 1 );
+			if ( used[index] ) {
+				newIndexes[index] = nextIndex;
+				nextIndex += width;
+			} else if ( tag != 0 ) {
+				unusedCount += width;
+				removedLength += getEntryLength(index);
+			}
+			index += width - 1;
+		}
+		newCount = nextIndex;
+		compactedLength = constants.getLength() - removedLength;
+	}
+
+	private boolean markEntry(int index) throws IOException {
+		if ( (index <= 0) || (index >= used.length) || (constants.getTag(index) == 0) ) {
+			throw new IOException("Class constant pool entry [ " + index + " ] is not valid");
+		}
+		if ( used[index] ) {
+			return false;
+		}
+		used[index] = true;
+		return true;
+	}
+
+	private int getEntryLength(int index) {
+		int entryOffset = constants.getEntryOffset(index);
+		int nextOffset = constants.getEnd();
+		for ( int nextIndex = index + 1; nextIndex < used.length; nextIndex++ ) {
+			int offset = constants.getEntryOffset(nextIndex);
+			if ( offset != 0 ) {
+				nextOffset = offset;
+				break;
+			}
+		}
+		return nextOffset - entryOffset;
+	}
+
+	/**
+	 * Write the compacted class.
+	 *
+	 * @param outputStream The stream which is to receive the compacted class.
+	 *
+	 * @throws IOException Thrown if the compacted class cannot be written.
+	 */
+	public void write(OutputStream outputStream) throws IOException {
+		if ( !compactable ) {
+			throw new IOException("Class cannot be compacted");
+		}
+
+		byte[] compactedBytes = new byte[compactedLength];
+		write(compactedBytes, 0);
+		outputStream.write(compactedBytes);
+	}
+
+	/**
+	 * Compact the class in place: The compacted class is written over the
+	 * initial class, at the same offset.  This compactor cannot be used
+	 * after the class is compacted.
+	 *
+	 * Compaction in place is possible because compaction never moves data
+	 * forwards: Entries are removed, and renumbered references have the same
+	 * width as the initial references.
+	 *
+	 * @return The length of the compacted class.
+	 *
+	 * @throws IOException Thrown if the class cannot be compacted.
+	 */
+	public int compact() throws IOException {
+		if ( !compactable ) {
+			throw new IOException("Class cannot be compacted");
+		}
+
+		write(bytes, constants.getOffset());
+		compactable = false;
+		return compactedLength;
+	}
+
+	/**
+	 * Write the compacted class into an array.  The array may be the array
+	 * of the class, in which case the write offset must not follow the
+	 * offset of the class.  Each part of the class is read before the
+	 * compacted class is written over it.
+	 *
+	 * @param target The array which is to receive the compacted class.
+	 * @param targetOffset The offset at which to write the compacted class.
+	 */
+	private void write(byte[] target, int targetOffset) {
+		int start = constants.getOffset();
+		System.arraycopy(bytes, start, target, targetOffset, RawConstantPool.POOL_COUNT_OFFSET);
+		int writeOffset = targetOffset + RawConstantPool.POOL_COUNT_OFFSET;
+		putShort(target, writeOffset, newCount);
+		writeOffset += 2;
+
+		int count = used.length;
+		for ( int index = 1; index < count; index++ ) {
+			if ( !used[index] ) {
+				continue;
+			}
+
+			int entryOffset = constants.getEntryOffset(index);
+			int tag = constants.getTag(index);
+			switch ( tag ) {
+				case RawConstantPool.CONSTANT_Class:
+				case RawConstantPool.CONSTANT_String:
+				case RawConstantPool.CONSTANT_MethodType:
+				case RawConstantPool.CONSTANT_Module:
+				case RawConstantPool.CONSTANT_Package: {
+					int reference = newIndexes[ readShort(entryOffset + 1) ];
+					target[writeOffset] = (byte) tag;
+					putShort(target, writeOffset + 1, reference);
+					writeOffset += 3;
+					break;
+				}
+				case RawConstantPool.CONSTANT_Fieldref:
+				case RawConstantPool.CONSTANT_Methodref:
+				case RawConstantPool.CONSTANT_InterfaceMethodref:
+				case RawConstantPool.CONSTANT_NameAndType: {
+					int firstReference = newIndexes[ readShort(entryOffset + 1) ];
+					int secondReference = newIndexes[ readShort(entryOffset + 3) ];
+					target[writeOffset] = (byte) tag;
+					putShort(target, writeOffset + 1, firstReference);
+					putShort(target, writeOffset + 3, secondReference);
+					writeOffset += 5;
+					break;
+				}
+				case RawConstantPool.CONSTANT_MethodHandle: {
+					byte referenceKind = bytes[entryOffset + 1];
+					int reference = newIndexes[ readShort(entryOffset + 2) ];
+					target[writeOffset] = (byte) tag;
+					target[writeOffset + 1] = referenceKind;
+					putShort(target, writeOffset + 2, reference);
+					writeOffset += 4;
+					break;
+				}
+				case RawConstantPool.CONSTANT_Dynamic:
+				case RawConstantPool.CONSTANT_InvokeDynamic: {
+					byte bootstrapHigh = bytes[entryOffset + 1]; // bootstrap_method_attr_index
+					byte bootstrapLow = bytes[entryOffset + 2];
+					int reference = newIndexes[ readShort(entryOffset + 3) ];
+					target[writeOffset] = (byte) tag;
+					target[writeOffset + 1] = bootstrapHigh;
+					target[writeOffset + 2] = bootstrapLow;
+					putShort(target, writeOffset + 3, reference);
+					writeOffset += 5;
+					break;
+				}
+				default: {
+					// UTF8, integer, float, long, and double constants
+					// reference no other constants.
+					int entryLength = getEntryLength(index);
+					System.arraycopy(bytes, entryOffset, target, writeOffset, entryLength);
+					writeOffset += entryLength;
+					break;
+				}
+			}
+		}
+
+		// Copy the rest of the class, renumbering each reference.
+
+		int copyOffset = constants.getEnd();
+		for ( int referenceNo = 0; referenceNo < numReferences; referenceNo++ ) {
+			int referenceOffset = references[referenceNo];
+			if ( referenceOffset < 0 ) {
+				referenceOffset = -referenceOffset;
+				int reference = newIndexes[ bytes[referenceOffset] & 0xFF ];
+				int copyLength = referenceOffset - copyOffset;
+				System.arraycopy(bytes, copyOffset, target, writeOffset, copyLength);
+				writeOffset += copyLength;
+				target[writeOffset++] = (byte) reference;
+				copyOffset = referenceOffset + 1;
+			} else {
+				int reference = newIndexes[ readShort(referenceOffset) ];
+				int copyLength = referenceOffset - copyOffset;
+				System.arraycopy(bytes, copyOffset, target, writeOffset, copyLength);
+				writeOffset += copyLength;
+				putShort(target, writeOffset, reference);
+				writeOffset += 2;
+				copyOffset = referenceOffset + 2;
+			}
+		}
+		System.arraycopy(bytes, copyOffset, target, writeOffset, limit - copyOffset);
+	}
+
+	private static void putShort(byte[] target, int offset, int value) {
+		target[offset] = (byte) (value >>> 8);
+		target[offset + 1] = (byte) value;
+	}
+
+	private int readShort(int offset) {
+		return ( ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF) );
+	}
+
+	//
+
+	private int pos;
+
+	private void walk() throws IOException {
+		pos = constants.getEnd();
+
+		pos += 2; // access_flags
+		reference(); // this_class
+		optionalReference(); // super_class
+		references( readShort() ); // interfaces
+
+		int fieldCount = readShort();
+		for ( int fieldNo = 0; fieldNo < fieldCount; fieldNo++ ) {
+			walkMember();
+		}
+		int methodCount = readShort();
+		for ( int methodNo = 0; methodNo < methodCount; methodNo++ ) {
+			walkMember();
+		}
+		walkAttributes();
+
+		if ( pos != limit ) {
+			throw new IOException("Class has [ " + (limit - pos) + " ] bytes following the class attributes");
+		}
+	}
+
+	private void walkMember() throws IOException {
+		pos += 2; // access_flags
+		reference(); // name_index
+		reference(); // descriptor_index
+		walkAttributes();
+	}
+
+	private void walkAttributes() throws IOException {
+		int attributeCount = readShort();
+		for ( int attributeNo = 0; attributeNo < attributeCount; attributeNo++ ) {
+			walkAttribute();
+		}
+	}
+
+	private void walkAttribute() throws IOException {
+		int nameIndex = reference();
+		long length = readInt() & 0xFFFFFFFFL;
+		if ( pos + length > limit ) {
+			throw new IOException("Class attribute at [ " + pos + " ] is truncated");
+		}
+		int end = pos + (int) length;
+
+		String name = constants.getUtf8(nameIndex); // throws IOException
+		switch ( name ) {
+			case "ConstantValue":
+			case "Signature":
+			case "SourceFile":
+			case "NestHost":
+			case "ModuleMainClass":
+				reference();
+				break;
+
+			case "Exceptions":
+			case "NestMembers":
+			case "PermittedSubclasses":
+			case "ModulePackages":
+				references( readShort() );
+				break;
+
+			case "Synthetic":
+			case "Deprecated":
+			case "SourceDebugExtension":
+			case "LineNumberTable":
+				break;
+
+			case "Code": {
+				pos += 4; // max_stack, max_locals
+				long codeLength = readInt() & 0xFFFFFFFFL;
+				if ( pos + codeLength > end ) {
+					throw new IOException("Code at [ " + pos + " ] is truncated");
+				}
+				walkCode(pos, pos + (int) codeLength);
+				int handlerCount = readShort();
+				for ( int handlerNo = 0; handlerNo < handlerCount; handlerNo++ ) {
+					pos += 6; // start_pc, end_pc, handler_pc
+					optionalReference(); // catch_type
+				}
+				walkAttributes();
+				break;
+			}
+
+			case "StackMapTable": {
+				int frameCount = readShort();
+				for ( int frameNo = 0; frameNo < frameCount; frameNo++ ) {
+					walkFrame();
+				}
+				break;
+			}
+
+			case "InnerClasses": {
+				int classCount = readShort();
+				for ( int classNo = 0; classNo < classCount; classNo++ ) {
+					reference(); // inner_class_info_index
+					optionalReference(); // outer_class_info_index
+					optionalReference(); // inner_name_index
+					pos += 2; // inner_class_access_flags
+				}
+				break;
+			}
+
+			case "EnclosingMethod":
+				reference(); // class_index
+				optionalReference(); // method_index
+				break;
+
+			case "LocalVariableTable":
+			case "LocalVariableTypeTable": {
+				int variableCount = readShort();
+				for ( int variableNo = 0; variableNo < variableCount; variableNo++ ) {
+					pos += 4; // start_pc, length
+					reference(); // name_index
+					reference(); // descriptor_index or signature_index
+					pos += 2; // index
+				}
+				break;
+			}
+
+			case "RuntimeVisibleAnnotations":
+			case "RuntimeInvisibleAnnotations": {
+				int annotationCount = readShort();
+				for ( int annotationNo = 0; annotationNo < annotationCount; annotationNo++ ) {
+					walkAnnotation();
+				}
+				break;
+			}
+
+			case "RuntimeVisibleParameterAnnotations":
+			case "RuntimeInvisibleParameterAnnotations": {
+				int parameterCount = readByte();
+				for ( int parameterNo = 0; parameterNo < parameterCount; parameterNo++ ) {
+					int annotationCount = readShort();
+					for ( int annotationNo = 0; annotationNo < annotationCount; annotationNo++ ) {
+						walkAnnotation();
+					}
+				}
+				break;
+			}
+
+			case "RuntimeVisibleTypeAnnotations":
+			case "RuntimeInvisibleTypeAnnotations": {
+				int annotationCount = readShort();
+				for ( int annotationNo = 0; annotationNo < annotationCount; annotationNo++ ) {
+					walkTypeAnnotation();
+				}
+				break;
+			}
+
+			case "AnnotationDefault":
+				walkElementValue();
+				break;
+
+			case "MethodParameters": {
+				int parameterCount = readByte();
+				for ( int parameterNo = 0; parameterNo < parameterCount; parameterNo++ ) {
+					optionalReference(); // name_index
+					pos += 2; // access_flags
+				}
+				break;
+			}
+
+			case "BootstrapMethods": {
+				int methodCount = readShort();
+				for ( int methodNo = 0; methodNo < methodCount; methodNo++ ) {
+					reference(); // bootstrap_method_ref
+					references( readShort() ); // bootstrap_arguments
+				}
+				break;
+			}
+
+			case "Record": {
+				int componentCount = readShort();
+				for ( int componentNo = 0; componentNo < componentCount; componentNo++ ) {
+					reference(); // name_index
+					reference(); // descriptor_index
+					walkAttributes();
+				}
+				break;
+			}
+
+			case "Module":
+				walkModule();
+				break;
+
+			default:
+				compactable = false;
+				break;
+		}
+
+		if ( pos > end ) {
+			throw new IOException("Class attribute [ " + name + " ] overflows its length");
+		}
+		pos = end;
+	}
+
+	private void walkModule() throws IOException {
+		reference(); // module_name_index
+		pos += 2; // module_flags
+		optionalReference(); // module_version_index
+
+		int requiresCount = readShort();
+		for ( int requiresNo = 0; requiresNo < requiresCount; requiresNo++ ) {
+			reference(); // requires_index
+			pos += 2; // requires_flags
+			optionalReference(); // requires_version_index
+		}
+
+		for ( int tableNo = 0; tableNo < 2; tableNo++ ) { // exports, opens
+			int packageCount = readShort();
+			for ( int packageNo = 0; packageNo < packageCount; packageNo++ ) {
+				reference(); // exports_index or opens_index
+				pos += 2; // flags
+				references( readShort() ); // to_index
+			}
+		}
+
+		references( readShort() ); // uses_index
+
+		int providesCount = readShort();
+		for ( int providesNo = 0; providesNo < providesCount; providesNo++ ) {
+			reference(); // provides_index
+			references( readShort() ); // provides_with_index
+		}
+	}
+
+	private void walkFrame() throws IOException {
+		int frameType = readByte();
+		if ( frameType < 64 ) {
+			// same_frame
+		} else if ( frameType < 128 ) {
+			walkVerificationType(); // same_locals_1_stack_item_frame
+		} else if ( frameType < 247 ) {
+			throw new IOException("Stack map frame type [ " + frameType + " ] is reserved");
+		} else if ( frameType == 247 ) {
+			pos += 2; // offset_delta
+			walkVerificationType(); // same_locals_1_stack_item_frame_extended
+		} else if ( frameType < 252 ) {
+			pos += 2; // chop_frame, same_frame_extended
+		} else if ( frameType < 255 ) {
+			pos += 2; // append_frame
+			for ( int localNo = 251; localNo < frameType; localNo++ ) {
+				walkVerificationType();
+			}
+		} else {
+			pos += 2; // full_frame
+			int localCount = readShort();
+			for ( int localNo = 0; localNo < localCount; localNo++ ) {
+				walkVerificationType();
+			}
+			int stackCount = readShort();
+			for ( int stackNo = 0; stackNo < stackCount; stackNo++ ) {
+				walkVerificationType();
+			}
+		}
+	}
+
+	private void walkVerificationType() throws IOException {
+		int tag = readByte();
+		if ( tag == 7 ) {
+			reference(); // Object_variable_info
+		} else if ( tag == 8 ) {
+			pos += 2; // Uninitialized_variable_info
+		}
+	}
+
+	private void walkTypeAnnotation() throws IOException {
+		int targetType = readByte();
+		switch ( targetType ) {
+			case 0x00: case 0x01: case 0x16:
+				pos += 1;
+				break;
+			case 0x10: case 0x11: case 0x12: case 0x17:
+			case 0x42: case 0x43: case 0x44: case 0x45: case 0x46:
+				pos += 2;
+				break;
+			case 0x13: case 0x14: case 0x15:
+				break;
+			case 0x40: case 0x41: {
+				int entryCount = readShort(); // localvar_target
+				pos += 6 * entryCount;
+				break;
+			}
+			case 0x47: case 0x48: case 0x49: case 0x4A: case 0x4B:
+				pos += 3;
+				break;
+			default:
+				throw new IOException("Type annotation target type [ " + targetType + " ] is not valid");
+		}
+		int pathLength = readByte(); // type_path
+		pos += 2 * pathLength;
+		walkAnnotation();
+	}
+
+	private void walkAnnotation() throws IOException {
+		reference(); // type_index
+		int valueCount = readShort();
+		for ( int valueNo = 0; valueNo < valueCount; valueNo++ ) {
+			reference(); // element_name_index
+			walkElementValue();
+		}
+	}
+
+	private void walkElementValue() throws IOException {
+		int tag = readByte();
+		switch ( tag ) {
+			case 'B': case 'C': case 'D': case 'F': case 'I': case 'J': case 'S': case 'Z':
+			case 's': case 'c':
+				reference();
+				break;
+			case 'e':
+				reference(); // type_name_index
+				reference(); // const_name_index
+				break;
+			case '@':
+				walkAnnotation();
+				break;
+			case '[': {
+				int valueCount = readShort();
+				for ( int valueNo = 0; valueNo < valueCount; valueNo++ ) {
+					walkElementValue();
+				}
+				break;
+			}
+			default:
+				throw new IOException("Annotation element value tag [ " + tag + " ] is not valid");
+		}
+	}
+
+	/**
+	 * Walk the instructions of a code attribute, recording the constant pool
+	 * references of the instructions.
+	 *
+	 * @param codeStart The offset of the first instruction.
+	 * @param codeEnd The offset following the last instruction.
+	 */
+	private void walkCode(int codeStart, int codeEnd) throws IOException {
+		pos = codeStart;
+		while ( pos < codeEnd ) {
+			int opcode = readByte();
+			switch ( opcode ) {
+				case 0x12: // ldc
+					narrowReference();
+					break;
+
+				case 0x13: case 0x14: // ldc_w, ldc2_w
+				case 0xB2: case 0xB3: case 0xB4: case 0xB5: // getstatic, putstatic, getfield, putfield
+				case 0xB6: case 0xB7: case 0xB8: // invokevirtual, invokespecial, invokestatic
+				case 0xBB: case 0xBD: case 0xC0: case 0xC1: // new, anewarray, checkcast, instanceof
+					reference();
+					break;
+
+				case 0xB9: case 0xBA: // invokeinterface, invokedynamic
+					reference();
+					pos += 2;
+					break;
+
+				case 0xC5: // multianewarray
+					reference();
+					pos += 1;
+					break;
+
+				case 0xAA: { // tableswitch
+					pos += (4 - ((pos - codeStart) & 3)) & 3;
+					pos += 4; // default
+					int low = readInt();
+					int high = readInt();
+					long caseCount = (long) high - (long) low + 1L;
+					if ( (caseCount < 0) || (pos + (caseCount * 4L) > codeEnd) ) {
+						throw new IOException("Table switch at [ " + pos + " ] is not valid");
+					}
+					pos += (int) (caseCount * 4L);
+					break;
+				}
+
+				case 0xAB: { // lookupswitch
+					pos += (4 - ((pos - codeStart) & 3)) & 3;
+					pos += 4; // default
+					int pairCount = readInt();
+					if ( (pairCount < 0) || (pos + (pairCount * 8L) > codeEnd) ) {
+						throw new IOException("Lookup switch at [ " + pos + " ] is not valid");
+					}
+					pos += pairCount * 8;
+					break;
+				}
+
+				case 0xC4: { // wide
+					int wideOpcode = readByte();
+					pos += ( (wideOpcode == 0x84) ? 4 : 2 ); // iinc, or a load, store, or ret
+					break;
+				}
+
+				default: {
+					int length = INSTRUCTION_LENGTHS[opcode];
+					if ( length == 0 ) {
+						throw new IOException("Instruction [ " + opcode + " ] at [ " + (pos - 1) + " ] is not valid");
+					}
+					pos += length - 1;
+					break;
+				}
+			}
+		}
+		if ( pos != codeEnd ) {
+			throw new IOException("Code overflows its length at [ " + pos + " ]");
+		}
+	}
+
+	/**
+	 * Lengths of instructions which have a fixed length, including the
+	 * opcode.  0 for instructions which are not valid.
+	 */
+	private static final int[] INSTRUCTION_LENGTHS = new int[256];
+
+	static {
+		Arrays.fill(INSTRUCTION_LENGTHS, 0x00, 0xCA, 1);
+
+		INSTRUCTION_LENGTHS[0x10] = 2; // bipush
+		INSTRUCTION_LENGTHS[0x11] = 3; // sipush
+		Arrays.fill(INSTRUCTION_LENGTHS, 0x15, 0x1A, 2); // iload .. aload
+		Arrays.fill(INSTRUCTION_LENGTHS, 0x36, 0x3B, 2); // istore .. astore
+		INSTRUCTION_LENGTHS[0x84] = 3; // iinc
+		Arrays.fill(INSTRUCTION_LENGTHS, 0x99, 0xA9, 3); // if<cond> .. jsr
+		INSTRUCTION_LENGTHS[0xA9] = 2; // ret
+		INSTRUCTION_LENGTHS[0xBC] = 2; // newarray
+		INSTRUCTION_LENGTHS[0xC6] = 3; // ifnull
+		INSTRUCTION_LENGTHS[0xC7] = 3; // ifnonnull
+		INSTRUCTION_LENGTHS[0xC8] = 5; // goto_w
+		INSTRUCTION_LENGTHS[0xC9] = 5; // jsr_w
+	}
+
+	//
+
+	private void addReference(int offset) {
+		if ( numReferences == references.length ) {
+			references = Arrays.copyOf(references, numReferences * 2);
+		}
+		references[numReferences++] = offset;
+	}
+
+	private int reference() throws IOException {
+		int offset = pos;
+		int index = readShort();
+		markEntry(index); // throws IOException
+		addReference(offset);
+		return index;
+	}
+
+	private void optionalReference() throws IOException {
+		int offset = pos;
+		int index = readShort();
+		if ( index != 0 ) {
+			markEntry(index); // throws IOException
+			addReference(offset);
+		}
+	}
+
+	private void narrowReference() throws IOException {
+		int offset = pos;
+		int index = readByte();
+		markEntry(index); // throws IOException
+		addReference(-offset);
+	}
+
+	private void references(int count) throws IOException {
+		for ( int referenceNo = 0; referenceNo < count; referenceNo++ ) {
+			reference();
+		}
+	}
+
+	private int readByte() throws IOException {
+		if ( pos + 1 > limit ) {
+			throw new IOException("Class is truncated at [ " + pos + " ]");
+		}
+		return ( bytes[pos++] & 0xFF );
+	}
+
+	private int readShort() throws IOException {
+		if ( pos + 2 > limit ) {
+			throw new IOException("Class is truncated at [ " + pos + " ]");
+		}
+		int value = readShort(pos);
+		pos += 2;
+		return value;
+	}
+
+	private int readInt() throws IOException {
+		if ( pos + 4 > limit ) {
+			throw new IOException("Class is truncated at [ " + pos + " ]");
+		}
+		int value = ( ((bytes[pos] & 0xFF) << 24) |
+					  ((bytes[pos + 1] & 0xFF) << 16) |
+					  ((bytes[pos + 2] & 0xFF) << 8) |
+					  (bytes[pos + 3] & 0xFF) );
+		pos += 4;
+		return value;
+	}
+}
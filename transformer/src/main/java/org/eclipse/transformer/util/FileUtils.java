@@ -16,6 +16,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 
 import aQute.lib.utf8properties.UTF8Properties;
 
@@ -131,6 +134,71 @@ public class FileUtils {
 		}
 	}
 
+	/**
+	 * Read data from an input stream into a buffer, obtaining larger buffers
+	 * from a buffer pool.
+	 *
+	 * A buffer is borrowed from the pool if the parameter buffer is too small
+	 * for the requested read.  When the count of bytes is not known, the buffer
+	 * is grown as data is read, by borrowing buffers of increasing size from
+	 * the pool.  Borrowed buffers which are replaced by larger buffers are
+	 * released to the pool.  The parameter buffer is not released.
+	 *
+	 * @param inputName A name associated with the input stream.
+	 * @param inputStream The stream from which to read bytes.
+	 * @param buffer A buffer into which to place the read bytes.  May be null.
+	 * @param count The number of bytes to read.  -1 if the number of bytes
+	 *     is not known, in which case the stream is read fully.
+	 * @param pool The pool from which to borrow buffers.
+	 *
+	 * @return Byte data containing the read bytes.  The data uses the
+	 *     parameter buffer or a buffer borrowed from the pool.
+	 *
+	 * @throws IOException Thrown if an error occurred during a read.
+	 */
+	public static ByteData read(
+		String inputName, InputStream inputStream,
+		byte[] buffer, int count, BufferPool pool) throws IOException {
+
+		if ( count != -1 ) {
+			count = verifyArray(0, count);
+			if ( (buffer == null) || (count > buffer.length) ) {
+				buffer = pool.borrow(count);
+			}
+			return read(inputName, inputStream, buffer, count); // throws IOException
+		}
+
+		if ( (buffer == null) || (buffer.length == 0) ) {
+			buffer = pool.borrow(BUFFER_ADJUSTMENT);
+		}
+		byte[] initialBuffer = buffer;
+
+		int bytesUsed = 0;
+		int bytesRead;
+		while ( (bytesRead = inputStream.read(buffer, bytesUsed, buffer.length - bytesUsed)) != -1 ) { // throws IOException
+			bytesUsed += bytesRead;
+
+			if ( bytesUsed == buffer.length ) {
+				if ( bytesUsed == MAX_ARRAY_LENGTH ) {
+					if ( inputStream.read() == -1 ) { // throws IOException
+						break;
+					} else {
+						throw new IOException("Overflow of [ " + inputName + " ] after reading [ " + bytesUsed + " ] bytes");
+					}
+				}
+
+				int nextLength = (int) Math.min( ((long) bytesUsed) * 2L, (long) MAX_ARRAY_LENGTH );
+				byte[] nextBuffer = pool.grow(buffer, bytesUsed, nextLength);
+				if ( buffer != initialBuffer ) {
+					pool.release(buffer);
+				}
+				buffer = nextBuffer;
+			}
+		}
+
+		return new ByteData(inputName, buffer, 0, bytesUsed);
+	}
+
 	//
 
 	public static ByteData read(String inputName, InputStream inputStream) throws IOException {
@@ -170,6 +238,97 @@ public class FileUtils {
         return new ByteData(inputName, buffer, 0, bytesUsed);
 	}
 	
+	//
+
+	/** Size at or above which files are read by mapping the file. */
+	public static final int MAP_THRESHOLD = 1024 * 1024;
+
+	/**
+	 * Read the entire content of a file channel into a buffer.
+	 *
+	 * Allocate a new buffer if the parameter buffer is too small for the file.
+	 *
+	 * Small files are read directly into the buffer.  Large files are mapped,
+	 * and are copied from the mapped region into the buffer.
+	 *
+	 * @param inputName A name associated with the file.
+	 * @param inputChannel The channel from which to read bytes.
+	 * @param buffer A buffer into which to place the read bytes.  May be null.
+	 *
+	 * @return Byte data containing the file content.
+	 *
+	 * @throws IOException Thrown if the read failed.
+	 */
+	public static ByteData read(String inputName, FileChannel inputChannel, byte[] buffer) throws IOException {
+		int count = verifyArray(0, inputChannel.size()); // throws IOException
+
+		if ( (buffer == null) || (count > buffer.length) ) {
+			buffer = new byte[count];
+		}
+
+		if ( count >= MAP_THRESHOLD ) {
+			MappedByteBuffer mappedBuffer = inputChannel.map(FileChannel.MapMode.READ_ONLY, 0L, count); // throws IOException
+			mappedBuffer.get(buffer, 0, count);
+
+		} else {
+			ByteBuffer readBuffer = ByteBuffer.wrap(buffer, 0, count);
+			while ( readBuffer.hasRemaining() ) {
+				if ( inputChannel.read(readBuffer) == -1 ) { // throws IOException
+					throw new IOException("Premature end-of-file [ " + inputName + " at [ " + readBuffer.position() + " ] requested [ " + readBuffer.remaining() + " ]");
+				}
+			}
+		}
+
+		return new ByteData(inputName, buffer, 0, count);
+	}
+
+	/**
+	 * Write bytes to a file channel.
+	 *
+	 * @param outputChannel The channel to which to write bytes.
+	 * @param bytes The bytes which are to be written.
+	 * @param offset The offset of the first byte which is to be written.
+	 * @param count The count of bytes which are to be written.
+	 *
+	 * @throws IOException Thrown if the write failed.
+	 */
+	public static void write(FileChannel outputChannel, byte[] bytes, int offset, int count) throws IOException {
+		ByteBuffer writeBuffer = ByteBuffer.wrap(bytes, offset, count);
+		while ( writeBuffer.hasRemaining() ) {
+			outputChannel.write(writeBuffer); // throws IOException
+		}
+	}
+
+	/**
+	 * Transfer the entire content of one file channel to another.  The
+	 * transfer is performed using {@link FileChannel#transferTo}, which
+	 * allows the operating system to copy the data without copying the data
+	 * through user space.
+	 *
+	 * @param inputChannel The channel from which to transfer bytes.
+	 * @param outputChannel The channel to which to transfer bytes.
+	 *
+	 * @return The count of bytes which were transferred.
+	 *
+	 * @throws IOException Thrown if the transfer failed.
+	 */
+	public static long transfer(FileChannel inputChannel, FileChannel outputChannel) throws IOException {
+		long size = inputChannel.size(); // throws IOException
+		long position = 0L;
+
+		while ( position < size ) {
+			long transferred = inputChannel.transferTo(position, size - position, outputChannel); // throws IOException
+			if ( transferred <= 0L ) {
+				// The input may have been truncated.
+				size = inputChannel.size(); // throws IOException
+			} else {
+				position += transferred;
+			}
+		}
+
+		return position;
+	}
+
 	public static long transfer(InputStream inputStream, OutputStream outputStream) throws IOException {
 		byte[] buffer = new byte[BUFFER_ADJUSTMENT];
 	
@@ -211,7 +370,7 @@ public class FileUtils {
     }
 
 	public static UTF8Properties createProperties() {
-		return new UTF8Properties();
+		return new OrderedProperties(); // Keep the order of the properties file.
 	}
 	
 	public static String getFileNameFromFullyQualifiedFileName(String fqFileName) {
@@ -42,10 +42,17 @@ public class InputStreamData {
 	 * @param length The number of bytes available in the
 	 *     stream.  Possibly {@link #UNKNOWN_LENGTH}.
 	 */
+	/**
+	 * The byte data of the stream, when the stream was created from
+	 * byte data.  Null otherwise.
+	 */
+	public final ByteData byteData;
+
 	public InputStreamData(String name, InputStream stream, int length) {
 		this.name = name;
 		this.stream = stream;
 		this.length = length;
+		this.byteData = null;
 	}
 
 	/**
@@ -61,5 +68,6 @@ public class InputStreamData {
 		this.name = byteData.name;
 		this.stream = new ByteArrayInputStream( byteData.data, byteData.offset, byteData.length );
 		this.length = byteData.length;
+		this.byteData = byteData;
 	}
 }
@@ -0,0 +1,97 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import aQute.lib.utf8properties.UTF8Properties;
+
+/**
+ * Properties which remember the order in which their keys were added.
+ *
+ * Loading properties adds each key in the order in which it appears in the
+ * properties file.  Rules which give precedence to earlier entries, such as
+ * wildcard XML file name selectors, use that order instead of hash order.
+ */
+public class OrderedProperties extends UTF8Properties {
+	private static final long serialVersionUID = 1L;
+
+	public OrderedProperties() {
+		super();
+	}
+
+	private final Set<Object> orderedKeys = new LinkedHashSet<Object>();
+
+	@Override
+	public synchronized Object put(Object key, Object value) {
+		Object priorValue = super.put(key, value);
+		if ( priorValue == null ) {
+			orderedKeys.add(key);
+		}
+		return priorValue;
+	}
+
+	@Override
+	public synchronized Object remove(Object key) {
+		Object priorValue = super.remove(key);
+		if ( priorValue != null ) {
+			orderedKeys.remove(key);
+		}
+		return priorValue;
+	}
+
+	@Override
+	public synchronized void clear() {
+		super.clear();
+		orderedKeys.clear();
+	}
+
+	/**
+	 * Answer the keys of these properties in the order in which they were
+	 * added.
+	 *
+	 * @return The keys of these properties, in the order in which they were
+	 *     added.
+	 */
+	public synchronized List<String> getOrderedKeys() {
+		List<String> keys = new ArrayList<String>( orderedKeys.size() );
+		for ( Object key : orderedKeys ) {
+			keys.add( (String) key );
+		}
+		return keys;
+	}
+
+	/**
+	 * Answer the keys of properties in the order in which they were added,
+	 * when the properties remember that order.  Otherwise, answer the keys in
+	 * the iteration order of the properties.
+	 *
+	 * @param properties The properties for which to answer keys.
+	 *
+	 * @return The keys of the properties.
+	 */
+	public static List<String> getOrderedKeys(UTF8Properties properties) {
+		if ( properties instanceof OrderedProperties ) {
+			return ((OrderedProperties) properties).getOrderedKeys();
+		}
+
+		List<String> keys = new ArrayList<String>( properties.size() );
+		for ( Map.Entry<Object, Object> entry : properties.entrySet() ) {
+			keys.add( (String) entry.getKey() );
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,452 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled matcher of package names which are embedded in text.
+ *
+ * The matcher is built once from a table of package renames, and locates
+ * the embedded package names of a text in a single left-to-right pass
+ * (Aho-Corasick), instead of scanning the text once for each rename.
+ *
+ * A rename key which ends with a wildcard (".*" or "/*") matches the key
+ * without the wildcard, and matches sub-packages of that key.  Other keys
+ * match only the exact package.  See {@link #isTruePackageMatch}.
+ *
+ * When several keys match at the same location, the longest key which is a
+ * true package match is used.  When keys match at several locations, the
+ * earliest location is used.  Replacement values are not matched.
+ *
+ * Matchers are immutable, and may be shared between threads.
+ */
+public class PackageMatcher {
+
+	/**
+	 * Tell if a rename key ends with a wildcard, which indicates that
+	 * sub-packages are to be matched.
+	 *
+	 * @param key A package rename key.
+	 *
+	 * @return True or false telling if the key ends with a wildcard.
+	 */
+	public static boolean containsWildcard(String key) {
+		return ( key.endsWith(".*") || key.endsWith("/*") );
+	}
+
+	/**
+	 * Answer a rename key without its wildcard.
+	 *
+	 * @param key A package rename key.
+	 *
+	 * @return The key with the wildcard removed.  The key itself if the key
+	 *     does not end with a wildcard.
+	 */
+	public static String stripWildcard(String key) {
+		if ( containsWildcard(key) ) {
+			key = key.substring(0, key.length() - 2);
+		}
+		return key;
+	}
+
+	/**
+	 * Checks the character before and after a match to verify that the match
+	 * is NOT a subset of a larger package, and thus not really a match.
+	 *
+	 * The character before the match may not be a java identifier character
+	 * or '.'.  The character after the match may not be a java identifier
+	 * character.  Unless sub-packages are matched, the character after the
+	 * match may not be '.' followed by a lower case letter or by a digit:
+	 * An upper case letter is assumed to start a class name, while a lower
+	 * case letter or a digit is assumed to continue the package name.
+	 *
+	 * @param text Text which contains the match.
+	 * @param matchStart The offset of the match in the text.
+	 * @param keyLen The length of the match.
+	 * @param matchSubpackages Control parameter: Tell if the match may be
+	 *     followed by a sub-package name.
+	 *
+	 * @return True or false telling if the match is a true package match.
+	 */
+	public static boolean isTruePackageMatch(CharSequence text, int matchStart, int keyLen, boolean matchSubpackages) {
+		int textLength = text.length();
+
+		if ( matchStart > 0 ) {
+			char charBeforeMatch = text.charAt(matchStart - 1);
+			if ( Character.isJavaIdentifierPart(charBeforeMatch) || (charBeforeMatch == '.') ) {
+				return false;
+			}
+		}
+
+		int matchEnd = matchStart + keyLen;
+		if ( textLength > matchEnd ) {
+			char charAfterMatch = text.charAt(matchEnd);
+			if ( Character.isJavaIdentifierPart(charAfterMatch) ) {
+				return false;
+			}
+
+			if ( !matchSubpackages && (charAfterMatch == '.') ) {
+				if ( textLength > (matchEnd + 1) ) {
+					char charAfterDot = text.charAt(matchEnd + 1);
+					if ( Character.isLowerCase(charAfterDot) || Character.isDigit(charAfterDot) ) {
+						return false;
+					}
+				}
+			}
+		}
+
+		return true;
+	}
+
+	//
+
+	/**
+	 * A located package match.
+	 */
+	public static class Match {
+		public Match(int start, int end, String key, String value) {
+			this.start = start;
+			this.end = end;
+			this.key = key;
+			this.value = value;
+		}
+
+		/** The offset of the matched package name. */
+		public final int start;
+		/** The offset immediately after the matched package name. */
+		public final int end;
+
+		/** The rename key which matched, including any wildcard. */
+		public final String key;
+		/** The replacement value of the matched key. */
+		public final String value;
+
+		@Override
+		public String toString() {
+			return "Match [ " + start + ", " + end + " ]: [ " + key + " -> " + value + " ]";
+		}
+	}
+
+	/**
+	 * The keys of a single trie node.  A package may be keyed both with and
+	 * without a wildcard.
+	 */
+	private static class Keys {
+		public Keys(int length) {
+			this.length = length;
+		}
+
+		public final int length;
+
+		public String exactKey;
+		public String exactValue;
+
+		public String wildcardKey;
+		public String wildcardValue;
+	}
+
+	//
+
+	/**
+	 * Compile a matcher for a table of package renames.
+	 *
+	 * @param renames Table of package renames.  Keys may end with a wildcard.
+	 */
+	public PackageMatcher(Map<String, String> renames) {
+		this.renames = renames;
+
+		List<Map<Character, Integer>> buildTransitions = new ArrayList<Map<Character, Integer>>();
+		List<Keys> buildKeys = new ArrayList<Keys>();
+
+		buildTransitions.add( new HashMap<Character, Integer>() );
+		buildKeys.add(null);
+
+		int useMaxLength = 0;
+
+		for ( Map.Entry<String, String> renameEntry : renames.entrySet() ) {
+			String key = renameEntry.getKey();
+			boolean matchSubpackages = containsWildcard(key);
+			String strippedKey = ( matchSubpackages ? stripWildcard(key) : key );
+
+			int keyLen = strippedKey.length();
+			if ( keyLen == 0 ) {
+				continue; // An empty key matches nothing.
+			}
+			if ( keyLen > useMaxLength ) {
+				useMaxLength = keyLen;
+			}
+
+			int state = 0;
+			for ( int charNo = 0; charNo < keyLen; charNo++ ) {
+				Character nextChar = Character.valueOf( strippedKey.charAt(charNo) );
+				Map<Character, Integer> transitions = buildTransitions.get(state);
+				Integer nextState = transitions.get(nextChar);
+				if ( nextState == null ) {
+					nextState = Integer.valueOf( buildTransitions.size() );
+					buildTransitions.add( new HashMap<Character, Integer>() );
+					buildKeys.add(null);
+					transitions.put(nextChar, nextState);
+				}
+				state = nextState.intValue();
+			}
+
+			Keys keys = buildKeys.get(state);
+			if ( keys == null ) {
+				keys = new Keys(keyLen);
+				buildKeys.set(state, keys);
+			}
+			if ( matchSubpackages ) {
+				keys.wildcardKey = key;
+				keys.wildcardValue = renameEntry.getValue();
+			} else {
+				keys.exactKey = key;
+				keys.exactValue = renameEntry.getValue();
+			}
+		}
+
+		int numStates = buildTransitions.size();
+
+		this.maxLength = useMaxLength;
+
+		this.labels = new char[numStates][];
+		this.targets = new int[numStates][];
+		this.keys = buildKeys.toArray( new Keys[numStates] );
+		this.failures = new int[numStates];
+		this.outputs = new int[numStates];
+
+		for ( int state = 0; state < numStates; state++ ) {
+			Map<Character, Integer> transitions = buildTransitions.get(state);
+			char[] stateLabels = new char[ transitions.size() ];
+			int labelNo = 0;
+			for ( Character label : transitions.keySet() ) {
+				stateLabels[labelNo++] = label.charValue();
+			}
+			Arrays.sort(stateLabels);
+
+			int[] stateTargets = new int[ stateLabels.length ];
+			for ( labelNo = 0; labelNo < stateLabels.length; labelNo++ ) {
+				stateTargets[labelNo] = transitions.get( Character.valueOf(stateLabels[labelNo]) ).intValue();
+			}
+
+			this.labels[state] = stateLabels;
+			this.targets[state] = stateTargets;
+		}
+
+		// Breadth first, so that the failure state of a state is always
+		// computed before the failure states of its children.
+
+		this.outputs[0] = -1;
+
+		Deque<Integer> pending = new ArrayDeque<Integer>();
+		for ( int target : targets[0] ) {
+			failures[target] = 0;
+			outputs[target] = -1;
+			pending.add( Integer.valueOf(target) );
+		}
+
+		while ( !pending.isEmpty() ) {
+			int state = pending.remove().intValue();
+			char[] stateLabels = labels[state];
+			int[] stateTargets = targets[state];
+
+			for ( int labelNo = 0; labelNo < stateLabels.length; labelNo++ ) {
+				char label = stateLabels[labelNo];
+				int target = stateTargets[labelNo];
+
+				int failure = failures[state];
+				int failureTarget;
+				while ( ((failureTarget = getTarget(failure, label)) == -1) && (failure != 0) ) {
+					failure = failures[failure];
+				}
+				failureTarget = ( (failureTarget == -1) ? 0 : failureTarget );
+
+				failures[target] = failureTarget;
+				outputs[target] = ( (keys[failureTarget] != null) ? failureTarget : outputs[failureTarget] );
+
+				pending.add( Integer.valueOf(target) );
+			}
+		}
+	}
+
+	//
+
+	private final Map<String, String> renames;
+
+	/** The length of the longest key, excluding wildcards. */
+	private final int maxLength;
+
+	/** Per state: The sorted transition characters. */
+	private final char[][] labels;
+	/** Per state: The transition targets, parallel to the labels. */
+	private final int[][] targets;
+	/** Per state: The keys which end at the state.  Null for most states. */
+	private final Keys[] keys;
+	/** Per state: The state of the longest proper suffix which is in the trie. */
+	private final int[] failures;
+	/** Per state: The state of the longest proper suffix which has keys, or -1. */
+	private final int[] outputs;
+
+	public Map<String, String> getRenames() {
+		return renames;
+	}
+
+	public boolean isEmpty() {
+		return ( maxLength == 0 );
+	}
+
+	private int getTarget(int state, char label) {
+		char[] stateLabels = labels[state];
+		int labelNo = Arrays.binarySearch(stateLabels, label);
+		return ( (labelNo < 0) ? -1 : targets[state][labelNo] );
+	}
+
+	//
+
+	/**
+	 * Locate the first true package match of the text which starts at or after
+	 * a specified offset.  Of several keys which match at the same offset, the
+	 * longest key is answered.
+	 *
+	 * @param text The text which is to be searched.
+	 * @param from The offset at which to start searching.
+	 *
+	 * @return The first match.  Null if there is no match.
+	 */
+	public Match match(CharSequence text, int from) {
+		if ( maxLength == 0 ) {
+			return null;
+		}
+
+		int textLength = text.length();
+
+		int bestStart = -1;
+		Keys bestKeys = null;
+		boolean bestWildcard = false;
+
+		int state = 0;
+		for ( int charNo = from; charNo < textLength; charNo++ ) {
+			// Matches which end here start after the best match: The best
+			// match cannot be improved.
+			if ( (bestKeys != null) && (charNo >= bestStart + maxLength) ) {
+				break;
+			}
+
+			char nextChar = text.charAt(charNo);
+
+			int nextState;
+			while ( ((nextState = getTarget(state, nextChar)) == -1) && (state != 0) ) {
+				state = failures[state];
+			}
+			state = ( (nextState == -1) ? 0 : nextState );
+
+			// Output states are visited longest first; a match ending here
+			// which is not a true match does not stop shorter keys from
+			// being tried.
+
+			for ( int outputState = ((keys[state] != null) ? state : outputs[state]);
+				  outputState != -1;
+				  outputState = outputs[outputState] ) {
+
+				Keys outputKeys = keys[outputState];
+				int matchStart = charNo - outputKeys.length + 1;
+
+				if ( bestKeys != null ) {
+					if ( matchStart > bestStart ) {
+						break; // Shorter keys start later.
+					} else if ( (matchStart == bestStart) && (outputKeys.length <= bestKeys.length) ) {
+						break;
+					}
+				}
+
+				if ( (outputKeys.exactKey != null) &&
+					 isTruePackageMatch(text, matchStart, outputKeys.length, false) ) {
+					bestStart = matchStart;
+					bestKeys = outputKeys;
+					bestWildcard = false;
+					break;
+				} else if ( (outputKeys.wildcardKey != null) &&
+							isTruePackageMatch(text, matchStart, outputKeys.length, true) ) {
+					bestStart = matchStart;
+					bestKeys = outputKeys;
+					bestWildcard = true;
+					break;
+				}
+			}
+		}
+
+		if ( bestKeys == null ) {
+			return null;
+		} else if ( bestWildcard ) {
+			return new Match(bestStart, bestStart + bestKeys.length, bestKeys.wildcardKey, bestKeys.wildcardValue);
+		} else {
+			return new Match(bestStart, bestStart + bestKeys.length, bestKeys.exactKey, bestKeys.exactValue);
+		}
+	}
+
+	/**
+	 * Replace all embedded packages of specified text with replacement
+	 * packages.
+	 *
+	 * The replaced text is written in one pass into the builder of the
+	 * current thread.  No text is built when there is no match.
+	 *
+	 * @param text String embedding zero, one, or more package names.
+	 *
+	 * @return The text with all embedded package names replaced.  Null if no
+	 *     replacements were performed.
+	 */
+	public String replace(String text) {
+		Match match = match(text, 0);
+		if ( match == null ) {
+			return null;
+		}
+
+		StringBuilder outputBuilder = TextBuilders.borrow( text.length() + 16 );
+
+		int lastMatchEnd = 0;
+		while ( match != null ) {
+			outputBuilder.append(text, lastMatchEnd, match.start);
+			outputBuilder.append(match.value);
+			lastMatchEnd = match.end;
+			match = match(text, lastMatchEnd);
+		}
+		outputBuilder.append(text, lastMatchEnd, text.length());
+
+		return TextBuilders.release(outputBuilder);
+	}
+
+	//
+
+	/**
+	 * Tell if the text contains any package name which is to be replaced.
+	 *
+	 * @param text The text which is to be tested.
+	 *
+	 * @return True or false telling if the text contains a true package
+	 *     match.
+	 */
+	public boolean matches(CharSequence text) {
+		return ( match(text, 0) != null );
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [ " + keys.length + " states ]: " + renames.keySet();
+	}
+}
@@ -0,0 +1,141 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.util.Map;
+
+/**
+ * Table of package renames which is looked up using a range of characters,
+ * for example, the package part of a binary type name, without creating a
+ * string for the range.
+ *
+ * The table uses open addressing with linear probing.  The hash of each
+ * package name is computed when the table is built, and is compared before
+ * the characters of the package name are compared.  A lookup which does not
+ * find a package name allocates nothing.
+ *
+ * Tables are immutable, and may be shared between threads.
+ */
+public class PackageTable {
+
+	/**
+	 * Create a table of package renames.
+	 *
+	 * @param renames The package renames.  Keys are the initial package names;
+	 *     values are the final package names.
+	 */
+	public PackageTable(Map<String, String> renames) {
+		int capacity = 4;
+		while ( capacity < (renames.size() * 2) ) {
+			capacity <<= 1;
+		}
+		this.mask = capacity - 1;
+
+		this.keys = new String[capacity];
+		this.values = new String[capacity];
+		this.hashes = new int[capacity];
+
+		for ( Map.Entry<String, String> renameEntry : renames.entrySet() ) {
+			String key = renameEntry.getKey();
+			int hash = hash(key, 0, key.length());
+			int slot = hash & mask;
+			while ( keys[slot] != null ) {
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = key;
+			values[slot] = renameEntry.getValue();
+			hashes[slot] = hash;
+		}
+
+		this.size = renames.size();
+	}
+
+	private final int mask;
+	private final String[] keys;
+	private final String[] values;
+	private final int[] hashes;
+	private final int size;
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return ( size == 0 );
+	}
+
+	/**
+	 * Compute the hash of a range of characters: The string hash code of the
+	 * characters, with the high bits spread to the low bits.
+	 *
+	 * @param text Text containing the range.
+	 * @param start The offset of the first character of the range.
+	 * @param end The offset following the last character of the range.
+	 *
+	 * @return The hash of the range.
+	 */
+	private static int hash(CharSequence text, int start, int end) {
+		int hash = 0;
+		for ( int charNo = start; charNo < end; charNo++ ) {
+			hash = (31 * hash) + text.charAt(charNo);
+		}
+		return ( hash ^ (hash >>> 16) );
+	}
+
+	/**
+	 * Answer the rename of a package.
+	 *
+	 * @param packageName The package name which is to be renamed.
+	 *
+	 * @return The final package name.  Null if the package is not renamed.
+	 */
+	public String get(String packageName) {
+		return get(packageName, 0, packageName.length());
+	}
+
+	/**
+	 * Answer the rename of a package which is a range of characters of text.
+	 *
+	 * @param text Text containing the package name.
+	 * @param start The offset of the first character of the package name.
+	 * @param end The offset following the last character of the package name.
+	 *
+	 * @return The final package name.  Null if the package is not renamed.
+	 */
+	public String get(CharSequence text, int start, int end) {
+		if ( size == 0 ) {
+			return null;
+		}
+
+		int hash = hash(text, start, end);
+		int length = end - start;
+
+		for ( int slot = hash & mask; ; slot = (slot + 1) & mask ) {
+			String key = keys[slot];
+			if ( key == null ) {
+				return null;
+			} else if ( (hashes[slot] == hash) && (key.length() == length) && regionMatches(key, text, start) ) {
+				return values[slot];
+			}
+		}
+	}
+
+	private static boolean regionMatches(String key, CharSequence text, int start) {
+		int length = key.length();
+		for ( int charNo = 0; charNo < length; charNo++ ) {
+			if ( key.charAt(charNo) != text.charAt(start + charNo) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
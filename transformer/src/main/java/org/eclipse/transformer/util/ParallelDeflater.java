@@ -0,0 +1,407 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Deflater which compresses data in independent chunks using an executor.
+ *
+ * Data is split into fixed size chunks.  Each chunk is compressed as raw
+ * deflate data by a worker thread, using the last 32K of the preceding
+ * chunk as a preset dictionary.  Chunks other than the last chunk end with
+ * a sync flush, which aligns the chunk to a byte boundary.  The compressed
+ * chunks are written in order, which produces a single valid deflate
+ * stream.
+ *
+ * The CRC of each chunk is computed by the worker thread which compresses
+ * the chunk.  The CRC of the data is combined from the chunk CRCs.
+ *
+ * The compressed data depends only on the chunk size and the compression
+ * level: The data does not depend on the number of threads or on the order
+ * in which chunks are compressed.
+ *
+ * Data is written by a single thread.  One deflate stream is written at
+ * a time: {@link #begin(int, OutputStream)} starts a stream, and
+ * {@link #finish()} completes the stream.
+ */
+public class ParallelDeflater {
+	public static final int DICTIONARY_SIZE = 32 * 1024;
+	public static final int DEFAULT_CHUNK_SIZE = 128 * 1024;
+
+	public static final int DEFAULT_THRESHOLD = 4 * 1024 * 1024;
+
+	/**
+	 * Create a parallel deflater.
+	 *
+	 * @param executor The executor used to compress chunks.
+	 * @param chunkSize The size of chunks.  Must be at least
+	 *     {@link #DICTIONARY_SIZE}.
+	 * @param maxPending The maximum number of chunks which may be compressed
+	 *     but not yet written.
+	 */
+	public ParallelDeflater(ExecutorService executor, int chunkSize, int maxPending) {
+		if ( chunkSize < DICTIONARY_SIZE ) {
+			throw new IllegalArgumentException("Chunk size [ " + chunkSize + " ] is less than [ " + DICTIONARY_SIZE + " ]");
+		}
+
+		this.executor = executor;
+		this.chunkSize = chunkSize;
+		this.maxPending = Math.max(1, maxPending);
+
+		this.pending = new ArrayDeque<Future<DeflatedChunk>>();
+	}
+
+	//
+
+	private final ExecutorService executor;
+	private final int chunkSize;
+	private final int maxPending;
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public int getMaxPending() {
+		return maxPending;
+	}
+
+	//
+
+	private final Deque<Future<DeflatedChunk>> pending;
+
+	private int level;
+	private OutputStream outputStream;
+
+	private byte[] chunk;
+	private int chunkUsed;
+	private byte[] priorChunk;
+
+	private long crc;
+	private long size;
+	private long compressedSize;
+
+	/**
+	 * Answer the CRC of the data of the last completed stream.
+	 *
+	 * @return The CRC of the data of the last completed stream.
+	 */
+	public long getCrc() {
+		return crc;
+	}
+
+	/**
+	 * Answer the uncompressed size of the last completed stream.
+	 *
+	 * @return The uncompressed size of the last completed stream.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Answer the compressed size of the last completed stream.
+	 *
+	 * @return The compressed size of the last completed stream.
+	 */
+	public long getCompressedSize() {
+		return compressedSize;
+	}
+
+	/**
+	 * Begin a deflate stream.
+	 *
+	 * @param useLevel The compression level of the stream.
+	 * @param useOutputStream The stream which receives the compressed data.
+	 */
+	public void begin(int useLevel, OutputStream useOutputStream) {
+		cancel();
+
+		this.level = useLevel;
+		this.outputStream = useOutputStream;
+
+		this.crc = 0L;
+		this.size = 0L;
+		this.compressedSize = 0L;
+	}
+
+	/**
+	 * Write uncompressed data to the current stream.  The data is copied:
+	 * The caller may reuse the bytes after this method returns.
+	 *
+	 * @param bytes Bytes which are to be compressed.
+	 * @param offset The offset to the first byte which is to be compressed.
+	 * @param count The number of bytes which are to be compressed.
+	 *
+	 * @throws IOException Thrown if compressed data could not be written.
+	 */
+	public void write(byte[] bytes, int offset, int count) throws IOException {
+		while ( count > 0 ) {
+			if ( chunk == null ) {
+				chunk = new byte[chunkSize];
+				chunkUsed = 0;
+			}
+
+			int copyCount = Math.min(count, chunkSize - chunkUsed);
+			System.arraycopy(bytes, offset, chunk, chunkUsed, copyCount);
+			chunkUsed += copyCount;
+
+			offset += copyCount;
+			count -= copyCount;
+
+			if ( chunkUsed == chunkSize ) {
+				submit(false); // throws IOException
+			}
+		}
+	}
+
+	/**
+	 * Complete the current stream: Compress the remaining data, and
+	 * write all compressed data.
+	 *
+	 * @throws IOException Thrown if compressed data could not be written.
+	 */
+	public void finish() throws IOException {
+		submit(true); // throws IOException
+
+		while ( !pending.isEmpty() ) {
+			writeChunk(); // throws IOException
+		}
+
+		outputStream = null;
+		priorChunk = null;
+	}
+
+	/**
+	 * Discard the current stream.  Chunks which are not yet compressed
+	 * are cancelled.
+	 */
+	public void cancel() {
+		for ( Future<DeflatedChunk> future : pending ) {
+			future.cancel(false);
+		}
+		pending.clear();
+
+		outputStream = null;
+		chunk = null;
+		chunkUsed = 0;
+		priorChunk = null;
+	}
+
+	private void submit(boolean last) throws IOException {
+		byte[] useChunk = ( (chunk == null) ? new byte[0] : chunk );
+		int useCount = chunkUsed;
+		byte[] useDictionary = priorChunk;
+		int useLevel = level;
+
+		pending.addLast( executor.submit( () -> deflate(useLevel, useDictionary, useChunk, useCount, last) ) );
+
+		priorChunk = useChunk;
+		chunk = null;
+		chunkUsed = 0;
+
+		while ( pending.size() > maxPending ) {
+			writeChunk(); // throws IOException
+		}
+	}
+
+	private void writeChunk() throws IOException {
+		Future<DeflatedChunk> future = pending.removeFirst();
+
+		DeflatedChunk deflatedChunk;
+		try {
+			deflatedChunk = future.get(); // throws InterruptedException, ExecutionException
+
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			cancel();
+			throw new InterruptedIOException("Interrupted while deflating");
+
+		} catch ( ExecutionException e ) {
+			cancel();
+			throw new IOException("Failed to deflate", e.getCause());
+		}
+
+		outputStream.write(deflatedChunk.data, 0, deflatedChunk.length); // throws IOException
+
+		crc = combineCrc(crc, deflatedChunk.crc, deflatedChunk.size);
+		size += deflatedChunk.size;
+		compressedSize += deflatedChunk.length;
+	}
+
+	//
+
+	private static class DeflatedChunk {
+		public final byte[] data;
+		public final int length;
+		public final long crc;
+		public final int size;
+
+		public DeflatedChunk(byte[] data, int length, long crc, int size) {
+			this.data = data;
+			this.length = length;
+			this.crc = crc;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Compress one chunk.  Run by a worker thread.
+	 *
+	 * @param level The compression level.
+	 * @param dictionary The preceding chunk, which provides the dictionary.
+	 *     Null for the first chunk.
+	 * @param data The data of the chunk.
+	 * @param count The number of bytes of the chunk.
+	 * @param last True for the last chunk of the stream.
+	 *
+	 * @return The compressed chunk.
+	 */
+	private static DeflatedChunk deflate(int level, byte[] dictionary, byte[] data, int count, boolean last) {
+		CRC32 chunkCrc = new CRC32();
+		chunkCrc.update(data, 0, count);
+
+		Deflater deflater = new Deflater(level, true);
+		try {
+			if ( dictionary != null ) {
+				deflater.setDictionary(dictionary, dictionary.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+			}
+			deflater.setInput(data, 0, count);
+			if ( last ) {
+				deflater.finish();
+			}
+
+			byte[] output = new byte[ Math.max(64, count / 2) ];
+			int outputCount = 0;
+
+			while ( true ) {
+				if ( outputCount == output.length ) {
+					output = Arrays.copyOf(output, output.length * 2);
+				}
+
+				int available = output.length - outputCount;
+				if ( last ) {
+					outputCount += deflater.deflate(output, outputCount, available);
+					if ( deflater.finished() ) {
+						break;
+					}
+				} else {
+					int deflated = deflater.deflate(output, outputCount, available, Deflater.SYNC_FLUSH);
+					outputCount += deflated;
+					// A sync flush is complete when the output was not filled.
+					if ( deflated < available ) {
+						break;
+					}
+				}
+			}
+
+			return new DeflatedChunk( output, outputCount, chunkCrc.getValue(), count );
+
+		} finally {
+			deflater.end();
+		}
+	}
+
+	//
+
+	// CRC combination, following 'crc32_combine' of zlib: The CRC of the
+	// concatenation of two blocks is computed from the CRCs of the blocks
+	// and the length of the second block, by applying the CRC polynomial
+	// to the first CRC once for each zero bit of the second block.  The
+	// operators are applied as matrices over GF(2), by repeated squaring.
+
+	private static final long CRC_POLYNOMIAL = 0xEDB88320L;
+
+	private static long gf2MatrixTimes(long[] matrix, long vector) {
+		long sum = 0L;
+		int row = 0;
+		while ( vector != 0L ) {
+			if ( (vector & 1L) != 0L ) {
+				sum ^= matrix[row];
+			}
+			vector >>>= 1;
+			row++;
+		}
+		return sum;
+	}
+
+	private static void gf2MatrixSquare(long[] square, long[] matrix) {
+		for ( int row = 0; row < 32; row++ ) {
+			square[row] = gf2MatrixTimes(matrix, matrix[row]);
+		}
+	}
+
+	/**
+	 * Combine two CRC32 values.
+	 *
+	 * @param crc1 The CRC of the first block of data.
+	 * @param crc2 The CRC of the second block of data.
+	 * @param length2 The length of the second block of data.
+	 *
+	 * @return The CRC of the concatenation of the two blocks.
+	 */
+	public static long combineCrc(long crc1, long crc2, long length2) {
+		if ( length2 <= 0L ) {
+			return crc1;
+		}
+
+		long[] even = new long[32];
+		long[] odd = new long[32];
+
+		// Operator for a single zero bit.
+		odd[0] = CRC_POLYNOMIAL;
+		long row = 1L;
+		for ( int rowNo = 1; rowNo < 32; rowNo++ ) {
+			odd[rowNo] = row;
+			row <<= 1;
+		}
+
+		gf2MatrixSquare(even, odd); // Two zero bits
+		gf2MatrixSquare(odd, even); // Four zero bits
+
+		// Apply 'length2' zero bytes to 'crc1'.  The first square
+		// provides the operator for one zero byte.
+
+		do {
+			gf2MatrixSquare(even, odd);
+			if ( (length2 & 1L) != 0L ) {
+				crc1 = gf2MatrixTimes(even, crc1);
+			}
+			length2 >>>= 1;
+			if ( length2 == 0L ) {
+				break;
+			}
+
+			gf2MatrixSquare(odd, even);
+			if ( (length2 & 1L) != 0L ) {
+				crc1 = gf2MatrixTimes(odd, crc1);
+			}
+			length2 >>>= 1;
+		} while ( length2 != 0L );
+
+		return ( crc1 ^ crc2 );
+	}
+}
@@ -0,0 +1,332 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Memo of transformed values which is retained in a file between runs.
+ *
+ * A memo is divided into named sections, each of which maps input values
+ * to transformed values.  A null transformed value records that the input
+ * value is not changed.  The entries of each section are ordered from the
+ * least recently used to the most recently used.
+ *
+ * A memo is keyed by the rules which produced its values.  A memo file which
+ * was written using different rules is discarded when read.
+ *
+ * Each write compacts the memo: Entries of the current run replace the entries
+ * which were read, and each section is limited to the maximum number of
+ * entries, dropping the least recently used entries.  The file is replaced as
+ * a whole, so that an interrupted write does not leave a partial memo.
+ */
+public class PersistentMemo {
+	public static final int MAGIC = 0x54534D31; // "TSM1"
+	public static final int FORMAT_VERSION = 1;
+
+	/** Default maximum number of entries of each section. */
+	public static final int DEFAULT_MAX_ENTRIES = 64 * 1024;
+
+	public static final String DIGEST_ALGORITHM = "SHA-256";
+
+	/**
+	 * Compute the key of a rules table: A digest of the sorted entries of
+	 * the table.
+	 *
+	 * @param rules A rules table.
+	 *
+	 * @return The key of the rules, as hexadecimal text.
+	 */
+	public static String computeKey(Map<String, String> rules) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch ( NoSuchAlgorithmException e ) {
+			throw new IllegalStateException("Digest [ " + DIGEST_ALGORITHM + " ] is not available", e);
+		}
+
+		for ( Map.Entry<String, String> ruleEntry : new TreeMap<String, String>(rules).entrySet() ) {
+			digest.update( ruleEntry.getKey().getBytes(StandardCharsets.UTF_8) );
+			digest.update( (byte) '=' );
+			digest.update( ruleEntry.getValue().getBytes(StandardCharsets.UTF_8) );
+			digest.update( (byte) '\n' );
+		}
+
+		byte[] keyBytes = digest.digest();
+		StringBuilder keyText = new StringBuilder( keyBytes.length * 2 );
+		for ( byte keyByte : keyBytes ) {
+			keyText.append( Character.forDigit((keyByte >> 4) & 0x0F, 16) );
+			keyText.append( Character.forDigit(keyByte & 0x0F, 16) );
+		}
+		return keyText.toString();
+	}
+
+	//
+
+	/**
+	 * Create an empty memo.
+	 *
+	 * @param rulesKey The key of the rules which produce the values of the memo.
+	 * @param maxEntries The maximum number of entries of each section which
+	 *     are written.  Must be positive.
+	 */
+	public PersistentMemo(String rulesKey, int maxEntries) {
+		if ( maxEntries < 1 ) {
+			throw new IllegalArgumentException("Memo maximum entries [ " + maxEntries + " ] must be positive");
+		}
+
+		this.rulesKey = rulesKey;
+		this.maxEntries = maxEntries;
+
+		this.sections = new LinkedHashMap<String, Map<String, String>>();
+	}
+
+	private final String rulesKey;
+	private final int maxEntries;
+
+	public String getRulesKey() {
+		return rulesKey;
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	//
+
+	private final Map<String, Map<String, String>> sections;
+
+	/**
+	 * Answer the entries of a section.
+	 *
+	 * @param sectionName The name of the section.
+	 *
+	 * @return The entries of the section.  Null if the memo does not have
+	 *     the section.
+	 */
+	public Map<String, String> getSection(String sectionName) {
+		return sections.get(sectionName);
+	}
+
+	/**
+	 * Merge entries into a section.  The merged entries are more recent than
+	 * the entries of the section, and replace entries which have the same
+	 * input value.
+	 *
+	 * @param sectionName The name of the section.
+	 * @param entries Entries which are to be merged, ordered from the least
+	 *     recently used to the most recently used.
+	 */
+	public void merge(String sectionName, Map<String, String> entries) {
+		Map<String, String> section = sections.get(sectionName);
+		if ( section == null ) {
+			section = new LinkedHashMap<String, String>( entries.size() );
+			sections.put(sectionName, section);
+		} else {
+			section.keySet().removeAll( entries.keySet() );
+		}
+		section.putAll(entries);
+	}
+
+	public int size() {
+		int size = 0;
+		for ( Map<String, String> section : sections.values() ) {
+			size += section.size();
+		}
+		return size;
+	}
+
+	//
+
+	/**
+	 * Read entries from a memo file.  Nothing is read if the file does not
+	 * exist, or if the file was written using different rules.
+	 *
+	 * @param memoFile The file from which to read entries.
+	 *
+	 * @return True or false telling if the file was read.  False if the file
+	 *     does not exist, or was written using different rules.
+	 *
+	 * @throws IOException Thrown if the read fails, or if the file is not a
+	 *     valid memo file.
+	 */
+	public boolean read(File memoFile) throws IOException {
+		if ( !memoFile.exists() ) {
+			return false;
+		}
+
+		byte[] memoBytes = Files.readAllBytes( memoFile.toPath() );
+		int dataLength = memoBytes.length - 8;
+		if ( dataLength < 8 ) {
+			throw new IOException("Memo [ " + memoFile + " ] is truncated");
+		}
+
+		DataInputStream dataStream = new DataInputStream( new ByteArrayInputStream(memoBytes, 0, dataLength) );
+		if ( dataStream.readInt() != MAGIC ) {
+			throw new IOException("File [ " + memoFile + " ] is not a memo");
+		}
+		int formatVersion = dataStream.readInt();
+		if ( formatVersion != FORMAT_VERSION ) {
+			throw new IOException("Memo [ " + memoFile + " ] has unsupported format [ " + formatVersion + " ]");
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(memoBytes, 0, dataLength);
+		long storedCrc = new DataInputStream( new ByteArrayInputStream(memoBytes, dataLength, 8) ).readLong();
+		if ( crc.getValue() != storedCrc ) {
+			throw new IOException("Memo [ " + memoFile + " ] is corrupt: Checksum mismatch");
+		}
+
+		String memoKey = readString(dataStream, dataLength);
+		if ( !memoKey.equals(rulesKey) ) {
+			return false;
+		}
+
+		int numSections = readCount(dataStream, dataLength);
+		for ( int sectionNo = 0; sectionNo < numSections; sectionNo++ ) {
+			String sectionName = readString(dataStream, dataLength);
+			int numEntries = readCount(dataStream, dataLength);
+
+			Map<String, String> entries = new LinkedHashMap<String, String>(numEntries);
+			for ( int entryNo = 0; entryNo < numEntries; entryNo++ ) {
+				String input = readString(dataStream, dataLength);
+				String output = ( dataStream.readBoolean() ? readString(dataStream, dataLength) : null );
+				entries.put(input, output);
+			}
+			merge(sectionName, entries);
+		}
+
+		return true;
+	}
+
+	private static int readCount(DataInputStream dataStream, int limit) throws IOException {
+		int count = dataStream.readInt();
+		if ( (count < 0) || (count > limit) ) {
+			throw new IOException("Memo count [ " + count + " ] is not valid");
+		}
+		return count;
+	}
+
+	private static String readString(DataInputStream dataStream, int limit) throws IOException {
+		byte[] bytes = new byte[ readCount(dataStream, limit) ];
+		dataStream.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Compact the memo, then write it to a file.  Each section is limited
+	 * to the maximum number of entries.  The least recently used entries are
+	 * dropped.
+	 *
+	 * @param memoFile The file to which to write the memo.
+	 *
+	 * @return The number of entries which were dropped.
+	 *
+	 * @throws IOException Thrown if the write fails.
+	 */
+	public int write(File memoFile) throws IOException {
+		int dropped = compact();
+
+		ByteArrayOutputStream bytesStream = new ByteArrayOutputStream();
+		DataOutputStream dataStream = new DataOutputStream(bytesStream);
+
+		dataStream.writeInt(MAGIC);
+		dataStream.writeInt(FORMAT_VERSION);
+		writeString(dataStream, rulesKey);
+
+		dataStream.writeInt( sections.size() );
+		for ( Map.Entry<String, Map<String, String>> sectionEntry : sections.entrySet() ) {
+			writeString( dataStream, sectionEntry.getKey() );
+
+			Map<String, String> entries = sectionEntry.getValue();
+			dataStream.writeInt( entries.size() );
+			for ( Map.Entry<String, String> entry : entries.entrySet() ) {
+				writeString( dataStream, entry.getKey() );
+				String output = entry.getValue();
+				if ( output == null ) {
+					dataStream.writeBoolean(false);
+				} else {
+					dataStream.writeBoolean(true);
+					writeString(dataStream, output);
+				}
+			}
+		}
+		dataStream.flush();
+
+		CRC32 crc = new CRC32();
+		byte[] memoBytes = bytesStream.toByteArray();
+		crc.update(memoBytes, 0, memoBytes.length);
+		dataStream.writeLong( crc.getValue() );
+		dataStream.flush();
+
+		File parentFile = memoFile.getAbsoluteFile().getParentFile();
+		if ( parentFile != null ) {
+			parentFile.mkdirs();
+		}
+
+		File tempFile = new File( memoFile.getPath() + ".tmp" );
+		Files.write( tempFile.toPath(), bytesStream.toByteArray() );
+		try {
+			Files.move(
+				tempFile.toPath(), memoFile.toPath(),
+				StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+		} catch ( AtomicMoveNotSupportedException e ) {
+			Files.move( tempFile.toPath(), memoFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+		}
+
+		return dropped;
+	}
+
+	private static void writeString(DataOutputStream dataStream, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		dataStream.writeInt(bytes.length);
+		dataStream.write(bytes);
+	}
+
+	/**
+	 * Limit each section to the maximum number of entries, dropping the
+	 * least recently used entries.
+	 *
+	 * @return The number of entries which were dropped.
+	 */
+	public int compact() {
+		int dropped = 0;
+		for ( Map<String, String> entries : sections.values() ) {
+			int excess = entries.size() - maxEntries;
+			if ( excess > 0 ) {
+				Iterator<String> inputs = entries.keySet().iterator();
+				for ( int entryNo = 0; entryNo < excess; entryNo++ ) {
+					inputs.next();
+					inputs.remove();
+				}
+				dropped += excess;
+			}
+		}
+		return dropped;
+	}
+}
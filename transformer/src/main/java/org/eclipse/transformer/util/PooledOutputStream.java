@@ -0,0 +1,108 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.OutputStream;
+
+/**
+ * Output stream which writes into a buffer borrowed from a buffer pool.
+ *
+ * Unlike a byte array output stream, the written data is answered without
+ * copying the data: {@link #toByteData(String)} answers byte data which
+ * uses the buffer of the stream.  The buffer is owned by the receiver of the
+ * byte data, which may release the buffer to the pool when the data has been
+ * consumed.  {@link #release()} releases the buffer when the written data is
+ * not used.
+ */
+public class PooledOutputStream extends OutputStream {
+
+	public PooledOutputStream(BufferPool pool, int initialSize) {
+		this.pool = pool;
+		this.buffer = pool.borrow(initialSize);
+		this.count = 0;
+	}
+
+	//
+
+	private final BufferPool pool;
+	private byte[] buffer;
+	private int count;
+
+	public BufferPool getPool() {
+		return pool;
+	}
+
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Discard written data which follows a specified size.  Used when the
+	 * written data was rewritten in place, in the buffer of this stream.
+	 *
+	 * @param size The size of the data which is retained.
+	 */
+	public void truncate(int size) {
+		if ( (size < 0) || (size > count) ) {
+			throw new IllegalArgumentException("Size [ " + size + " ] is not within [ 0, " + count + " ]");
+		}
+		count = size;
+	}
+
+	private void ensure(int addCount) {
+		int required = count + addCount;
+		if ( required > buffer.length ) {
+			byte[] priorBuffer = buffer;
+			buffer = pool.grow( priorBuffer, count, Math.max(required, priorBuffer.length * 2) );
+			pool.release(priorBuffer);
+		}
+	}
+
+	@Override
+	public void write(int b) {
+		ensure(1);
+		buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) {
+		ensure(length);
+		System.arraycopy(bytes, offset, buffer, count, length);
+		count += length;
+	}
+
+	/**
+	 * Answer the written data.  The data uses the buffer of this stream.
+	 * The stream must not be used after the data is obtained.
+	 *
+	 * @param name The name of the data.
+	 *
+	 * @return Byte data containing the written bytes.
+	 */
+	public ByteData toByteData(String name) {
+		return new ByteData(name, buffer, 0, count);
+	}
+
+	/**
+	 * Release the buffer of this stream to the pool.  The stream must not be
+	 * used after it is released.
+	 */
+	public void release() {
+		pool.release(buffer);
+		buffer = null;
+		count = 0;
+	}
+}
@@ -0,0 +1,571 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.IOException;
+
+/**
+ * Uses of the UTF8 constants of raw class bytes.
+ *
+ * The constant pool, members, and attributes of the class are walked in
+ * place, recording how each UTF8 constant is used: As a class name, as a
+ * descriptor, as a signature, or as a name which is never transformed.
+ * Attributes which are not known are skipped: Their references to the
+ * constant pool are indexes, which are unaffected by changes to the values
+ * of constants.
+ *
+ * A second walk counts the interfaces, fields, methods, and class attributes
+ * which use changed UTF8 constants.
+ *
+ * Classes which have module attributes are not rewritable: Module metadata
+ * is not transformed.
+ */
+public class RawClassReferences {
+	/** Use as a name, or as a value, which is never transformed. */
+	public static final int USE_NAME = 0x01;
+	/** Use as the name of a class constant. */
+	public static final int USE_CLASS = 0x02;
+	/** Use as a field or method descriptor. */
+	public static final int USE_DESCRIPTOR = 0x04;
+	public static final int USE_CLASS_SIGNATURE = 0x08;
+	public static final int USE_FIELD_SIGNATURE = 0x10;
+	public static final int USE_METHOD_SIGNATURE = 0x20;
+
+	/**
+	 * Walk the members and attributes of a class, recording the uses of
+	 * the UTF8 constants of the class.
+	 *
+	 * @param constants The constant pool of the class.
+	 *
+	 * @return The uses of the UTF8 constants of the class.
+	 *
+	 * @throws IOException Thrown if the class is not valid.
+	 */
+	public static RawClassReferences read(RawConstantPool constants) throws IOException {
+		RawClassReferences references = new RawClassReferences(constants);
+		references.walk(null); // throws IOException
+		return references;
+	}
+
+	private RawClassReferences(RawConstantPool constants) throws IOException {
+		this.constants = constants;
+		this.bytes = constants.getBytes();
+		this.limit = constants.getOffset() + constants.getLength();
+
+		int count = constants.getCount();
+		this.uses = new int[count];
+		this.attributeNames = new String[count];
+
+		for ( int index = 1; index < count; index++ ) {
+			switch ( constants.getTag(index) ) {
+				case RawConstantPool.CONSTANT_Class:
+					use( constants.getUtf8Reference(index), USE_CLASS ); // throws IOException
+					break;
+				case RawConstantPool.CONSTANT_NameAndType:
+				case RawConstantPool.CONSTANT_MethodType:
+					use( constants.getUtf8Reference(index), USE_DESCRIPTOR ); // throws IOException
+					break;
+				default:
+					break;
+			}
+		}
+
+		this.rewritable = true;
+	}
+
+	private final RawConstantPool constants;
+	private final byte[] bytes;
+	private final int limit;
+
+	private final int[] uses;
+	private final String[] attributeNames;
+
+	private boolean rewritable;
+
+	/**
+	 * Answer the uses of a UTF8 constant.
+	 *
+	 * @param index The index of the constant.
+	 *
+	 * @return The uses of the constant, as a combination of the use flags.
+	 */
+	public int getUses(int index) {
+		return uses[index];
+	}
+
+	/**
+	 * Tell if every UTF8 constant of the class may be rewritten in place.
+	 *
+	 * @return True or false telling if the constants of the class may be
+	 *     rewritten in place.
+	 */
+	public boolean isRewritable() {
+		return rewritable;
+	}
+
+	//
+
+	private int modifiedInterfaces;
+	private int modifiedFields;
+	private int modifiedMethods;
+	private int modifiedAttributes;
+
+	/**
+	 * Count the interfaces, fields, methods, and class attributes which use
+	 * changed UTF8 constants.
+	 *
+	 * @param changed Flags telling which UTF8 constants are changed, indexed
+	 *     by constant.
+	 *
+	 * @throws IOException Thrown if the class is not valid.
+	 */
+	public void countChanges(boolean[] changed) throws IOException {
+		modifiedInterfaces = 0;
+		modifiedFields = 0;
+		modifiedMethods = 0;
+		modifiedAttributes = 0;
+
+		walk(changed); // throws IOException
+	}
+
+	public int getModifiedInterfaces() {
+		return modifiedInterfaces;
+	}
+
+	public int getModifiedFields() {
+		return modifiedFields;
+	}
+
+	public int getModifiedMethods() {
+		return modifiedMethods;
+	}
+
+	public int getModifiedAttributes() {
+		return modifiedAttributes;
+	}
+
+	//
+
+	/** Flags of changed UTF8 constants.  Null when recording uses. */
+	private boolean[] changed;
+	private int pos;
+
+	private void walk(boolean[] useChanged) throws IOException {
+		changed = useChanged;
+		pos = constants.getEnd();
+
+		pos += 2; // access_flags
+		useClass( readShort() ); // this_class
+		int superIndex = readShort();
+		if ( superIndex != 0 ) {
+			useClass(superIndex);
+		}
+
+		int interfaceCount = readShort();
+		for ( int interfaceNo = 0; interfaceNo < interfaceCount; interfaceNo++ ) {
+			if ( useClass( readShort() ) ) {
+				modifiedInterfaces++;
+			}
+		}
+
+		int fieldCount = readShort();
+		for ( int fieldNo = 0; fieldNo < fieldCount; fieldNo++ ) {
+			if ( walkMember(USE_FIELD_SIGNATURE) ) {
+				modifiedFields++;
+			}
+		}
+
+		int methodCount = readShort();
+		for ( int methodNo = 0; methodNo < methodCount; methodNo++ ) {
+			if ( walkMember(USE_METHOD_SIGNATURE) ) {
+				modifiedMethods++;
+			}
+		}
+
+		int attributeCount = readShort();
+		for ( int attributeNo = 0; attributeNo < attributeCount; attributeNo++ ) {
+			if ( walkAttribute(USE_CLASS_SIGNATURE) ) {
+				modifiedAttributes++;
+			}
+		}
+
+		if ( pos != limit ) {
+			throw new IOException("Class has [ " + (limit - pos) + " ] bytes following the class attributes");
+		}
+	}
+
+	private boolean walkMember(int signatureUse) throws IOException {
+		pos += 2; // access_flags
+		use( readShort(), USE_NAME );
+		boolean modified = use( readShort(), USE_DESCRIPTOR );
+
+		int attributeCount = readShort();
+		for ( int attributeNo = 0; attributeNo < attributeCount; attributeNo++ ) {
+			modified |= walkAttribute(signatureUse);
+		}
+		return modified;
+	}
+
+	private boolean walkAttribute(int signatureUse) throws IOException {
+		int nameIndex = readShort();
+		use(nameIndex, USE_NAME);
+		long length = readInt() & 0xFFFFFFFFL;
+		if ( pos + length > limit ) {
+			throw new IOException("Class attribute at [ " + pos + " ] is truncated");
+		}
+		int end = pos + (int) length;
+
+		boolean modified = false;
+
+		switch ( getAttributeName(nameIndex) ) {
+			case "Signature":
+				modified = use( readShort(), signatureUse );
+				break;
+
+			case "Code": {
+				pos += 4; // max_stack, max_locals
+				long codeLength = readInt() & 0xFFFFFFFFL;
+				skip(codeLength);
+				int handlerCount = readShort();
+				for ( int handlerNo = 0; handlerNo < handlerCount; handlerNo++ ) {
+					pos += 6; // start_pc, end_pc, handler_pc
+					int catchIndex = readShort();
+					if ( catchIndex != 0 ) {
+						modified |= useClass(catchIndex);
+					}
+				}
+				int attributeCount = readShort();
+				for ( int attributeNo = 0; attributeNo < attributeCount; attributeNo++ ) {
+					modified |= walkAttribute(USE_METHOD_SIGNATURE);
+				}
+				break;
+			}
+
+			case "Exceptions": {
+				int exceptionCount = readShort();
+				for ( int exceptionNo = 0; exceptionNo < exceptionCount; exceptionNo++ ) {
+					modified |= useClass( readShort() );
+				}
+				break;
+			}
+
+			case "InnerClasses": {
+				int classCount = readShort();
+				for ( int classNo = 0; classNo < classCount; classNo++ ) {
+					modified |= useClass( readShort() );
+					int outerIndex = readShort();
+					if ( outerIndex != 0 ) {
+						modified |= useClass(outerIndex);
+					}
+					int innerNameIndex = readShort();
+					if ( innerNameIndex != 0 ) {
+						use(innerNameIndex, USE_NAME);
+					}
+					pos += 2; // inner_class_access_flags
+				}
+				break;
+			}
+
+			case "EnclosingMethod": {
+				modified = useClass( readShort() );
+				int methodIndex = readShort();
+				if ( methodIndex != 0 ) {
+					modified |= useConstant(methodIndex, RawConstantPool.CONSTANT_NameAndType);
+				}
+				break;
+			}
+
+			case "StackMapTable": {
+				int frameCount = readShort();
+				for ( int frameNo = 0; frameNo < frameCount; frameNo++ ) {
+					modified |= walkFrame();
+				}
+				break;
+			}
+
+			case "LocalVariableTable":
+				modified = walkVariables(USE_DESCRIPTOR);
+				break;
+
+			case "LocalVariableTypeTable":
+				modified = walkVariables(USE_FIELD_SIGNATURE);
+				break;
+
+			case "RuntimeVisibleAnnotations":
+			case "RuntimeInvisibleAnnotations": {
+				int annotationCount = readShort();
+				for ( int annotationNo = 0; annotationNo < annotationCount; annotationNo++ ) {
+					modified |= walkAnnotation();
+				}
+				break;
+			}
+
+			case "RuntimeVisibleParameterAnnotations":
+			case "RuntimeInvisibleParameterAnnotations": {
+				int parameterCount = readByte();
+				for ( int parameterNo = 0; parameterNo < parameterCount; parameterNo++ ) {
+					int annotationCount = readShort();
+					for ( int annotationNo = 0; annotationNo < annotationCount; annotationNo++ ) {
+						modified |= walkAnnotation();
+					}
+				}
+				break;
+			}
+
+			case "RuntimeVisibleTypeAnnotations":
+			case "RuntimeInvisibleTypeAnnotations": {
+				int annotationCount = readShort();
+				for ( int annotationNo = 0; annotationNo < annotationCount; annotationNo++ ) {
+					modified |= walkTypeAnnotation();
+				}
+				break;
+			}
+
+			case "AnnotationDefault":
+				modified = walkElementValue();
+				break;
+
+			case "SourceFile":
+				use( readShort(), USE_NAME );
+				break;
+
+			case "MethodParameters": {
+				int parameterCount = readByte();
+				for ( int parameterNo = 0; parameterNo < parameterCount; parameterNo++ ) {
+					int parameterNameIndex = readShort();
+					if ( parameterNameIndex != 0 ) {
+						use(parameterNameIndex, USE_NAME);
+					}
+					pos += 2; // access_flags
+				}
+				break;
+			}
+
+			case "Module":
+			case "ModulePackages":
+			case "ModuleMainClass":
+				rewritable = false;
+				break;
+
+			default:
+				break;
+		}
+
+		if ( pos > end ) {
+			throw new IOException("Class attribute [ " + getAttributeName(nameIndex) + " ] overflows its length");
+		}
+		pos = end;
+
+		return modified;
+	}
+
+	private boolean walkVariables(int typeUse) throws IOException {
+		boolean modified = false;
+		int variableCount = readShort();
+		for ( int variableNo = 0; variableNo < variableCount; variableNo++ ) {
+			pos += 4; // start_pc, length
+			use( readShort(), USE_NAME );
+			modified |= use( readShort(), typeUse );
+			pos += 2; // index
+		}
+		return modified;
+	}
+
+	private boolean walkFrame() throws IOException {
+		int frameType = readByte();
+		if ( frameType < 64 ) {
+			return false; // same_frame
+		} else if ( frameType < 128 ) {
+			return walkVerificationType(); // same_locals_1_stack_item_frame
+		} else if ( frameType < 247 ) {
+			throw new IOException("Stack map frame type [ " + frameType + " ] is reserved");
+		} else if ( frameType == 247 ) {
+			pos += 2; // offset_delta
+			return walkVerificationType(); // same_locals_1_stack_item_frame_extended
+		} else if ( frameType < 252 ) {
+			pos += 2; // chop_frame, same_frame_extended
+			return false;
+		} else if ( frameType < 255 ) {
+			pos += 2; // append_frame
+			boolean modified = false;
+			for ( int localNo = 251; localNo < frameType; localNo++ ) {
+				modified |= walkVerificationType();
+			}
+			return modified;
+		} else {
+			pos += 2; // full_frame
+			boolean modified = false;
+			int localCount = readShort();
+			for ( int localNo = 0; localNo < localCount; localNo++ ) {
+				modified |= walkVerificationType();
+			}
+			int stackCount = readShort();
+			for ( int stackNo = 0; stackNo < stackCount; stackNo++ ) {
+				modified |= walkVerificationType();
+			}
+			return modified;
+		}
+	}
+
+	private boolean walkVerificationType() throws IOException {
+		int tag = readByte();
+		if ( tag == 7 ) {
+			return useClass( readShort() ); // Object_variable_info
+		} else if ( tag == 8 ) {
+			pos += 2; // Uninitialized_variable_info
+		}
+		return false;
+	}
+
+	private boolean walkTypeAnnotation() throws IOException {
+		int targetType = readByte();
+		switch ( targetType ) {
+			case 0x00: case 0x01: case 0x16:
+				pos += 1;
+				break;
+			case 0x10: case 0x11: case 0x12: case 0x17:
+			case 0x42: case 0x43: case 0x44: case 0x45: case 0x46:
+				pos += 2;
+				break;
+			case 0x13: case 0x14: case 0x15:
+				break;
+			case 0x40: case 0x41:
+				skip( 6L * readShort() ); // localvar_target
+				break;
+			case 0x47: case 0x48: case 0x49: case 0x4A: case 0x4B:
+				pos += 3;
+				break;
+			default:
+				throw new IOException("Type annotation target type [ " + targetType + " ] is not valid");
+		}
+		skip( 2L * readByte() ); // type_path
+		return walkAnnotation();
+	}
+
+	private boolean walkAnnotation() throws IOException {
+		boolean modified = use( readShort(), USE_DESCRIPTOR );
+		int valueCount = readShort();
+		for ( int valueNo = 0; valueNo < valueCount; valueNo++ ) {
+			use( readShort(), USE_NAME );
+			modified |= walkElementValue();
+		}
+		return modified;
+	}
+
+	private boolean walkElementValue() throws IOException {
+		int tag = readByte();
+		switch ( tag ) {
+			case 'B': case 'C': case 'D': case 'F': case 'I': case 'J': case 'S': case 'Z':
+				pos += 2;
+				return false;
+			case 's':
+				use( readShort(), USE_NAME );
+				return false;
+			case 'e': {
+				boolean modified = use( readShort(), USE_DESCRIPTOR );
+				use( readShort(), USE_NAME );
+				return modified;
+			}
+			case 'c':
+				return use( readShort(), USE_DESCRIPTOR );
+			case '@':
+				return walkAnnotation();
+			case '[': {
+				boolean modified = false;
+				int valueCount = readShort();
+				for ( int valueNo = 0; valueNo < valueCount; valueNo++ ) {
+					modified |= walkElementValue();
+				}
+				return modified;
+			}
+			default:
+				throw new IOException("Annotation element value tag [ " + tag + " ] is not valid");
+		}
+	}
+
+	//
+
+	/**
+	 * Record a use of a UTF8 constant, or, when counting changes, tell if the
+	 * constant is changed.
+	 */
+	private boolean use(int index, int use) throws IOException {
+		if ( (index <= 0) || (index >= uses.length) || (constants.getTag(index) != RawConstantPool.CONSTANT_Utf8) ) {
+			throw new IOException("Class constant pool entry [ " + index + " ] is not a UTF8 constant");
+		}
+		if ( changed == null ) {
+			uses[index] |= use;
+			return false;
+		} else {
+			return changed[index];
+		}
+	}
+
+	/**
+	 * Tell if a constant which references a UTF8 constant is changed.  Uses
+	 * of referencing constants are recorded from the constant pool.
+	 */
+	private boolean useConstant(int index, int tag) throws IOException {
+		if ( (index <= 0) || (index >= uses.length) || (constants.getTag(index) != tag) ) {
+			throw new IOException("Class constant pool entry [ " + index + " ] does not have tag [ " + tag + " ]");
+		}
+		return ( (changed != null) && changed[ constants.getUtf8Reference(index) ] );
+	}
+
+	private boolean useClass(int index) throws IOException {
+		return useConstant(index, RawConstantPool.CONSTANT_Class);
+	}
+
+	private String getAttributeName(int index) throws IOException {
+		String name = attributeNames[index];
+		if ( name == null ) {
+			name = constants.getUtf8(index); // throws IOException
+			attributeNames[index] = name;
+		}
+		return name;
+	}
+
+	private void skip(long count) throws IOException {
+		if ( pos + count > limit ) {
+			throw new IOException("Class is truncated at [ " + pos + " ]");
+		}
+		pos += (int) count;
+	}
+
+	private int readByte() throws IOException {
+		if ( pos + 1 > limit ) {
+			throw new IOException("Class is truncated at [ " + pos + " ]");
+		}
+		return ( bytes[pos++] & 0xFF );
+	}
+
+	private int readShort() throws IOException {
+		if ( pos + 2 > limit ) {
+			throw new IOException("Class is truncated at [ " + pos + " ]");
+		}
+		int value = ( ((bytes[pos] & 0xFF) << 8) | (bytes[pos + 1] & 0xFF) );
+		pos += 2;
+		return value;
+	}
+
+	private int readInt() throws IOException {
+		if ( pos + 4 > limit ) {
+			throw new IOException("Class is truncated at [ " + pos + " ]");
+		}
+		int value = ( ((bytes[pos] & 0xFF) << 24) |
+					  ((bytes[pos + 1] & 0xFF) << 16) |
+					  ((bytes[pos + 2] & 0xFF) << 8) |
+					  (bytes[pos + 3] & 0xFF) );
+		pos += 4;
+		return value;
+	}
+}
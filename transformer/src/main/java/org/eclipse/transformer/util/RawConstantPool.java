@@ -0,0 +1,312 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * Constant pool of raw class bytes.
+ *
+ * The constant pool is located by walking the entries of the pool, recording
+ * the offset of each entry.  No constants are decoded until they are
+ * requested, and no object model of the class is created.  The class bytes
+ * are not copied.
+ */
+public class RawConstantPool {
+	public static final int CLASS_MAGIC = 0xCAFEBABE;
+
+	/** Offset of the constant pool count: Following the magic and version values. */
+	public static final int POOL_COUNT_OFFSET = 8;
+
+	public static final int CONSTANT_Utf8 = 1;
+	public static final int CONSTANT_Integer = 3;
+	public static final int CONSTANT_Float = 4;
+	public static final int CONSTANT_Long = 5;
+	public static final int CONSTANT_Double = 6;
+	public static final int CONSTANT_Class = 7;
+	public static final int CONSTANT_String = 8;
+	public static final int CONSTANT_Fieldref = 9;
+	public static final int CONSTANT_Methodref = 10;
+	public static final int CONSTANT_InterfaceMethodref = 11;
+	public static final int CONSTANT_NameAndType = 12;
+	public static final int CONSTANT_MethodHandle = 15;
+	public static final int CONSTANT_MethodType = 16;
+	public static final int CONSTANT_Dynamic = 17;
+	public static final int CONSTANT_InvokeDynamic = 18;
+	public static final int CONSTANT_Module = 19;
+	public static final int CONSTANT_Package = 20;
+
+	/**
+	 * Locate the constant pool of raw class bytes.
+	 *
+	 * @param bytes Bytes containing the class.
+	 * @param offset The offset of the class in the bytes.
+	 * @param length The length of the class.
+	 *
+	 * @return The constant pool of the class.
+	 *
+	 * @throws IOException Thrown if the bytes are not a valid class, or if an
+	 *     entry of the constant pool has an unknown tag.
+	 */
+	public static RawConstantPool read(byte[] bytes, int offset, int length) throws IOException {
+		int limit = offset + length;
+		if ( (length < POOL_COUNT_OFFSET + 2) || (readInt(bytes, offset) != CLASS_MAGIC) ) {
+			throw new IOException("Bytes are not a class: Bad magic");
+		}
+
+		int count = readUnsignedShort(bytes, offset + POOL_COUNT_OFFSET);
+		int[] offsets = new int[count];
+
+		int entryOffset = offset + POOL_COUNT_OFFSET + 2;
+		for ( int index = 1; index < count; index++ ) {
+			if ( entryOffset >= limit ) {
+				throw new IOException("Class constant pool is truncated at entry [ " + index + " ]");
+			}
+			offsets[index] = entryOffset;
+
+			int tag = bytes[entryOffset];
+			switch ( tag ) {
+				case CONSTANT_Utf8:
+					if ( entryOffset + 3 > limit ) {
+						throw new IOException("Class constant pool is truncated at entry [ " + index + " ]");
+					}
+					entryOffset += 3 + readUnsignedShort(bytes, entryOffset + 1);
+					break;
+				case CONSTANT_Class:
+				case CONSTANT_String:
+				case CONSTANT_MethodType:
+				case CONSTANT_Module:
+				case CONSTANT_Package:
+					entryOffset += 3;
+					break;
+				case CONSTANT_MethodHandle:
+					entryOffset += 4;
+					break;
+				case CONSTANT_Integer:
+				case CONSTANT_Float:
+				case CONSTANT_Fieldref:
+				case CONSTANT_Methodref:
+				case CONSTANT_InterfaceMethodref:
+				case CONSTANT_NameAndType:
+				case CONSTANT_Dynamic:
+				case CONSTANT_InvokeDynamic:
+					entryOffset += 5;
+					break;
+				case CONSTANT_Long:
+				case CONSTANT_Double:
+					// Eight byte constants occupy two entries.
+					entryOffset += 9;
+					index++;
+					break;
+				default:
+					throw new IOException("Class constant pool entry [ " + index + " ] has unknown tag [ " + tag + " ]");
+			}
+		}
+
+		// The access flags, this class, and super class follow the pool.
+		if ( entryOffset + 6 > limit ) {
+			throw new IOException("Class is truncated following the constant pool");
+		}
+
+		return new RawConstantPool(bytes, offset, length, offsets, entryOffset);
+	}
+
+	private static int readInt(byte[] bytes, int offset) {
+		return ( ((bytes[offset] & 0xFF) << 24) |
+				 ((bytes[offset + 1] & 0xFF) << 16) |
+				 ((bytes[offset + 2] & 0xFF) << 8) |
+				 (bytes[offset + 3] & 0xFF) );
+	}
+
+	private static int readUnsignedShort(byte[] bytes, int offset) {
+		return ( ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF) );
+	}
+
+	//
+
+	private RawConstantPool(byte[] bytes, int offset, int length, int[] offsets, int end) {
+		this.bytes = bytes;
+		this.offset = offset;
+		this.length = length;
+		this.offsets = offsets;
+		this.end = end;
+	}
+
+	private final byte[] bytes;
+	private final int offset;
+	private final int length;
+	private final int[] offsets;
+	private final int end;
+
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Answer the constant pool count.  Valid entry indexes are 1 through
+	 * the count minus one.
+	 *
+	 * @return The constant pool count.
+	 */
+	public int getCount() {
+		return offsets.length;
+	}
+
+	/**
+	 * Answer the offset following the constant pool.
+	 *
+	 * @return The offset following the constant pool.
+	 */
+	public int getEnd() {
+		return end;
+	}
+
+	/**
+	 * Answer the offset of the tag of an entry.
+	 *
+	 * @param index The index of the entry.
+	 *
+	 * @return The offset of the tag of the entry.  0 for the second entry of
+	 *     a long or double constant, and for index 0.
+	 */
+	public int getEntryOffset(int index) {
+		return offsets[index];
+	}
+
+	public int getTag(int index) {
+		int entryOffset = offsets[index];
+		return ( (entryOffset == 0) ? 0 : bytes[entryOffset] );
+	}
+
+	public int getUtf8Offset(int index) {
+		return offsets[index] + 3;
+	}
+
+	public int getUtf8Length(int index) {
+		return readUnsignedShort(bytes, offsets[index] + 1);
+	}
+
+	/**
+	 * Answer the index of the UTF8 constant which is referenced by a class,
+	 * string, method type, or name and type constant.  The descriptor is
+	 * answered for a name and type constant.
+	 *
+	 * @param index The index of the referencing constant.
+	 *
+	 * @return The index of the referenced UTF8 constant.  0 if the constant
+	 *     does not reference a UTF8 constant.
+	 */
+	public int getUtf8Reference(int index) {
+		switch ( getTag(index) ) {
+			case CONSTANT_Class:
+			case CONSTANT_String:
+			case CONSTANT_MethodType:
+				return readUnsignedShort(bytes, offsets[index] + 1);
+			case CONSTANT_NameAndType:
+				return readUnsignedShort(bytes, offsets[index] + 3);
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * Tell if any UTF8 constant contains a key of a matcher.
+	 *
+	 * @param matcher The matcher which is to be applied to the UTF8 constants.
+	 *
+	 * @return True or false telling if any UTF8 constant contains a key.
+	 */
+	public boolean matchesUtf8(ByteMatcher matcher) {
+		for ( int index = 1; index < offsets.length; index++ ) {
+			int entryOffset = offsets[index];
+			if ( (entryOffset != 0) && (bytes[entryOffset] == CONSTANT_Utf8) ) {
+				if ( matcher.matches(bytes, entryOffset + 3, readUnsignedShort(bytes, entryOffset + 1)) ) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Decode a UTF8 constant.
+	 *
+	 * @param index The index of the constant.
+	 *
+	 * @return The decoded constant.
+	 *
+	 * @throws IOException Thrown if the entry is not a UTF8 constant, or if
+	 *     the constant is not valid modified UTF-8.
+	 */
+	public String getUtf8(int index) throws IOException {
+		if ( (index <= 0) || (index >= offsets.length) || (getTag(index) != CONSTANT_Utf8) ) {
+			throw new IOException("Class constant pool entry [ " + index + " ] is not a UTF8 constant");
+		}
+		int entryOffset = offsets[index];
+		int utf8Length = readUnsignedShort(bytes, entryOffset + 1);
+		if ( entryOffset + 3 + utf8Length > offset + length ) {
+			throw new IOException("Class constant pool entry [ " + index + " ] is truncated");
+		}
+		DataInputStream utf8Stream = new DataInputStream( new ByteArrayInputStream(bytes, entryOffset + 1, 2 + utf8Length) );
+		return utf8Stream.readUTF(); // throws IOException
+	}
+
+	/**
+	 * Decode the name of a class constant.
+	 *
+	 * @param index The index of the class constant.
+	 *
+	 * @return The name of the class, in binary form.
+	 *
+	 * @throws IOException Thrown if the entry is not a class constant.
+	 */
+	public String getClassName(int index) throws IOException {
+		if ( (index <= 0) || (index >= offsets.length) || (getTag(index) != CONSTANT_Class) ) {
+			throw new IOException("Class constant pool entry [ " + index + " ] is not a class constant");
+		}
+		return getUtf8( readUnsignedShort(bytes, offsets[index] + 1) );
+	}
+
+	/**
+	 * Answer the name of the class.
+	 *
+	 * @return The name of the class, in binary form.
+	 *
+	 * @throws IOException Thrown if the this class index is not valid.
+	 */
+	public String getThisClassName() throws IOException {
+		return getClassName( readUnsignedShort(bytes, end + 2) );
+	}
+
+	/**
+	 * Answer the name of the super class.
+	 *
+	 * @return The name of the super class, in binary form.  Null if the
+	 *     class has no super class.
+	 *
+	 * @throws IOException Thrown if the super class index is not valid.
+	 */
+	public String getSuperClassName() throws IOException {
+		int superIndex = readUnsignedShort(bytes, end + 4);
+		return ( (superIndex == 0) ? null : getClassName(superIndex) );
+	}
+}
@@ -0,0 +1,274 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.zip.ZipEntry;
+
+/**
+ * Header values of a single zip entry, kept in the form in which they
+ * are stored in an archive.
+ *
+ * Unlike {@link ZipEntry}, the values are not converted: The name bytes,
+ * flags, MS-DOS time, and extra data are retained exactly as read, so that
+ * an entry can be copied to a new archive without changes.
+ */
+public class RawZipEntry {
+	/** Compression method: Uncompressed data. */
+	public static final int STORED = ZipEntry.STORED;
+
+	/** Compression method: Deflated data. */
+	public static final int DEFLATED = ZipEntry.DEFLATED;
+
+	/** Value used for sizes and CRC which are not yet known. */
+	public static final long UNKNOWN = -1L;
+
+	/** General purpose flag: Sizes and CRC follow the entry data. */
+	public static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+
+	/** General purpose flag: The entry name is UTF-8 encoded. */
+	public static final int FLAG_UTF8 = 0x0800;
+
+	/**
+	 * Create an entry for new data.  The name is UTF-8 encoded. The
+	 * method is {@link #DEFLATED}.  The time is unset, which causes
+	 * the current time to be used when the entry is written.
+	 *
+	 * @param name The name of the entry.
+	 */
+	public RawZipEntry(String name) {
+		this( name, name.getBytes(StandardCharsets.UTF_8) );
+
+		this.flag = FLAG_UTF8;
+	}
+
+	/**
+	 * Create an entry using name bytes read from an archive.
+	 *
+	 * @param name The decoded name of the entry.
+	 * @param nameBytes The raw bytes of the entry name.
+	 */
+	public RawZipEntry(String name, byte[] nameBytes) {
+		this.name = name;
+		this.nameBytes = nameBytes;
+
+		this.versionNeeded = 0;
+		this.flag = 0;
+		this.method = DEFLATED;
+		this.level = DEFAULT_LEVEL;
+		this.dosTime = UNKNOWN;
+
+		this.crc = UNKNOWN;
+		this.compressedSize = UNKNOWN;
+		this.size = UNKNOWN;
+
+		this.extra = null;
+	}
+
+	//
+
+	private final String name;
+	private final byte[] nameBytes;
+
+	public String getName() {
+		return name;
+	}
+
+	public byte[] getNameBytes() {
+		return nameBytes;
+	}
+
+	public boolean isDirectory() {
+		return name.endsWith("/");
+	}
+
+	//
+
+	private int versionNeeded;
+	private int flag;
+	private int method;
+	private long dosTime;
+
+	public int getVersionNeeded() {
+		return versionNeeded;
+	}
+
+	public void setVersionNeeded(int versionNeeded) {
+		this.versionNeeded = versionNeeded;
+	}
+
+	public int getFlag() {
+		return flag;
+	}
+
+	public void setFlag(int flag) {
+		this.flag = flag;
+	}
+
+	public boolean hasDataDescriptor() {
+		return ( (flag & FLAG_DATA_DESCRIPTOR) != 0 );
+	}
+
+	public int getMethod() {
+		return method;
+	}
+
+	/**
+	 * Set the compression method of this entry.  Methods other than
+	 * {@link #STORED} and {@link #DEFLATED} are allowed, but entries
+	 * using other methods can only be copied as raw data.
+	 *
+	 * @param method The compression method of this entry.
+	 */
+	public void setMethod(int method) {
+		if ( (method < 0) || (method > 0xFFFF) ) {
+			throw new IllegalArgumentException("Invalid compression method [ " + method + " ]");
+		}
+		this.method = method;
+	}
+
+	public boolean isSupportedMethod() {
+		return ( (method == STORED) || (method == DEFLATED) );
+	}
+
+	/** Compression level: The default level of the deflater. */
+	public static final int DEFAULT_LEVEL = -1;
+
+	private int level;
+
+	/**
+	 * Answer the compression level used to write this entry, when
+	 * the entry is {@link #DEFLATED}.  The level is not recorded
+	 * in the archive.
+	 *
+	 * @return The compression level used to write this entry.
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	public void setLevel(int level) {
+		if ( ((level < 0) || (level > 9)) && (level != DEFAULT_LEVEL) ) {
+			throw new IllegalArgumentException("Invalid compression level [ " + level + " ]");
+		}
+		this.level = level;
+	}
+
+	/**
+	 * Answer the MS-DOS encoded modification time of this entry.
+	 *
+	 * @return The MS-DOS encoded modification time of this entry.
+	 *     {@link #UNKNOWN} if the time is not set.
+	 */
+	public long getTime() {
+		return dosTime;
+	}
+
+	public void setTime(long dosTime) {
+		this.dosTime = dosTime;
+	}
+
+	//
+
+	private long crc;
+	private long compressedSize;
+	private long size;
+
+	public long getCrc() {
+		return crc;
+	}
+
+	public void setCrc(long crc) {
+		this.crc = crc;
+	}
+
+	public long getCompressedSize() {
+		return compressedSize;
+	}
+
+	public void setCompressedSize(long compressedSize) {
+		this.compressedSize = compressedSize;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	//
+
+	private long headerOffset = UNKNOWN;
+
+	/**
+	 * Answer the offset of the local header of this entry.  Available
+	 * for entries read from a central directory.
+	 *
+	 * @return The offset of the local header of this entry.  {@link #UNKNOWN}
+	 *     if the offset is not known.
+	 */
+	public long getHeaderOffset() {
+		return headerOffset;
+	}
+
+	public void setHeaderOffset(long headerOffset) {
+		this.headerOffset = headerOffset;
+	}
+
+	//
+
+	private byte[] extra;
+
+	public byte[] getExtra() {
+		return extra;
+	}
+
+	public void setExtra(byte[] extra) {
+		this.extra = extra;
+	}
+
+	//
+
+	/**
+	 * Convert a java time to an MS-DOS time, using the default time zone.
+	 *
+	 * @param javaTime A java time, in milliseconds since the epoch.
+	 *
+	 * @return The corresponding MS-DOS time.
+	 */
+	public static long toDosTime(long javaTime) {
+		LocalDateTime dateTime = LocalDateTime.ofInstant(
+			Instant.ofEpochMilli(javaTime), ZoneId.systemDefault() );
+
+		int year = dateTime.getYear();
+		if ( year < 1980 ) {
+			return ( (1 << 21) | (1 << 16) ); // 1980-01-01 00:00:00
+		}
+
+		return ( ((year - 1980) << 25) |
+		         (dateTime.getMonthValue() << 21) |
+		         (dateTime.getDayOfMonth() << 16) |
+		         (dateTime.getHour() << 11) |
+		         (dateTime.getMinute() << 5) |
+		         (dateTime.getSecond() >> 1) ) & 0xFFFFFFFFL;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
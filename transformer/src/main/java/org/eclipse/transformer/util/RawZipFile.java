@@ -0,0 +1,460 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Random access reader of a zip file.
+ *
+ * The central directory is read when the file is opened.  That provides
+ * the exact CRC and sizes of all entries, including entries which were
+ * written with trailing data descriptors, before any entry data is read.
+ *
+ * Entries may be read in any order.  Entry data is read using positional
+ * reads of a file channel, which means that separate entries may be read
+ * concurrently.
+ */
+public class RawZipFile implements Closeable {
+	/** Maximum length of an archive comment. */
+	public static final int MAX_COMMENT_LENGTH = 0xFFFF;
+
+	public RawZipFile(File file) throws IOException {
+		this.file = file;
+		this.channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ); // throws IOException
+
+		try {
+			this.entries = Collections.unmodifiableList( readCentralDirectory() ); // throws IOException
+		} catch ( IOException e ) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	//
+
+	private final File file;
+	private final FileChannel channel;
+
+	public File getFile() {
+		return file;
+	}
+
+	private void readFully(long position, byte[] bytes, int offset, int count) throws IOException {
+		ByteBuffer byteBuffer = ByteBuffer.wrap(bytes, offset, count);
+		while ( byteBuffer.hasRemaining() ) {
+			int bytesRead = channel.read(byteBuffer, position); // throws IOException
+			if ( bytesRead == -1 ) {
+				throw new EOFException("Unexpected end of zip file [ " + file.getPath() + " ] at [ " + position + " ]");
+			}
+			position += bytesRead;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	//
+
+	private final List<RawZipEntry> entries;
+
+	/**
+	 * Answer the entries of the zip file, in central directory order.
+	 *
+	 * @return The entries of the zip file.
+	 */
+	public List<RawZipEntry> getEntries() {
+		return entries;
+	}
+
+	private List<RawZipEntry> readCentralDirectory() throws IOException {
+		long fileSize = channel.size(); // throws IOException
+		if ( fileSize < RawZipOutputStream.END_SIZE ) {
+			throw new ZipException("Zip file [ " + file.getPath() + " ] is too small [ " + fileSize + " ]");
+		}
+
+		// Locate the end record by searching back from the end of the
+		// file.  The end record may be followed by a comment.
+
+		int tailLength = (int) Math.min( fileSize, RawZipOutputStream.END_SIZE + MAX_COMMENT_LENGTH );
+		long tailStart = fileSize - tailLength;
+		byte[] tail = new byte[tailLength];
+		readFully(tailStart, tail, 0, tailLength);
+
+		int endOffset = -1;
+		for ( int offset = tailLength - RawZipOutputStream.END_SIZE; offset >= 0; offset-- ) {
+			if ( (RawZipInputStream.getInt(tail, offset) == RawZipOutputStream.END_SIGNATURE) &&
+				 (offset + RawZipOutputStream.END_SIZE + RawZipInputStream.getShort(tail, offset + 20) == tailLength) ) {
+				endOffset = offset;
+				break;
+			}
+		}
+		if ( endOffset == -1 ) {
+			throw new ZipException("Zip file [ " + file.getPath() + " ] has no central directory");
+		}
+		long endPosition = tailStart + endOffset;
+
+		long entryCount = RawZipInputStream.getShort(tail, endOffset + 10);
+		long centralSize = RawZipInputStream.getInt(tail, endOffset + 12) & 0xFFFFFFFFL;
+		long centralOffset = RawZipInputStream.getInt(tail, endOffset + 16) & 0xFFFFFFFFL;
+
+		// The central directory ends where the end record (or the zip64
+		// end record) starts.  Any difference from the recorded offset is
+		// data which was prepended to the archive.
+
+		long centralEnd = endPosition;
+
+		if ( (entryCount == 0xFFFF) ||
+			 (centralSize == RawZipInputStream.ZIP64_MAGIC) ||
+			 (centralOffset == RawZipInputStream.ZIP64_MAGIC) ) {
+
+			long locatorPosition = endPosition - RawZipOutputStream.ZIP64_LOCATOR_SIZE;
+			if ( locatorPosition >= 0 ) {
+				byte[] locator = new byte[RawZipOutputStream.ZIP64_LOCATOR_SIZE];
+				readFully(locatorPosition, locator, 0, locator.length);
+
+				if ( RawZipInputStream.getInt(locator, 0) == RawZipOutputStream.ZIP64_LOCATOR_SIGNATURE ) {
+					long zip64EndPosition = RawZipInputStream.getLong(locator, 8);
+					byte[] zip64End = new byte[RawZipOutputStream.ZIP64_END_SIZE];
+					readFully(zip64EndPosition, zip64End, 0, zip64End.length);
+
+					if ( RawZipInputStream.getInt(zip64End, 0) != RawZipOutputStream.ZIP64_END_SIGNATURE ) {
+						throw new ZipException("Zip file [ " + file.getPath() + " ] has an invalid zip64 end record");
+					}
+
+					entryCount = RawZipInputStream.getLong(zip64End, 32);
+					centralSize = RawZipInputStream.getLong(zip64End, 40);
+					centralOffset = RawZipInputStream.getLong(zip64End, 48);
+					centralEnd = zip64EndPosition;
+				}
+			}
+		}
+
+		long prefixLength = centralEnd - centralSize - centralOffset;
+		if ( prefixLength < 0 ) {
+			throw new ZipException("Zip file [ " + file.getPath() + " ] has an invalid central directory offset [ " + centralOffset + " ]");
+		}
+
+		int intCentralSize = FileUtils.verifyArray(0, centralSize);
+		byte[] central = new byte[intCentralSize];
+		readFully(centralOffset + prefixLength, central, 0, intCentralSize);
+
+		List<RawZipEntry> centralEntries = new ArrayList<RawZipEntry>( (int) Math.min(entryCount, 0x10000) );
+
+		int offset = 0;
+		while ( (offset + RawZipOutputStream.CENTRAL_HEADER_SIZE) <= intCentralSize ) {
+			if ( RawZipInputStream.getInt(central, offset) != RawZipOutputStream.CENTRAL_HEADER_SIGNATURE ) {
+				throw new ZipException("Zip file [ " + file.getPath() + " ] has an invalid central header at [ " + offset + " ]");
+			}
+
+			int versionNeeded = RawZipInputStream.getShort(central, offset + 6);
+			int flag = RawZipInputStream.getShort(central, offset + 8);
+			int method = RawZipInputStream.getShort(central, offset + 10);
+			long dosTime = RawZipInputStream.getInt(central, offset + 12) & 0xFFFFFFFFL;
+			long crc = RawZipInputStream.getInt(central, offset + 16) & 0xFFFFFFFFL;
+			long compressedSize = RawZipInputStream.getInt(central, offset + 20) & 0xFFFFFFFFL;
+			long size = RawZipInputStream.getInt(central, offset + 24) & 0xFFFFFFFFL;
+			int nameLength = RawZipInputStream.getShort(central, offset + 28);
+			int extraLength = RawZipInputStream.getShort(central, offset + 30);
+			int commentLength = RawZipInputStream.getShort(central, offset + 32);
+			long headerOffset = RawZipInputStream.getInt(central, offset + 42) & 0xFFFFFFFFL;
+
+			int nameOffset = offset + RawZipOutputStream.CENTRAL_HEADER_SIZE;
+			int extraOffset = nameOffset + nameLength;
+			int nextOffset = extraOffset + extraLength + commentLength;
+			if ( nextOffset > intCentralSize ) {
+				throw new ZipException("Zip file [ " + file.getPath() + " ] has a truncated central header at [ " + offset + " ]");
+			}
+
+			byte[] nameBytes = new byte[nameLength];
+			System.arraycopy(central, nameOffset, nameBytes, 0, nameLength);
+
+			if ( (size == RawZipInputStream.ZIP64_MAGIC) ||
+				 (compressedSize == RawZipInputStream.ZIP64_MAGIC) ||
+				 (headerOffset == RawZipInputStream.ZIP64_MAGIC) ) {
+
+				byte[] extra = new byte[extraLength];
+				System.arraycopy(central, extraOffset, extra, 0, extraLength);
+
+				int zip64Offset = RawZipInputStream.findExtra(extra, RawZipInputStream.ZIP64_EXTRA_ID);
+				if ( zip64Offset != -1 ) {
+					int dataOffset = zip64Offset + 4;
+					int dataEnd = dataOffset + RawZipInputStream.getShort(extra, zip64Offset + 2);
+					if ( (size == RawZipInputStream.ZIP64_MAGIC) && (dataOffset + 8 <= dataEnd) ) {
+						size = RawZipInputStream.getLong(extra, dataOffset);
+						dataOffset += 8;
+					}
+					if ( (compressedSize == RawZipInputStream.ZIP64_MAGIC) && (dataOffset + 8 <= dataEnd) ) {
+						compressedSize = RawZipInputStream.getLong(extra, dataOffset);
+						dataOffset += 8;
+					}
+					if ( (headerOffset == RawZipInputStream.ZIP64_MAGIC) && (dataOffset + 8 <= dataEnd) ) {
+						headerOffset = RawZipInputStream.getLong(extra, dataOffset);
+						dataOffset += 8;
+					}
+				}
+			}
+
+			RawZipEntry entry = new RawZipEntry( new String(nameBytes, StandardCharsets.UTF_8), nameBytes );
+			entry.setVersionNeeded(versionNeeded);
+			entry.setFlag(flag);
+			entry.setMethod(method);
+			entry.setTime(dosTime);
+			entry.setCrc(crc);
+			entry.setCompressedSize(compressedSize);
+			entry.setSize(size);
+			entry.setHeaderOffset(headerOffset + prefixLength);
+
+			centralEntries.add(entry);
+
+			offset = nextOffset;
+		}
+
+		return centralEntries;
+	}
+
+	//
+
+	/**
+	 * Read the local header of an entry.  Answer a copy of the entry which
+	 * has the local extra data and the offset to the entry data.  The copy
+	 * has exact sizes and CRC, and does not have a data descriptor.
+	 */
+	private LocalEntry readLocalHeader(RawZipEntry entry) throws IOException {
+		byte[] header = new byte[RawZipInputStream.LOCAL_HEADER_SIZE];
+		readFully(entry.getHeaderOffset(), header, 0, header.length);
+
+		if ( RawZipInputStream.getInt(header, 0) != RawZipInputStream.LOCAL_HEADER_SIGNATURE ) {
+			throw new ZipException("Entry [ " + entry.getName() + " ]: Invalid local header at [ " + entry.getHeaderOffset() + " ]");
+		}
+
+		int nameLength = RawZipInputStream.getShort(header, 26);
+		int extraLength = RawZipInputStream.getShort(header, 28);
+
+		byte[] extra;
+		if ( extraLength == 0 ) {
+			extra = null;
+		} else {
+			extra = new byte[extraLength];
+			readFully( entry.getHeaderOffset() + RawZipInputStream.LOCAL_HEADER_SIZE + nameLength, extra, 0, extraLength );
+		}
+
+		RawZipEntry localEntry = new RawZipEntry( entry.getName(), entry.getNameBytes() );
+		localEntry.setVersionNeeded( entry.getVersionNeeded() );
+		localEntry.setFlag( entry.getFlag() & ~RawZipEntry.FLAG_DATA_DESCRIPTOR );
+		localEntry.setMethod( entry.getMethod() );
+		localEntry.setTime( entry.getTime() );
+		localEntry.setCrc( entry.getCrc() );
+		localEntry.setCompressedSize( entry.getCompressedSize() );
+		localEntry.setSize( entry.getSize() );
+		localEntry.setExtra(extra);
+
+		long dataOffset = entry.getHeaderOffset() + RawZipInputStream.LOCAL_HEADER_SIZE + nameLength + extraLength;
+
+		return new LocalEntry(localEntry, dataOffset);
+	}
+
+	private static class LocalEntry {
+		public final RawZipEntry entry;
+		public final long dataOffset;
+
+		public LocalEntry(RawZipEntry entry, long dataOffset) {
+			this.entry = entry;
+			this.dataOffset = dataOffset;
+		}
+	}
+
+	/**
+	 * Copy an entry to a zip output stream without decompressing the entry
+	 * data.  The compressed data, CRC, and sizes of the entry are copied
+	 * unchanged.  A data descriptor is not written, since the sizes and
+	 * CRC are known.
+	 *
+	 * @param entry The entry which is to be copied.
+	 * @param zipOutputStream The stream which is to receive the entry.
+	 * @param buffer A buffer to use for the copy.
+	 *
+	 * @return The count of compressed bytes which were copied.
+	 *
+	 * @throws IOException Thrown if the copy failed.
+	 */
+	public long transferRaw(RawZipEntry entry, RawZipOutputStream zipOutputStream, byte[] buffer) throws IOException {
+		LocalEntry localEntry = readLocalHeader(entry); // throws IOException
+
+		zipOutputStream.putRawEntry(localEntry.entry); // throws IOException
+
+		long position = localEntry.dataOffset;
+		long remaining = entry.getCompressedSize();
+		while ( remaining > 0 ) {
+			int count = ( (remaining < buffer.length) ? (int) remaining : buffer.length );
+			readFully(position, buffer, 0, count); // throws IOException
+			zipOutputStream.write(buffer, 0, count); // throws IOException
+			position += count;
+			remaining -= count;
+		}
+
+		zipOutputStream.closeEntry(); // throws IOException
+
+		return entry.getCompressedSize();
+	}
+
+	/**
+	 * Answer a stream which provides the uncompressed data of an entry.
+	 *
+	 * @param entry The entry which is to be read.
+	 *
+	 * @return A stream which provides the uncompressed data of the entry.
+	 *
+	 * @throws IOException Thrown if the stream could not be opened.
+	 */
+	public InputStream getInputStream(RawZipEntry entry) throws IOException {
+		if ( !entry.isSupportedMethod() ) {
+			throw new ZipException("Entry [ " + entry.getName() + " ]: Unsupported compression method [ " + entry.getMethod() + " ]");
+		}
+
+		LocalEntry localEntry = readLocalHeader(entry); // throws IOException
+
+		return new EntryInputStream(entry, localEntry.dataOffset);
+	}
+
+	private class EntryInputStream extends InputStream {
+		private final RawZipEntry entry;
+		private final boolean isStored;
+
+		private long position;
+		private long remaining;
+
+		private final byte[] buffer;
+		private final Inflater inflater;
+		private boolean addedDummy;
+
+		private boolean closed;
+
+		public EntryInputStream(RawZipEntry entry, long dataOffset) {
+			this.entry = entry;
+			this.isStored = ( entry.getMethod() == RawZipEntry.STORED );
+
+			this.position = dataOffset;
+			this.remaining = entry.getCompressedSize();
+
+			if ( isStored ) {
+				this.buffer = null;
+				this.inflater = null;
+			} else {
+				long bufferSize = Math.min( remaining + 1, FileUtils.BUFFER_ADJUSTMENT );
+				this.buffer = new byte[ (int) bufferSize ];
+				this.inflater = new Inflater(true);
+			}
+		}
+
+		private final byte[] single = new byte[1];
+
+		@Override
+		public int read() throws IOException {
+			return ( (read(single, 0, 1) == -1) ? -1 : (single[0] & 0xFF) );
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int count) throws IOException {
+			if ( closed ) {
+				throw new IOException("Stream closed");
+			} else if ( (offset < 0) || (count < 0) || (count > bytes.length - offset) ) {
+				throw new IndexOutOfBoundsException();
+			} else if ( count == 0 ) {
+				return 0;
+			}
+
+			if ( isStored ) {
+				if ( remaining == 0 ) {
+					return -1;
+				}
+				if ( count > remaining ) {
+					count = (int) remaining;
+				}
+				readFully(position, bytes, offset, count); // throws IOException
+				position += count;
+				remaining -= count;
+				return count;
+			}
+
+			try {
+				while ( true ) {
+					if ( inflater.finished() ) {
+						return -1;
+					}
+					if ( inflater.needsInput() ) {
+						if ( remaining > 0 ) {
+							int readCount = ( (remaining < buffer.length) ? (int) remaining : buffer.length );
+							readFully(position, buffer, 0, readCount); // throws IOException
+							position += readCount;
+							remaining -= readCount;
+							inflater.setInput(buffer, 0, readCount);
+						} else if ( !addedDummy ) {
+							// The inflater may need one byte past the end of the
+							// compressed data to complete.
+							buffer[0] = 0;
+							inflater.setInput(buffer, 0, 1);
+							addedDummy = true;
+						} else {
+							throw new EOFException("Unexpected end of ZLIB input stream [ " + entry.getName() + " ]");
+						}
+					}
+
+					int inflated = inflater.inflate(bytes, offset, count); // throws DataFormatException
+					if ( inflated > 0 ) {
+						return inflated;
+					} else if ( inflater.needsDictionary() ) {
+						throw new ZipException("Entry [ " + entry.getName() + " ]: Inflater requires a dictionary");
+					}
+				}
+			} catch ( DataFormatException e ) {
+				String message = e.getMessage();
+				throw new ZipException( (message != null) ? message : "Invalid ZLIB data format" );
+			}
+		}
+
+		@Override
+		public int available() {
+			if ( closed ) {
+				return 0;
+			}
+			long available = ( isStored ? remaining : (entry.getSize() - inflater.getBytesWritten()) );
+			return (int) Math.min( Math.max(available, 0L), Integer.MAX_VALUE );
+		}
+
+		@Override
+		public void close() {
+			if ( !closed ) {
+				closed = true;
+				if ( inflater != null ) {
+					inflater.end();
+				}
+			}
+		}
+	}
+}
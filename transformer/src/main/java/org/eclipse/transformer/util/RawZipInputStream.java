@@ -0,0 +1,567 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Sequential reader of zip formatted data.
+ *
+ * Entries are read in the same manner as {@link java.util.zip.ZipInputStream}:
+ * After {@link #getNextEntry()}, the uncompressed entry data is read from this
+ * stream.
+ *
+ * In addition, the data of an entry may be copied to a {@link RawZipOutputStream}
+ * in compressed form, using {@link #transferRaw(RawZipOutputStream)}.  That
+ * avoids inflating the entry data, and deflating the data a second time when
+ * writing the data.
+ *
+ * Entries which place their sizes in a trailing data descriptor are still
+ * inflated while transferring raw data, since the inflater is the only way
+ * to locate the end of the compressed data.  The second deflate is still
+ * avoided.
+ */
+public class RawZipInputStream extends InputStream {
+	public static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	public static final int LOCAL_HEADER_SIZE = 30;
+
+	public static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+
+	public static final int ZIP64_EXTRA_ID = 0x0001;
+	public static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+	public RawZipInputStream(InputStream inputStream) {
+		this.inputStream = inputStream;
+
+		this.buffer = new byte[FileUtils.BUFFER_ADJUSTMENT];
+		this.position = 0;
+		this.limit = 0;
+
+		this.inflater = new Inflater(true);
+		this.crc = new CRC32();
+	}
+
+	//
+
+	private final InputStream inputStream;
+
+	private final byte[] buffer;
+	private int position;
+	private int limit;
+
+	private boolean fill() throws IOException {
+		int bytesRead = inputStream.read(buffer, 0, buffer.length); // throws IOException
+		if ( bytesRead == -1 ) {
+			position = 0;
+			limit = 0;
+			return false;
+		} else {
+			position = 0;
+			limit = bytesRead;
+			return true;
+		}
+	}
+
+	private void readFully(byte[] bytes, int offset, int count) throws IOException {
+		while ( count > 0 ) {
+			if ( (position == limit) && !fill() ) {
+				throw new EOFException("Unexpected end of zip data");
+			}
+			int available = limit - position;
+			int useCount = ( (count < available) ? count : available );
+			System.arraycopy(buffer, position, bytes, offset, useCount);
+			position += useCount;
+			offset += useCount;
+			count -= useCount;
+		}
+	}
+
+	private final byte[] scratch = new byte[LOCAL_HEADER_SIZE];
+
+	private int readInt() throws IOException {
+		readFully(scratch, 0, 4);
+		return getInt(scratch, 0);
+	}
+
+	private long readLong() throws IOException {
+		readFully(scratch, 0, 8);
+		return getLong(scratch, 0);
+	}
+
+	public static int getShort(byte[] bytes, int offset) {
+		return ( (bytes[offset] & 0xFF) | ((bytes[offset + 1] & 0xFF) << 8) );
+	}
+
+	public static int getInt(byte[] bytes, int offset) {
+		return ( getShort(bytes, offset) | (getShort(bytes, offset + 2) << 16) );
+	}
+
+	public static long getLong(byte[] bytes, int offset) {
+		return ( (getInt(bytes, offset) & 0xFFFFFFFFL) | (((long) getInt(bytes, offset + 4)) << 32) );
+	}
+
+	//
+
+	private final Inflater inflater;
+	private final CRC32 crc;
+
+	private RawZipEntry entry;
+	private boolean entryStarted;
+	private boolean entryEOF;
+	private boolean closed;
+
+	/** Count of bytes of the current entry not yet read: Stored entries only. */
+	private long remaining;
+
+	/** Count of compressed bytes of the current entry which have been read. */
+	private long compressedRead;
+
+	private boolean atEnd;
+
+	/**
+	 * Read the next entry header.  Any data not read from the current entry
+	 * is skipped.
+	 *
+	 * @return The next entry.  Null if no entries remain.
+	 *
+	 * @throws IOException Thrown if the read failed.
+	 */
+	public RawZipEntry getNextEntry() throws IOException {
+		ensureOpen();
+
+		if ( entry != null ) {
+			closeEntry(); // throws IOException
+		}
+		if ( atEnd ) {
+			return null;
+		}
+
+		if ( (limit - position) < 4 ) {
+			// Shift the partial signature to the front, then top up the buffer.
+			int available = limit - position;
+			System.arraycopy(buffer, position, buffer, 0, available);
+			position = 0;
+			limit = available;
+			while ( limit < 4 ) {
+				int bytesRead = inputStream.read(buffer, limit, buffer.length - limit); // throws IOException
+				if ( bytesRead == -1 ) {
+					break;
+				}
+				limit += bytesRead;
+			}
+			if ( limit < 4 ) {
+				atEnd = true;
+				return null;
+			}
+		}
+
+		if ( getInt(buffer, position) != LOCAL_HEADER_SIGNATURE ) {
+			// Central directory or other trailing data: No more entries.
+			atEnd = true;
+			return null;
+		}
+
+		readFully(scratch, 0, LOCAL_HEADER_SIZE);
+
+		int versionNeeded = getShort(scratch, 4);
+		int flag = getShort(scratch, 6);
+		int method = getShort(scratch, 8);
+		long dosTime = getInt(scratch, 10) & 0xFFFFFFFFL;
+		long headerCrc = getInt(scratch, 14) & 0xFFFFFFFFL;
+		long headerCompressedSize = getInt(scratch, 18) & 0xFFFFFFFFL;
+		long headerSize = getInt(scratch, 22) & 0xFFFFFFFFL;
+		int nameLength = getShort(scratch, 26);
+		int extraLength = getShort(scratch, 28);
+
+		byte[] nameBytes = new byte[nameLength];
+		readFully(nameBytes, 0, nameLength);
+
+		byte[] extra;
+		if ( extraLength == 0 ) {
+			extra = null;
+		} else {
+			extra = new byte[extraLength];
+			readFully(extra, 0, extraLength);
+		}
+
+		RawZipEntry nextEntry = new RawZipEntry( new String(nameBytes, StandardCharsets.UTF_8), nameBytes );
+		nextEntry.setVersionNeeded(versionNeeded);
+		nextEntry.setFlag(flag);
+		nextEntry.setMethod(method);
+		nextEntry.setTime(dosTime);
+		nextEntry.setExtra(extra);
+
+		if ( nextEntry.hasDataDescriptor() ) {
+			if ( method != RawZipEntry.DEFLATED ) {
+				throw new ZipException("Entry [ " + nextEntry.getName() + " ]: Only DEFLATED entries can have a data descriptor");
+			}
+
+		} else {
+			if ( (headerSize == ZIP64_MAGIC) || (headerCompressedSize == ZIP64_MAGIC) ) {
+				int zip64Offset = findExtra(extra, ZIP64_EXTRA_ID);
+				if ( zip64Offset != -1 ) {
+					int dataLength = getShort(extra, zip64Offset + 2);
+					int dataOffset = zip64Offset + 4;
+					if ( (headerSize == ZIP64_MAGIC) && (dataLength >= 8) ) {
+						headerSize = getLong(extra, dataOffset);
+						dataOffset += 8;
+						dataLength -= 8;
+					}
+					if ( (headerCompressedSize == ZIP64_MAGIC) && (dataLength >= 8) ) {
+						headerCompressedSize = getLong(extra, dataOffset);
+					}
+				}
+			}
+
+			nextEntry.setCrc(headerCrc);
+			nextEntry.setCompressedSize(headerCompressedSize);
+			nextEntry.setSize(headerSize);
+		}
+
+		entry = nextEntry;
+		entryStarted = false;
+		entryEOF = false;
+		remaining = ( (method == RawZipEntry.STORED) ? headerSize : 0L );
+		compressedRead = 0L;
+		crc.reset();
+		inflater.reset();
+
+		return entry;
+	}
+
+	/**
+	 * Locate a block of extra data.
+	 *
+	 * @param extra Extra data of an entry.  May be null.
+	 * @param id The ID of the block which is to be located.
+	 *
+	 * @return The offset to the block, which starts with the ID.
+	 *     -1 if the block is not present.
+	 */
+	public static int findExtra(byte[] extra, int id) {
+		if ( extra == null ) {
+			return -1;
+		}
+
+		int offset = 0;
+		while ( (offset + 4) <= extra.length ) {
+			int blockId = getShort(extra, offset);
+			int blockLength = getShort(extra, offset + 2);
+			if ( blockId == id ) {
+				return offset;
+			}
+			offset += 4 + blockLength;
+		}
+		return -1;
+	}
+
+	/**
+	 * Skip any remaining data of the current entry.
+	 *
+	 * @throws IOException Thrown if the skip failed.
+	 */
+	public void closeEntry() throws IOException {
+		ensureOpen();
+
+		if ( entry == null ) {
+			return;
+		}
+
+		if ( !entryEOF ) {
+			if ( !entry.hasDataDescriptor() && !entryStarted && (rawCapture == null) ) {
+				// Nothing was read: The compressed size gives the extent of the data.
+				skipFully( entry.getCompressedSize() );
+			} else {
+				byte[] skipBuffer = new byte[FileUtils.PAGE_SIZE];
+				while ( read(skipBuffer, 0, skipBuffer.length) != -1 ) {
+					// Empty
+				}
+			}
+		}
+
+		entry = null;
+	}
+
+	private void skipFully(long count) throws IOException {
+		while ( count > 0 ) {
+			if ( (position == limit) && !fill() ) {
+				throw new EOFException("Unexpected end of zip data");
+			}
+			int available = limit - position;
+			int useCount = ( (count < available) ? (int) count : available );
+			position += useCount;
+			count -= useCount;
+		}
+	}
+
+	//
+
+	private final byte[] single = new byte[1];
+
+	@Override
+	public int read() throws IOException {
+		return ( (read(single, 0, 1) == -1) ? -1 : (single[0] & 0xFF) );
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int count) throws IOException {
+		ensureOpen();
+
+		if ( (offset < 0) || (count < 0) || (count > bytes.length - offset) ) {
+			throw new IndexOutOfBoundsException();
+		} else if ( count == 0 ) {
+			return 0;
+		}
+
+		if ( (entry == null) || entryEOF ) {
+			return -1;
+		}
+		entryStarted = true;
+
+		if ( !entry.isSupportedMethod() ) {
+			throw new ZipException("Entry [ " + entry.getName() + " ]: Unsupported compression method [ " + entry.getMethod() + " ]");
+
+		} else if ( entry.getMethod() == RawZipEntry.STORED ) {
+			if ( remaining == 0L ) {
+				completeEntry(entry.getSize(), entry.getSize()); // throws IOException
+				return -1;
+			}
+			if ( (position == limit) && !fill() ) {
+				throw new EOFException("Unexpected end of zip data [ " + entry.getName() + " ]");
+			}
+			int available = limit - position;
+			if ( available > remaining ) {
+				available = (int) remaining;
+			}
+			if ( count > available ) {
+				count = available;
+			}
+			System.arraycopy(buffer, position, bytes, offset, count);
+			if ( rawCapture != null ) {
+				rawCapture.write(buffer, position, count); // throws IOException
+			}
+			crc.update(bytes, offset, count);
+			position += count;
+			remaining -= count;
+			if ( remaining == 0L ) {
+				completeEntry(entry.getSize(), entry.getSize()); // throws IOException
+			}
+			return count;
+
+		} else {
+			int inflated = inflate(bytes, offset, count); // throws IOException
+			if ( inflated > 0 ) {
+				crc.update(bytes, offset, inflated);
+				return inflated;
+			} else {
+				completeEntry(compressedRead, inflater.getBytesWritten()); // throws IOException
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * Inflate data of the current entry.  Answer zero when the
+	 * deflated data is completely consumed.
+	 */
+	private int inflate(byte[] bytes, int offset, int count) throws IOException {
+		try {
+			while ( true ) {
+				if ( inflater.finished() ) {
+					return 0;
+				}
+				if ( inflater.needsInput() ) {
+					if ( (position == limit) && !fill() ) {
+						throw new EOFException("Unexpected end of ZLIB input stream [ " + entry.getName() + " ]");
+					}
+					inflater.setInput(buffer, position, limit - position);
+				}
+
+				int inflated = inflater.inflate(bytes, offset, count); // throws DataFormatException
+
+				int nextPosition = limit - inflater.getRemaining();
+				if ( rawOutput != null ) {
+					rawOutput.write(buffer, position, nextPosition - position); // throws IOException
+				}
+				if ( rawCapture != null ) {
+					rawCapture.write(buffer, position, nextPosition - position); // throws IOException
+				}
+				compressedRead += nextPosition - position;
+				position = nextPosition;
+
+				if ( inflated > 0 ) {
+					return inflated;
+				} else if ( inflater.needsDictionary() ) {
+					throw new ZipException("Entry [ " + entry.getName() + " ]: Inflater requires a dictionary");
+				}
+			}
+		} catch ( DataFormatException e ) {
+			String message = e.getMessage();
+			throw new ZipException( (message != null) ? message : "Invalid ZLIB data format" );
+		}
+	}
+
+	/**
+	 * Complete the current entry: Read the data descriptor, if there is one,
+	 * and verify the sizes and CRC of the entry.
+	 */
+	private void completeEntry(long actualCompressedSize, long actualSize) throws IOException {
+		if ( entry.hasDataDescriptor() ) {
+			readDataDescriptor(actualCompressedSize, actualSize); // throws IOException
+		}
+
+		if ( entry.getCompressedSize() != actualCompressedSize ) {
+			throw new ZipException("Entry [ " + entry.getName() + " ]: Invalid compressed size [ " + entry.getCompressedSize() + " ] expected [ " + actualCompressedSize + " ]");
+		} else if ( entry.getSize() != actualSize ) {
+			throw new ZipException("Entry [ " + entry.getName() + " ]: Invalid size [ " + entry.getSize() + " ] expected [ " + actualSize + " ]");
+		}
+
+		if ( (rawOutput == null) && (entry.getCrc() != crc.getValue()) ) {
+			throw new ZipException("Entry [ " + entry.getName() + " ]: Invalid CRC [ 0x" + Long.toHexString(entry.getCrc()) + " ] expected [ 0x" + Long.toHexString(crc.getValue()) + " ]");
+		}
+
+		entryEOF = true;
+	}
+
+	private void readDataDescriptor(long actualCompressedSize, long actualSize) throws IOException {
+		long descriptorCrc = readInt() & 0xFFFFFFFFL;
+		if ( descriptorCrc == DATA_DESCRIPTOR_SIGNATURE ) {
+			descriptorCrc = readInt() & 0xFFFFFFFFL;
+		}
+		entry.setCrc(descriptorCrc);
+
+		if ( (actualCompressedSize >= ZIP64_MAGIC) || (actualSize >= ZIP64_MAGIC) ) {
+			entry.setCompressedSize( readLong() );
+			entry.setSize( readLong() );
+		} else {
+			entry.setCompressedSize( readInt() & 0xFFFFFFFFL );
+			entry.setSize( readInt() & 0xFFFFFFFFL );
+		}
+	}
+
+	//
+
+	/** Stream which receives compressed data while locating the end of an entry. */
+	private RawZipOutputStream rawOutput;
+
+	/** Stream which receives compressed data while the entry is read. */
+	private OutputStream rawCapture;
+
+	/**
+	 * Set a stream which receives the compressed data of the current entry
+	 * as the entry is read.  The current entry must not have been read.
+	 *
+	 * Reading the entry to its end, or closing the entry, provides all of
+	 * the compressed data of the entry to the capture stream.  After the
+	 * entry is closed, the entry has its CRC and sizes, and may be written
+	 * from the captured data using {@link RawZipOutputStream#putRawEntry(RawZipEntry)}.
+	 *
+	 * @param captureStream The stream which is to receive compressed data.
+	 *     Null to stop capturing compressed data.
+	 *
+	 * @throws IOException Thrown if the current entry was partially read.
+	 */
+	public void setRawCapture(OutputStream captureStream) throws IOException {
+		if ( (captureStream != null) && (entry != null) && entryStarted ) {
+			throw new ZipException("Entry [ " + entry.getName() + " ]: Cannot capture a partially read entry");
+		}
+		rawCapture = captureStream;
+	}
+
+	/**
+	 * Copy the current entry, including its header, to a zip output stream
+	 * without decompressing the entry data.  The current entry must not have
+	 * been read.
+	 *
+	 * The compressed data, CRC, and sizes of the entry are copied unchanged.
+	 *
+	 * @param zipOutputStream The stream which is to receive the entry.
+	 *
+	 * @return The count of compressed bytes which were copied.
+	 *
+	 * @throws IOException Thrown if the copy failed.
+	 */
+	public long transferRaw(RawZipOutputStream zipOutputStream) throws IOException {
+		ensureOpen();
+
+		if ( entry == null ) {
+			throw new ZipException("No current zip entry");
+		} else if ( entryStarted ) {
+			throw new ZipException("Entry [ " + entry.getName() + " ]: Cannot copy a partially read entry");
+		}
+
+		entryStarted = true;
+
+		zipOutputStream.putRawEntry(entry); // throws IOException
+
+		if ( !entry.hasDataDescriptor() ) {
+			long count = entry.getCompressedSize();
+			while ( count > 0 ) {
+				if ( (position == limit) && !fill() ) {
+					throw new EOFException("Unexpected end of zip data [ " + entry.getName() + " ]");
+				}
+				int available = limit - position;
+				int useCount = ( (count < available) ? (int) count : available );
+				zipOutputStream.write(buffer, position, useCount); // throws IOException
+				position += useCount;
+				count -= useCount;
+			}
+			entryEOF = true;
+
+		} else {
+			// The end of the compressed data is known only by inflating.
+			// Keep the deflated bytes which the inflater consumes.
+
+			rawOutput = zipOutputStream;
+			try {
+				byte[] inflateBuffer = new byte[FileUtils.BUFFER_ADJUSTMENT];
+				while ( inflate(inflateBuffer, 0, inflateBuffer.length) > 0 ) { // throws IOException
+					// Empty
+				}
+				completeEntry(compressedRead, inflater.getBytesWritten()); // throws IOException
+			} finally {
+				rawOutput = null;
+			}
+		}
+
+		zipOutputStream.closeEntry(); // throws IOException
+
+		long copied = entry.getCompressedSize();
+		entry = null;
+		return copied;
+	}
+
+	//
+
+	private void ensureOpen() throws IOException {
+		if ( closed ) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if ( !closed ) {
+			closed = true;
+			inflater.end();
+			inputStream.close();
+		}
+	}
+}
@@ -0,0 +1,722 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/**
+ * Sequential writer of zip formatted data.
+ *
+ * Entries are written in the same manner as {@link java.util.zip.ZipOutputStream}:
+ * After {@link #putNextEntry(RawZipEntry)}, the uncompressed entry data is written
+ * to this stream.
+ *
+ * In addition, entries may be written from already compressed data, using
+ * {@link #putRawEntry(RawZipEntry)}.  The data written for a raw entry is
+ * placed directly in the output.  The entry must supply the CRC and sizes
+ * of the data.
+ *
+ * Large deflated entries may be compressed in parallel, using a
+ * {@link ParallelDeflater}.  See {@link #setParallelDeflater(ParallelDeflater, int)}.
+ */
+public class RawZipOutputStream extends OutputStream {
+	public static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	public static final int CENTRAL_HEADER_SIZE = 46;
+
+	public static final int END_SIGNATURE = 0x06054b50;
+	public static final int END_SIZE = 22;
+
+	public static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	public static final int ZIP64_END_SIZE = 56;
+	public static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	public static final int ZIP64_LOCATOR_SIZE = 20;
+
+	public static final int VERSION_STORED = 10;
+	public static final int VERSION_DEFLATED = 20;
+	public static final int VERSION_ZIP64 = 45;
+
+	public RawZipOutputStream(OutputStream outputStream) {
+		this.outputStream = outputStream;
+		this.written = 0L;
+
+		this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		this.deflateBuffer = new byte[FileUtils.BUFFER_ADJUSTMENT];
+		this.crc = new CRC32();
+
+		this.header = new byte[RawZipInputStream.LOCAL_HEADER_SIZE + ZIP64_END_SIZE];
+
+		this.entries = new ArrayList<WrittenEntry>();
+		this.names = new HashSet<String>();
+	}
+
+	//
+
+	private final OutputStream outputStream;
+	private long written;
+
+	private void writeOutput(byte[] bytes, int offset, int count) throws IOException {
+		outputStream.write(bytes, offset, count); // throws IOException
+		written += count;
+	}
+
+	private final byte[] header;
+
+	private static void putShort(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) value;
+		bytes[offset + 1] = (byte) (value >>> 8);
+	}
+
+	private static void putInt(byte[] bytes, int offset, long value) {
+		putShort(bytes, offset, (int) value);
+		putShort(bytes, offset + 2, (int) (value >>> 16));
+	}
+
+	private static void putLong(byte[] bytes, int offset, long value) {
+		putInt(bytes, offset, value);
+		putInt(bytes, offset + 4, value >>> 32);
+	}
+
+	private static boolean isZip64(long value) {
+		return ( value >= RawZipInputStream.ZIP64_MAGIC );
+	}
+
+	/**
+	 * Answer extra data with any zip64 block removed.  Zip64 blocks
+	 * are generated as needed when writing headers.
+	 */
+	private static byte[] stripZip64(byte[] extra) {
+		if ( RawZipInputStream.findExtra(extra, RawZipInputStream.ZIP64_EXTRA_ID) == -1 ) {
+			return extra;
+		}
+
+		byte[] stripped = new byte[extra.length];
+		int strippedLength = 0;
+
+		int offset = 0;
+		while ( (offset + 4) <= extra.length ) {
+			int blockId = RawZipInputStream.getShort(extra, offset);
+			int blockLength = 4 + RawZipInputStream.getShort(extra, offset + 2);
+			if ( offset + blockLength > extra.length ) {
+				blockLength = extra.length - offset;
+			}
+			if ( blockId != RawZipInputStream.ZIP64_EXTRA_ID ) {
+				System.arraycopy(extra, offset, stripped, strippedLength, blockLength);
+				strippedLength += blockLength;
+			}
+			offset += blockLength;
+		}
+
+		if ( strippedLength == 0 ) {
+			return null;
+		}
+		byte[] result = new byte[strippedLength];
+		System.arraycopy(stripped, 0, result, 0, strippedLength);
+		return result;
+	}
+
+	//
+
+	private static class WrittenEntry {
+		public final RawZipEntry entry;
+		public final byte[] extra;
+		public final long offset;
+
+		public WrittenEntry(RawZipEntry entry, byte[] extra, long offset) {
+			this.entry = entry;
+			this.extra = extra;
+			this.offset = offset;
+		}
+	}
+
+	private final List<WrittenEntry> entries;
+	private final Set<String> names;
+
+	private static final int MODE_NONE = 0;
+	private static final int MODE_STORED = 1;
+	private static final int MODE_DEFLATED = 2;
+	private static final int MODE_RAW = 3;
+
+	private int mode;
+	private WrittenEntry current;
+	private long dataStart;
+	private long dataSize;
+
+	private final Deflater deflater;
+	private int level = Deflater.DEFAULT_COMPRESSION;
+	private final byte[] deflateBuffer;
+	private final CRC32 crc;
+
+	private void setLevel(int level) {
+		if ( level != this.level ) {
+			deflater.setLevel(level);
+			this.level = level;
+		}
+	}
+
+	private boolean finished;
+	private boolean closed;
+
+	// Deflated entries which are larger than a threshold are compressed
+	// in parallel.
+	//
+	// When a parallel deflater is set, the data of a deflated entry is held
+	// until the threshold is exceeded, then is passed to the parallel deflater.
+	// The data of an entry which does not exceed the threshold is compressed
+	// when the entry is closed, using the serial deflater.  The output of an
+	// entry which does not exceed the threshold is the same as the output when
+	// no parallel deflater is set.
+
+	private ParallelDeflater parallelDeflater;
+	private int parallelThreshold;
+
+	private boolean parallelActive;
+	private byte[] heldData;
+	private int heldCount;
+
+	private final OutputStream deflatedOutput = new OutputStream() {
+		@Override
+		public void write(int b) throws IOException {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int count) throws IOException {
+			writeOutput(bytes, offset, count); // throws IOException
+		}
+	};
+
+	/**
+	 * Set the deflater which is used to compress large entries.
+	 *
+	 * @param parallelDeflater The deflater used to compress large entries.
+	 *     Null to compress all entries using the calling thread.
+	 * @param parallelThreshold The size above which deflated entries are
+	 *     compressed by the parallel deflater.
+	 */
+	public void setParallelDeflater(ParallelDeflater parallelDeflater, int parallelThreshold) {
+		if ( parallelThreshold < 0 ) {
+			throw new IllegalArgumentException("Parallel deflate threshold [ " + parallelThreshold + " ] is negative");
+		}
+		this.parallelDeflater = parallelDeflater;
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	public ParallelDeflater getParallelDeflater() {
+		return parallelDeflater;
+	}
+
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	private void holdData(byte[] bytes, int offset, int count) throws IOException {
+		if ( parallelActive ) {
+			parallelDeflater.write(bytes, offset, count); // throws IOException
+			return;
+		}
+
+		if ( heldCount + count <= parallelThreshold ) {
+			if ( (heldData == null) || (heldCount + count > heldData.length) ) {
+				int newLength = ( (heldData == null) ? FileUtils.BUFFER_ADJUSTMENT : heldData.length );
+				while ( newLength < heldCount + count ) {
+					newLength *= 2;
+				}
+				newLength = Math.min(newLength, parallelThreshold);
+				byte[] newData = new byte[newLength];
+				if ( heldCount > 0 ) {
+					System.arraycopy(heldData, 0, newData, 0, heldCount);
+				}
+				heldData = newData;
+			}
+			System.arraycopy(bytes, offset, heldData, heldCount, count);
+			heldCount += count;
+			return;
+		}
+
+		parallelActive = true;
+		parallelDeflater.begin(level, deflatedOutput);
+		if ( heldCount > 0 ) {
+			parallelDeflater.write(heldData, 0, heldCount); // throws IOException
+			heldCount = 0;
+		}
+		parallelDeflater.write(bytes, offset, count); // throws IOException
+	}
+
+	/**
+	 * Begin writing a new entry.  Subsequent writes provide the uncompressed
+	 * entry data.
+	 *
+	 * A {@link RawZipEntry#STORED} entry must provide its size and CRC.
+	 * A {@link RawZipEntry#DEFLATED} entry is written with a trailing data
+	 * descriptor, using the compression level of the entry.
+	 *
+	 * @param entry The entry which is to be written.
+	 *
+	 * @throws IOException Thrown if the write failed.
+	 */
+	public void putNextEntry(RawZipEntry entry) throws IOException {
+		if ( !entry.isSupportedMethod() ) {
+			throw new ZipException("Entry [ " + entry.getName() + " ]: Unsupported compression method [ " + entry.getMethod() + " ]");
+		}
+
+		beginEntry(entry);
+
+		int flag = entry.getFlag() & RawZipEntry.FLAG_UTF8;
+
+		if ( entry.getMethod() == RawZipEntry.STORED ) {
+			if ( entry.getSize() == RawZipEntry.UNKNOWN ) {
+				throw new ZipException("Entry [ " + entry.getName() + " ]: STORED entry missing size");
+			} else if ( entry.getCrc() == RawZipEntry.UNKNOWN ) {
+				throw new ZipException("Entry [ " + entry.getName() + " ]: STORED entry missing CRC");
+			}
+			entry.setCompressedSize( entry.getSize() );
+			entry.setFlag(flag);
+			entry.setVersionNeeded(VERSION_STORED);
+			mode = MODE_STORED;
+
+		} else {
+			entry.setFlag(flag | RawZipEntry.FLAG_DATA_DESCRIPTOR);
+			entry.setVersionNeeded(VERSION_DEFLATED);
+			setLevel( entry.getLevel() );
+			mode = MODE_DEFLATED;
+		}
+
+		if ( entry.getTime() == RawZipEntry.UNKNOWN ) {
+			entry.setTime( RawZipEntry.toDosTime(System.currentTimeMillis()) );
+		}
+
+		writeLocalHeader(entry); // throws IOException
+	}
+
+	/**
+	 * Begin writing a new entry from compressed data.  Subsequent writes
+	 * provide the compressed entry data, which is written unchanged.
+	 *
+	 * If the entry has a data descriptor, the CRC and sizes of the entry
+	 * must be set before closing the entry.  Otherwise, the CRC and sizes
+	 * must be set before putting the entry.
+	 *
+	 * @param entry The entry which is to be written.
+	 *
+	 * @throws IOException Thrown if the write failed.
+	 */
+	public void putRawEntry(RawZipEntry entry) throws IOException {
+		beginEntry(entry);
+
+		if ( !entry.hasDataDescriptor() ) {
+			if ( (entry.getSize() == RawZipEntry.UNKNOWN) ||
+				 (entry.getCompressedSize() == RawZipEntry.UNKNOWN) ||
+				 (entry.getCrc() == RawZipEntry.UNKNOWN) ) {
+				throw new ZipException("Entry [ " + entry.getName() + " ]: Raw entry missing size or CRC");
+			}
+		}
+		mode = MODE_RAW;
+
+		writeLocalHeader(entry); // throws IOException
+	}
+
+	private void beginEntry(RawZipEntry entry) throws IOException {
+		ensureOpen();
+
+		if ( mode != MODE_NONE ) {
+			closeEntry(); // throws IOException
+		}
+		if ( !names.add(entry.getName()) ) {
+			throw new ZipException("Duplicate entry [ " + entry.getName() + " ]");
+		}
+
+		current = new WrittenEntry( entry, stripZip64(entry.getExtra()), written );
+		dataSize = 0L;
+		crc.reset();
+		heldCount = 0;
+	}
+
+	private void writeLocalHeader(RawZipEntry entry) throws IOException {
+		byte[] nameBytes = entry.getNameBytes();
+		byte[] extra = current.extra;
+
+		long size;
+		long compressedSize;
+		long entryCrc;
+		if ( entry.hasDataDescriptor() ) {
+			size = 0L;
+			compressedSize = 0L;
+			entryCrc = 0L;
+		} else {
+			size = entry.getSize();
+			compressedSize = entry.getCompressedSize();
+			entryCrc = entry.getCrc();
+		}
+
+		boolean useZip64 = ( isZip64(size) || isZip64(compressedSize) );
+
+		int versionNeeded = entry.getVersionNeeded();
+		if ( useZip64 && (versionNeeded < VERSION_ZIP64) ) {
+			versionNeeded = VERSION_ZIP64;
+		}
+
+		int extraLength = ( (extra == null) ? 0 : extra.length );
+		if ( useZip64 ) {
+			extraLength += 20;
+		}
+
+		putInt(header, 0, RawZipInputStream.LOCAL_HEADER_SIGNATURE);
+		putShort(header, 4, versionNeeded);
+		putShort(header, 6, entry.getFlag());
+		putShort(header, 8, entry.getMethod());
+		putInt(header, 10, entry.getTime());
+		putInt(header, 14, entryCrc);
+		putInt(header, 18, ( useZip64 ? RawZipInputStream.ZIP64_MAGIC : compressedSize ));
+		putInt(header, 22, ( useZip64 ? RawZipInputStream.ZIP64_MAGIC : size ));
+		putShort(header, 26, nameBytes.length);
+		putShort(header, 28, extraLength);
+		writeOutput(header, 0, RawZipInputStream.LOCAL_HEADER_SIZE);
+
+		writeOutput(nameBytes, 0, nameBytes.length);
+
+		if ( useZip64 ) {
+			putShort(header, 0, RawZipInputStream.ZIP64_EXTRA_ID);
+			putShort(header, 2, 16);
+			putLong(header, 4, size);
+			putLong(header, 12, compressedSize);
+			writeOutput(header, 0, 20);
+		}
+		if ( extra != null ) {
+			writeOutput(extra, 0, extra.length);
+		}
+
+		dataStart = written;
+	}
+
+	//
+
+	private final byte[] single = new byte[1];
+
+	@Override
+	public void write(int b) throws IOException {
+		single[0] = (byte) b;
+		write(single, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int count) throws IOException {
+		ensureOpen();
+
+		if ( (offset < 0) || (count < 0) || (count > bytes.length - offset) ) {
+			throw new IndexOutOfBoundsException();
+		} else if ( count == 0 ) {
+			return;
+		}
+
+		switch ( mode ) {
+			case MODE_STORED:
+				crc.update(bytes, offset, count);
+				dataSize += count;
+				writeOutput(bytes, offset, count); // throws IOException
+				break;
+
+			case MODE_DEFLATED:
+				dataSize += count;
+				if ( parallelDeflater != null ) {
+					holdData(bytes, offset, count); // throws IOException
+				} else {
+					crc.update(bytes, offset, count);
+					deflateData(bytes, offset, count); // throws IOException
+				}
+				break;
+
+			case MODE_RAW:
+				dataSize += count;
+				writeOutput(bytes, offset, count); // throws IOException
+				break;
+
+			default:
+				throw new ZipException("No current zip entry");
+		}
+	}
+
+	private void deflateData(byte[] bytes, int offset, int count) throws IOException {
+		deflater.setInput(bytes, offset, count);
+		while ( !deflater.needsInput() ) {
+			deflate(); // throws IOException
+		}
+	}
+
+	private void deflate() throws IOException {
+		int deflated = deflater.deflate(deflateBuffer, 0, deflateBuffer.length);
+		if ( deflated > 0 ) {
+			writeOutput(deflateBuffer, 0, deflated); // throws IOException
+		}
+	}
+
+	/**
+	 * Complete the current entry.
+	 *
+	 * @throws IOException Thrown if the write failed, or if the entry data
+	 *     does not match the entry CRC and sizes.
+	 */
+	public void closeEntry() throws IOException {
+		ensureOpen();
+
+		if ( mode == MODE_NONE ) {
+			return;
+		}
+
+		RawZipEntry entry = current.entry;
+
+		switch ( mode ) {
+			case MODE_STORED:
+				if ( entry.getSize() != dataSize ) {
+					throw new ZipException("Entry [ " + entry.getName() + " ]: Invalid size [ " + entry.getSize() + " ] expected [ " + dataSize + " ]");
+				} else if ( entry.getCrc() != crc.getValue() ) {
+					throw new ZipException("Entry [ " + entry.getName() + " ]: Invalid CRC [ 0x" + Long.toHexString(entry.getCrc()) + " ] expected [ 0x" + Long.toHexString(crc.getValue()) + " ]");
+				}
+				break;
+
+			case MODE_DEFLATED:
+				long entryCrc;
+				if ( parallelActive ) {
+					parallelActive = false;
+					parallelDeflater.finish(); // throws IOException
+					entryCrc = parallelDeflater.getCrc();
+
+				} else {
+					if ( heldCount > 0 ) {
+						crc.update(heldData, 0, heldCount);
+						deflateData(heldData, 0, heldCount); // throws IOException
+						heldCount = 0;
+					}
+					deflater.finish();
+					while ( !deflater.finished() ) {
+						deflate(); // throws IOException
+					}
+					deflater.reset();
+					entryCrc = crc.getValue();
+				}
+				entry.setSize(dataSize);
+				entry.setCompressedSize(written - dataStart);
+				entry.setCrc(entryCrc);
+
+				writeDataDescriptor(entry); // throws IOException
+				break;
+
+			case MODE_RAW:
+				if ( entry.getCompressedSize() != dataSize ) {
+					throw new ZipException("Entry [ " + entry.getName() + " ]: Invalid compressed size [ " + entry.getCompressedSize() + " ] expected [ " + dataSize + " ]");
+				}
+				if ( entry.hasDataDescriptor() ) {
+					writeDataDescriptor(entry); // throws IOException
+				}
+				break;
+
+			default:
+				throw new IllegalStateException("Unknown mode [ " + mode + " ]");
+		}
+
+		entries.add(current);
+		current = null;
+		mode = MODE_NONE;
+	}
+
+	private void writeDataDescriptor(RawZipEntry entry) throws IOException {
+		putInt(header, 0, RawZipInputStream.DATA_DESCRIPTOR_SIGNATURE);
+		putInt(header, 4, entry.getCrc());
+
+		if ( isZip64(entry.getCompressedSize()) || isZip64(entry.getSize()) ) {
+			putLong(header, 8, entry.getCompressedSize());
+			putLong(header, 16, entry.getSize());
+			writeOutput(header, 0, 24);
+		} else {
+			putInt(header, 8, entry.getCompressedSize());
+			putInt(header, 12, entry.getSize());
+			writeOutput(header, 0, 16);
+		}
+	}
+
+	//
+
+	/**
+	 * Complete the current entry, then write the central directory.
+	 * The underlying stream is not closed.
+	 *
+	 * @throws IOException Thrown if the write failed.
+	 */
+	public void finish() throws IOException {
+		ensureOpen();
+
+		if ( finished ) {
+			return;
+		}
+		if ( mode != MODE_NONE ) {
+			closeEntry(); // throws IOException
+		}
+
+		long centralStart = written;
+		for ( WrittenEntry writtenEntry : entries ) {
+			writeCentralHeader(writtenEntry); // throws IOException
+		}
+		long centralSize = written - centralStart;
+
+		int count = entries.size();
+
+		if ( (count >= 0xFFFF) || isZip64(centralStart) || isZip64(centralSize) ) {
+			long zip64EndStart = written;
+
+			putInt(header, 0, ZIP64_END_SIGNATURE);
+			putLong(header, 4, ZIP64_END_SIZE - 12);
+			putShort(header, 12, VERSION_ZIP64);
+			putShort(header, 14, VERSION_ZIP64);
+			putInt(header, 16, 0);
+			putInt(header, 20, 0);
+			putLong(header, 24, count);
+			putLong(header, 32, count);
+			putLong(header, 40, centralSize);
+			putLong(header, 48, centralStart);
+			writeOutput(header, 0, ZIP64_END_SIZE);
+
+			putInt(header, 0, ZIP64_LOCATOR_SIGNATURE);
+			putInt(header, 4, 0);
+			putLong(header, 8, zip64EndStart);
+			putInt(header, 16, 1);
+			writeOutput(header, 0, ZIP64_LOCATOR_SIZE);
+		}
+
+		int endCount = ( (count >= 0xFFFF) ? 0xFFFF : count );
+
+		putInt(header, 0, END_SIGNATURE);
+		putShort(header, 4, 0);
+		putShort(header, 6, 0);
+		putShort(header, 8, endCount);
+		putShort(header, 10, endCount);
+		putInt(header, 12, ( isZip64(centralSize) ? RawZipInputStream.ZIP64_MAGIC : centralSize ));
+		putInt(header, 16, ( isZip64(centralStart) ? RawZipInputStream.ZIP64_MAGIC : centralStart ));
+		putShort(header, 20, 0);
+		writeOutput(header, 0, END_SIZE);
+
+		outputStream.flush();
+
+		finished = true;
+	}
+
+	private void writeCentralHeader(WrittenEntry writtenEntry) throws IOException {
+		RawZipEntry entry = writtenEntry.entry;
+		byte[] nameBytes = entry.getNameBytes();
+		byte[] extra = writtenEntry.extra;
+
+		long size = entry.getSize();
+		long compressedSize = entry.getCompressedSize();
+		long offset = writtenEntry.offset;
+
+		int zip64Length = 0;
+		if ( isZip64(size) ) {
+			zip64Length += 8;
+		}
+		if ( isZip64(compressedSize) ) {
+			zip64Length += 8;
+		}
+		if ( isZip64(offset) ) {
+			zip64Length += 8;
+		}
+
+		int versionNeeded = entry.getVersionNeeded();
+		if ( (zip64Length > 0) && (versionNeeded < VERSION_ZIP64) ) {
+			versionNeeded = VERSION_ZIP64;
+		}
+
+		int extraLength = ( (extra == null) ? 0 : extra.length );
+		if ( zip64Length > 0 ) {
+			extraLength += 4 + zip64Length;
+		}
+
+		putInt(header, 0, CENTRAL_HEADER_SIGNATURE);
+		putShort(header, 4, versionNeeded);
+		putShort(header, 6, versionNeeded);
+		putShort(header, 8, entry.getFlag());
+		putShort(header, 10, entry.getMethod());
+		putInt(header, 12, entry.getTime());
+		putInt(header, 16, entry.getCrc());
+		putInt(header, 20, ( isZip64(compressedSize) ? RawZipInputStream.ZIP64_MAGIC : compressedSize ));
+		putInt(header, 24, ( isZip64(size) ? RawZipInputStream.ZIP64_MAGIC : size ));
+		putShort(header, 28, nameBytes.length);
+		putShort(header, 30, extraLength);
+		putShort(header, 32, 0); // Comment length
+		putShort(header, 34, 0); // Disk number
+		putShort(header, 36, 0); // Internal attributes
+		putInt(header, 38, 0); // External attributes
+		putInt(header, 42, ( isZip64(offset) ? RawZipInputStream.ZIP64_MAGIC : offset ));
+		writeOutput(header, 0, CENTRAL_HEADER_SIZE);
+
+		writeOutput(nameBytes, 0, nameBytes.length);
+
+		if ( zip64Length > 0 ) {
+			putShort(header, 0, RawZipInputStream.ZIP64_EXTRA_ID);
+			putShort(header, 2, zip64Length);
+			int zip64Offset = 4;
+			if ( isZip64(size) ) {
+				putLong(header, zip64Offset, size);
+				zip64Offset += 8;
+			}
+			if ( isZip64(compressedSize) ) {
+				putLong(header, zip64Offset, compressedSize);
+				zip64Offset += 8;
+			}
+			if ( isZip64(offset) ) {
+				putLong(header, zip64Offset, offset);
+				zip64Offset += 8;
+			}
+			writeOutput(header, 0, zip64Offset);
+		}
+		if ( extra != null ) {
+			writeOutput(extra, 0, extra.length);
+		}
+	}
+
+	//
+
+	private void ensureOpen() throws IOException {
+		if ( closed ) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		outputStream.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if ( !closed ) {
+			try {
+				finish(); // throws IOException
+			} finally {
+				closed = true;
+				if ( parallelActive ) {
+					parallelActive = false;
+					parallelDeflater.cancel();
+				}
+				heldData = null;
+				deflater.end();
+				outputStream.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,270 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.transformer.TransformProperties;
+
+/**
+ * Compiled matcher of resource selections.
+ *
+ * A matcher is built once from the selections which were processed by
+ * {@link TransformProperties#processSelections}:
+ * Exact names, names with a leading wildcard, names with a trailing wildcard,
+ * and names with leading and trailing wildcards.  Exact names are matched
+ * using a hash set.  Names with a leading wildcard are matched by walking a
+ * trie of the reversed names from the end of the resource name.  Names with
+ * a trailing wildcard are matched by walking a trie from the start of the
+ * resource name.  Names with both wildcards are matched in a single pass
+ * (Aho-Corasick).  The time to match a resource name is proportional to the
+ * length of the resource name, and does not depend on the number of
+ * selections.
+ *
+ * Matchers are immutable, and may be shared between threads.
+ */
+public class SelectionMatcher {
+	/**
+	 * Create a matcher of processed selections.
+	 *
+	 * @param exact Selections which must match the entire resource name.
+	 * @param head Selections which must match the end of the resource name.
+	 *     These are the selections which had a leading wildcard.
+	 * @param tail Selections which must match the start of the resource name.
+	 *     These are the selections which had a trailing wildcard.
+	 * @param any Selections which may match anywhere in the resource name.
+	 *     These are the selections which had both leading and trailing
+	 *     wildcards.
+	 */
+	public SelectionMatcher(Set<String> exact, Set<String> head, Set<String> tail, Set<String> any) {
+		this.exact = new HashSet<String>(exact);
+		this.head = new Trie(head, Trie.REVERSED);
+		this.tail = new Trie(tail, Trie.FORWARD);
+		this.any = new Trie(any, Trie.CONTAINED);
+	}
+
+	private final Set<String> exact;
+	private final Trie head;
+	private final Trie tail;
+	private final Trie any;
+
+	public boolean isEmpty() {
+		return ( exact.isEmpty() && head.isEmpty() && tail.isEmpty() && any.isEmpty() );
+	}
+
+	/**
+	 * Answer the selection which matches a resource name.  Exact selections
+	 * are tried first, then selections with a leading wildcard, then
+	 * selections with a trailing wildcard, then selections with leading and
+	 * trailing wildcards.
+	 *
+	 * @param resourceName The resource name which is to be matched.
+	 *
+	 * @return The matching selection, with its wildcards.  Null if no
+	 *     selection matches the resource name.
+	 */
+	public String match(String resourceName) {
+		if ( exact.contains(resourceName) ) {
+			return resourceName;
+		}
+
+		String selection = head.matchEnd(resourceName);
+		if ( selection == null ) {
+			selection = tail.matchStart(resourceName);
+			if ( selection == null ) {
+				selection = any.matchAnywhere(resourceName);
+			}
+		}
+		return selection;
+	}
+
+	/**
+	 * Trie of selections.  The children of each state are stored as sorted
+	 * labels, which are searched using a binary search.  Each state which ends
+	 * a selection stores that selection, with its wildcards.
+	 *
+	 * A trie of selections which match anywhere has failure links, and each
+	 * state which does not end a selection stores the selection of its failure
+	 * state, if any.
+	 */
+	private static final class Trie {
+		public static final int FORWARD = 0;
+		public static final int REVERSED = 1;
+		public static final int CONTAINED = 2;
+
+		private final char[][] labels;
+		private final int[][] targets;
+		private final String[] selections;
+		private final int[] failures;
+
+		public Trie(Collection<String> keys, int matchType) {
+			List<Map<Character, Integer>> children = new ArrayList<Map<Character, Integer>>();
+			List<String> stateSelections = new ArrayList<String>();
+			children.add( new HashMap<Character, Integer>() );
+			stateSelections.add(null);
+
+			for ( String key : keys ) {
+				int keyLength = key.length();
+				int state = 0;
+				for ( int charNo = 0; charNo < keyLength; charNo++ ) {
+					char c = key.charAt( (matchType == REVERSED) ? (keyLength - charNo - 1) : charNo );
+					Integer target = children.get(state).get( Character.valueOf(c) );
+					if ( target == null ) {
+						target = Integer.valueOf( children.size() );
+						children.get(state).put( Character.valueOf(c), target );
+						children.add( new HashMap<Character, Integer>() );
+						stateSelections.add(null);
+					}
+					state = target.intValue();
+				}
+
+				String selection;
+				if ( matchType == REVERSED ) {
+					selection = TransformProperties.RESOURCE_WILDCARD + key;
+				} else if ( matchType == FORWARD ) {
+					selection = key + TransformProperties.RESOURCE_WILDCARD;
+				} else {
+					selection = TransformProperties.RESOURCE_WILDCARD + key + TransformProperties.RESOURCE_WILDCARD;
+				}
+				stateSelections.set(state, selection);
+			}
+
+			int numStates = children.size();
+			this.labels = new char[numStates][];
+			this.targets = new int[numStates][];
+			this.selections = stateSelections.toArray( new String[numStates] );
+
+			for ( int state = 0; state < numStates; state++ ) {
+				Map<Character, Integer> stateChildren = children.get(state);
+				char[] stateLabels = new char[ stateChildren.size() ];
+				int labelNo = 0;
+				for ( Character label : stateChildren.keySet() ) {
+					stateLabels[labelNo++] = label.charValue();
+				}
+				Arrays.sort(stateLabels);
+
+				int[] stateTargets = new int[ stateLabels.length ];
+				for ( labelNo = 0; labelNo < stateLabels.length; labelNo++ ) {
+					stateTargets[labelNo] = stateChildren.get( Character.valueOf(stateLabels[labelNo]) ).intValue();
+				}
+
+				this.labels[state] = stateLabels;
+				this.targets[state] = stateTargets;
+			}
+
+			this.failures = ( (matchType == CONTAINED) ? computeFailures() : null );
+		}
+
+		/**
+		 * Compute the failure link of each state, in breadth first order, and
+		 * propagate the selection of each failure state to states which do not
+		 * end a selection.
+		 *
+		 * @return The failure links of the states.
+		 */
+		private int[] computeFailures() {
+			int numStates = labels.length;
+			int[] useFailures = new int[numStates];
+
+			int[] queue = new int[numStates];
+			int queueHead = 0;
+			int queueTail = 0;
+
+			for ( int target : targets[0] ) {
+				useFailures[target] = 0;
+				queue[queueTail++] = target;
+			}
+
+			while ( queueHead < queueTail ) {
+				int state = queue[queueHead++];
+				if ( selections[state] == null ) {
+					selections[state] = selections[ useFailures[state] ];
+				}
+
+				char[] stateLabels = labels[state];
+				int[] stateTargets = targets[state];
+				for ( int labelNo = 0; labelNo < stateLabels.length; labelNo++ ) {
+					char c = stateLabels[labelNo];
+					int failure = useFailures[state];
+					int failureTarget;
+					while ( ((failureTarget = getTarget(failure, c)) == -1) && (failure != 0) ) {
+						failure = useFailures[failure];
+					}
+					useFailures[ stateTargets[labelNo] ] = ( (failureTarget == -1) ? 0 : failureTarget );
+					queue[queueTail++] = stateTargets[labelNo];
+				}
+			}
+
+			return useFailures;
+		}
+
+		public boolean isEmpty() {
+			return ( (labels[0].length == 0) && (selections[0] == null) );
+		}
+
+		private int getTarget(int state, char c) {
+			int labelNo = Arrays.binarySearch(labels[state], c);
+			return ( (labelNo < 0) ? -1 : targets[state][labelNo] );
+		}
+
+		public String matchStart(String name) {
+			int state = 0;
+			int nameLength = name.length();
+			for ( int charNo = 0; charNo < nameLength; charNo++ ) {
+				if ( selections[state] != null ) {
+					return selections[state];
+				}
+				if ( (state = getTarget(state, name.charAt(charNo))) == -1 ) {
+					return null;
+				}
+			}
+			return selections[state];
+		}
+
+		public String matchEnd(String name) {
+			int state = 0;
+			for ( int charNo = name.length() - 1; charNo >= 0; charNo-- ) {
+				if ( selections[state] != null ) {
+					return selections[state];
+				}
+				if ( (state = getTarget(state, name.charAt(charNo))) == -1 ) {
+					return null;
+				}
+			}
+			return selections[state];
+		}
+
+		public String matchAnywhere(String name) {
+			int state = 0;
+			int nameLength = name.length();
+			for ( int charNo = 0; charNo < nameLength; charNo++ ) {
+				if ( selections[state] != null ) {
+					return selections[state];
+				}
+				char c = name.charAt(charNo);
+				int target;
+				while ( ((target = getTarget(state, c)) == -1) && (state != 0) ) {
+					state = failures[state];
+				}
+				state = ( (target == -1) ? 0 : target );
+			}
+			return selections[state];
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Output stream which retains the written data, and which computes the
+ * CRC and the size of the written data.
+ *
+ * Data is retained in memory until the size of the data exceeds a threshold,
+ * after which the data is moved to a temporary file.  The temporary file is
+ * deleted when the buffer is closed.
+ *
+ * Used to write STORED zip entries, which require their CRC and size
+ * before their data is written.
+ */
+public class SpillBuffer extends OutputStream {
+	public static final int DEFAULT_SPILL_THRESHOLD = 16 * 1024 * 1024;
+
+	public static final int MIN_CHUNK_SIZE = FileUtils.PAGE_SIZE;
+	public static final int MAX_CHUNK_SIZE = 1024 * 1024;
+
+	public SpillBuffer(String name) {
+		this(name, DEFAULT_SPILL_THRESHOLD);
+	}
+
+	public SpillBuffer(String name, int spillThreshold) {
+		this.name = name;
+		this.spillThreshold = spillThreshold;
+
+		this.crc = new CRC32();
+		this.size = 0L;
+
+		this.chunks = new ArrayList<byte[]>();
+		this.lastChunkUsed = 0;
+	}
+
+	//
+
+	private final String name;
+	private final int spillThreshold;
+
+	public String getName() {
+		return name;
+	}
+
+	//
+
+	private final CRC32 crc;
+	private long size;
+
+	public long getCrc() {
+		return crc.getValue();
+	}
+
+	public long size() {
+		return size;
+	}
+
+	//
+
+	// Data is retained in chunks, which avoids copying data when growing the
+	// buffer.  Chunk sizes double up to a maximum chunk size, which keeps the
+	// buffer small for small data.
+
+	private final List<byte[]> chunks;
+	private int lastChunkUsed;
+
+	private File spillFile;
+	private OutputStream spillStream;
+
+	public boolean isSpilled() {
+		return ( spillFile != null );
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write( new byte[] { (byte) b }, 0, 1 );
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int count) throws IOException {
+		if ( (offset < 0) || (count < 0) || (count > bytes.length - offset) ) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		crc.update(bytes, offset, count);
+		size += count;
+
+		if ( (spillStream == null) && (size > spillThreshold) ) {
+			spill(); // throws IOException
+		}
+
+		if ( spillStream != null ) {
+			spillStream.write(bytes, offset, count); // throws IOException
+			return;
+		}
+
+		while ( count > 0 ) {
+			byte[] lastChunk = ( chunks.isEmpty() ? null : chunks.get(chunks.size() - 1) );
+			if ( (lastChunk == null) || (lastChunkUsed == lastChunk.length) ) {
+				int chunkSize = ( (lastChunk == null) ? MIN_CHUNK_SIZE : Math.min(lastChunk.length * 2, MAX_CHUNK_SIZE) );
+				chunks.add( lastChunk = new byte[chunkSize] );
+				lastChunkUsed = 0;
+			}
+
+			int copyCount = Math.min(count, lastChunk.length - lastChunkUsed);
+			System.arraycopy(bytes, offset, lastChunk, lastChunkUsed, copyCount);
+			lastChunkUsed += copyCount;
+
+			offset += copyCount;
+			count -= copyCount;
+		}
+	}
+
+	private void spill() throws IOException {
+		spillFile = File.createTempFile("transformer", ".spill"); // throws IOException
+		spillStream = new BufferedOutputStream( new FileOutputStream(spillFile), FileUtils.BUFFER_ADJUSTMENT );
+		// 'new FileOutputStream' throws IOException
+
+		writeChunks(spillStream); // throws IOException
+
+		chunks.clear();
+		lastChunkUsed = 0;
+	}
+
+	private void writeChunks(OutputStream outputStream) throws IOException {
+		int numChunks = chunks.size();
+		for ( int chunkNo = 0; chunkNo < numChunks; chunkNo++ ) {
+			byte[] chunk = chunks.get(chunkNo);
+			int chunkUsed = ( (chunkNo == numChunks - 1) ? lastChunkUsed : chunk.length );
+			outputStream.write(chunk, 0, chunkUsed); // throws IOException
+		}
+	}
+
+	/**
+	 * Write the retained data to an output stream.
+	 *
+	 * @param outputStream The stream which is to receive the data.
+	 * @param buffer A buffer to use to transfer data from a temporary file.
+	 *
+	 * @throws IOException Thrown if the data could not be read or written.
+	 */
+	public void writeTo(OutputStream outputStream, byte[] buffer) throws IOException {
+		if ( spillStream == null ) {
+			writeChunks(outputStream); // throws IOException
+
+		} else {
+			spillStream.flush(); // throws IOException
+			try ( InputStream spillInput = new FileInputStream(spillFile) ) { // throws IOException
+				FileUtils.transfer(spillInput, outputStream, buffer); // throws IOException
+			}
+		}
+	}
+
+	/**
+	 * Release the retained data, and delete the temporary file, if one
+	 * was created.
+	 *
+	 * @throws IOException Thrown if the temporary file could not be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		chunks.clear();
+		lastChunkUsed = 0;
+
+		if ( spillStream != null ) {
+			try {
+				spillStream.close(); // throws IOException
+			} finally {
+				spillStream = null;
+				if ( !spillFile.delete() ) {
+					spillFile.deleteOnExit();
+				}
+			}
+		}
+	}
+}
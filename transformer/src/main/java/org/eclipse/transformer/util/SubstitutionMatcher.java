@@ -0,0 +1,448 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled matcher of text substitutions.
+ *
+ * Substitutions have sequential semantics: The substitutions are applied one
+ * after another, in the iteration order of the substitution table.  Each
+ * substitution replaces the occurrences of its key from left to right, and
+ * applies to the text produced by the prior substitutions.
+ *
+ * The matcher obtains the same result using fewer passes.  The substitutions
+ * are divided into stages of consecutive substitutions which cannot interact:
+ *
+ * <ul>
+ * <li>No key of a stage can overlap an occurrence of another key of the
+ *     stage.</li>
+ * <li>No key of a stage can overlap the value of an earlier substitution of
+ *     the stage, and no earlier value of the stage is empty.</li>
+ * </ul>
+ *
+ * Within a stage, the occurrences of the keys are disjoint, and no
+ * substitution can match text placed by another substitution.  Applying the
+ * keys of the stage together, in one left-to-right pass (Aho-Corasick), is the
+ * same as applying them one after another.  Substitutions which interact are
+ * placed in later stages.  A key which contains an earlier key of its stage
+ * can never match, and is omitted.
+ *
+ * Matchers are immutable, and may be shared between threads.
+ */
+public class SubstitutionMatcher {
+
+	/**
+	 * Tell if occurrences of two strings can overlap in some text: Either
+	 * string contains the other, or a proper suffix of either string is a
+	 * prefix of the other.
+	 *
+	 * @param first A non-empty string.
+	 * @param second Another non-empty string.
+	 *
+	 * @return True or false telling if occurrences of the strings can overlap.
+	 */
+	public static boolean canOverlap(String first, String second) {
+		if ( first.contains(second) || second.contains(first) ) {
+			return true;
+		} else {
+			return ( suffixIsPrefix(first, second) || suffixIsPrefix(second, first) );
+		}
+	}
+
+	private static boolean suffixIsPrefix(String first, String second) {
+		int firstLen = first.length();
+		int maxLen = Math.min(firstLen, second.length()) - 1;
+		for ( int overlapLen = 1; overlapLen <= maxLen; overlapLen++ ) {
+			if ( first.regionMatches(firstLen - overlapLen, second, 0, overlapLen) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//
+
+	/**
+	 * A single pass matcher of substitutions which cannot interact.
+	 */
+	private static class Stage {
+		public Stage(List<String> keys, List<String> values) {
+			List<Map<Character, Integer>> buildTransitions = new ArrayList<Map<Character, Integer>>();
+			List<String> buildValues = new ArrayList<String>();
+			List<Integer> buildLengths = new ArrayList<Integer>();
+
+			buildTransitions.add( new HashMap<Character, Integer>() );
+			buildValues.add(null);
+			buildLengths.add( Integer.valueOf(0) );
+
+			int numKeys = keys.size();
+			for ( int keyNo = 0; keyNo < numKeys; keyNo++ ) {
+				String key = keys.get(keyNo);
+				int keyLen = key.length();
+
+				int state = 0;
+				for ( int charNo = 0; charNo < keyLen; charNo++ ) {
+					Character nextChar = Character.valueOf( key.charAt(charNo) );
+					Map<Character, Integer> transitions = buildTransitions.get(state);
+					Integer nextState = transitions.get(nextChar);
+					if ( nextState == null ) {
+						nextState = Integer.valueOf( buildTransitions.size() );
+						buildTransitions.add( new HashMap<Character, Integer>() );
+						buildValues.add(null);
+						buildLengths.add( Integer.valueOf(charNo + 1) );
+						transitions.put(nextChar, nextState);
+					}
+					state = nextState.intValue();
+				}
+
+				buildValues.set( state, values.get(keyNo) );
+			}
+
+			int numStates = buildTransitions.size();
+
+			this.singleKey = ( (numKeys == 1) ? keys.get(0) : null );
+			this.singleValue = ( (numKeys == 1) ? values.get(0) : null );
+
+			this.labels = new char[numStates][];
+			this.targets = new int[numStates][];
+			this.values = buildValues.toArray( new String[numStates] );
+			this.lengths = new int[numStates];
+			this.failures = new int[numStates];
+
+			for ( int state = 0; state < numStates; state++ ) {
+				Map<Character, Integer> transitions = buildTransitions.get(state);
+				char[] stateLabels = new char[ transitions.size() ];
+				int labelNo = 0;
+				for ( Character label : transitions.keySet() ) {
+					stateLabels[labelNo++] = label.charValue();
+				}
+				Arrays.sort(stateLabels);
+
+				int[] stateTargets = new int[ stateLabels.length ];
+				for ( labelNo = 0; labelNo < stateLabels.length; labelNo++ ) {
+					stateTargets[labelNo] = transitions.get( Character.valueOf(stateLabels[labelNo]) ).intValue();
+				}
+
+				this.labels[state] = stateLabels;
+				this.targets[state] = stateTargets;
+				this.lengths[state] = buildLengths.get(state).intValue();
+			}
+
+			// Breadth first, so that the failure state of a state is always
+			// computed before the failure states of its children.  Keys of a
+			// stage do not contain each other: Only the state at which a key
+			// ends can have a value, and no output links are needed.
+
+			int[] orderedStates = new int[numStates];
+			int numOrdered = 1; // The root state is first.
+
+			Deque<Integer> pending = new ArrayDeque<Integer>();
+			for ( int target : targets[0] ) {
+				failures[target] = 0;
+				pending.add( Integer.valueOf(target) );
+			}
+
+			while ( !pending.isEmpty() ) {
+				int state = pending.remove().intValue();
+				orderedStates[numOrdered++] = state;
+
+				char[] stateLabels = labels[state];
+				int[] stateTargets = targets[state];
+
+				for ( int labelNo = 0; labelNo < stateLabels.length; labelNo++ ) {
+					char label = stateLabels[labelNo];
+					int target = stateTargets[labelNo];
+
+					int failure = failures[state];
+					int failureTarget;
+					while ( ((failureTarget = getTarget(failure, label)) == -1) && (failure != 0) ) {
+						failure = failures[failure];
+					}
+					failures[target] = ( (failureTarget == -1) ? 0 : failureTarget );
+
+					pending.add( Integer.valueOf(target) );
+				}
+			}
+
+			// Transitions of ASCII characters are tabled for all states,
+			// with the failure transitions resolved.  A state takes the
+			// transitions of its failure state, which precedes it in
+			// breadth first order.
+
+			int[] resolvedTargets = new int[ numStates * ASCII_LIMIT ];
+			for ( int stateNo = 0; stateNo < numOrdered; stateNo++ ) {
+				int state = orderedStates[stateNo];
+				int stateOffset = state * ASCII_LIMIT;
+				int failureOffset = failures[state] * ASCII_LIMIT;
+				for ( char label = 0; label < ASCII_LIMIT; label++ ) {
+					int target = getTarget(state, label);
+					if ( target == -1 ) {
+						target = ( (state == 0) ? 0 : resolvedTargets[failureOffset + label] );
+					}
+					resolvedTargets[stateOffset + label] = target;
+				}
+			}
+
+			this.asciiTransitions = new int[ resolvedTargets.length ];
+			for ( int entryNo = 0; entryNo < resolvedTargets.length; entryNo++ ) {
+				int target = resolvedTargets[entryNo];
+				int entry = target * ASCII_LIMIT;
+				if ( this.values[target] != null ) {
+					entry |= MATCH_FLAG;
+				}
+				asciiTransitions[entryNo] = entry;
+			}
+		}
+
+		/** The key of a stage which has only one key.  Null for other stages. */
+		private final String singleKey;
+		private final String singleValue;
+
+		private static final int ASCII_LIMIT = 128;
+
+		private static final int MATCH_FLAG = Integer.MIN_VALUE;
+
+		/**
+		 * Transitions of ASCII characters, by state then by character, with
+		 * failure transitions resolved.  Each entry is the offset of the
+		 * transitions of the target state.  Entries of targets at which a key
+		 * ends are flagged with {@link #MATCH_FLAG}.
+		 */
+		private final int[] asciiTransitions;
+
+		/** Per state: The sorted transition characters. */
+		private final char[][] labels;
+		/** Per state: The transition targets, parallel to the labels. */
+		private final int[][] targets;
+		/** Per state: The value of the key which ends at the state, or null. */
+		private final String[] values;
+		/** Per state: The length of the text matched by the state. */
+		private final int[] lengths;
+		/** Per state: The state of the longest proper suffix which is in the trie. */
+		private final int[] failures;
+
+		private int getTarget(int state, char label) {
+			char[] stateLabels = labels[state];
+			int labelNo = Arrays.binarySearch(stateLabels, label);
+			return ( (labelNo < 0) ? -1 : targets[state][labelNo] );
+		}
+
+		/**
+		 * Replace the keys of this stage in one pass.
+		 *
+		 * @param text The text which is to be transformed.
+		 *
+		 * @return The transformed text.  The text itself if no key matched.
+		 */
+		public String replace(String text) {
+			if ( singleKey != null ) {
+				return replaceSingle(text);
+			}
+
+			int textLength = text.length();
+
+			StringBuilder outputBuilder = null;
+			int lastMatchEnd = 0;
+
+			int[] useAsciiTransitions = asciiTransitions;
+
+			int stateOffset = 0;
+			for ( int charNo = 0; charNo < textLength; charNo++ ) {
+				char nextChar = text.charAt(charNo);
+
+				int state;
+				if ( nextChar < ASCII_LIMIT ) {
+					int entry = useAsciiTransitions[stateOffset + nextChar];
+					if ( entry >= 0 ) {
+						stateOffset = entry;
+						continue;
+					}
+					state = ( entry & ~MATCH_FLAG ) / ASCII_LIMIT;
+
+				} else {
+					state = stateOffset / ASCII_LIMIT;
+					int nextState;
+					while ( ((nextState = getTarget(state, nextChar)) == -1) && (state != 0) ) {
+						state = failures[state];
+					}
+					state = ( (nextState == -1) ? 0 : nextState );
+					stateOffset = state * ASCII_LIMIT;
+				}
+
+				String value = values[state];
+				if ( value != null ) {
+					// Occurrences of different keys are disjoint: The first
+					// match to end is also the first match to start.
+					int matchStart = charNo - lengths[state] + 1;
+					if ( outputBuilder == null ) {
+						outputBuilder = TextBuilders.borrow( textLength + 16 );
+					}
+					outputBuilder.append(text, lastMatchEnd, matchStart);
+					outputBuilder.append(value);
+					lastMatchEnd = charNo + 1;
+					stateOffset = 0;
+				}
+			}
+
+			if ( outputBuilder == null ) {
+				return text;
+			}
+			outputBuilder.append(text, lastMatchEnd, textLength);
+			return TextBuilders.release(outputBuilder);
+		}
+
+		private String replaceSingle(String text) {
+			int matchStart = text.indexOf(singleKey);
+			if ( matchStart == -1 ) {
+				return text;
+			}
+
+			int keyLen = singleKey.length();
+			StringBuilder outputBuilder = TextBuilders.borrow( text.length() + 16 );
+
+			int lastMatchEnd = 0;
+			while ( matchStart != -1 ) {
+				outputBuilder.append(text, lastMatchEnd, matchStart);
+				outputBuilder.append(singleValue);
+				lastMatchEnd = matchStart + keyLen;
+				matchStart = text.indexOf(singleKey, lastMatchEnd);
+			}
+			outputBuilder.append(text, lastMatchEnd, text.length());
+
+			return TextBuilders.release(outputBuilder);
+		}
+	}
+
+	//
+
+	/**
+	 * Compile a matcher for a table of substitutions.
+	 *
+	 * @param substitutions Table of substitutions, in the order in which the
+	 *     substitutions are to be applied.  Empty keys are ignored.
+	 */
+	public SubstitutionMatcher(Map<String, String> substitutions) {
+		this.substitutions = substitutions;
+
+		List<Stage> useStages = new ArrayList<Stage>();
+
+		List<String> stageKeys = new ArrayList<String>();
+		List<String> stageValues = new ArrayList<String>();
+
+		for ( Map.Entry<String, String> substitution : substitutions.entrySet() ) {
+			String key = substitution.getKey();
+			if ( key.isEmpty() ) {
+				continue; // An empty key matches nothing.
+			}
+			String value = substitution.getValue();
+
+			if ( isUnreachable(stageKeys, stageValues, key) ) {
+				continue;
+			}
+			if ( interacts(stageKeys, stageValues, key) ) {
+				useStages.add( new Stage(stageKeys, stageValues) );
+				stageKeys.clear();
+				stageValues.clear();
+			}
+			stageKeys.add(key);
+			stageValues.add(value);
+		}
+		if ( !stageKeys.isEmpty() ) {
+			useStages.add( new Stage(stageKeys, stageValues) );
+		}
+
+		this.stages = useStages.toArray( new Stage[ useStages.size() ] );
+	}
+
+	/**
+	 * Tell if a key cannot match when it is applied after the substitutions
+	 * of a stage: The key contains a key of the stage, and cannot overlap
+	 * any value of the stage.
+	 *
+	 * Each occurrence of the key contains an occurrence of the contained key.
+	 * The substitution of the contained key changes each of these occurrences,
+	 * and no value of the stage can place a new occurrence.
+	 */
+	private static boolean isUnreachable(List<String> stageKeys, List<String> stageValues, String key) {
+		for ( String priorValue : stageValues ) {
+			if ( priorValue.isEmpty() || canOverlap(priorValue, key) ) {
+				return false;
+			}
+		}
+		for ( String priorKey : stageKeys ) {
+			if ( key.contains(priorKey) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean interacts(List<String> stageKeys, List<String> stageValues, String key) {
+		int numKeys = stageKeys.size();
+		for ( int keyNo = 0; keyNo < numKeys; keyNo++ ) {
+			if ( canOverlap(stageKeys.get(keyNo), key) ) {
+				return true;
+			}
+			String priorValue = stageValues.get(keyNo);
+			if ( priorValue.isEmpty() || canOverlap(priorValue, key) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//
+
+	private final Map<String, String> substitutions;
+	private final Stage[] stages;
+
+	public Map<String, String> getSubstitutions() {
+		return substitutions;
+	}
+
+	/**
+	 * Answer the number of passes which are made over text.
+	 *
+	 * @return The number of stages of the matcher.
+	 */
+	public int getStageCount() {
+		return stages.length;
+	}
+
+	/**
+	 * Apply the substitutions to text.
+	 *
+	 * @param text The text which is to be transformed.
+	 *
+	 * @return The transformed text.  Null if no substitution matched.
+	 */
+	public String replace(String text) {
+		String initialText = text;
+		for ( Stage stage : stages ) {
+			text = stage.replace(text);
+		}
+		return ( (text == initialText) ? null : text );
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [ " + stages.length + " stages ]: " + substitutions.keySet();
+	}
+}
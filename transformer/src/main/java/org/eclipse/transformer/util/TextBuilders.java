@@ -0,0 +1,62 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package org.eclipse.transformer.util;
+
+/**
+ * Thread local string builders which are reused by text rewriters.
+ *
+ * A rewriter borrows the builder of the current thread, appends the
+ * rewritten text, then obtains the text and releases the builder using
+ * {@link #release(StringBuilder)}.  Borrows may not be nested: The builder
+ * must be released before it is borrowed again.
+ *
+ * A builder which grows larger than {@link #MAX_RETAINED_CAPACITY} is not
+ * retained.
+ */
+public class TextBuilders {
+	public static final int INITIAL_CAPACITY = 256;
+	public static final int MAX_RETAINED_CAPACITY = 256 * 1024;
+
+	private static final ThreadLocal<StringBuilder> builders =
+		ThreadLocal.withInitial( () -> new StringBuilder(INITIAL_CAPACITY) );
+
+	/**
+	 * Borrow the builder of the current thread.
+	 *
+	 * @param capacity The expected length of the text which will be built.
+	 *
+	 * @return The empty builder of the current thread.
+	 */
+	public static StringBuilder borrow(int capacity) {
+		StringBuilder builder = builders.get();
+		builder.setLength(0);
+		builder.ensureCapacity(capacity);
+		return builder;
+	}
+
+	/**
+	 * Answer the text of a borrowed builder, and release the builder.
+	 *
+	 * @param builder The builder which was borrowed.
+	 *
+	 * @return The text of the builder.
+	 */
+	public static String release(StringBuilder builder) {
+		String text = builder.toString();
+		if ( builder.capacity() > MAX_RETAINED_CAPACITY ) {
+			builders.set( new StringBuilder(INITIAL_CAPACITY) );
+		} else {
+			builder.setLength(0);
+		}
+		return text;
+	}
+}
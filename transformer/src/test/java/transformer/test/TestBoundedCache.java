@@ -0,0 +1,140 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.util.BoundedCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestBoundedCache extends CaptureTest {
+
+	@Test
+	public void testCounters() {
+		BoundedCache<String, String> cache = new BoundedCache<String, String>("test", 100);
+
+		Assertions.assertNull( cache.get("a") );
+		cache.put("a", "A");
+		Assertions.assertEquals( "A", cache.get("a") );
+		Assertions.assertEquals( "A", cache.get("a") );
+		Assertions.assertNull( cache.get("b") );
+
+		Assertions.assertEquals( 2L, cache.getHits() );
+		Assertions.assertEquals( 2L, cache.getMisses() );
+		Assertions.assertEquals( 0L, cache.getEvictions() );
+		Assertions.assertEquals( 1, cache.size() );
+	}
+
+	@Test
+	public void testEviction() {
+		// A single stripe, so that eviction order is fully determined.
+		BoundedCache<Integer, String> cache = new BoundedCache<Integer, String>("test", 1);
+		cache.put(1, "1");
+		cache.put(2, "2");
+		Assertions.assertNull( cache.get(1) );
+		Assertions.assertEquals( "2", cache.get(2) );
+		Assertions.assertEquals( 1L, cache.getEvictions() );
+
+		// Many entries: The size never exceeds the maximum size.
+		cache = new BoundedCache<Integer, String>("test", 1000);
+		for ( int key = 0; key < 10000; key++ ) {
+			cache.put( key, Integer.toString(key) );
+			Assertions.assertTrue( cache.size() <= cache.getMaxSize() );
+		}
+		Assertions.assertEquals( 10000L - cache.size(), cache.getEvictions() );
+	}
+
+	@Test
+	public void testLeastRecentlyUsed() {
+		BoundedCache<Integer, String> cache = new BoundedCache<Integer, String>("test", 2);
+
+		// Two stripes of one entry each: Keys 0 and 2 share a stripe.
+		cache.put(0, "0");
+		cache.put(1, "1");
+		Assertions.assertEquals( "0", cache.get(0) );
+		cache.put(2, "2");
+
+		Assertions.assertNull( cache.get(0) );
+		Assertions.assertEquals( "1", cache.get(1) );
+		Assertions.assertEquals( "2", cache.get(2) );
+	}
+
+	@Test
+	public void testInvalidSize() {
+		Assertions.assertThrows( IllegalArgumentException.class, () -> new BoundedCache<String, String>("test", 0) );
+	}
+
+	@Test
+	public void testConcurrent() throws Exception {
+		BoundedCache<Integer, Integer> cache = new BoundedCache<Integer, Integer>("test", 512);
+
+		int numThreads = 4;
+		int numOperations = 20000;
+
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for ( int threadNo = 0; threadNo < numThreads; threadNo++ ) {
+				int seed = threadNo;
+				futures.add( executor.submit( () -> {
+					for ( int operationNo = 0; operationNo < numOperations; operationNo++ ) {
+						int key = (operationNo * 7 + seed) % 1024;
+						Integer value = cache.get(key);
+						if ( value == null ) {
+							cache.put(key, key * 2);
+						} else {
+							Assertions.assertEquals( key * 2, value.intValue() );
+						}
+					}
+					return null;
+				} ) );
+			}
+			for ( Future<Void> future : futures ) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Assertions.assertEquals( (long) numThreads * numOperations, cache.getHits() + cache.getMisses() );
+		Assertions.assertTrue( cache.size() <= cache.getMaxSize() );
+	}
+
+	/**
+	 * Signature rules answer the same transformations when their caches are
+	 * too small to retain the transformed values.
+	 */
+	@Test
+	public void testSignatureRuleCaches() {
+		SignatureRuleImpl signatureRule = new SignatureRuleImpl(
+			getCaptureLogger(),
+			Collections.singletonMap("javax.servlet", "jakarta.servlet"),
+			null, null, null, null,
+			1 );
+
+		for ( int trial = 0; trial < 3; trial++ ) {
+			Assertions.assertEquals( "jakarta/servlet/Servlet", signatureRule.transformBinaryType("javax/servlet/Servlet") );
+			Assertions.assertNull( signatureRule.transformBinaryType("other/servlet/Servlet") );
+		}
+
+		BoundedCache<String, String> binaryTypes = signatureRule.getCaches().get(0);
+		Assertions.assertEquals( 6L, binaryTypes.getMisses() );
+		Assertions.assertEquals( 5L, binaryTypes.getEvictions() );
+	}
+}
@@ -0,0 +1,175 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.transformer.util.BufferPool;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.PooledOutputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestBufferPool {
+
+	@Test
+	public void testClassSizes() {
+		Assertions.assertEquals( BufferPool.MIN_CLASS_SIZE, BufferPool.getClassSize(0) );
+		Assertions.assertEquals( BufferPool.MIN_CLASS_SIZE, BufferPool.getClassSize(BufferPool.MIN_CLASS_SIZE) );
+		Assertions.assertEquals( BufferPool.MIN_CLASS_SIZE * 2, BufferPool.getClassSize(BufferPool.MIN_CLASS_SIZE + 1) );
+		Assertions.assertEquals( 1024 * 1024, BufferPool.getClassSize(1000 * 1000) );
+		Assertions.assertEquals( BufferPool.MAX_CLASS_SIZE, BufferPool.getClassSize(BufferPool.MAX_CLASS_SIZE) );
+		Assertions.assertEquals( BufferPool.MAX_CLASS_SIZE + 1, BufferPool.getClassSize(BufferPool.MAX_CLASS_SIZE + 1) );
+	}
+
+	@Test
+	public void testReuse() {
+		BufferPool pool = new BufferPool(BufferPool.DEFAULT_MAX_RETAINED);
+
+		byte[] buffer = pool.borrow(5000);
+		Assertions.assertEquals( 8192, buffer.length );
+		pool.release(buffer);
+
+		// Released to the thread local cache, then reused.
+		Assertions.assertSame( buffer, pool.borrow(6000) );
+		Assertions.assertEquals( 0L, pool.getRetained() );
+
+		// A buffer of a class which is too large for the local caches is
+		// retained by the shared cache.
+		byte[] largeBuffer = pool.borrow(BufferPool.MAX_LOCAL_CLASS_SIZE + 1);
+		pool.release(largeBuffer);
+		Assertions.assertEquals( largeBuffer.length, pool.getRetained() );
+		Assertions.assertSame( largeBuffer, pool.borrow(largeBuffer.length) );
+		Assertions.assertEquals( 0L, pool.getRetained() );
+
+		// Buffers which are not of a class size are not retained.
+		pool.release( new byte[5000] );
+		byte[] oversizeBuffer = pool.borrow(BufferPool.MAX_CLASS_SIZE + 1);
+		Assertions.assertEquals( BufferPool.MAX_CLASS_SIZE + 1, oversizeBuffer.length );
+		pool.release(oversizeBuffer);
+		Assertions.assertEquals( 2L, pool.getDiscards() );
+		Assertions.assertEquals( 0L, pool.getRetained() );
+
+		Assertions.assertEquals( 2L, pool.getReuses() );
+		Assertions.assertEquals( 3L, pool.getAllocations() );
+	}
+
+	@Test
+	public void testRetainedCap() {
+		int classSize = BufferPool.MAX_LOCAL_CLASS_SIZE * 2;
+		BufferPool pool = new BufferPool(classSize * 3L);
+
+		List<byte[]> buffers = new ArrayList<byte[]>();
+		for ( int bufferNo = 0; bufferNo < 5; bufferNo++ ) {
+			buffers.add( pool.borrow(classSize) );
+		}
+		for ( byte[] buffer : buffers ) {
+			pool.release(buffer);
+		}
+
+		Assertions.assertEquals( classSize * 3L, pool.getRetained(), "Retained" );
+		Assertions.assertEquals( 2L, pool.getDiscards(), "Discards" );
+	}
+
+	@Test
+	public void testPooledRead() throws IOException {
+		BufferPool pool = new BufferPool(BufferPool.DEFAULT_MAX_RETAINED);
+
+		for ( int size : new int[] { 0, 100, FileUtils.BUFFER_ADJUSTMENT, FileUtils.BUFFER_ADJUSTMENT * 5 + 3 } ) {
+			byte[] data = TestCompressionPolicy.createData(size, size);
+
+			// Unknown length: The buffer is grown.
+			byte[] initialBuffer = pool.borrow(FileUtils.PAGE_SIZE);
+			ByteData readData = FileUtils.read("data", new ByteArrayInputStream(data), initialBuffer, -1, pool);
+			Assertions.assertEquals( size, readData.length, "Size [ " + size + " ]" );
+			Assertions.assertArrayEquals( data, Arrays.copyOf(readData.data, readData.length), "Size [ " + size + " ]" );
+			Assertions.assertEquals( size < initialBuffer.length, readData.data == initialBuffer, "Buffer reuse [ " + size + " ]" );
+			Assertions.assertEquals( readData.data.length, BufferPool.getClassSize(readData.data.length), "Class size [ " + size + " ]" );
+
+			// Known length.
+			readData = FileUtils.read("data", new ByteArrayInputStream(data), null, size, pool);
+			Assertions.assertArrayEquals( data, Arrays.copyOf(readData.data, readData.length), "Size [ " + size + " ]" );
+		}
+	}
+
+	@Test
+	public void testPooledOutputStream() {
+		BufferPool pool = new BufferPool(BufferPool.DEFAULT_MAX_RETAINED);
+
+		byte[] data = TestCompressionPolicy.createData(100000, 9);
+
+		PooledOutputStream outputStream = new PooledOutputStream(pool, 10);
+		for ( int offset = 0; offset < data.length; offset += 777 ) {
+			outputStream.write( data, offset, Math.min(777, data.length - offset) );
+		}
+		outputStream.write(7);
+
+		ByteData outputData = outputStream.toByteData("output");
+		Assertions.assertEquals( data.length + 1, outputData.length );
+		Assertions.assertArrayEquals( data, Arrays.copyOf(outputData.data, data.length) );
+		Assertions.assertEquals( 7, outputData.data[data.length] );
+
+		// The buffer is not copied.
+		Assertions.assertSame( outputStream.getBuffer(), outputData.data );
+	}
+
+	/**
+	 * Borrow and release buffers using several threads.  No buffer may be
+	 * held by two borrowers at the same time.
+	 */
+	@Test
+	public void testConcurrent() throws Exception {
+		BufferPool pool = new BufferPool(BufferPool.MAX_LOCAL_CLASS_SIZE * 8L);
+
+		Map<byte[], Boolean> held = Collections.synchronizedMap( new IdentityHashMap<byte[], Boolean>() );
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for ( int taskNo = 0; taskNo < 4; taskNo++ ) {
+				int seed = taskNo;
+				futures.add( executor.submit( () -> {
+					for ( int iteration = 0; iteration < 2000; iteration++ ) {
+						int size = 1 << ( 10 + ((iteration + seed) % 12) );
+						byte[] buffer = pool.borrow(size);
+						Assertions.assertTrue( buffer.length >= size );
+						Assertions.assertNull( held.put(buffer, Boolean.TRUE), "Buffer held twice" );
+						buffer[0] = (byte) seed;
+						Assertions.assertEquals( (byte) seed, buffer[0] );
+						held.remove(buffer);
+						pool.release(buffer);
+					}
+					return null;
+				} ) );
+			}
+			for ( Future<Void> future : futures ) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Assertions.assertTrue( pool.getRetained() <= pool.getMaxRetained(), "Retained" );
+		Assertions.assertTrue( pool.getReuses() > 0L, "Reuses" );
+	}
+}
@@ -0,0 +1,149 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.ClassChangesImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.ByteMatcher;
+import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.RawConstantPool;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import transformer.test.util.CaptureLoggerImpl;
+
+public class TestClassPrescan extends CaptureTest {
+
+	/** Class which has no reference to a renamed package. */
+	public static class Unaffected {
+		public static final String VALUE = "java.lang.Object";
+		public long longValue = 1234567890123L;
+		public double doubleValue = 1.5;
+
+		public Object get() {
+			return VALUE + longValue + doubleValue;
+		}
+	}
+
+	/** Class which has a reference to a renamed package. */
+	public static class Affected {
+		public static final String SERVLET_CLASS = "javax.servlet.Servlet";
+	}
+
+	public static final String UNAFFECTED_RESOURCE_NAME = "transformer/test/TestClassPrescan$Unaffected.class";
+	public static final String AFFECTED_RESOURCE_NAME = "transformer/test/TestClassPrescan$Affected.class";
+
+	public byte[] readClass(String resourceName) throws IOException {
+		try ( InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resourceName) ) {
+			Assertions.assertNotNull( inputStream, "Class resource [ " + resourceName + " ] was not found" );
+			ByteData classData = FileUtils.read(resourceName, inputStream); // throws IOException
+			return Arrays.copyOf(classData.data, classData.length);
+		}
+	}
+
+	public SignatureRuleImpl createSignatureRule(CaptureLoggerImpl useLogger) {
+		return new SignatureRuleImpl(
+			useLogger,
+			Collections.singletonMap("javax.servlet", "jakarta.servlet"),
+			null, null, null,
+			Collections.singletonMap("DIRECT_VALUE", "DIRECT_REPLACEMENT") );
+	}
+
+	@Test
+	public void testConstantPool() throws IOException {
+		byte[] classBytes = readClass(UNAFFECTED_RESOURCE_NAME);
+		RawConstantPool constants = RawConstantPool.read(classBytes, 0, classBytes.length);
+
+		Assertions.assertEquals( "transformer/test/TestClassPrescan$Unaffected", constants.getThisClassName() );
+		Assertions.assertEquals( "java/lang/Object", constants.getSuperClassName() );
+		Assertions.assertTrue( constants.getEnd() < classBytes.length );
+
+		// The class bytes may be embedded in a larger array.
+
+		byte[] embeddedBytes = new byte[ classBytes.length + 20 ];
+		System.arraycopy(classBytes, 0, embeddedBytes, 10, classBytes.length);
+		RawConstantPool embeddedConstants = RawConstantPool.read(embeddedBytes, 10, classBytes.length);
+		Assertions.assertEquals( constants.getThisClassName(), embeddedConstants.getThisClassName() );
+
+		// Bytes which are not a valid class are rejected.
+
+		Assertions.assertThrows( IOException.class, () -> RawConstantPool.read(classBytes, 1, classBytes.length - 1) );
+		Assertions.assertThrows( IOException.class, () -> RawConstantPool.read(classBytes, 0, 40) );
+	}
+
+	@Test
+	public void testByteMatcher() {
+		ByteMatcher matcher = new ByteMatcher( Arrays.asList("javax.servlet", "javax/servlet", "caf\u00e9", "\u4e2d") );
+
+		String[] matching = { "javax.servlet", "Ljavax/servlet/Servlet;", "xjavax.servletx", "un caf\u00e9", "\u4e2d\u6587" };
+		for ( String text : matching ) {
+			byte[] encoded = ByteMatcher.encode(text);
+			Assertions.assertTrue( matcher.matches(encoded, 0, encoded.length), text );
+		}
+
+		String[] notMatching = { "", "javax.servle", "javax/serv.let", "javax.Servlet", "cafe", "\u4e2e" };
+		for ( String text : notMatching ) {
+			byte[] encoded = ByteMatcher.encode(text);
+			Assertions.assertFalse( matcher.matches(encoded, 0, encoded.length), text );
+		}
+
+		Assertions.assertTrue( new ByteMatcher( Arrays.asList("") ).matches(new byte[0], 0, 0) );
+		Assertions.assertFalse( new ByteMatcher( Collections.<String> emptyList() ).matches(new byte[] { 1 }, 0, 1) );
+	}
+
+	@Test
+	public void testPrescan() throws IOException {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+		SignatureRuleImpl signatureRule = createSignatureRule(useLogger);
+		ByteMatcher constantMatcher = signatureRule.getConstantMatcher();
+
+		byte[] unaffectedBytes = readClass(UNAFFECTED_RESOURCE_NAME);
+		Assertions.assertFalse(
+			RawConstantPool.read(unaffectedBytes, 0, unaffectedBytes.length).matchesUtf8(constantMatcher) );
+
+		byte[] affectedBytes = readClass(AFFECTED_RESOURCE_NAME);
+		Assertions.assertTrue(
+			RawConstantPool.read(affectedBytes, 0, affectedBytes.length).matchesUtf8(constantMatcher) );
+	}
+
+	/**
+	 * An unaffected class is answered as unchanged without parsing the class.
+	 */
+	@Test
+	public void testPrescanChanges() throws Exception {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+
+		ClassActionImpl classAction = new ClassActionImpl(
+			useLogger, false, false,
+			createBuffer(),
+			createSelectionRule( useLogger, Collections.emptySet(), Collections.emptySet() ),
+			createSignatureRule(useLogger) );
+
+		try ( InputStream inputStream = getClass().getClassLoader().getResourceAsStream(UNAFFECTED_RESOURCE_NAME) ) {
+			classAction.apply(UNAFFECTED_RESOURCE_NAME, inputStream);
+		}
+
+		ClassChangesImpl changes = classAction.getLastActiveChanges();
+		Assertions.assertFalse( changes.hasChanges() );
+		Assertions.assertEquals( "transformer/test/TestClassPrescan$Unaffected", changes.getInputClassName() );
+		Assertions.assertEquals( changes.getInputClassName(), changes.getOutputClassName() );
+		Assertions.assertEquals( "java/lang/Object", changes.getInputSuperName() );
+		Assertions.assertEquals( UNAFFECTED_RESOURCE_NAME, changes.getOutputResourceName() );
+	}
+}
@@ -0,0 +1,211 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.ClassChangesImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.InputStreamData;
+import org.eclipse.transformer.util.RawClassReferences;
+import org.eclipse.transformer.util.RawConstantPool;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import transformer.test.util.CaptureLoggerImpl;
+
+/**
+ * Verify rewrites of class constant pools, which copy the class bytes
+ * which follow the constant pool.  Rewritten classes are loaded and run.
+ */
+public class TestClassRewrite extends CaptureTest {
+
+	public static class SampleException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		public SampleException(String message) {
+			super(message);
+		}
+	}
+
+	public static class Sample {
+		public static final String SAMPLE_PACKAGE = "transformer.test";
+
+		public Sample next;
+
+		public Sample link(Sample other) throws SampleException {
+			if ( other == this ) {
+				throw new SampleException(SAMPLE_PACKAGE);
+			}
+			next = other;
+			return this;
+		}
+
+		public String check() {
+			try {
+				return link(this).toString();
+			} catch ( SampleException e ) {
+				return e.getMessage() + " " + e.getClass().getName();
+			}
+		}
+	}
+
+	/** Class which has a member name which is changed by a direct string. */
+	public static class DirectName {
+		public int DIRECT_VALUE;
+	}
+
+	public static final String SAMPLE_CLASS_NAME = "transformer/test/TestClassRewrite$Sample";
+	public static final String SAMPLE_RESOURCE_NAME = SAMPLE_CLASS_NAME + ".class";
+	public static final String DIRECT_RESOURCE_NAME = "transformer/test/TestClassRewrite$DirectName.class";
+
+	public static final String RENAMED_PACKAGE = "transformer.renamed";
+
+	public byte[] readClass(String resourceName) throws IOException {
+		try ( InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resourceName) ) {
+			Assertions.assertNotNull( inputStream, "Class resource [ " + resourceName + " ] was not found" );
+			ByteData classData = FileUtils.read(resourceName, inputStream); // throws IOException
+			return Arrays.copyOf(classData.data, classData.length);
+		}
+	}
+
+	public static class RewriteAction extends ClassActionImpl {
+		public RewriteAction(CaptureTest test, CaptureLoggerImpl useLogger) {
+			super(useLogger, false, false,
+				  test.createBuffer(),
+				  test.createSelectionRule( useLogger, Collections.emptySet(), Collections.emptySet() ),
+				  new SignatureRuleImpl(
+					  useLogger,
+					  Collections.singletonMap("transformer.test", RENAMED_PACKAGE),
+					  null, null, null,
+					  Collections.singletonMap("DIRECT_VALUE", "DIRECT_REPLACEMENT") ) );
+		}
+
+		public boolean isRewritable(String inputName, byte[] inputBytes) {
+			RawConstantPool constants = readConstants(inputName, inputBytes, inputBytes.length);
+			RawClassReferences references = readReferences(inputName, constants);
+			return ( (references != null) && (transformConstants(inputName, constants, references) != null) );
+		}
+
+		public byte[] rewrite(String inputName, byte[] inputBytes) throws IOException, TransformException {
+			InputStreamData outputData;
+			try ( InputStream inputStream = new ByteArrayInputStream(inputBytes) ) {
+				outputData = apply(inputName, inputStream);
+			}
+			ByteData outputBytes = FileUtils.read(outputData.name, outputData.stream); // throws IOException
+			return Arrays.copyOf(outputBytes.data, outputBytes.length);
+		}
+	}
+
+	@Test
+	public void testRewrite() throws Exception {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+		RewriteAction rewriteAction = new RewriteAction(this, useLogger);
+
+		byte[] inputBytes = readClass(SAMPLE_RESOURCE_NAME);
+		Assertions.assertTrue( rewriteAction.isRewritable(SAMPLE_RESOURCE_NAME, inputBytes) );
+
+		byte[] outputBytes = rewriteAction.rewrite(SAMPLE_RESOURCE_NAME, inputBytes);
+
+		ClassChangesImpl changes = rewriteAction.getLastActiveChanges();
+		Assertions.assertEquals( SAMPLE_CLASS_NAME, changes.getInputClassName() );
+		Assertions.assertEquals( "transformer/renamed/TestClassRewrite$Sample", changes.getOutputClassName() );
+		Assertions.assertEquals( "transformer/renamed/TestClassRewrite$Sample.class", changes.getOutputResourceName() );
+		Assertions.assertTrue( changes.getModifiedFields() > 0 );
+		Assertions.assertTrue( changes.getModifiedMethods() > 0 );
+		Assertions.assertTrue( changes.getModifiedConstants() > 0 );
+
+		// Everything which follows the constant pool is unchanged.
+
+		RawConstantPool inputConstants = RawConstantPool.read(inputBytes, 0, inputBytes.length);
+		RawConstantPool outputConstants = RawConstantPool.read(outputBytes, 0, outputBytes.length);
+		Assertions.assertEquals( inputConstants.getCount(), outputConstants.getCount() );
+		Assertions.assertArrayEquals(
+			Arrays.copyOfRange(inputBytes, inputConstants.getEnd(), inputBytes.length),
+			Arrays.copyOfRange(outputBytes, outputConstants.getEnd(), outputBytes.length) );
+
+		Assertions.assertEquals( "transformer/renamed/TestClassRewrite$Sample", outputConstants.getThisClassName() );
+		RawClassReferences.read(outputConstants);
+
+		for ( int constantNo = 1; constantNo < outputConstants.getCount(); constantNo++ ) {
+			if ( outputConstants.getTag(constantNo) == RawConstantPool.CONSTANT_Utf8 ) {
+				String utf8 = outputConstants.getUtf8(constantNo);
+				Assertions.assertFalse( utf8.contains("transformer/test"), utf8 );
+				Assertions.assertFalse( utf8.contains("transformer.test"), utf8 );
+			}
+		}
+	}
+
+	/**
+	 * Class loader which loads renamed classes by rewriting the initial
+	 * classes.
+	 */
+	public class RewriteLoader extends ClassLoader {
+		public RewriteLoader(RewriteAction rewriteAction) {
+			super( TestClassRewrite.class.getClassLoader() );
+			this.rewriteAction = rewriteAction;
+		}
+
+		private final RewriteAction rewriteAction;
+
+		@Override
+		protected Class<?> findClass(String className) throws ClassNotFoundException {
+			if ( !className.startsWith(RENAMED_PACKAGE + ".") ) {
+				throw new ClassNotFoundException(className);
+			}
+			String inputName =
+				"transformer/test/" + className.substring(RENAMED_PACKAGE.length() + 1) + ".class";
+			try {
+				byte[] outputBytes = rewriteAction.rewrite( inputName, readClass(inputName) );
+				return defineClass(className, outputBytes, 0, outputBytes.length);
+			} catch ( Exception e ) {
+				throw new ClassNotFoundException(className, e);
+			}
+		}
+	}
+
+	@Test
+	public void testLoad() throws Exception {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+		RewriteLoader rewriteLoader = new RewriteLoader( new RewriteAction(this, useLogger) );
+
+		Class<?> sampleClass = rewriteLoader.loadClass(RENAMED_PACKAGE + ".TestClassRewrite$Sample");
+		Object sample = sampleClass.getConstructor().newInstance();
+		Object result = sampleClass.getMethod("check").invoke(sample);
+
+		Assertions.assertEquals( RENAMED_PACKAGE + " " + RENAMED_PACKAGE + ".TestClassRewrite$SampleException", result );
+		Assertions.assertEquals(
+			RENAMED_PACKAGE + ".TestClassRewrite$Sample",
+			sampleClass.getField("next").getType().getName() );
+	}
+
+	/**
+	 * A class which has a name which would be changed by a rewrite of its
+	 * constants must be transformed fully.
+	 */
+	@Test
+	public void testNotRewritable() throws Exception {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+		RewriteAction rewriteAction = new RewriteAction(this, useLogger);
+
+		byte[] inputBytes = readClass(DIRECT_RESOURCE_NAME);
+		Assertions.assertFalse( rewriteAction.isRewritable(DIRECT_RESOURCE_NAME, inputBytes) );
+	}
+}
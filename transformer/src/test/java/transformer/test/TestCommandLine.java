@@ -14,12 +14,15 @@ package transformer.test;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.File;
+import java.nio.file.Files;
 
+import org.eclipse.transformer.action.impl.DirectoryActionImpl;
 import org.eclipse.transformer.action.impl.JavaActionImpl;
 import org.eclipse.transformer.action.impl.ManifestActionImpl;
 import org.eclipse.transformer.jakarta.JakartaTransformer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.eclipse.transformer.Transformer;
 import org.eclipse.transformer.Transformer.TransformOptions;
 
@@ -49,6 +52,40 @@ class TestCommandLine {
         verifyAction(JavaActionImpl.class.getName(), inputFileName, outputFileName);
     }
 
+    @Test
+    void testRepeatedThreadedTransform(@TempDir File tempDir) throws Exception {
+        File inputDir = new File(tempDir, "input");
+        File outputDir = new File(tempDir, "output");
+        inputDir.mkdir();
+        Files.copy( new File(DATA_DIR + "A.java").toPath(), new File(inputDir, "A.java").toPath() );
+
+        Transformer t = new Transformer(System.out, System.err);
+
+        t.setOptionDefaults( JakartaTransformer.class, JakartaTransformer.getOptionDefaults() );
+
+        String[] args = new String[] { inputDir.getPath(), outputDir.getPath(), "-o", "-th", "2" };
+
+        t.setArgs(args);
+        t.setParsedArgs();
+
+        TransformOptions options = t.createTransformOptions();
+        options.setLogging();
+
+        assertTrue(options.setInput(), "options.setInput() failed");
+        assertTrue(options.setOutput(), "options.setOutput() failed");
+        assertTrue(options.setThreads(), "options.setThreads() failed");
+        assertTrue(options.setRules(), "options.setRules() failed");
+        assertTrue(options.acceptAction(), "options.acceptAction() failed");
+        assertEquals(DirectoryActionImpl.class.getName(), options.acceptedAction.getClass().getName());
+
+        // The executor is shut down by each transformation: The second
+        // transformation must not use the executor of the first.
+
+        options.transform();
+        options.transform();
+        assertTrue( (new File(outputDir, "A.java")).exists(), "output file not created" );
+    }
+
     @Test
     void testSetLogLevel() throws Exception {
     	Transformer t = new Transformer(System.out, System.err);
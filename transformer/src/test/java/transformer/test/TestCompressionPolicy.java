@@ -0,0 +1,228 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.ActionType;
+import org.eclipse.transformer.action.CompressionPolicy;
+import org.eclipse.transformer.action.impl.CompressionPolicyImpl;
+import org.eclipse.transformer.action.impl.JarActionImpl;
+import org.eclipse.transformer.action.impl.NullActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.ServiceLoaderConfigActionImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.action.impl.ZipActionImpl;
+import org.eclipse.transformer.util.SpillBuffer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import transformer.test.util.CaptureLoggerImpl;
+
+public class TestCompressionPolicy extends CaptureTest {
+
+	public static final String SERVICE_NAME = "META-INF/services/javax.compress.Service";
+	public static final String NESTED_NAME = "lib/nested.jar";
+	public static final String MEDIA_NAME = "images/picture.PNG";
+	public static final String TEXT_NAME = "readme.txt";
+
+	public static byte[] createData(int size, int seed) {
+		Random random = new Random(seed);
+		byte[] data = new byte[size];
+		for ( int byteNo = 0; byteNo < size; byteNo++ ) {
+			data[byteNo] = (byte) ('a' + random.nextInt(16));
+		}
+		return data;
+	}
+
+	public static byte[] createArchive() throws IOException {
+		ByteArrayOutputStream archiveStream = new ByteArrayOutputStream();
+		try ( ZipOutputStream zipOutputStream = new ZipOutputStream(archiveStream) ) {
+			zipOutputStream.putNextEntry( new ZipEntry(SERVICE_NAME) );
+			zipOutputStream.write( "javax.compress.Provider\n".getBytes("UTF-8") );
+			zipOutputStream.closeEntry();
+
+			zipOutputStream.putNextEntry( new ZipEntry(NESTED_NAME) );
+			zipOutputStream.write( TestZipPassthrough.createArchive() );
+			zipOutputStream.closeEntry();
+
+			zipOutputStream.putNextEntry( new ZipEntry(MEDIA_NAME) );
+			zipOutputStream.write( createData(100000, 1) );
+			zipOutputStream.closeEntry();
+
+			zipOutputStream.putNextEntry( new ZipEntry(TEXT_NAME) );
+			zipOutputStream.write( createData(100000, 2) );
+			zipOutputStream.closeEntry();
+		}
+		return archiveStream.toByteArray();
+	}
+
+	public ZipActionImpl createZipAction(CompressionPolicy compressionPolicy) {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+
+		SelectionRuleImpl selectionRule = createSelectionRule(
+			useLogger, Collections.emptySet(), Collections.emptySet() );
+		SignatureRuleImpl signatureRule = createSignatureRule(
+			useLogger,
+			Collections.singletonMap("javax.compress", "jakarta.compress"), Collections.emptyMap(),
+			Collections.emptyMap(), Collections.emptyMap() );
+
+		ZipActionImpl zipAction = new ZipActionImpl(
+			useLogger, false, false,
+			createBuffer(),
+			selectionRule, signatureRule );
+
+		JarActionImpl jarAction = zipAction.addUsing( JarActionImpl::new );
+		zipAction.addUsing( ServiceLoaderConfigActionImpl::new );
+		NullActionImpl nullAction = zipAction.addUsing( NullActionImpl::new );
+		jarAction.addAction(nullAction);
+
+		zipAction.setCompressionPolicy(compressionPolicy);
+		jarAction.setCompressionPolicy(compressionPolicy);
+
+		return zipAction;
+	}
+
+	public static Map<String, Integer> readMethods(File archiveFile) throws IOException {
+		Map<String, Integer> methods = new HashMap<String, Integer>();
+		try ( ZipFile zipFile = new ZipFile(archiveFile) ) {
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			while ( entries.hasMoreElements() ) {
+				ZipEntry entry = entries.nextElement();
+				methods.put( entry.getName(), Integer.valueOf(entry.getMethod()) );
+			}
+		}
+		return methods;
+	}
+
+	//
+
+	@Test
+	public void testSettings() {
+		CompressionPolicyImpl policy = new CompressionPolicyImpl(
+			getCaptureLogger(),
+			CompressionPolicyImpl.parseSettings("*.jar=stored, class=1, xml=deflated, *=9") );
+
+		Assertions.assertEquals( CompressionPolicy.STORED, policy.getMethod("lib/a.JAR", ActionType.JAR) );
+		Assertions.assertEquals( CompressionPolicy.STORED, policy.getMethod("lib/a.jar", ActionType.NULL) );
+
+		Assertions.assertEquals( CompressionPolicy.DEFLATED, policy.getMethod("a/B.class", ActionType.CLASS) );
+		Assertions.assertEquals( 1, policy.getLevel("a/B.class", ActionType.CLASS) );
+
+		Assertions.assertEquals( CompressionPolicy.DEFLATED, policy.getMethod("web.xml", ActionType.XML) );
+		Assertions.assertEquals( CompressionPolicy.DEFAULT_LEVEL, policy.getLevel("web.xml", ActionType.XML) );
+
+		Assertions.assertEquals( CompressionPolicy.DEFLATED, policy.getMethod("readme.txt", ActionType.NULL) );
+		Assertions.assertEquals( 9, policy.getLevel("readme.txt", ActionType.NULL) );
+
+		Assertions.assertThrows( IllegalArgumentException.class,
+			() -> new CompressionPolicyImpl( getCaptureLogger(), CompressionPolicyImpl.parseSettings("*.jar=fast") ) );
+		Assertions.assertThrows( IllegalArgumentException.class,
+			() -> new CompressionPolicyImpl( getCaptureLogger(), CompressionPolicyImpl.parseSettings("unknown=stored") ) );
+		Assertions.assertThrows( IllegalArgumentException.class,
+			() -> CompressionPolicyImpl.parseSettings("*.jar") );
+	}
+
+	@Test
+	public void testDefaultPolicy() throws IOException, TransformException {
+		byte[] inputArchive = createArchive();
+		File inputFile = TestRawZipFile.writeTempFile("compression", null, inputArchive);
+		File outputFile = TestRawZipFile.createOutputFile();
+
+		CompressionPolicyImpl policy = new CompressionPolicyImpl(
+			getCaptureLogger(),
+			CompressionPolicyImpl.parseSettings(CompressionPolicyImpl.DEFAULT_POLICY) );
+
+		ZipActionImpl zipAction = createZipAction(policy);
+		zipAction.apply("compression.zip", inputFile, outputFile);
+
+		Map<String, Integer> methods = readMethods(outputFile);
+		Assertions.assertEquals( Integer.valueOf(ZipEntry.STORED), methods.get(NESTED_NAME), "Nested archive" );
+		Assertions.assertEquals( Integer.valueOf(ZipEntry.STORED), methods.get(MEDIA_NAME), "Media" );
+		Assertions.assertEquals( Integer.valueOf(ZipEntry.DEFLATED), methods.get(TEXT_NAME), "Text" );
+		Assertions.assertEquals( Integer.valueOf(ZipEntry.DEFLATED), methods.get("META-INF/services/jakarta.compress.Service"), "Service" );
+
+		// Stored entries must be readable as a stream, which requires
+		// their sizes to be written in their local headers.
+
+		byte[] outputArchive = Files.readAllBytes( outputFile.toPath() );
+		Map<String, byte[]> outputEntries = TestZipPassthrough.readArchive(outputArchive);
+		Map<String, byte[]> inputEntries = TestZipPassthrough.readArchive(inputArchive);
+
+		Assertions.assertArrayEquals( inputEntries.get(MEDIA_NAME), outputEntries.get(MEDIA_NAME) );
+		Assertions.assertArrayEquals( inputEntries.get(TEXT_NAME), outputEntries.get(TEXT_NAME) );
+
+		TestZipPassthrough.assertSameEntries(
+			TestZipPassthrough.readArchive( inputEntries.get(NESTED_NAME) ),
+			TestZipPassthrough.readArchive( outputEntries.get(NESTED_NAME) ) );
+	}
+
+	@Test
+	public void testStreamPolicy() throws IOException, TransformException {
+		byte[] inputArchive = createArchive();
+
+		CompressionPolicyImpl policy = new CompressionPolicyImpl(
+			getCaptureLogger(),
+			CompressionPolicyImpl.parseSettings("*=stored") );
+
+		ZipActionImpl zipAction = createZipAction(policy);
+		byte[] outputArchive = TestZipPassthrough.transformArchive(zipAction, inputArchive);
+
+		ZipInputStream zipInputStream = new ZipInputStream( new ByteArrayInputStream(outputArchive) );
+		ZipEntry entry;
+		int numEntries = 0;
+		while ( (entry = zipInputStream.getNextEntry()) != null ) {
+			Assertions.assertEquals( ZipEntry.STORED, entry.getMethod(), "Entry [ " + entry.getName() + " ]" );
+			numEntries++;
+		}
+		Assertions.assertEquals(4, numEntries);
+	}
+
+	@Test
+	public void testSpillBuffer() throws IOException {
+		byte[] data = createData(100000, 3);
+
+		CRC32 crc = new CRC32();
+		crc.update(data);
+
+		for ( int threshold : new int[] { 1000, SpillBuffer.DEFAULT_SPILL_THRESHOLD } ) {
+			try ( SpillBuffer spillBuffer = new SpillBuffer("spill", threshold) ) {
+				for ( int offset = 0; offset < data.length; offset += 777 ) {
+					spillBuffer.write( data, offset, Math.min(777, data.length - offset) );
+				}
+
+				Assertions.assertEquals( threshold < data.length, spillBuffer.isSpilled(), "Spilled" );
+				Assertions.assertEquals( data.length, spillBuffer.size() );
+				Assertions.assertEquals( crc.getValue(), spillBuffer.getCrc() );
+
+				ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+				spillBuffer.writeTo(outputStream, new byte[4096]);
+				Assertions.assertArrayEquals( data, outputStream.toByteArray() );
+			}
+		}
+	}
+}
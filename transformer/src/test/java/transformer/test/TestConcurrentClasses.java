@@ -0,0 +1,150 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.ClassActionImpl.TransformedClass;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import transformer.test.util.CaptureLoggerImpl;
+
+/**
+ * Verify transformation of classes by worker threads.  Each class is
+ * transformed by a copy of the class action, and the changes of each class
+ * are answered with the class.
+ */
+public class TestConcurrentClasses extends CaptureTest {
+
+	public static final int NUM_THREADS = 4;
+	public static final int NUM_COPIES = 50;
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void createExecutor() {
+		executor = Executors.newFixedThreadPool(NUM_THREADS);
+	}
+
+	@AfterEach
+	public void shutdownExecutor() {
+		executor.shutdownNow();
+		executor = null;
+	}
+
+	/** Classes which are renamed, and one class which is unchanged. */
+	public static final String[] RESOURCE_NAMES = {
+		"transformer/test/TestClassRewrite$Sample.class",
+		"transformer/test/TestClassRewrite$SampleException.class",
+		"transformer/test/TestClassRewrite$DirectName.class",
+		"org/eclipse/transformer/util/ByteData.class"
+	};
+
+	public List<ByteData> readClasses() throws IOException {
+		List<ByteData> inputClasses = new ArrayList<ByteData>();
+		for ( int copyNo = 0; copyNo < NUM_COPIES; copyNo++ ) {
+			for ( String resourceName : RESOURCE_NAMES ) {
+				try ( InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resourceName) ) {
+					Assertions.assertNotNull( inputStream, "Class resource [ " + resourceName + " ] was not found" );
+					ByteData classData = FileUtils.read(resourceName, inputStream); // throws IOException
+					inputClasses.add( new ByteData(resourceName, Arrays.copyOf(classData.data, classData.length)) );
+				}
+			}
+		}
+		return inputClasses;
+	}
+
+	public ClassActionImpl createClassAction() {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+
+		ClassActionImpl rootAction = new ClassActionImpl(
+			useLogger, false, false,
+			createBuffer(),
+			createSelectionRule( useLogger, Collections.emptySet(), Collections.emptySet() ),
+			new SignatureRuleImpl(
+				useLogger,
+				Collections.singletonMap("transformer.test", "transformer.renamed"),
+				null, null, null,
+				Collections.singletonMap("DIRECT_VALUE", "DIRECT_REPLACEMENT") ) );
+
+		// Copies can only be made of an action which has an initializer.
+		return rootAction.createUsing( ClassActionImpl::new );
+	}
+
+	@Test
+	public void testConcurrentClasses() throws Exception {
+		List<ByteData> inputClasses = readClasses();
+
+		ClassActionImpl serialAction = createClassAction();
+		List<TransformedClass> serialClasses = new ArrayList<TransformedClass>();
+		for ( ByteData inputData : inputClasses ) {
+			serialClasses.add( serialAction.transform(inputData) );
+		}
+
+		ClassActionImpl parallelAction = createClassAction();
+		List<TransformedClass> parallelClasses = parallelAction.transform(executor, inputClasses);
+
+		Assertions.assertEquals( inputClasses.size(), parallelClasses.size() );
+
+		for ( int classNo = 0; classNo < inputClasses.size(); classNo++ ) {
+			TransformedClass serialClass = serialClasses.get(classNo);
+			TransformedClass parallelClass = parallelClasses.get(classNo);
+
+			String inputName = inputClasses.get(classNo).name;
+			Assertions.assertEquals( inputName, serialClass.inputName );
+			Assertions.assertEquals( inputName, parallelClass.inputName );
+
+			// The changes of each class are retained after later classes are
+			// transformed.
+
+			boolean expectChanges = inputName.startsWith("transformer/test/");
+			Assertions.assertEquals( expectChanges, serialClass.hasChanges(), inputName );
+			Assertions.assertEquals( expectChanges, parallelClass.hasChanges(), inputName );
+			Assertions.assertEquals( serialClass.getOutputName(), parallelClass.getOutputName() );
+			if ( expectChanges ) {
+				Assertions.assertTrue( parallelClass.getOutputName().startsWith("transformer/renamed/"), inputName );
+			}
+
+			Assertions.assertArrayEquals(
+				Arrays.copyOfRange(serialClass.outputData.data, serialClass.outputData.offset, serialClass.outputData.offset + serialClass.outputData.length),
+				Arrays.copyOfRange(parallelClass.outputData.data, parallelClass.outputData.offset, parallelClass.outputData.offset + parallelClass.outputData.length),
+				inputName );
+		}
+	}
+
+	@Test
+	public void testDetachedChanges() throws Exception {
+		List<ByteData> inputClasses = readClasses();
+
+		ClassActionImpl classAction = createClassAction();
+		TransformedClass changedClass = classAction.transform( inputClasses.get(0) );
+		TransformedClass unchangedClass = classAction.transform( inputClasses.get(RESOURCE_NAMES.length - 1) );
+
+		Assertions.assertNotSame( changedClass.changes, unchangedClass.changes );
+		Assertions.assertTrue( changedClass.hasChanges() );
+		Assertions.assertFalse( unchangedClass.hasChanges() );
+	}
+}
@@ -0,0 +1,256 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.ClassActionImpl;
+import org.eclipse.transformer.action.impl.ClassChangesImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.ConstantPoolCompactor;
+import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.InputStreamData;
+import org.eclipse.transformer.util.RawConstantPool;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import transformer.test.util.CaptureLoggerImpl;
+
+/**
+ * Verify removal of unused constants from rebuilt classes.  Compacted
+ * classes are loaded and run.
+ */
+public class TestConstantCompaction extends CaptureTest {
+
+	public static class CompactException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		public CompactException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * Class which has a string constant which is changed by a direct string.
+	 * The string shares its UTF8 constant with a method name, which is not
+	 * changed: The class cannot be rewritten in place, and is transformed by
+	 * rebuilding the class.
+	 */
+	public static class CompactSample {
+		public static final String SAMPLE_PACKAGE = "transformer.test";
+
+		public CompactSample next;
+		public long total = 1L << 40;
+
+		/** Not invoked by the class, which would reference the method name. */
+		public void DIRECT_VALUE() {
+			// Empty
+		}
+
+		public String direct() {
+			return "DIRECT_VALUE";
+		}
+
+		public CompactSample link(CompactSample other) throws CompactException {
+			if ( other == this ) {
+				throw new CompactException(SAMPLE_PACKAGE);
+			}
+			next = other;
+			return this;
+		}
+
+		public String check() {
+			Runnable runnable = () -> { total++; };
+			runnable.run();
+			try {
+				return link(this).toString();
+			} catch ( CompactException e ) {
+				return e.getMessage() + " " + e.getClass().getName() + " " + total + " " + direct();
+			}
+		}
+	}
+
+	public static final String SAMPLE_RESOURCE_NAME = "transformer/test/TestConstantCompaction$CompactSample.class";
+
+	public static final String RENAMED_PACKAGE = "transformer.renamed";
+
+	public byte[] readClass(String resourceName) throws IOException {
+		try ( InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resourceName) ) {
+			Assertions.assertNotNull( inputStream, "Class resource [ " + resourceName + " ] was not found" );
+			ByteData classData = FileUtils.read(resourceName, inputStream); // throws IOException
+			return Arrays.copyOf(classData.data, classData.length);
+		}
+	}
+
+	public static class CompactAction extends ClassActionImpl {
+		public CompactAction(CaptureTest test, CaptureLoggerImpl useLogger, boolean compactConstants) {
+			super(useLogger, false, false,
+				  test.createBuffer(),
+				  test.createSelectionRule( useLogger, Collections.emptySet(), Collections.emptySet() ),
+				  new SignatureRuleImpl(
+					  useLogger,
+					  Collections.singletonMap("transformer.test", RENAMED_PACKAGE),
+					  null, null, null,
+					  Collections.singletonMap("DIRECT_VALUE", "DIRECT_REPLACEMENT") ) );
+
+			setCompactConstants(compactConstants);
+		}
+
+		public byte[] transform(String inputName, byte[] inputBytes) throws IOException, TransformException {
+			InputStreamData outputData;
+			try ( InputStream inputStream = new ByteArrayInputStream(inputBytes) ) {
+				outputData = apply(inputName, inputStream);
+			}
+			ByteData outputBytes = FileUtils.read(outputData.name, outputData.stream); // throws IOException
+			return Arrays.copyOf(outputBytes.data, outputBytes.length);
+		}
+	}
+
+	@Test
+	public void testCompact() throws Exception {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+		byte[] inputBytes = readClass(SAMPLE_RESOURCE_NAME);
+
+		CompactAction fullAction = new CompactAction(this, useLogger, false);
+		byte[] fullBytes = fullAction.transform(SAMPLE_RESOURCE_NAME, inputBytes);
+		Assertions.assertEquals( 0, fullAction.getLastActiveChanges().getCompactedConstants() );
+
+		CompactAction compactAction = new CompactAction(this, useLogger, true);
+		byte[] compactBytes = compactAction.transform(SAMPLE_RESOURCE_NAME, inputBytes);
+
+		ClassChangesImpl changes = compactAction.getLastActiveChanges();
+		Assertions.assertTrue( changes.getCompactedConstants() > 0 );
+		Assertions.assertEquals( fullBytes.length - compactBytes.length, changes.getCompactedBytes() );
+
+		Assertions.assertFalse( hasUtf8(compactBytes, "transformer/test") );
+		Assertions.assertTrue( hasUtf8(compactBytes, "DIRECT_REPLACEMENT") );
+
+		RawConstantPool compactConstants = RawConstantPool.read(compactBytes, 0, compactBytes.length);
+		Assertions.assertEquals(
+			"transformer/renamed/TestConstantCompaction$CompactSample",
+			compactConstants.getThisClassName() );
+		Assertions.assertEquals( 0, ConstantPoolCompactor.read(compactConstants).getUnusedCount() );
+	}
+
+	private boolean hasUtf8(byte[] classBytes, String fragment) throws IOException {
+		RawConstantPool constants = RawConstantPool.read(classBytes, 0, classBytes.length);
+		for ( int constantNo = 1; constantNo < constants.getCount(); constantNo++ ) {
+			if ( (constants.getTag(constantNo) == RawConstantPool.CONSTANT_Utf8) &&
+				 constants.getUtf8(constantNo).contains(fragment) ) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A class which has no unused constants is written unchanged.
+	 */
+	@Test
+	public void testUnchanged() throws Exception {
+		byte[] inputBytes = readClass(SAMPLE_RESOURCE_NAME);
+
+		ConstantPoolCompactor compactor =
+			ConstantPoolCompactor.read( RawConstantPool.read(inputBytes, 0, inputBytes.length) );
+		Assertions.assertTrue( compactor.isCompactable() );
+		Assertions.assertEquals( 0, compactor.getUnusedCount() );
+		Assertions.assertEquals( inputBytes.length, compactor.getCompactedLength() );
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		compactor.write(outputStream);
+		Assertions.assertArrayEquals( inputBytes, outputStream.toByteArray() );
+	}
+
+	/**
+	 * A class which is compacted in place is the same as a class which is
+	 * compacted into a stream.
+	 */
+	@Test
+	public void testCompactInPlace() throws Exception {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+		byte[] inputBytes = readClass(SAMPLE_RESOURCE_NAME);
+
+		byte[] fullBytes = new CompactAction(this, useLogger, false).transform(SAMPLE_RESOURCE_NAME, inputBytes);
+
+		ConstantPoolCompactor streamCompactor =
+			ConstantPoolCompactor.read( RawConstantPool.read(fullBytes, 0, fullBytes.length) );
+		Assertions.assertTrue( streamCompactor.getUnusedCount() > 0 );
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		streamCompactor.write(outputStream);
+		byte[] streamBytes = outputStream.toByteArray();
+
+		// Compact at an offset, to verify that the class is written at the
+		// offset of the class.
+
+		int offset = 7;
+		byte[] placeBytes = new byte[offset + fullBytes.length];
+		System.arraycopy(fullBytes, 0, placeBytes, offset, fullBytes.length);
+
+		ConstantPoolCompactor placeCompactor =
+			ConstantPoolCompactor.read( RawConstantPool.read(placeBytes, offset, fullBytes.length) );
+		int compactedLength = placeCompactor.compact();
+
+		Assertions.assertEquals( streamBytes.length, compactedLength );
+		Assertions.assertArrayEquals(
+			streamBytes, Arrays.copyOfRange(placeBytes, offset, offset + compactedLength) );
+	}
+
+	/**
+	 * Class loader which loads renamed classes by transforming and
+	 * compacting the initial classes.
+	 */
+	public class CompactLoader extends ClassLoader {
+		public CompactLoader(CompactAction compactAction) {
+			super( TestConstantCompaction.class.getClassLoader() );
+			this.compactAction = compactAction;
+		}
+
+		private final CompactAction compactAction;
+
+		@Override
+		protected Class<?> findClass(String className) throws ClassNotFoundException {
+			if ( !className.startsWith(RENAMED_PACKAGE + ".") ) {
+				throw new ClassNotFoundException(className);
+			}
+			String inputName =
+				"transformer/test/" + className.substring(RENAMED_PACKAGE.length() + 1) + ".class";
+			try {
+				byte[] outputBytes = compactAction.transform( inputName, readClass(inputName) );
+				return defineClass(className, outputBytes, 0, outputBytes.length);
+			} catch ( Exception e ) {
+				throw new ClassNotFoundException(className, e);
+			}
+		}
+	}
+
+	@Test
+	public void testLoad() throws Exception {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+		CompactLoader compactLoader = new CompactLoader( new CompactAction(this, useLogger, true) );
+
+		Class<?> sampleClass = compactLoader.loadClass(RENAMED_PACKAGE + ".TestConstantCompaction$CompactSample");
+		Object sample = sampleClass.getConstructor().newInstance();
+		Object result = sampleClass.getMethod("check").invoke(sample);
+
+		Assertions.assertEquals(
+			RENAMED_PACKAGE + " " + RENAMED_PACKAGE + ".TestConstantCompaction$CompactException " +
+				((1L << 40) + 1L) + " DIRECT_REPLACEMENT",
+			result );
+	}
+}
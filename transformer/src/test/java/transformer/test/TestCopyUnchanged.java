@@ -0,0 +1,172 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.JarActionImpl;
+import org.eclipse.transformer.action.impl.NullActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.ServiceLoaderConfigActionImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.action.impl.ZipActionImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import transformer.test.util.CaptureLoggerImpl;
+
+public class TestCopyUnchanged extends CaptureTest {
+
+	public static final String UNCHANGED_NAME = "lib/unchanged.jar";
+	public static final String STORED_NAME = "lib/stored.jar";
+	public static final String CHANGED_NAME = "lib/changed.jar";
+
+	public static final String SERVICE_NAME = "META-INF/services/javax.copy.Service";
+	public static final String RENAMED_SERVICE_NAME = "META-INF/services/jakarta.copy.Service";
+
+	public static byte[] createNestedArchive(int seed, boolean addService) throws IOException {
+		ByteArrayOutputStream archiveStream = new ByteArrayOutputStream();
+		try ( ZipOutputStream zipOutputStream = new ZipOutputStream(archiveStream) ) {
+			for ( int entryNo = 0; entryNo < 10; entryNo++ ) {
+				zipOutputStream.putNextEntry( new ZipEntry("entry" + entryNo + ".txt") );
+				zipOutputStream.write( TestCompressionPolicy.createData(10000, seed + entryNo) );
+				zipOutputStream.closeEntry();
+			}
+			if ( addService ) {
+				zipOutputStream.putNextEntry( new ZipEntry(SERVICE_NAME) );
+				zipOutputStream.write( "javax.copy.Provider\n".getBytes("UTF-8") );
+				zipOutputStream.closeEntry();
+			}
+		}
+		return archiveStream.toByteArray();
+	}
+
+	public static byte[] createArchive() throws IOException {
+		ByteArrayOutputStream archiveStream = new ByteArrayOutputStream();
+		try ( ZipOutputStream zipOutputStream = new ZipOutputStream(archiveStream) ) {
+			// Deflated, with a data descriptor.
+			zipOutputStream.putNextEntry( new ZipEntry(UNCHANGED_NAME) );
+			zipOutputStream.write( createNestedArchive(100, false) );
+			zipOutputStream.closeEntry();
+
+			byte[] storedArchive = createNestedArchive(200, false);
+			CRC32 crc = new CRC32();
+			crc.update(storedArchive);
+			ZipEntry storedEntry = new ZipEntry(STORED_NAME);
+			storedEntry.setMethod(ZipEntry.STORED);
+			storedEntry.setSize(storedArchive.length);
+			storedEntry.setCrc( crc.getValue() );
+			zipOutputStream.putNextEntry(storedEntry);
+			zipOutputStream.write(storedArchive);
+			zipOutputStream.closeEntry();
+
+			zipOutputStream.putNextEntry( new ZipEntry(CHANGED_NAME) );
+			zipOutputStream.write( createNestedArchive(300, true) );
+			zipOutputStream.closeEntry();
+		}
+		return archiveStream.toByteArray();
+	}
+
+	public ZipActionImpl createZipAction(boolean copyUnchanged) {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+
+		SelectionRuleImpl selectionRule = createSelectionRule(
+			useLogger, Collections.emptySet(), Collections.emptySet() );
+		SignatureRuleImpl signatureRule = createSignatureRule(
+			useLogger,
+			Collections.singletonMap("javax.copy", "jakarta.copy"), Collections.emptyMap(),
+			Collections.emptyMap(), Collections.emptyMap() );
+
+		ZipActionImpl zipAction = new ZipActionImpl(
+			useLogger, false, false,
+			createBuffer(),
+			selectionRule, signatureRule );
+
+		JarActionImpl jarAction = zipAction.addUsing( JarActionImpl::new );
+		ServiceLoaderConfigActionImpl serviceAction = zipAction.addUsing( ServiceLoaderConfigActionImpl::new );
+		NullActionImpl nullAction = zipAction.addUsing( NullActionImpl::new );
+		jarAction.addAction(serviceAction);
+		jarAction.addAction(nullAction);
+
+		zipAction.setCopyUnchanged(copyUnchanged);
+		jarAction.setCopyUnchanged(copyUnchanged);
+
+		return zipAction;
+	}
+
+	public void verify(byte[] inputArchive, byte[] outputArchive) throws IOException {
+		Map<String, byte[]> inputEntries = TestZipPassthrough.readArchive(inputArchive);
+		Map<String, byte[]> outputEntries = TestZipPassthrough.readArchive(outputArchive);
+
+		Assertions.assertEquals( inputEntries.keySet(), outputEntries.keySet(), "Entry names" );
+
+		// The unchanged nested archives are copied: Their data and their
+		// compressed sizes are unchanged.
+
+		Map<String, Long> inputSizes = TestZipPassthrough.readCompressedSizes(inputArchive);
+		Map<String, Long> outputSizes = TestZipPassthrough.readCompressedSizes(outputArchive);
+
+		for ( String unchangedName : new String[] { UNCHANGED_NAME, STORED_NAME } ) {
+			Assertions.assertArrayEquals( inputEntries.get(unchangedName), outputEntries.get(unchangedName), "Nested archive [ " + unchangedName + " ]" );
+			Assertions.assertEquals( inputSizes.get(unchangedName), outputSizes.get(unchangedName), "Compressed size [ " + unchangedName + " ]" );
+		}
+
+		// The changed nested archive is transformed.
+
+		Map<String, byte[]> changedEntries = TestZipPassthrough.readArchive( outputEntries.get(CHANGED_NAME) );
+		Assertions.assertTrue( changedEntries.containsKey(RENAMED_SERVICE_NAME), "Renamed service" );
+		Assertions.assertFalse( changedEntries.containsKey(SERVICE_NAME), "Original service" );
+	}
+
+	//
+
+	@Test
+	public void testCopyUnchangedStream() throws IOException, TransformException {
+		byte[] inputArchive = createArchive();
+
+		ZipActionImpl copyAction = createZipAction(true);
+		byte[] outputArchive = TestZipPassthrough.transformArchive(copyAction, inputArchive);
+		verify(inputArchive, outputArchive);
+
+		ZipActionImpl rewriteAction = createZipAction(false);
+		TestZipPassthrough.transformArchive(rewriteAction, inputArchive);
+
+		TestParallelContainer.assertSameChanges( rewriteAction.getLastActiveChanges(), copyAction.getLastActiveChanges() );
+		Assertions.assertTrue( copyAction.getLastActiveChanges().hasNestedChanges(), "Nested changes" );
+	}
+
+	@Test
+	public void testCopyUnchangedFile() throws IOException, TransformException {
+		byte[] inputArchive = createArchive();
+		File inputFile = TestRawZipFile.writeTempFile("copy", null, inputArchive);
+
+		File outputFile = TestRawZipFile.createOutputFile();
+		ZipActionImpl copyAction = createZipAction(true);
+		copyAction.apply("copy.zip", inputFile, outputFile);
+		verify( inputArchive, Files.readAllBytes(outputFile.toPath()) );
+
+		File rewriteFile = TestRawZipFile.createOutputFile();
+		ZipActionImpl rewriteAction = createZipAction(false);
+		rewriteAction.apply("copy.zip", inputFile, rewriteFile);
+
+		TestParallelContainer.assertSameChanges( rewriteAction.getLastActiveChanges(), copyAction.getLastActiveChanges() );
+	}
+}
@@ -0,0 +1,124 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.transformer.action.SignatureRule;
+import org.eclipse.transformer.action.SignatureRule.SignatureType;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestDescriptorScan extends CaptureTest {
+
+	/**
+	 * Signature rule which records the generic signatures which are to be
+	 * parsed, instead of parsing them.
+	 */
+	public class ParseRecordingRule extends SignatureRuleImpl {
+		public final List<String> parsed = new ArrayList<String>();
+
+		public ParseRecordingRule() {
+			super( getCaptureLogger(),
+				Collections.singletonMap("javax.servlet", "jakarta.servlet"),
+				null, null, null, null );
+		}
+
+		@Override
+		public String transform(String input, SignatureType signatureType) {
+			if ( input.indexOf('<') == -1 ) {
+				return super.transform(input, signatureType);
+			}
+			parsed.add(input);
+			return "parsed";
+		}
+	}
+
+	@Test
+	public void testDescriptors() {
+		ParseRecordingRule rule = new ParseRecordingRule();
+
+		Assertions.assertEquals(
+			"(Ljakarta/servlet/Servlet;I[[Ljakarta/servlet/Filter;)Ljava/lang/String;",
+			rule.transformDescriptor("(Ljavax/servlet/Servlet;I[[Ljavax/servlet/Filter;)Ljava/lang/String;") );
+		Assertions.assertEquals(
+			"Ljakarta/servlet/Servlet$Inner;",
+			rule.transformDescriptor("Ljavax/servlet/Servlet$Inner;") );
+		Assertions.assertEquals(
+			"[Ljakarta/servlet/Servlet;",
+			rule.transformBinaryType("[Ljavax/servlet/Servlet;") );
+
+		Assertions.assertNull( rule.transformDescriptor("(IJ[Ljava/lang/String;)V") );
+		Assertions.assertNull( rule.transformDescriptor("[[Ljava/lang/Object;") );
+		Assertions.assertNull( rule.transformDescriptor("Ljavax/servlet/http/HttpServlet;") );
+		Assertions.assertNull( rule.transformBinaryType("[I") );
+
+		Assertions.assertTrue( rule.parsed.isEmpty() );
+	}
+
+	@Test
+	public void testSignatures() {
+		ParseRecordingRule rule = new ParseRecordingRule();
+
+		// Generic signatures are parsed only when they are changed.
+
+		Assertions.assertNull( rule.transformDescriptor("Ljava/util/List<Ljava/lang/String;>;") );
+		Assertions.assertNull( rule.transformDescriptor("<T:Ljava/lang/Object;>(TT;)TT;^Ljava/io/IOException;") );
+		Assertions.assertTrue( rule.parsed.isEmpty() );
+
+		Assertions.assertEquals( "parsed", rule.transformDescriptor("Ljava/util/List<Ljavax/servlet/Servlet;>;") );
+		Assertions.assertEquals( 1, rule.parsed.size() );
+
+		// Signatures without type parameters or arguments are not parsed.
+
+		Assertions.assertEquals(
+			"Ljava/lang/Object;Ljakarta/servlet/Servlet;",
+			rule.transform("Ljava/lang/Object;Ljavax/servlet/Servlet;", SignatureType.CLASS) );
+		Assertions.assertEquals(
+			"(Ljakarta/servlet/Servlet;)V",
+			rule.transform("(Ljavax/servlet/Servlet;)V", SignatureType.METHOD) );
+		Assertions.assertEquals( 1, rule.parsed.size() );
+	}
+
+	@Test
+	public void testConstants() {
+		ParseRecordingRule rule = new ParseRecordingRule();
+
+		// Values which are not descriptors are not parsed, and are
+		// transformed as text.
+
+		String[] unchanged = {
+			"[WARNING] Unexpected value", "(see above)", "Lorem ipsum;", "L;", "Ljava//Object;",
+			"(Ljava/lang/Object;", "[Ljava/lang/Object;)", "(I)Vextra", "[", "Ljava/util/List<>;"
+		};
+		for ( String constant : unchanged ) {
+			Assertions.assertNull(
+				rule.transformConstantAsDescriptor(constant, SignatureRule.ALLOW_SIMPLE_SUBSTITUTION),
+				"Constant [ " + constant + " ]" );
+			Assertions.assertNull(
+				rule.transformConstantAsBinaryType(constant, SignatureRule.ALLOW_SIMPLE_SUBSTITUTION),
+				"Constant [ " + constant + " ]" );
+		}
+
+		Assertions.assertEquals(
+			"[WARNING] Unexpected jakarta.servlet.Servlet",
+			rule.transformConstantAsDescriptor("[WARNING] Unexpected javax.servlet.Servlet", SignatureRule.ALLOW_SIMPLE_SUBSTITUTION) );
+		Assertions.assertEquals(
+			"[WARNING] Unexpected jakarta/servlet/Servlet",
+			rule.transformConstantAsBinaryType("[WARNING] Unexpected javax/servlet/Servlet", SignatureRule.ALLOW_SIMPLE_SUBSTITUTION) );
+
+		Assertions.assertTrue( rule.parsed.isEmpty() );
+	}
+}
@@ -0,0 +1,176 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.ContainerChangesImpl;
+import org.eclipse.transformer.action.impl.DirectoryActionImpl;
+import org.eclipse.transformer.action.impl.NullActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.ServiceLoaderConfigActionImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import transformer.test.util.CaptureLoggerImpl;
+
+public class TestDirectoryChannels extends CaptureTest {
+
+	public static final String SERVICES_PATH = "META-INF/services/";
+
+	public static final String CHANGED_NAME = "javax.channels.Changed";
+	public static final String UNCHANGED_NAME = "other.channels.Unchanged";
+	public static final String LARGE_NAME = "javax.channels.Large";
+
+	public static final String DATA_NAME = "data/large.bin";
+
+	public DirectoryActionImpl createDirectoryAction() {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+
+		SelectionRuleImpl selectionRule = createSelectionRule(
+			useLogger, Collections.emptySet(), Collections.emptySet() );
+		SignatureRuleImpl signatureRule = createSignatureRule(
+			useLogger,
+			Collections.singletonMap("javax.channels", "jakarta.channels"), Collections.emptyMap(),
+			Collections.emptyMap(), Collections.emptyMap() );
+
+		DirectoryActionImpl directoryAction = new DirectoryActionImpl(
+			useLogger, false, false,
+			createBuffer(),
+			selectionRule, signatureRule );
+
+		directoryAction.addUsing( ServiceLoaderConfigActionImpl::new );
+		directoryAction.addUsing( NullActionImpl::new );
+
+		return directoryAction;
+	}
+
+	/**
+	 * Create a directory within a temporary directory.  The temporary
+	 * directory, which is removed after the test, removes the new directory.
+	 *
+	 * @param tempDir The temporary directory of the test.
+	 * @param name The name of the directory which is to be created.
+	 *
+	 * @return The new directory.
+	 *
+	 * @throws IOException Thrown if the directory cannot be created.
+	 */
+	public static File createDirectory(File tempDir, String name) throws IOException {
+		return Files.createDirectory( new File(tempDir, name).toPath() ).toFile();
+	}
+
+	public static void write(File file, byte[] data) throws IOException {
+		file.getParentFile().mkdirs();
+		Files.write( file.toPath(), data );
+	}
+
+	public static byte[] read(File file) throws IOException {
+		return Files.readAllBytes( file.toPath() );
+	}
+
+	public static String createProviders(String packageName, int count) {
+		StringBuilder providers = new StringBuilder();
+		for ( int providerNo = 0; providerNo < count; providerNo++ ) {
+			providers.append(packageName).append(".Provider").append(providerNo).append('\n');
+		}
+		return providers.toString();
+	}
+
+	//
+
+	@Test
+	public void testDirectoryChannels(@TempDir File tempDir) throws IOException, TransformException {
+		File inputDir = createDirectory(tempDir, "channelsInput");
+		File outputDir = createDirectory(tempDir, "channelsOutput");
+
+		byte[] changedData = createProviders("javax.channels", 10).getBytes(StandardCharsets.UTF_8);
+		byte[] unchangedData = createProviders("other.channels", 10).getBytes(StandardCharsets.UTF_8);
+
+		// Large enough to be mapped, then transformed.
+		byte[] largeData = createProviders("javax.channels", 100000).getBytes(StandardCharsets.UTF_8);
+		Assertions.assertTrue( largeData.length >= FileUtils.MAP_THRESHOLD, "Large service configuration" );
+
+		// Large enough to be mapped; copied by the null action.
+		byte[] binaryData = TestCompressionPolicy.createData(3 * FileUtils.MAP_THRESHOLD, 8);
+
+		write( new File(inputDir, SERVICES_PATH + CHANGED_NAME), changedData );
+		write( new File(inputDir, SERVICES_PATH + UNCHANGED_NAME), unchangedData );
+		write( new File(inputDir, SERVICES_PATH + LARGE_NAME), largeData );
+		write( new File(inputDir, DATA_NAME), binaryData );
+
+		DirectoryActionImpl directoryAction = createDirectoryAction();
+		directoryAction.apply(".", inputDir, outputDir);
+
+		// Service configuration files are written to their original names:
+		// File transforms do not rename files.
+
+		Assertions.assertEquals(
+			createProviders("jakarta.channels", 10),
+			new String( read(new File(outputDir, SERVICES_PATH + CHANGED_NAME)), StandardCharsets.UTF_8 ),
+			"Changed service configuration" );
+
+		Assertions.assertArrayEquals(
+			unchangedData,
+			read( new File(outputDir, SERVICES_PATH + UNCHANGED_NAME) ),
+			"Unchanged service configuration" );
+
+		Assertions.assertEquals(
+			createProviders("jakarta.channels", 100000),
+			new String( read(new File(outputDir, SERVICES_PATH + LARGE_NAME)), StandardCharsets.UTF_8 ),
+			"Large service configuration" );
+
+		Assertions.assertArrayEquals(
+			binaryData,
+			read( new File(outputDir, DATA_NAME) ),
+			"Copied data" );
+
+		ContainerChangesImpl changes = directoryAction.getLastActiveChanges();
+		Assertions.assertEquals( 4, changes.getAllResources(), "All resources" );
+		Assertions.assertEquals( 2, changes.getAllChanged(), "All changed" );
+	}
+
+	@Test
+	public void testReadChannel(@TempDir File tempDir) throws IOException {
+		File inputDir = createDirectory(tempDir, "channelsRead");
+
+		for ( int size : new int[] { 0, 100, FileUtils.MAP_THRESHOLD - 1, FileUtils.MAP_THRESHOLD, FileUtils.MAP_THRESHOLD * 2 + 7 } ) {
+			byte[] data = TestCompressionPolicy.createData(size, size);
+			File inputFile = new File(inputDir, "data" + size);
+			write(inputFile, data);
+
+			// Use a buffer which is too small for the larger files.
+			byte[] buffer = new byte[FileUtils.BUFFER_ADJUSTMENT];
+
+			try ( FileChannel inputChannel = FileChannel.open(inputFile.toPath()) ) {
+				ByteData readData = FileUtils.read(inputFile.getName(), inputChannel, buffer);
+				Assertions.assertEquals( size, readData.length, "Size [ " + size + " ]" );
+				Assertions.assertArrayEquals(
+					data,
+					Arrays.copyOfRange(readData.data, readData.offset, readData.offset + readData.length),
+					"Size [ " + size + " ]" );
+				Assertions.assertEquals( (size <= buffer.length), (readData.data == buffer), "Buffer reuse [ " + size + " ]" );
+			}
+		}
+	}
+}
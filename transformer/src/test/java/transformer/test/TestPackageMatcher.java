@@ -0,0 +1,193 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import org.eclipse.transformer.util.PackageMatcher;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestPackageMatcher {
+
+	public static Map<String, String> loadDefaultRenames() throws IOException {
+		Properties properties = new Properties();
+		try ( InputStream inputStream = TestUtils.getResourceStream( TestLoad.putIntoTransformer(TestLoad.RULES_RENAMES_PATH) ) ) {
+			properties.load(inputStream);
+		}
+
+		Map<String, String> renames = new HashMap<String, String>( properties.size() );
+		for ( String key : properties.stringPropertyNames() ) {
+			renames.put( key, properties.getProperty(key) );
+		}
+		return renames;
+	}
+
+	public static Map<String, String> renames(String... keysAndValues) {
+		Map<String, String> renames = new HashMap<String, String>();
+		for ( int keyNo = 0; keyNo < keysAndValues.length; keyNo += 2 ) {
+			renames.put( keysAndValues[keyNo], keysAndValues[keyNo + 1] );
+		}
+		return renames;
+	}
+
+	/**
+	 * Reference replacement: Scan the text once for each rename, using the
+	 * same boundary rules as the matcher.  Used to verify the matcher for
+	 * rename tables which have no wildcards and which have no replacement
+	 * values which match other keys.
+	 */
+	public static String replaceSequentially(String text, Map<String, String> renames) {
+		String initialText = text;
+
+		for ( Map.Entry<String, String> renameEntry : renames.entrySet() ) {
+			String key = renameEntry.getKey();
+			int keyLen = key.length();
+			String value = renameEntry.getValue();
+
+			int lastMatchEnd = 0;
+			int matchStart;
+			while ( (matchStart = text.indexOf(key, lastMatchEnd)) != -1 ) {
+				if ( !PackageMatcher.isTruePackageMatch(text, matchStart, keyLen, false) ) {
+					lastMatchEnd = matchStart + keyLen;
+					continue;
+				}
+				text = text.substring(0, matchStart) + value + text.substring(matchStart + keyLen);
+				lastMatchEnd = matchStart + value.length();
+			}
+		}
+
+		return ( (text == initialText) ? null : text );
+	}
+
+	//
+
+	@Test
+	public void testExactMatch() {
+		PackageMatcher matcher = new PackageMatcher( renames("javax.servlet", "jakarta.servlet") );
+
+		Assertions.assertEquals( "jakarta.servlet.Servlet", matcher.replace("javax.servlet.Servlet") );
+		Assertions.assertEquals( "jakarta.servlet", matcher.replace("javax.servlet") );
+		Assertions.assertEquals( "jakarta.servlet;version=\"[2.6,3)\"", matcher.replace("javax.servlet;version=\"[2.6,3)\"") );
+
+		// Sub-packages and enclosing packages are not matched.
+		Assertions.assertNull( matcher.replace("javax.servlet.http.HttpServlet") );
+		Assertions.assertNull( matcher.replace("javax.servlet.2") );
+		Assertions.assertNull( matcher.replace("my.javax.servlet") );
+		Assertions.assertNull( matcher.replace("myjavax.servlet") );
+		Assertions.assertNull( matcher.replace("javax.servletx") );
+		Assertions.assertNull( matcher.replace("javax.servle") );
+		Assertions.assertNull( matcher.replace("") );
+	}
+
+	@Test
+	public void testMultipleMatches() {
+		PackageMatcher matcher = new PackageMatcher( renames(
+			"javax.servlet", "jakarta.servlet",
+			"javax.servlet.http", "jakarta.servlet.http",
+			"javax.ejb", "jakarta.ejb" ) );
+
+		Assertions.assertEquals(
+			"jakarta.servlet,jakarta.servlet.http;jakarta.ejb.EJB other.pkg jakarta.servlet.http.HttpServlet",
+			matcher.replace("javax.servlet,javax.servlet.http;javax.ejb.EJB other.pkg javax.servlet.http.HttpServlet") );
+
+		PackageMatcher.Match match = matcher.match("xx javax.servlet.http.Cookie", 0);
+		Assertions.assertNotNull(match);
+		Assertions.assertEquals( 3, match.start );
+		Assertions.assertEquals( 3 + "javax.servlet.http".length(), match.end );
+		Assertions.assertEquals( "javax.servlet.http", match.key );
+		Assertions.assertEquals( "jakarta.servlet.http", match.value );
+
+		Assertions.assertNull( matcher.match("xx javax.servlet.http.Cookie", 4) );
+	}
+
+	@Test
+	public void testWildcardMatch() {
+		PackageMatcher matcher = new PackageMatcher( renames("javax.servlet.*", "jakarta.servlet") );
+
+		Assertions.assertEquals( "jakarta.servlet.Servlet", matcher.replace("javax.servlet.Servlet") );
+		Assertions.assertEquals( "jakarta.servlet.http.HttpServlet", matcher.replace("javax.servlet.http.HttpServlet") );
+		Assertions.assertNull( matcher.replace("my.javax.servlet.http") );
+		Assertions.assertNull( matcher.replace("javax.servletx") );
+
+		// An exact key is preferred to a wildcard key.
+		matcher = new PackageMatcher( renames(
+			"javax.servlet.*", "jakarta.servlet",
+			"javax.servlet", "exact.servlet" ) );
+		Assertions.assertEquals( "exact.servlet.Servlet", matcher.replace("javax.servlet.Servlet") );
+		Assertions.assertEquals( "jakarta.servlet.http", matcher.replace("javax.servlet.http") );
+
+		// Binary wildcards.
+		matcher = new PackageMatcher( renames("javax/servlet/*", "jakarta/servlet") );
+		Assertions.assertEquals( "jakarta/servlet/http/HttpServlet", matcher.replace("javax/servlet/http/HttpServlet") );
+	}
+
+	@Test
+	public void testNoCascade() {
+		PackageMatcher matcher = new PackageMatcher( renames(
+			"a.b", "c.d",
+			"c.d", "e.f" ) );
+
+		// Replacement values are not matched again.
+		Assertions.assertEquals( "c.d.X e.f.Y", matcher.replace("a.b.X c.d.Y") );
+	}
+
+	@Test
+	public void testEmpty() {
+		PackageMatcher matcher = new PackageMatcher( new HashMap<String, String>() );
+		Assertions.assertTrue( matcher.isEmpty() );
+		Assertions.assertNull( matcher.replace("javax.servlet.Servlet") );
+	}
+
+	/**
+	 * Verify the matcher against sequential replacement, using the default
+	 * jakarta renames and generated texts.
+	 */
+	@Test
+	public void testDefaultRenames() throws IOException {
+		Map<String, String> renames = loadDefaultRenames();
+		Assertions.assertFalse( renames.isEmpty() );
+
+		PackageMatcher matcher = new PackageMatcher(renames);
+
+		List<String> fragments = new ArrayList<String>( renames.keySet() );
+		fragments.add("com.ibm.ws.util");
+		fragments.add("javax.other");
+		fragments.add("myjavax.servlet");
+		fragments.add("Servlet");
+		fragments.add("http");
+		fragments.add("2");
+		String[] separators = { ".", ",", ";", " ", "/", "\"", "=", "" };
+
+		Random random = new Random(11);
+		for ( int textNo = 0; textNo < 2000; textNo++ ) {
+			StringBuilder textBuilder = new StringBuilder();
+			int numFragments = random.nextInt(12);
+			for ( int fragmentNo = 0; fragmentNo < numFragments; fragmentNo++ ) {
+				textBuilder.append( fragments.get(random.nextInt(fragments.size())) );
+				textBuilder.append( separators[random.nextInt(separators.length)] );
+			}
+			String text = textBuilder.toString();
+
+			Assertions.assertEquals(
+				replaceSequentially(text, renames), matcher.replace(text),
+				"Text [ " + text + " ]" );
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.transformer.util.PackageTable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Verify package lookups by character range, and compare their times with
+ * lookups of package substrings.  Times are displayed but are not verified.
+ */
+public class TestPackageTable {
+
+	public static Map<String, String> createRenames(int numRenames) {
+		Map<String, String> renames = new HashMap<String, String>();
+		for ( int renameNo = 0; renameNo < numRenames; renameNo++ ) {
+			renames.put( "javax/package" + renameNo, "jakarta/package" + renameNo );
+		}
+		return renames;
+	}
+
+	@Test
+	public void testLookup() {
+		Map<String, String> renames = createRenames(1000);
+		PackageTable table = new PackageTable(renames);
+		Assertions.assertEquals( renames.size(), table.size() );
+
+		for ( Map.Entry<String, String> renameEntry : renames.entrySet() ) {
+			String typeName = "L" + renameEntry.getKey() + "/Type;";
+			int packageEnd = typeName.lastIndexOf('/');
+
+			Assertions.assertEquals( renameEntry.getValue(), table.get( renameEntry.getKey() ) );
+			Assertions.assertEquals( renameEntry.getValue(), table.get(typeName, 1, packageEnd) );
+			Assertions.assertEquals( renameEntry.getValue(), table.get(new StringBuilder(typeName), 1, packageEnd) );
+
+			Assertions.assertNull( table.get(typeName, 0, packageEnd) );
+			Assertions.assertNull( table.get(typeName, 2, packageEnd) );
+		}
+
+		Assertions.assertNull( table.get("javax/package") );
+		Assertions.assertNull( table.get("") );
+
+		PackageTable emptyTable = new PackageTable( Collections.<String, String> emptyMap() );
+		Assertions.assertTrue( emptyTable.isEmpty() );
+		Assertions.assertNull( emptyTable.get("javax/package0") );
+	}
+
+	//
+
+	public static final int NUM_BENCHMARK_NAMES = 200000;
+
+	@Test
+	public void testBenchmark() {
+		Map<String, String> renames = createRenames(100);
+		PackageTable table = new PackageTable(renames);
+
+		String[] names = new String[NUM_BENCHMARK_NAMES];
+		for ( int nameNo = 0; nameNo < NUM_BENCHMARK_NAMES; nameNo++ ) {
+			names[nameNo] = "org/example/package" + (nameNo % 1000) + "/Type" + nameNo;
+		}
+
+		long minSubstringNs = -1L;
+		long minRangeNs = -1L;
+		int misses = 0;
+		for ( int trial = 0; trial < 5; trial++ ) {
+			long startNs = System.nanoTime();
+			for ( String name : names ) {
+				if ( renames.get( name.substring(0, name.lastIndexOf('/')) ) == null ) {
+					misses++;
+				}
+			}
+			long substringNs = System.nanoTime() - startNs;
+
+			startNs = System.nanoTime();
+			for ( String name : names ) {
+				if ( table.get(name, 0, name.lastIndexOf('/')) == null ) {
+					misses++;
+				}
+			}
+			long rangeNs = System.nanoTime() - startNs;
+
+			if ( (minSubstringNs == -1L) || (substringNs < minSubstringNs) ) {
+				minSubstringNs = substringNs;
+			}
+			if ( (minRangeNs == -1L) || (rangeNs < minRangeNs) ) {
+				minRangeNs = rangeNs;
+			}
+		}
+		Assertions.assertEquals( 2 * 5 * NUM_BENCHMARK_NAMES, misses );
+
+		System.out.println("Package lookup benchmark: [ " + names.length + " ] names [ " + renames.size() + " ] renames");
+		System.out.println("  Substring [ " + (minSubstringNs / 1000000L) + " ms ]");
+		System.out.println("  Range     [ " + (minRangeNs / 1000000L) + " ms ]");
+	}
+}
@@ -0,0 +1,197 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.ContainerChangesImpl;
+import org.eclipse.transformer.action.impl.JarActionImpl;
+import org.eclipse.transformer.action.impl.NullActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.ServiceLoaderConfigActionImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.action.impl.ZipActionImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import transformer.test.util.CaptureLoggerImpl;
+
+public class TestParallelContainer extends CaptureTest {
+
+	public static final int NUM_THREADS = 4;
+	public static final int MAX_PENDING = NUM_THREADS * 4;
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void createExecutor() {
+		executor = Executors.newFixedThreadPool(NUM_THREADS);
+	}
+
+	@AfterEach
+	public void shutdownExecutor() {
+		executor.shutdownNow();
+		executor = null;
+	}
+
+	public static final String SERVICES_PREFIX = "META-INF/services/javax.parallel.Service";
+
+	/**
+	 * Create an archive which contains a nested archive and service
+	 * configuration entries in addition to the usual test entries.
+	 *
+	 * Service configuration entries are transformed by worker threads.
+	 * The other entries are copied or are transformed by the calling thread.
+	 */
+	public static byte[] createArchive() throws IOException {
+		byte[] nestedArchive = TestZipPassthrough.createArchive();
+
+		ByteArrayOutputStream archiveStream = new ByteArrayOutputStream();
+		try ( ZipOutputStream zipOutputStream = new ZipOutputStream(archiveStream) ) {
+			ZipInputStream zipInputStream = new ZipInputStream( new ByteArrayInputStream(nestedArchive) );
+
+			int entryNo = 0;
+			ZipEntry inputEntry;
+			while ( (inputEntry = zipInputStream.getNextEntry()) != null ) {
+				if ( entryNo == TestZipPassthrough.NUM_ENTRIES / 2 ) {
+					zipOutputStream.putNextEntry( new ZipEntry("nested.jar") );
+					zipOutputStream.write(nestedArchive);
+					zipOutputStream.closeEntry();
+				}
+
+				if ( (entryNo % 3) == 0 ) {
+					zipOutputStream.putNextEntry( new ZipEntry(SERVICES_PREFIX + entryNo) );
+					zipOutputStream.write( ("javax.parallel.Provider" + entryNo + "\n").getBytes("UTF-8") );
+					zipOutputStream.closeEntry();
+				}
+
+				zipOutputStream.putNextEntry( new ZipEntry(inputEntry.getName()) );
+				byte[] buffer = new byte[4096];
+				int bytesRead;
+				while ( (bytesRead = zipInputStream.read(buffer)) != -1 ) {
+					zipOutputStream.write(buffer, 0, bytesRead);
+				}
+				zipOutputStream.closeEntry();
+
+				entryNo++;
+			}
+		}
+		return archiveStream.toByteArray();
+	}
+
+	public ZipActionImpl createZipAction(boolean parallel) {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+
+		// Entries which end with '3.bin' are not selected, and are copied
+		// between the entries which are transformed.
+
+		SelectionRuleImpl selectionRule = createSelectionRule(
+			useLogger, Collections.emptySet(), Collections.singleton("*3.bin") );
+		SignatureRuleImpl signatureRule = createSignatureRule(
+			useLogger,
+			Collections.singletonMap("javax.parallel", "jakarta.parallel"), Collections.emptyMap(),
+			Collections.emptyMap(), Collections.emptyMap() );
+
+		ZipActionImpl zipAction = new ZipActionImpl(
+			useLogger, false, false,
+			createBuffer(),
+			selectionRule, signatureRule );
+
+		JarActionImpl jarAction = zipAction.addUsing( JarActionImpl::new );
+		ServiceLoaderConfigActionImpl serviceAction = zipAction.addUsing( ServiceLoaderConfigActionImpl::new );
+		NullActionImpl nullAction = zipAction.addUsing( NullActionImpl::new );
+		jarAction.addAction(nullAction);
+
+		if ( parallel ) {
+			zipAction.setExecutor(executor, MAX_PENDING);
+			jarAction.setExecutor(executor, MAX_PENDING);
+		}
+
+		return zipAction;
+	}
+
+	public static List<String> readNames(byte[] archive) throws IOException {
+		List<String> names = new ArrayList<String>();
+		ZipInputStream zipInputStream = new ZipInputStream( new ByteArrayInputStream(archive) );
+		ZipEntry entry;
+		while ( (entry = zipInputStream.getNextEntry()) != null ) {
+			names.add( entry.getName() );
+		}
+		return names;
+	}
+
+	public static void assertSameChanges(ContainerChangesImpl expected, ContainerChangesImpl actual) {
+		Assertions.assertEquals( expected.getAllResources(), actual.getAllResources(), "All resources" );
+		Assertions.assertEquals( expected.getAllSelected(), actual.getAllSelected(), "All selected" );
+		Assertions.assertEquals( expected.getAllUnselected(), actual.getAllUnselected(), "All unselected" );
+		Assertions.assertEquals( expected.getAllChanged(), actual.getAllChanged(), "All changed" );
+		Assertions.assertEquals( expected.getAllUnchanged(), actual.getAllUnchanged(), "All unchanged" );
+	}
+
+	//
+
+	@Test
+	public void testParallelStream() throws IOException, TransformException {
+		byte[] inputArchive = createArchive();
+
+		ZipActionImpl serialAction = createZipAction(false);
+		byte[] serialArchive = TestZipPassthrough.transformArchive(serialAction, inputArchive);
+
+		ZipActionImpl parallelAction = createZipAction(true);
+		byte[] parallelArchive = TestZipPassthrough.transformArchive(parallelAction, inputArchive);
+
+		Assertions.assertEquals( readNames(serialArchive), readNames(parallelArchive), "Entry order" );
+		Assertions.assertArrayEquals(serialArchive, parallelArchive, "Parallel output");
+		Assertions.assertTrue( readNames(parallelArchive).contains("META-INF/services/jakarta.parallel.Service0"), "Renamed entry" );
+
+		assertSameChanges( serialAction.getLastActiveChanges(), parallelAction.getLastActiveChanges() );
+		Assertions.assertTrue( parallelAction.getLastActiveChanges().getAllChanged() > 0, "Changed entries" );
+	}
+
+	@Test
+	public void testParallelFile() throws IOException, TransformException {
+		byte[] inputArchive = createArchive();
+		File inputFile = TestRawZipFile.writeTempFile("parallel", null, inputArchive);
+
+		File serialFile = TestRawZipFile.createOutputFile();
+		ZipActionImpl serialAction = createZipAction(false);
+		serialAction.apply("parallel.zip", inputFile, serialFile);
+
+		File parallelFile = TestRawZipFile.createOutputFile();
+		ZipActionImpl parallelAction = createZipAction(true);
+		parallelAction.apply("parallel.zip", inputFile, parallelFile);
+
+		byte[] serialArchive = Files.readAllBytes( serialFile.toPath() );
+		byte[] parallelArchive = Files.readAllBytes( parallelFile.toPath() );
+
+		Assertions.assertEquals( readNames(serialArchive), readNames(parallelArchive), "Entry order" );
+		Assertions.assertArrayEquals(serialArchive, parallelArchive, "Parallel output");
+
+		assertSameChanges( serialAction.getLastActiveChanges(), parallelAction.getLastActiveChanges() );
+		Assertions.assertTrue( parallelAction.getLastActiveChanges().hasNestedChanges(), "Nested changes" );
+	}
+}
@@ -0,0 +1,266 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.eclipse.transformer.util.ParallelDeflater;
+import org.eclipse.transformer.util.RawZipEntry;
+import org.eclipse.transformer.util.RawZipOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+public class TestParallelDeflate {
+
+	public static final int NUM_THREADS = 4;
+	public static final int MAX_PENDING = NUM_THREADS * 4;
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	public void createExecutor() {
+		executor = Executors.newFixedThreadPool(NUM_THREADS);
+	}
+
+	@AfterEach
+	public void shutdownExecutor() {
+		executor.shutdownNow();
+		executor = null;
+	}
+
+	public static long crc(byte[] data, int offset, int count) {
+		CRC32 crc = new CRC32();
+		crc.update(data, offset, count);
+		return crc.getValue();
+	}
+
+	public static byte[] inflate(byte[] deflated, int expectedSize) throws DataFormatException {
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(deflated);
+			// Allow one extra byte, to detect extra data.
+			byte[] inflated = new byte[expectedSize + 1];
+			int inflatedCount = 0;
+			while ( !inflater.finished() ) {
+				int count = inflater.inflate(inflated, inflatedCount, inflated.length - inflatedCount);
+				if ( (count == 0) && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary()) ) {
+					Assertions.fail("Incomplete deflate stream after [ " + inflatedCount + " ] bytes");
+				}
+				inflatedCount += count;
+			}
+			Assertions.assertEquals(expectedSize, inflatedCount, "Inflated size");
+			Assertions.assertEquals(0, inflater.getRemaining(), "Trailing data");
+			return Arrays.copyOf(inflated, inflatedCount);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	public static void write(OutputStream outputStream, byte[] data, int writeSize) throws IOException {
+		for ( int offset = 0; offset < data.length; offset += writeSize ) {
+			outputStream.write( data, offset, Math.min(writeSize, data.length - offset) );
+		}
+	}
+
+	//
+
+	@Test
+	public void testCombineCrc() {
+		byte[] data = TestCompressionPolicy.createData(100000, 4);
+
+		long expectedCrc = crc(data, 0, data.length);
+
+		for ( int split : new int[] { 0, 1, 777, 32768, 65536, 99999, 100000 } ) {
+			long crc1 = crc(data, 0, split);
+			long crc2 = crc(data, split, data.length - split);
+			Assertions.assertEquals( expectedCrc, ParallelDeflater.combineCrc(crc1, crc2, data.length - split), "Split [ " + split + " ]" );
+		}
+	}
+
+	@Test
+	public void testDeflateChunks() throws IOException, DataFormatException {
+		int chunkSize = ParallelDeflater.DICTIONARY_SIZE * 2;
+
+		// Cover empty data, a partial chunk, an exact multiple of the
+		// chunk size, and many chunks.
+
+		int[] sizes = { 0, 1000, chunkSize, chunkSize * 3, chunkSize * 20 + 5 };
+
+		for ( int level : new int[] { RawZipEntry.DEFAULT_LEVEL, 1, 9 } ) {
+			ParallelDeflater parallelDeflater = new ParallelDeflater(executor, chunkSize, 2);
+
+			for ( int size : sizes ) {
+				byte[] data = TestCompressionPolicy.createData(size, size);
+
+				ByteArrayOutputStream deflatedStream = new ByteArrayOutputStream();
+				parallelDeflater.begin(level, deflatedStream);
+				for ( int offset = 0; offset < size; offset += 5000 ) {
+					parallelDeflater.write( data, offset, Math.min(5000, size - offset) );
+				}
+				parallelDeflater.finish();
+
+				byte[] deflated = deflatedStream.toByteArray();
+
+				String description = "Level [ " + level + " ] Size [ " + size + " ]";
+				Assertions.assertEquals( size, parallelDeflater.getSize(), description );
+				Assertions.assertEquals( deflated.length, parallelDeflater.getCompressedSize(), description );
+				Assertions.assertEquals( crc(data, 0, size), parallelDeflater.getCrc(), description );
+				Assertions.assertArrayEquals( data, inflate(deflated, size), description );
+			}
+		}
+	}
+
+	public static final String SMALL_NAME = "small.txt";
+	public static final String LARGE_NAME = "large.txt";
+	public static final String LAST_NAME = "last.txt";
+
+	public byte[] writeArchive(Map<String, byte[]> entries, int threshold) throws IOException {
+		ByteArrayOutputStream archiveStream = new ByteArrayOutputStream();
+
+		try ( RawZipOutputStream zipOutputStream = new RawZipOutputStream(archiveStream) ) {
+			if ( threshold >= 0 ) {
+				zipOutputStream.setParallelDeflater(
+					new ParallelDeflater(executor, ParallelDeflater.DEFAULT_CHUNK_SIZE, MAX_PENDING),
+					threshold );
+			}
+
+			for ( Map.Entry<String, byte[]> entry : entries.entrySet() ) {
+				RawZipEntry outputEntry = new RawZipEntry( entry.getKey() );
+				outputEntry.setMethod(RawZipEntry.DEFLATED);
+				outputEntry.setTime( RawZipEntry.toDosTime(0L) );
+
+				zipOutputStream.putNextEntry(outputEntry);
+				write(zipOutputStream, entry.getValue(), 10000);
+				zipOutputStream.closeEntry();
+			}
+		}
+
+		return archiveStream.toByteArray();
+	}
+
+	@Test
+	public void testParallelEntries() throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+		entries.put( SMALL_NAME, TestCompressionPolicy.createData(50000, 5) );
+		entries.put( LARGE_NAME, TestCompressionPolicy.createData(1000000, 6) );
+		entries.put( LAST_NAME, TestCompressionPolicy.createData(50000, 7) );
+
+		byte[] serialArchive = writeArchive(entries, -1);
+		byte[] parallelArchive = writeArchive(entries, 100000);
+
+		Map<String, byte[]> serialEntries = TestZipPassthrough.readArchive(serialArchive);
+		Map<String, byte[]> parallelEntries = TestZipPassthrough.readArchive(parallelArchive);
+
+		for ( Map.Entry<String, byte[]> entry : entries.entrySet() ) {
+			Assertions.assertArrayEquals( entry.getValue(), serialEntries.get(entry.getKey()), "Serial [ " + entry.getKey() + " ]" );
+			Assertions.assertArrayEquals( entry.getValue(), parallelEntries.get(entry.getKey()), "Parallel [ " + entry.getKey() + " ]" );
+		}
+
+		// Entries which do not exceed the threshold are compressed the same
+		// as when no parallel deflater is set.  The archive which has a
+		// threshold larger than all entries is the same as the serial archive.
+
+		Assertions.assertArrayEquals( serialArchive, writeArchive(entries, 2000000), "Below threshold" );
+		Assertions.assertFalse( Arrays.equals(serialArchive, parallelArchive), "Above threshold" );
+	}
+
+	/**
+	 * Entries which are deflated in many chunks are read back unchanged, and
+	 * lose no more than a small amount of compression.
+	 */
+	@Test
+	public void testParallelCompression() throws IOException {
+		int numEntries = 2;
+		int entrySize = ParallelDeflater.DEFAULT_CHUNK_SIZE * 8 + 1;
+
+		Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+		for ( int entryNo = 0; entryNo < numEntries; entryNo++ ) {
+			entries.put( "entry" + entryNo + ".txt", TestCompressionPolicy.createData(entrySize, entryNo) );
+		}
+
+		byte[] serialArchive = writeArchive(entries, -1);
+		byte[] parallelArchive = writeArchive(entries, ParallelDeflater.DEFAULT_CHUNK_SIZE);
+
+		Map<String, byte[]> parallelEntries = TestZipPassthrough.readArchive(parallelArchive);
+		for ( Map.Entry<String, byte[]> entry : entries.entrySet() ) {
+			Assertions.assertArrayEquals( entry.getValue(), parallelEntries.get(entry.getKey()), "Parallel [ " + entry.getKey() + " ]" );
+		}
+
+		// The parallel stream adds a sync flush marker to each chunk.
+
+		int serialLength = serialArchive.length;
+		int parallelLength = parallelArchive.length;
+		Assertions.assertTrue( parallelLength < serialLength * 1.05, "Parallel length [ " + parallelLength + " ] Serial length [ " + serialLength + " ]" );
+	}
+
+	/**
+	 * Benchmark: Compare the time to write multi-megabyte entries using the
+	 * serial deflater with the time to write the entries using the parallel
+	 * deflater.  The speedup depends on the available processors: Times are
+	 * displayed but are not verified.
+	 */
+	@Test
+	@Tag("benchmark")
+	public void testDeflateBenchmark() throws IOException {
+		int numEntries = 4;
+		int entrySize = 16 * 1024 * 1024;
+
+		Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+		for ( int entryNo = 0; entryNo < numEntries; entryNo++ ) {
+			entries.put( "entry" + entryNo + ".txt", TestCompressionPolicy.createData(entrySize, entryNo) );
+		}
+
+		long serialNs = -1L;
+		long parallelNs = -1L;
+		int serialLength = 0;
+		int parallelLength = 0;
+
+		for ( int trial = 0; trial < 3; trial++ ) {
+			long startNs = System.nanoTime();
+			serialLength = writeArchive(entries, -1).length;
+			long trialNs = System.nanoTime() - startNs;
+			if ( (serialNs == -1L) || (trialNs < serialNs) ) {
+				serialNs = trialNs;
+			}
+
+			startNs = System.nanoTime();
+			parallelLength = writeArchive(entries, ParallelDeflater.DEFAULT_THRESHOLD).length;
+			trialNs = System.nanoTime() - startNs;
+			if ( (parallelNs == -1L) || (trialNs < parallelNs) ) {
+				parallelNs = trialNs;
+			}
+		}
+
+		System.out.println("Deflate benchmark: [ " + numEntries + " ] entries of [ " + entrySize + " ] bytes; [ " + NUM_THREADS + " ] threads");
+		System.out.println("  Serial   [ " + (serialNs / 1000000L) + " ms ] [ " + serialLength + " ] bytes");
+		System.out.println("  Parallel [ " + (parallelNs / 1000000L) + " ms ] [ " + parallelLength + " ] bytes");
+		System.out.println("  Speedup  [ " + String.format("%.2f", ((double) serialNs) / parallelNs) + " ]");
+
+		// The parallel stream adds a sync flush marker to each chunk, and
+		// loses no more than a small amount of compression.
+
+		Assertions.assertTrue( parallelLength < serialLength * 1.05, "Parallel length [ " + parallelLength + " ] Serial length [ " + serialLength + " ]" );
+	}
+}
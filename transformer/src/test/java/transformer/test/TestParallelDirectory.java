@@ -0,0 +1,178 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.ContainerChangesImpl;
+import org.eclipse.transformer.action.impl.DirectoryActionImpl;
+import org.eclipse.transformer.action.impl.JarActionImpl;
+import org.eclipse.transformer.action.impl.NullActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.ServiceLoaderConfigActionImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import transformer.test.util.CaptureLoggerImpl;
+
+public class TestParallelDirectory extends CaptureTest {
+
+	public static final int NUM_THREADS = 4;
+	public static final int MAX_PENDING = NUM_THREADS * 4;
+
+	public static final int NUM_DIRECTORIES = 5;
+	public static final int NUM_FILES = 20;
+
+	private ForkJoinPool pool;
+
+	@BeforeEach
+	public void createPool() {
+		pool = new ForkJoinPool(NUM_THREADS);
+	}
+
+	@AfterEach
+	public void shutdownPool() {
+		pool.shutdownNow();
+		pool = null;
+	}
+
+	public DirectoryActionImpl createDirectoryAction(boolean parallel) {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+
+		SelectionRuleImpl selectionRule = createSelectionRule(
+			useLogger, Collections.emptySet(), Collections.emptySet() );
+		SignatureRuleImpl signatureRule = createSignatureRule(
+			useLogger,
+			Collections.singletonMap("javax.copy", "jakarta.copy"), Collections.emptyMap(),
+			Collections.emptyMap(), Collections.emptyMap() );
+
+		DirectoryActionImpl directoryAction = new DirectoryActionImpl(
+			useLogger, false, false,
+			createBuffer(),
+			selectionRule, signatureRule );
+
+		JarActionImpl jarAction = directoryAction.addUsing( JarActionImpl::new );
+		ServiceLoaderConfigActionImpl serviceAction = directoryAction.addUsing( ServiceLoaderConfigActionImpl::new );
+		NullActionImpl nullAction = directoryAction.addUsing( NullActionImpl::new );
+		jarAction.addAction(serviceAction);
+		jarAction.addAction(nullAction);
+
+		if ( parallel ) {
+			directoryAction.setExecutor(pool, MAX_PENDING);
+			jarAction.setExecutor(pool, MAX_PENDING);
+		}
+
+		return directoryAction;
+	}
+
+	public static File createTree(File tempDir) throws IOException {
+		File inputDir = TestDirectoryChannels.createDirectory(tempDir, "parallelInput");
+
+		for ( int dirNo = 0; dirNo < NUM_DIRECTORIES; dirNo++ ) {
+			String dirName = "dir" + dirNo + '/';
+			for ( int fileNo = 0; fileNo < NUM_FILES; fileNo++ ) {
+				String packageName = ( ((fileNo % 2) == 0) ? "javax.copy" : "other.copy" );
+				TestDirectoryChannels.write(
+					new File(inputDir, dirName + TestDirectoryChannels.SERVICES_PATH + "Service" + fileNo),
+					TestDirectoryChannels.createProviders(packageName, fileNo + 1).getBytes(StandardCharsets.UTF_8) );
+				TestDirectoryChannels.write(
+					new File(inputDir, dirName + "data/data" + fileNo + ".bin"),
+					TestCompressionPolicy.createData(1000 * fileNo, fileNo) );
+			}
+			TestDirectoryChannels.write(
+				new File(inputDir, dirName + "lib/changed.jar"),
+				TestCopyUnchanged.createNestedArchive(dirNo, true) );
+			TestDirectoryChannels.write(
+				new File(inputDir, dirName + "lib/unchanged.jar"),
+				TestCopyUnchanged.createNestedArchive(dirNo, false) );
+		}
+
+		return inputDir;
+	}
+
+	public static Map<String, byte[]> readTree(File rootDir) throws IOException {
+		Path rootPath = rootDir.toPath();
+		Map<String, byte[]> files = new TreeMap<String, byte[]>();
+		try ( Stream<Path> paths = Files.walk(rootPath) ) {
+			for ( Path path : (Iterable<Path>) paths::iterator ) {
+				if ( Files.isRegularFile(path) ) {
+					files.put( rootPath.relativize(path).toString(), Files.readAllBytes(path) );
+				}
+			}
+		}
+		return files;
+	}
+
+	//
+
+	@Test
+	public void testParallelDirectory(@TempDir File tempDir) throws IOException, TransformException {
+		File inputDir = createTree(tempDir);
+
+		File serialDir = TestDirectoryChannels.createDirectory(tempDir, "serialOutput");
+		DirectoryActionImpl serialAction = createDirectoryAction(false);
+		serialAction.apply(".", inputDir, serialDir);
+
+		File parallelDir = TestDirectoryChannels.createDirectory(tempDir, "parallelOutput");
+		DirectoryActionImpl parallelAction = createDirectoryAction(true);
+		parallelAction.apply(".", inputDir, parallelDir);
+
+		Map<String, byte[]> serialFiles = readTree(serialDir);
+		Map<String, byte[]> parallelFiles = readTree(parallelDir);
+
+		Assertions.assertEquals( serialFiles.keySet(), parallelFiles.keySet(), "File names" );
+		for ( Map.Entry<String, byte[]> serialFile : serialFiles.entrySet() ) {
+			Assertions.assertArrayEquals(
+				serialFile.getValue(), parallelFiles.get(serialFile.getKey()),
+				"File [ " + serialFile.getKey() + " ]" );
+		}
+
+		ContainerChangesImpl serialChanges = serialAction.getLastActiveChanges();
+		ContainerChangesImpl parallelChanges = parallelAction.getLastActiveChanges();
+
+		TestParallelContainer.assertSameChanges( serialChanges, parallelChanges );
+		Assertions.assertEquals( NUM_DIRECTORIES * (NUM_FILES * 2 + 2), parallelChanges.getAllResources(), "All resources" );
+		Assertions.assertEquals( NUM_DIRECTORIES * (NUM_FILES / 2 + 1), parallelChanges.getAllChanged(), "All changed" );
+
+		Assertions.assertTrue( parallelChanges.hasNestedChanges(), "Nested changes" );
+		TestParallelContainer.assertSameChanges( serialChanges.getNestedChanges(), parallelChanges.getNestedChanges() );
+	}
+
+	@Test
+	public void testParallelFailure(@TempDir File tempDir) throws IOException {
+		File inputDir = createTree(tempDir);
+
+		// A file which is in the place of an output directory causes
+		// the directory to fail to be created.
+
+		File parallelDir = TestDirectoryChannels.createDirectory(tempDir, "failedOutput");
+		TestDirectoryChannels.write( new File(parallelDir, "dir0"), new byte[] { 0 } );
+
+		DirectoryActionImpl parallelAction = createDirectoryAction(true);
+		Assertions.assertThrows( TransformException.class,
+			() -> parallelAction.apply(".", inputDir, parallelDir) );
+	}
+}
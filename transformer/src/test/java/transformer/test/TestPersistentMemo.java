@@ -0,0 +1,138 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.util.BoundedCache;
+import org.eclipse.transformer.util.PersistentMemo;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestPersistentMemo extends CaptureTest {
+
+	public static final String MEMO_FILE_NAME = "signatures.memo";
+
+	/** Directory of the memo file.  Removed after each test. */
+	@TempDir
+	public File memoDirectory;
+
+	public File createMemoFile() {
+		return new File(memoDirectory, MEMO_FILE_NAME);
+	}
+
+	public SignatureRuleImpl createSignatureRule(String renamedPackage) {
+		return new SignatureRuleImpl(
+			getCaptureLogger(),
+			Collections.singletonMap("javax.servlet", renamedPackage),
+			null, null, null, null );
+	}
+
+	@Test
+	public void testReadWrite() throws Exception {
+		File memoFile = createMemoFile();
+
+		PersistentMemo memo = new PersistentMemo("key", 100);
+		Assertions.assertFalse( memo.read(memoFile) );
+
+		Map<String, String> entries = new LinkedHashMap<String, String>();
+		entries.put("javax/servlet/Servlet", "jakarta/servlet/Servlet");
+		entries.put("java/lang/Object", null);
+		memo.merge("types", entries);
+		Assertions.assertEquals( 0, memo.write(memoFile) );
+
+		PersistentMemo readMemo = new PersistentMemo("key", 100);
+		Assertions.assertTrue( readMemo.read(memoFile) );
+		Assertions.assertEquals( entries, readMemo.getSection("types") );
+
+		// A memo of other rules is not read.
+
+		PersistentMemo otherMemo = new PersistentMemo("other", 100);
+		Assertions.assertFalse( otherMemo.read(memoFile) );
+		Assertions.assertEquals( 0, otherMemo.size() );
+
+		// A corrupt memo is not read.
+
+		byte[] memoBytes = Files.readAllBytes( memoFile.toPath() );
+		memoBytes[ memoBytes.length / 2 ] ^= 0x01;
+		Files.write( memoFile.toPath(), memoBytes );
+		Assertions.assertThrows( IOException.class, () -> new PersistentMemo("key", 100).read(memoFile) );
+	}
+
+	@Test
+	public void testCompaction() throws Exception {
+		File memoFile = createMemoFile();
+
+		PersistentMemo memo = new PersistentMemo("key", 10);
+
+		Map<String, String> entries = new LinkedHashMap<String, String>();
+		for ( int entryNo = 0; entryNo < 15; entryNo++ ) {
+			entries.put( "input" + entryNo, "output" + entryNo );
+		}
+		memo.merge("section", entries);
+
+		// Re-using an entry makes it the most recently used.
+		memo.merge( "section", Collections.singletonMap("input0", "output0") );
+
+		Assertions.assertEquals( 5, memo.write(memoFile) );
+
+		PersistentMemo readMemo = new PersistentMemo("key", 10);
+		Assertions.assertTrue( readMemo.read(memoFile) );
+		Map<String, String> section = readMemo.getSection("section");
+		Assertions.assertEquals( 10, section.size() );
+		Assertions.assertTrue( section.containsKey("input0") );
+		Assertions.assertFalse( section.containsKey("input1") );
+		Assertions.assertTrue( section.containsKey("input14") );
+	}
+
+	@Test
+	public void testSignatureRule() throws Exception {
+		File memoFile = createMemoFile();
+
+		SignatureRuleImpl firstRule = createSignatureRule("jakarta.servlet");
+		Assertions.assertEquals( "jakarta/servlet/Servlet", firstRule.transformBinaryType("javax/servlet/Servlet") );
+		Assertions.assertNull( firstRule.transformBinaryType("java/lang/Object") );
+
+		PersistentMemo memo = new PersistentMemo( firstRule.getMemoKey(), 100 );
+		firstRule.storeMemo(memo);
+		memo.write(memoFile);
+
+		// A second run with the same rules obtains the transformations from the memo.
+
+		SignatureRuleImpl secondRule = createSignatureRule("jakarta.servlet");
+		Assertions.assertEquals( firstRule.getMemoKey(), secondRule.getMemoKey() );
+
+		PersistentMemo secondMemo = new PersistentMemo( secondRule.getMemoKey(), 100 );
+		Assertions.assertTrue( secondMemo.read(memoFile) );
+		Assertions.assertEquals( 2, secondRule.loadMemo(secondMemo) );
+
+		Assertions.assertEquals( "jakarta/servlet/Servlet", secondRule.transformBinaryType("javax/servlet/Servlet") );
+		Assertions.assertNull( secondRule.transformBinaryType("java/lang/Object") );
+
+		BoundedCache<String, String> binaryTypes = secondRule.getCaches().get(0);
+		Assertions.assertEquals( 2L, binaryTypes.getHits() );
+		Assertions.assertEquals( 0L, binaryTypes.getMisses() );
+
+		// A run with different rules does not use the memo.
+
+		SignatureRuleImpl otherRule = createSignatureRule("other.servlet");
+		Assertions.assertNotEquals( firstRule.getMemoKey(), otherRule.getMemoKey() );
+		Assertions.assertFalse( new PersistentMemo( otherRule.getMemoKey(), 100 ).read(memoFile) );
+	}
+}
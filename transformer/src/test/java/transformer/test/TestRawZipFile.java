@@ -0,0 +1,140 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.ZipActionImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.RawZipEntry;
+import org.eclipse.transformer.util.RawZipFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestRawZipFile {
+
+	// Archive creation and verification are shared with the stream based tests.
+
+	private final TestZipPassthrough passthroughTest = new TestZipPassthrough();
+
+	public ZipActionImpl createZipAction(boolean withNullAction) {
+		return passthroughTest.createZipAction(withNullAction);
+	}
+
+	public static File writeTempFile(String prefix, byte[] prefixData, byte[] data) throws IOException {
+		File tempFile = File.createTempFile(prefix, ".zip");
+		tempFile.deleteOnExit();
+
+		try ( OutputStream outputStream = new FileOutputStream(tempFile) ) {
+			if ( prefixData != null ) {
+				outputStream.write(prefixData);
+			}
+			outputStream.write(data);
+		}
+
+		return tempFile;
+	}
+
+	public static File createOutputFile() throws IOException {
+		File outputFile = File.createTempFile("output", ".zip");
+		outputFile.deleteOnExit();
+		return outputFile;
+	}
+
+	@Test
+	public void testCentralDirectory() throws IOException {
+		byte[] archive = TestZipPassthrough.createArchive();
+		Map<String, byte[]> expectedEntries = TestZipPassthrough.readArchive(archive);
+
+		File inputFile = writeTempFile("central", null, archive);
+
+		try ( RawZipFile zipFile = new RawZipFile(inputFile) ) {
+			List<RawZipEntry> entries = zipFile.getEntries();
+			Assertions.assertEquals(expectedEntries.size(), entries.size(), "Entry count");
+
+			// Read the entries in reverse order, to verify random access.
+			for ( int entryNo = entries.size() - 1; entryNo >= 0; entryNo-- ) {
+				RawZipEntry entry = entries.get(entryNo);
+				byte[] expectedData = expectedEntries.get( entry.getName() );
+
+				// The central directory provides exact sizes, including for
+				// entries which were written with data descriptors.
+				Assertions.assertEquals(expectedData.length, entry.getSize(), "Entry [ " + entry.getName() + " ] size");
+
+				try ( InputStream entryStream = zipFile.getInputStream(entry) ) {
+					ByteData entryData = FileUtils.read( entry.getName(), entryStream, (int) entry.getSize() );
+					Assertions.assertEquals(expectedData.length, entryData.length, "Entry [ " + entry.getName() + " ] length");
+					for ( int byteNo = 0; byteNo < expectedData.length; byteNo++ ) {
+						if ( expectedData[byteNo] != entryData.data[entryData.offset + byteNo] ) {
+							Assertions.fail("Entry [ " + entry.getName() + " ] differs at [ " + byteNo + " ]");
+						}
+					}
+					Assertions.assertEquals(-1, entryStream.read(), "Entry [ " + entry.getName() + " ] has extra data");
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testPrefixedArchive() throws IOException, TransformException {
+		byte[] archive = TestZipPassthrough.createArchive();
+		byte[] prefix = new byte[1000];
+
+		File inputFile = writeTempFile("prefixed", prefix, archive);
+		File outputFile = createOutputFile();
+
+		ZipActionImpl zipAction = createZipAction(false);
+		zipAction.apply("prefixed.zip", inputFile, outputFile);
+
+		TestZipPassthrough.assertSameEntries( TestZipPassthrough.readArchive(archive), TestZipPassthrough.readArchive(Files.readAllBytes(outputFile.toPath())) );
+	}
+
+	@Test
+	public void testFilePassthrough() throws IOException, TransformException {
+		byte[] archive = TestZipPassthrough.createArchive();
+
+		File inputFile = writeTempFile("passthrough", null, archive);
+		File outputFile = createOutputFile();
+
+		ZipActionImpl zipAction = createZipAction(false);
+		zipAction.apply("passthrough.zip", inputFile, outputFile);
+
+		byte[] outputArchive = Files.readAllBytes( outputFile.toPath() );
+
+		TestZipPassthrough.assertSameEntries( TestZipPassthrough.readArchive(archive), TestZipPassthrough.readArchive(outputArchive) );
+		Assertions.assertEquals( TestZipPassthrough.readCompressedSizes(archive), TestZipPassthrough.readCompressedSizes(outputArchive) );
+		Assertions.assertEquals( TestZipPassthrough.NUM_ENTRIES, zipAction.getLastActiveChanges().getAllUnselected() );
+	}
+
+	@Test
+	public void testFileTransform() throws IOException, TransformException {
+		byte[] archive = TestZipPassthrough.createArchive();
+
+		File inputFile = writeTempFile("transform", null, archive);
+		File outputFile = createOutputFile();
+
+		ZipActionImpl zipAction = createZipAction(true);
+		zipAction.apply("transform.zip", inputFile, outputFile);
+
+		TestZipPassthrough.assertSameEntries( TestZipPassthrough.readArchive(archive), TestZipPassthrough.readArchive(Files.readAllBytes(outputFile.toPath())) );
+		Assertions.assertEquals( TestZipPassthrough.NUM_ENTRIES, zipAction.getLastActiveChanges().getAllSelected() );
+	}
+}
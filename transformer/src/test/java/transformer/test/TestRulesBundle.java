@@ -0,0 +1,205 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.eclipse.transformer.RulesBundle;
+import org.eclipse.transformer.Transformer;
+import org.eclipse.transformer.Transformer.TransformOptions;
+import org.eclipse.transformer.jakarta.JakartaTransformer;
+import org.eclipse.transformer.util.FileUtils;
+import org.eclipse.transformer.util.OrderedProperties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import aQute.lib.utf8properties.UTF8Properties;
+
+public class TestRulesBundle {
+
+	public static final String RENAMES_FILE_NAME = "test-renames.properties";
+	public static final String VERSIONS_FILE_NAME = "test-versions.properties";
+	public static final String BUNDLE_FILE_NAME = "test-rules.bin";
+
+	public static Transformer createTransformer(String... args) throws Exception {
+		Transformer transformer = new Transformer(System.out, System.err);
+		transformer.setOptionDefaults( JakartaTransformer.class, JakartaTransformer.getOptionDefaults() );
+		transformer.setArgs(args);
+		transformer.setParsedArgs();
+		return transformer;
+	}
+
+	public static TransformOptions createOptions(Transformer transformer) throws Exception {
+		TransformOptions options = transformer.createTransformOptions();
+		options.setLogging();
+		return options;
+	}
+
+	public static TransformOptions createOptions(String... args) throws Exception {
+		return createOptions( createTransformer(args) );
+	}
+
+	public static File writeRenames(File directory, String renames) throws IOException {
+		File renamesFile = new File(directory, RENAMES_FILE_NAME);
+		Files.write( renamesFile.toPath(), renames.getBytes(StandardCharsets.UTF_8) );
+		return renamesFile;
+	}
+
+	public static File compile(File directory, File renamesFile) throws Exception {
+		File bundleFile = new File(directory, BUNDLE_FILE_NAME);
+
+		// No versions: The default versions do not match the test renames.
+		File versionsFile = new File(directory, VERSIONS_FILE_NAME);
+		Files.write( versionsFile.toPath(), new byte[0] );
+		versionsFile.setLastModified( renamesFile.lastModified() );
+
+		TransformOptions options = createOptions(
+			"-tr", renamesFile.getAbsolutePath(),
+			"-tv", versionsFile.getAbsolutePath(),
+			"-cr", bundleFile.getAbsolutePath() );
+		Assertions.assertTrue( options.compileRules(), "Rules were not compiled" );
+		Assertions.assertTrue( bundleFile.exists(), "Rules file was not written" );
+
+		return bundleFile;
+	}
+
+	//
+
+	@Test
+	public void testCompile(@TempDir File directory) throws Exception {
+		File renamesFile = writeRenames(directory, "javax.servlet=test.servlet\n");
+		renamesFile.setLastModified( System.currentTimeMillis() - 60000L );
+
+		File bundleFile = compile(directory, renamesFile);
+
+		RulesBundle bundle = RulesBundle.read(bundleFile);
+		Assertions.assertEquals( 32, bundle.getSourcesChecksum().length );
+		Assertions.assertEquals(
+			"test.servlet",
+			bundle.getRuleProperties( Transformer.AppOption.RULES_RENAMES.name() ).getProperty("javax.servlet") );
+		Assertions.assertNotNull( bundle.getRuleProperties( Transformer.AppOption.RULES_SELECTIONS.name() ) );
+		Assertions.assertFalse( bundle.getSources().isEmpty() );
+		Assertions.assertFalse( bundle.isStale(bundleFile) );
+
+		// The compiled renames are used, instead of the default renames.
+
+		Transformer transformer = createTransformer( "-tc", bundleFile.getAbsolutePath() );
+		TransformOptions options = createOptions(transformer);
+		Assertions.assertTrue( options.setRules() );
+		Assertions.assertNotNull( transformer.getCompiledRules() );
+		Assertions.assertEquals( "test.servlet", options.packageRenames.get("javax.servlet") );
+
+		// A rules option which is specified overrides the compiled rules.
+
+		File otherRenamesFile = new File(directory, "other-renames.properties");
+		Files.write( otherRenamesFile.toPath(), "javax.servlet=other.servlet\n".getBytes(StandardCharsets.UTF_8) );
+		otherRenamesFile.setLastModified( System.currentTimeMillis() - 60000L );
+
+		options = createOptions(
+			"-tc", bundleFile.getAbsolutePath(),
+			"-tr", otherRenamesFile.getAbsolutePath() );
+		Assertions.assertTrue( options.setRules() );
+		Assertions.assertEquals( "other.servlet", options.packageRenames.get("javax.servlet") );
+	}
+
+	@Test
+	public void testStale(@TempDir File directory) throws Exception {
+		File renamesFile = writeRenames(directory, "javax.servlet=test.servlet\n");
+		renamesFile.setLastModified( System.currentTimeMillis() - 60000L );
+
+		File bundleFile = compile(directory, renamesFile);
+
+		renamesFile.setLastModified( bundleFile.lastModified() + 60000L );
+
+		RulesBundle bundle = RulesBundle.read(bundleFile);
+		Assertions.assertTrue( bundle.isStale(bundleFile) );
+		Assertions.assertEquals( Transformer.AppOption.RULES_RENAMES.toString(), bundle.getNewerSource(bundleFile) );
+
+		// The stale compiled rules are not used: The default rules are loaded.
+
+		Transformer transformer = createTransformer( "-tc", bundleFile.getAbsolutePath() );
+		TransformOptions options = createOptions(transformer);
+		Assertions.assertTrue( options.setRules() );
+		Assertions.assertNull( transformer.getCompiledRules() );
+		Assertions.assertEquals( "jakarta.servlet", options.packageRenames.get("javax.servlet") );
+	}
+
+	@Test
+	public void testCorrupt(@TempDir File directory) throws Exception {
+		File renamesFile = writeRenames(directory, "javax.servlet=test.servlet\n");
+
+		File bundleFile = compile(directory, renamesFile);
+
+		byte[] bundleBytes = Files.readAllBytes( bundleFile.toPath() );
+		bundleBytes[ bundleBytes.length / 2 ] ^= 0x01;
+		Files.write( bundleFile.toPath(), bundleBytes );
+
+		Assertions.assertThrows( IOException.class, () -> RulesBundle.read(bundleFile) );
+
+		Files.write( bundleFile.toPath(), new byte[] { 0x01, 0x02, 0x03 } );
+		Assertions.assertThrows( IOException.class, () -> RulesBundle.read(bundleFile) );
+	}
+
+	@Test
+	public void testLongValues(@TempDir File directory) throws Exception {
+		File renamesFile = writeRenames(directory, "javax.servlet=test.servlet\n");
+
+		StringBuilder longValue = new StringBuilder();
+		while ( longValue.length() < 100000 ) {
+			longValue.append("jakarta.servlet.\u00e9;");
+		}
+
+		RulesBundle bundle = new RulesBundle();
+		bundle.addSource( "renames", renamesFile.toURI().toURL() );
+		UTF8Properties properties = FileUtils.createProperties();
+		properties.put( "key", longValue.toString() );
+		bundle.putXmlProperties("web.xml", properties);
+
+		File bundleFile = new File(directory, BUNDLE_FILE_NAME);
+		bundle.write(bundleFile);
+
+		RulesBundle readBundle = RulesBundle.read(bundleFile);
+		Assertions.assertEquals( longValue.toString(), readBundle.getXmlProperties("web.xml").getProperty("key") );
+		Assertions.assertArrayEquals( bundle.getSourcesChecksum(), readBundle.getSourcesChecksum() );
+		Assertions.assertEquals( bundle.getSources(), readBundle.getSources() );
+	}
+
+	/**
+	 * Compiled properties keep the order of their properties file, which sets
+	 * the precedence of wildcard XML file name selectors.
+	 */
+	@Test
+	public void testPropertiesOrder(@TempDir File directory) throws Exception {
+		File renamesFile = writeRenames(directory, "javax.servlet=test.servlet\n");
+
+		UTF8Properties properties = FileUtils.createProperties();
+		properties.load( new StringReader("*.xml=xml.properties\nweb.xml=web.properties\nserver?.xml=server.properties\n") );
+
+		RulesBundle bundle = new RulesBundle();
+		bundle.addSource( "renames", renamesFile.toURI().toURL() );
+		bundle.putRuleProperties( Transformer.AppOption.RULES_MASTER_XML.name(), properties );
+
+		File bundleFile = new File(directory, BUNDLE_FILE_NAME);
+		bundle.write(bundleFile);
+
+		RulesBundle readBundle = RulesBundle.read(bundleFile);
+		Assertions.assertEquals(
+			Arrays.asList("*.xml", "web.xml", "server?.xml"),
+			OrderedProperties.getOrderedKeys( readBundle.getRuleProperties(Transformer.AppOption.RULES_MASTER_XML.name()) ) );
+	}
+}
@@ -0,0 +1,210 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.transformer.TransformProperties;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.util.SelectionMatcher;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Verify compiled selections against matching each selection in turn, and
+ * compare their times on large selections.  Times are displayed but are not
+ * verified.
+ */
+public class TestSelectionMatcher extends CaptureTest {
+
+	/**
+	 * Selection by matching each selection in turn: The prior selection rule.
+	 */
+	public static class SequentialSelection {
+		public final Set<String> selections;
+		public final Set<String> exact = new HashSet<String>();
+		public final Set<String> head = new HashSet<String>();
+		public final Set<String> tail = new HashSet<String>();
+		public final Set<String> any = new HashSet<String>();
+
+		public SequentialSelection(Set<String> selections) {
+			this.selections = new HashSet<String>(selections);
+			TransformProperties.processSelections(this.selections, exact, head, tail, any);
+		}
+
+		public SelectionMatcher createMatcher() {
+			return new SelectionMatcher(exact, head, tail, any);
+		}
+
+		public boolean matches(String resourceName) {
+			if ( exact.contains(resourceName) ) {
+				return true;
+			}
+			for ( String headSelection : head ) {
+				if ( resourceName.endsWith(headSelection) ) {
+					return true;
+				}
+			}
+			for ( String tailSelection : tail ) {
+				if ( resourceName.startsWith(tailSelection) ) {
+					return true;
+				}
+			}
+			for ( String anySelection : any ) {
+				if ( resourceName.contains(anySelection) ) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	public static Set<String> createSelections(String... selections) {
+		Set<String> selectionSet = new HashSet<String>();
+		for ( String selection : selections ) {
+			selectionSet.add(selection);
+		}
+		return selectionSet;
+	}
+
+	@Test
+	public void testMatch() {
+		SequentialSelection selection = new SequentialSelection( createSelections(
+			"META-INF/MANIFEST.MF", "*.class", "*.xml", "WEB-INF/lib/*", "*/jsp/*", "*.properties" ) );
+		SelectionMatcher matcher = selection.createMatcher();
+
+		Assertions.assertEquals( "META-INF/MANIFEST.MF", matcher.match("META-INF/MANIFEST.MF") );
+		Assertions.assertEquals( "*.class", matcher.match("com/example/Servlet.class") );
+		Assertions.assertEquals( "WEB-INF/lib/*", matcher.match("WEB-INF/lib/sample.jar") );
+		Assertions.assertEquals( "*/jsp/*", matcher.match("WEB-INF/jsp/index.jspx") );
+		Assertions.assertEquals( "*.xml", matcher.match("WEB-INF/jsp/web.xml") );
+		Assertions.assertNull( matcher.match("META-INF/MANIFEST.MF.bak") );
+		Assertions.assertNull( matcher.match("index.html") );
+		Assertions.assertNull( matcher.match("") );
+
+		// Selections which match anywhere, and which share prefixes and suffixes.
+		SelectionMatcher anyMatcher = new SequentialSelection( createSelections("*abcd*", "*bc*", "*cde*") ).createMatcher();
+		Assertions.assertEquals( "*bc*", anyMatcher.match("xabcx") );
+		Assertions.assertEquals( "*cde*", anyMatcher.match("abxcde") );
+		Assertions.assertNull( anyMatcher.match("acbd") );
+
+		// A wildcard which matches an empty middle selects everything.
+		Assertions.assertEquals( "**", new SequentialSelection( createSelections("**") ).createMatcher().match("any") );
+	}
+
+	@Test
+	public void testSelectionRule() {
+		SelectionRuleImpl selectionRule = createSelectionRule(
+			getCaptureLogger(),
+			createSelections("*.class", "META-INF/*"),
+			createSelections("*/internal/*") );
+
+		Assertions.assertTrue( selectionRule.select("com/example/Servlet.class") );
+		Assertions.assertTrue( selectionRule.select("META-INF/MANIFEST.MF") );
+		Assertions.assertFalse( selectionRule.select("com/example/internal/Impl.class") );
+		Assertions.assertFalse( selectionRule.select("index.html") );
+
+		// A single wildcard selects everything.
+		SelectionRuleImpl allRule = createSelectionRule( getCaptureLogger(), createSelections("*", "*.class"), null );
+		Assertions.assertTrue( allRule.select("index.html") );
+	}
+
+	@Test
+	public void testRandom() {
+		Random random = new Random(23);
+		String alphabet = "ab/.";
+
+		for ( int trial = 0; trial < 500; trial++ ) {
+			Set<String> selections = new HashSet<String>();
+			int numSelections = 1 + random.nextInt(6);
+			for ( int selectionNo = 0; selectionNo < numSelections; selectionNo++ ) {
+				String selection = TestSubstitutionMatcher.randomText( random, alphabet, 1 + random.nextInt(3) );
+				if ( random.nextBoolean() ) {
+					selection = "*" + selection;
+				}
+				if ( random.nextBoolean() ) {
+					selection = selection + "*";
+				}
+				selections.add(selection);
+			}
+
+			SequentialSelection selection = new SequentialSelection(selections);
+			SelectionMatcher matcher = selection.createMatcher();
+
+			for ( int nameNo = 0; nameNo < 20; nameNo++ ) {
+				String name = TestSubstitutionMatcher.randomText( random, alphabet, random.nextInt(8) );
+				Assertions.assertEquals(
+					selection.matches(name), (matcher.match(name) != null),
+					"Selections [ " + selections + " ] Name [ " + name + " ]" );
+			}
+		}
+	}
+
+	//
+
+	public static final int NUM_BENCHMARK_SELECTIONS = 500;
+	public static final int NUM_BENCHMARK_NAMES = 20000;
+
+	@Test
+	public void testBenchmark() {
+		Set<String> selections = new HashSet<String>();
+		for ( int selectionNo = 0; selectionNo < NUM_BENCHMARK_SELECTIONS; selectionNo++ ) {
+			selections.add( "com/example/module" + selectionNo + "/*" );
+			selections.add( "*.ext" + selectionNo );
+			selections.add( "*/generated" + selectionNo + "/*" );
+			selections.add( "com/example/module" + selectionNo + "/Main.class" );
+		}
+
+		String[] names = new String[NUM_BENCHMARK_NAMES];
+		for ( int nameNo = 0; nameNo < NUM_BENCHMARK_NAMES; nameNo++ ) {
+			names[nameNo] = "org/example/package" + (nameNo % 100) + "/Type" + nameNo + ".class";
+		}
+		names[0] = "com/example/module7/Main.class";
+		names[1] = "org/example/generated13/Main.class";
+
+		SequentialSelection selection = new SequentialSelection(selections);
+		SelectionMatcher matcher = selection.createMatcher();
+
+		for ( String name : names ) {
+			Assertions.assertEquals( selection.matches(name), (matcher.match(name) != null), name );
+		}
+
+		long minSequentialNs = -1L;
+		long minMatcherNs = -1L;
+		for ( int trial = 0; trial < 5; trial++ ) {
+			long startNs = System.nanoTime();
+			for ( String name : names ) {
+				selection.matches(name);
+			}
+			long sequentialNs = System.nanoTime() - startNs;
+
+			startNs = System.nanoTime();
+			for ( String name : names ) {
+				matcher.match(name);
+			}
+			long matcherNs = System.nanoTime() - startNs;
+
+			if ( (minSequentialNs == -1L) || (sequentialNs < minSequentialNs) ) {
+				minSequentialNs = sequentialNs;
+			}
+			if ( (minMatcherNs == -1L) || (matcherNs < minMatcherNs) ) {
+				minMatcherNs = matcherNs;
+			}
+		}
+
+		System.out.println("Selection benchmark: [ " + selections.size() + " ] selections [ " + names.length + " ] names");
+		System.out.println("  Sequential [ " + (minSequentialNs / 1000000L) + " ms ]");
+		System.out.println("  Compiled   [ " + (minMatcherNs / 1000000L) + " ms ]");
+	}
+}
@@ -0,0 +1,284 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.UnaryOperator;
+
+import org.eclipse.transformer.util.SubstitutionMatcher;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Verify the compiled substitution matcher against sequential substitution,
+ * and compare their times on large XML documents.  Times are displayed but
+ * are not verified.
+ */
+public class TestSubstitutionMatcher {
+
+	public static Map<String, String> createSubstitutions(String... keysAndValues) {
+		Map<String, String> substitutions = new LinkedHashMap<String, String>();
+		for ( int entryNo = 0; entryNo < keysAndValues.length; entryNo += 2 ) {
+			substitutions.put( keysAndValues[entryNo], keysAndValues[entryNo + 1] );
+		}
+		return substitutions;
+	}
+
+	public static void verify(Map<String, String> substitutions, String text) {
+		Assertions.assertEquals(
+			TestTextRewrite.replaceTextSequentially(text, substitutions),
+			new SubstitutionMatcher(substitutions).replace(text),
+			"Substitutions [ " + substitutions + " ] Text [ " + text + " ]" );
+	}
+
+	@Test
+	public void testIndependent() {
+		Map<String, String> substitutions = createSubstitutions(
+			"javax.servlet", "jakarta.servlet",
+			"http://java.sun.com/xml/ns/javaee", "https://jakarta.ee/xml/ns/jakartaee",
+			"javax.ejb", "jakarta.ejb" );
+
+		Assertions.assertEquals( 1, new SubstitutionMatcher(substitutions).getStageCount() );
+
+		verify(substitutions, "");
+		verify(substitutions, "<servlet-class>javax.servlet.http.HttpServlet</servlet-class>");
+		verify(substitutions, "javax.ejb javax.servlet javax.ejbjavax.servlet");
+		verify(substitutions, "<web-app xmlns=\"http://java.sun.com/xml/ns/javaee\">");
+
+		Assertions.assertNull( new SubstitutionMatcher(substitutions).replace("<web-app/>") );
+	}
+
+	@Test
+	public void testInteracting() {
+		// The second key matches the value of the first key.
+		Map<String, String> cascade = createSubstitutions(
+			"http://java.sun.com/xml/ns/javaee", "https://jakarta.ee/xml/ns/jakartaee",
+			"ns/jakartaee", "ns/jakartaee/v5" );
+		Assertions.assertEquals( 2, new SubstitutionMatcher(cascade).getStageCount() );
+		verify(cascade, "xmlns=\"http://java.sun.com/xml/ns/javaee\" ns/jakartaee");
+
+		// The keys overlap: The earlier key has precedence.
+		Map<String, String> overlap = createSubstitutions("abc", "X", "cab", "Y");
+		Assertions.assertEquals( 2, new SubstitutionMatcher(overlap).getStageCount() );
+		verify(overlap, "bcabc");
+		verify(overlap, "cabcab");
+
+		// Removing text joins the text around the removal.
+		Map<String, String> removal = createSubstitutions("-", "", "ab", "Z");
+		Assertions.assertEquals( 2, new SubstitutionMatcher(removal).getStageCount() );
+		verify(removal, "a-b a--b ab");
+
+		// A key overlaps itself.
+		verify( createSubstitutions("aa", "b"), "aaaaa" );
+
+		// Empty keys are ignored.
+		Assertions.assertEquals( "bbb", new SubstitutionMatcher( createSubstitutions("", "x", "a", "b") ).replace("aaa") );
+	}
+
+	@Test
+	public void testRandom() {
+		Random random = new Random(17);
+		String alphabet = "abc";
+
+		for ( int trial = 0; trial < 2000; trial++ ) {
+			Map<String, String> substitutions = new LinkedHashMap<String, String>();
+			int numSubstitutions = 1 + random.nextInt(4);
+			for ( int substitutionNo = 0; substitutionNo < numSubstitutions; substitutionNo++ ) {
+				substitutions.put(
+					randomText(random, alphabet, 1 + random.nextInt(3)),
+					randomText(random, alphabet, random.nextInt(4)) );
+			}
+
+			verify( substitutions, randomText(random, alphabet, random.nextInt(20)) );
+		}
+	}
+
+	public static String randomText(Random random, String alphabet, int length) {
+		StringBuilder text = new StringBuilder(length);
+		for ( int charNo = 0; charNo < length; charNo++ ) {
+			text.append( alphabet.charAt(random.nextInt(alphabet.length())) );
+		}
+		return text.toString();
+	}
+
+	//
+
+	/**
+	 * Substitutions like the jakarta XML substitutions: Namespaces, schema
+	 * locations, and package names.  Additional package names may be added,
+	 * to show how the times grow with the number of substitutions.
+	 */
+	public static Map<String, String> getXmlSubstitutions(int numExtraPackages) {
+		Map<String, String> substitutions = new LinkedHashMap<String, String>();
+		substitutions.put("http://java.sun.com/xml/ns/javaee", "https://jakarta.ee/xml/ns/jakartaee");
+		substitutions.put("http://xmlns.jcp.org/xml/ns/javaee", "https://jakarta.ee/xml/ns/jakartaee");
+		substitutions.put("web-app_3_0.xsd", "web-app_5_0.xsd");
+		substitutions.put("web-app_3_1.xsd", "web-app_5_0.xsd");
+		substitutions.put("web-app_4_0.xsd", "web-app_5_0.xsd");
+		substitutions.put("ejb-jar_3_2.xsd", "ejb-jar_4_0.xsd");
+		substitutions.put("persistence_2_2.xsd", "persistence_3_0.xsd");
+		String[] packages = {
+			"servlet", "servlet.http", "servlet.annotation", "servlet.jsp", "ejb", "transaction",
+			"persistence", "annotation", "enterprise.context", "inject", "ws.rs", "faces",
+			"jms", "mail", "resource", "validation", "websocket", "xml.bind", "xml.ws", "json"
+		};
+		for ( String packageName : packages ) {
+			substitutions.put("javax." + packageName + ".", "jakarta." + packageName + ".");
+		}
+		for ( int packageNo = 0; packageNo < numExtraPackages; packageNo++ ) {
+			substitutions.put("javax.extra" + packageNo + ".", "jakarta.extra" + packageNo + ".");
+		}
+		substitutions.put("jakartaee\" version=\"4.0\"", "jakartaee\" version=\"5.0\"");
+		return substitutions;
+	}
+
+	public static String[] createWebXml(int numServlets) {
+		String[] lines = new String[ numServlets * 8 + 2 ];
+		int lineNo = 0;
+		lines[lineNo++] = "<web-app xmlns=\"http://xmlns.jcp.org/xml/ns/javaee\" xsi:schemaLocation=\"http://xmlns.jcp.org/xml/ns/javaee web-app_4_0.xsd\" version=\"4.0\">";
+		for ( int servletNo = 0; servletNo < numServlets; servletNo++ ) {
+			lines[lineNo++] = "  <servlet>";
+			lines[lineNo++] = "    <servlet-name>Servlet" + servletNo + "</servlet-name>";
+			lines[lineNo++] = "    <servlet-class>com.example.web.Servlet" + servletNo + "</servlet-class>";
+			lines[lineNo++] = "    <init-param><param-name>listener</param-name><param-value>javax.servlet.http.HttpSessionListener</param-value></init-param>";
+			lines[lineNo++] = "  </servlet>";
+			lines[lineNo++] = "  <servlet-mapping>";
+			lines[lineNo++] = "    <url-pattern>/servlet" + servletNo + "/*</url-pattern>";
+			lines[lineNo++] = "  </servlet-mapping>";
+		}
+		lines[lineNo++] = "</web-app>";
+		return lines;
+	}
+
+	public static String[] createServerXml(int numFeatures) {
+		String[] lines = new String[ numFeatures * 2 + 2 ];
+		int lineNo = 0;
+		lines[lineNo++] = "<server description=\"Server\">";
+		for ( int featureNo = 0; featureNo < numFeatures; featureNo++ ) {
+			lines[lineNo++] = "  <feature>feature-" + featureNo + "</feature>";
+			lines[lineNo++] = "  <library id=\"lib" + featureNo + "\"><fileset dir=\"${shared.resource.dir}/lib\" includes=\"javax.transaction.api.jar\"/></library>";
+		}
+		lines[lineNo++] = "</server>";
+		return lines;
+	}
+
+	/**
+	 * The prior XML rewriter: Scan the text once for each substitution.
+	 */
+	public static String replaceTextPerKey(String text, Map<String, String> substitutions) {
+		String initialText = text;
+		for ( Map.Entry<String, String> entry : substitutions.entrySet() ) {
+			String key = entry.getKey();
+			int matchStart = text.indexOf(key);
+			if ( matchStart == -1 ) {
+				continue;
+			}
+			String value = entry.getValue();
+			StringBuilder outputBuilder = new StringBuilder( text.length() + 16 );
+			int lastMatchEnd = 0;
+			while ( matchStart != -1 ) {
+				outputBuilder.append(text, lastMatchEnd, matchStart);
+				outputBuilder.append(value);
+				lastMatchEnd = matchStart + key.length();
+				matchStart = text.indexOf(key, lastMatchEnd);
+			}
+			outputBuilder.append(text, lastMatchEnd, text.length());
+			text = outputBuilder.toString();
+		}
+		return ( (text == initialText) ? null : text );
+	}
+
+	public static long timeLines(String[] lines, UnaryOperator<String> rewriter) {
+		long minNs = -1L;
+		for ( int trial = 0; trial < 5; trial++ ) {
+			long startNs = System.nanoTime();
+			for ( String line : lines ) {
+				rewriter.apply(line);
+			}
+			long trialNs = System.nanoTime() - startNs;
+			if ( (minNs == -1L) || (trialNs < minNs) ) {
+				minNs = trialNs;
+			}
+		}
+		return minNs;
+	}
+
+	/**
+	 * Verify that the matcher rewrites each line the same as the prior
+	 * rewriter.
+	 *
+	 * @param lines The lines which are to be rewritten.
+	 * @param numExtraPackages The number of package substitutions which are
+	 *     added to the XML substitutions.
+	 */
+	public void verifyLines(String[] lines, int numExtraPackages) {
+		Map<String, String> substitutions = getXmlSubstitutions(numExtraPackages);
+		SubstitutionMatcher matcher = new SubstitutionMatcher(substitutions);
+
+		for ( String line : lines ) {
+			Assertions.assertEquals( replaceTextPerKey(line, substitutions), matcher.replace(line), line );
+		}
+	}
+
+	@Test
+	public void testWebXml() {
+		verifyLines( createWebXml(200), 0 );
+		verifyLines( createWebXml(200), 200 );
+	}
+
+	@Test
+	public void testServerXml() {
+		verifyLines( createServerXml(500), 0 );
+		verifyLines( createServerXml(500), 200 );
+	}
+
+	/**
+	 * Benchmark: Compare the time to rewrite the lines of a large document
+	 * using the prior rewriter with the time to rewrite the lines using the
+	 * matcher.  Times are displayed but are not verified.
+	 *
+	 * @param title The title of the benchmark.
+	 * @param lines The lines which are to be rewritten.
+	 * @param numExtraPackages The number of package substitutions which are
+	 *     added to the XML substitutions.
+	 */
+	public void benchmark(String title, String[] lines, int numExtraPackages) {
+		verifyLines(lines, numExtraPackages);
+
+		Map<String, String> substitutions = getXmlSubstitutions(numExtraPackages);
+		SubstitutionMatcher matcher = new SubstitutionMatcher(substitutions);
+
+		long priorNs = timeLines( lines, (line) -> replaceTextPerKey(line, substitutions) );
+		long matcherNs = timeLines( lines, matcher::replace );
+
+		System.out.println(title + " benchmark: [ " + lines.length + " ] lines [ " + substitutions.size() + " ] substitutions [ " + matcher.getStageCount() + " ] stages");
+		System.out.println("  Per key [ " + (priorNs / 1000000L) + " ms ]");
+		System.out.println("  Matcher [ " + (matcherNs / 1000000L) + " ms ]");
+	}
+
+	@Test
+	@Tag("benchmark")
+	public void testWebXmlBenchmark() {
+		benchmark( "web.xml", createWebXml(20000), 0 );
+		benchmark( "web.xml", createWebXml(20000), 200 );
+	}
+
+	@Test
+	@Tag("benchmark")
+	public void testServerXmlBenchmark() {
+		benchmark( "server.xml", createServerXml(50000), 0 );
+		benchmark( "server.xml", createServerXml(50000), 200 );
+	}
+}
@@ -0,0 +1,309 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import org.eclipse.transformer.action.impl.InputBufferImpl;
+import org.eclipse.transformer.action.impl.ManifestActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.util.PackageMatcher;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import transformer.test.util.CaptureLoggerImpl;
+
+/**
+ * Verify the single pass text rewriters against the prior rewriters,
+ * which rebuilt the entire text for each match, and compare their times.
+ * Times are displayed but are not verified.
+ */
+public class TestTextRewrite extends CaptureTest {
+
+	public static final String XML_FILE_NAME = "web.xml";
+
+	public static Map<String, String> getPackageRenames() {
+		Map<String, String> renames = new HashMap<String, String>();
+		renames.put("javax.servlet", "jakarta.servlet");
+		renames.put("javax.servlet.http", "jakarta.servlet.http");
+		renames.put("javax.servlet.annotation", "jakarta.servlet.annotation");
+		renames.put("javax.ejb", "jakarta.ejb");
+		renames.put("javax.transaction", "jakarta.transaction");
+		return renames;
+	}
+
+	public static Map<String, String> getPackageVersions() {
+		Map<String, String> versions = new HashMap<String, String>();
+		versions.put("jakarta.servlet", "[5.0,6)");
+		versions.put("jakarta.servlet.http", "[5.0,6)");
+		versions.put("jakarta.ejb", "[4.0,5)");
+		return versions;
+	}
+
+	public static Map<String, String> getXmlSubstitutions() {
+		// Ordered: The second substitution matches the result of the first.
+		Map<String, String> substitutions = new LinkedHashMap<String, String>();
+		substitutions.put("http://java.sun.com/xml/ns/javaee", "https://jakarta.ee/xml/ns/jakartaee");
+		substitutions.put("ns/jakartaee", "ns/jakartaee/v5");
+		substitutions.put("javax.servlet", "jakarta.servlet");
+		return substitutions;
+	}
+
+	class ManifestActionImpl_Test extends ManifestActionImpl {
+		public ManifestActionImpl_Test(
+			Logger logger,
+			InputBufferImpl buffer,
+			SelectionRuleImpl selectionRule, SignatureRuleImpl signatureRule) {
+
+			super(logger, false, false, buffer, selectionRule, signatureRule, ManifestActionImpl.IS_MANIFEST);
+		}
+
+		public String callReplacePackages(String text) {
+			return replacePackages(text);
+		}
+
+		/**
+		 * The prior manifest rewriter: Scan the text once for each rename,
+		 * and rebuild the text for each match.
+		 */
+		public String callReplacePackagesSequentially(String text) {
+			String initialText = text;
+
+			for ( Map.Entry<String, String> renameEntry : getPackageRenames().entrySet() ) {
+				String key = renameEntry.getKey();
+				int keyLen = key.length();
+				String value = renameEntry.getValue();
+
+				int lastMatchEnd = 0;
+				int matchStart;
+				while ( (matchStart = text.indexOf(key, lastMatchEnd)) != -1 ) {
+					if ( !PackageMatcher.isTruePackageMatch(text, matchStart, keyLen, false) ) {
+						lastMatchEnd = matchStart + keyLen;
+						continue;
+					}
+
+					String head = text.substring(0, matchStart);
+					String tail = text.substring(matchStart + keyLen);
+
+					String newVersion = getPackageVersions().get(value);
+					if ( newVersion != null ) {
+						tail = replacePackageVersion(tail, newVersion);
+					}
+
+					text = head + value + tail;
+					lastMatchEnd = matchStart + value.length();
+				}
+			}
+
+			return ( (text == initialText) ? null : text );
+		}
+	}
+
+	public ManifestActionImpl_Test createManifestAction() {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+
+		return new ManifestActionImpl_Test(
+			useLogger,
+			createBuffer(),
+			createSelectionRule( useLogger, Collections.emptySet(), Collections.emptySet() ),
+			createSignatureRule( useLogger, getPackageRenames(), getPackageVersions(), null, null ) );
+	}
+
+	public SignatureRuleImpl createXmlSignatureRule() {
+		return new SignatureRuleImpl(
+			getCaptureLogger(),
+			getPackageRenames(), null, null,
+			Collections.singletonMap(XML_FILE_NAME, getXmlSubstitutions()),
+			null );
+	}
+
+	/**
+	 * The prior XML rewriter: Apply the substitutions one after another,
+	 * and rebuild the text for each match.
+	 */
+	public static String replaceTextSequentially(String text, Map<String, String> substitutions) {
+		String initialText = text;
+
+		for ( Map.Entry<String, String> entry : substitutions.entrySet() ) {
+			String key = entry.getKey();
+			String value = entry.getValue();
+
+			int lastMatchEnd = 0;
+			int matchStart;
+			while ( (matchStart = text.indexOf(key, lastMatchEnd)) != -1 ) {
+				text = text.substring(0, matchStart) + value + text.substring(matchStart + key.length());
+				lastMatchEnd = matchStart + value.length();
+			}
+		}
+
+		return ( (text == initialText) ? null : text );
+	}
+
+	public static String createImportPackage(int numPackages) {
+		String[] packages = {
+			"javax.servlet;version=\"[2.6,3)\"",
+			"javax.servlet.http;version=\"[2.6,3)\"",
+			"com.ibm.ws.util;version=\"[1.0,2)\"",
+			"javax.ejb;resolution:=optional;version=\"[3.0,4)\"",
+			"javax.servlet.annotation;version=\"[2.6,3)\"",
+			"com.ibm.ws.javaee.dd;uses:=\"javax.servlet,javax.ejb\";version=\"1.0\"",
+			"javax.transaction;version=\"1.2\""
+		};
+
+		StringBuilder header = new StringBuilder();
+		for ( int packageNo = 0; packageNo < numPackages; packageNo++ ) {
+			if ( packageNo > 0 ) {
+				header.append(',');
+			}
+			header.append( packages[packageNo % packages.length] );
+		}
+		return header.toString();
+	}
+
+	public static String createXmlLine(int numElements) {
+		StringBuilder line = new StringBuilder();
+		for ( int elementNo = 0; elementNo < numElements; elementNo++ ) {
+			line.append("<web-app xmlns=\"http://java.sun.com/xml/ns/javaee\">");
+			line.append("<servlet-class>javax.servlet.http.HttpServlet</servlet-class>");
+			line.append("<description>Element ").append(elementNo).append("</description>");
+			line.append("</web-app>");
+		}
+		return line.toString();
+	}
+
+	public static long time(UnaryOperator<String> rewriter, String text) {
+		long minNs = -1L;
+		for ( int trial = 0; trial < 3; trial++ ) {
+			long startNs = System.nanoTime();
+			rewriter.apply(text);
+			long trialNs = System.nanoTime() - startNs;
+			if ( (minNs == -1L) || (trialNs < minNs) ) {
+				minNs = trialNs;
+			}
+		}
+		return minNs;
+	}
+
+	public static void display(String title, String text, long priorNs, long singlePassNs) {
+		System.out.println(title + " benchmark: [ " + text.length() + " ] characters");
+		System.out.println("  Prior       [ " + (priorNs / 1000000L) + " ms ]");
+		System.out.println("  Single pass [ " + (singlePassNs / 1000000L) + " ms ]");
+	}
+
+	//
+
+	@Test
+	public void testImportPackage() {
+		ManifestActionImpl_Test manifestAction = createManifestAction();
+
+		for ( int numPackages : new int[] { 0, 1, 2, 7, 8, 50 } ) {
+			String header = createImportPackage(numPackages);
+			Assertions.assertEquals(
+				manifestAction.callReplacePackagesSequentially(header),
+				manifestAction.callReplacePackages(header),
+				"Packages [ " + numPackages + " ]" );
+		}
+
+		Assertions.assertNull( manifestAction.callReplacePackages("com.ibm.ws.util;version=\"[1.0,2)\"") );
+	}
+
+	/**
+	 * A long header, which has many matches, is rewritten the same as by the
+	 * prior rewriter.
+	 */
+	@Test
+	public void testLongImportPackage() {
+		ManifestActionImpl_Test manifestAction = createManifestAction();
+
+		String header = createImportPackage(500);
+		Assertions.assertEquals(
+			manifestAction.callReplacePackagesSequentially(header),
+			manifestAction.callReplacePackages(header) );
+	}
+
+	/**
+	 * Benchmark: Compare the time to rewrite a long header using the prior
+	 * rewriter, which copies the header for each match, with the time to
+	 * rewrite the header in a single pass.  Times are displayed but are not
+	 * verified.
+	 */
+	@Test
+	@Tag("benchmark")
+	public void testImportPackageBenchmark() {
+		ManifestActionImpl_Test manifestAction = createManifestAction();
+
+		String header = createImportPackage(5000);
+
+		String expected = manifestAction.callReplacePackagesSequentially(header);
+		Assertions.assertEquals( expected, manifestAction.callReplacePackages(header) );
+
+		long priorNs = time(manifestAction::callReplacePackagesSequentially, header);
+		long singlePassNs = time(manifestAction::callReplacePackages, header);
+		display("Import-Package", header, priorNs, singlePassNs);
+	}
+
+	@Test
+	public void testXmlLine() {
+		SignatureRuleImpl signatureRule = createXmlSignatureRule();
+
+		for ( int numElements : new int[] { 0, 1, 3 } ) {
+			String line = createXmlLine(numElements);
+			Assertions.assertEquals(
+				replaceTextSequentially(line, getXmlSubstitutions()),
+				signatureRule.replaceText(XML_FILE_NAME, line),
+				"Elements [ " + numElements + " ]" );
+		}
+
+		Assertions.assertNull( signatureRule.replaceText(XML_FILE_NAME, "<web-app/>") );
+	}
+
+	/**
+	 * A long line, which has many matches, is rewritten the same as by the
+	 * prior rewriter.
+	 */
+	@Test
+	public void testLongXmlLine() {
+		SignatureRuleImpl signatureRule = createXmlSignatureRule();
+
+		String line = createXmlLine(500);
+		Assertions.assertEquals(
+			replaceTextSequentially(line, getXmlSubstitutions()),
+			signatureRule.replaceText(XML_FILE_NAME, line) );
+	}
+
+	/**
+	 * Benchmark: Compare the time to rewrite a long line using the prior
+	 * rewriter with the time to rewrite the line in a single pass.  Times
+	 * are displayed but are not verified.
+	 */
+	@Test
+	@Tag("benchmark")
+	public void testXmlLineBenchmark() {
+		SignatureRuleImpl signatureRule = createXmlSignatureRule();
+
+		String line = createXmlLine(5000);
+
+		String expected = replaceTextSequentially(line, getXmlSubstitutions());
+		Assertions.assertEquals( expected, signatureRule.replaceText(XML_FILE_NAME, line) );
+
+		long priorNs = time( (text) -> replaceTextSequentially(text, getXmlSubstitutions()), line );
+		long singlePassNs = time( (text) -> signatureRule.replaceText(XML_FILE_NAME, text), line );
+		display("XML line", line, priorNs, singlePassNs);
+	}
+}
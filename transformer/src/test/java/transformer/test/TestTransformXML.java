@@ -13,21 +13,28 @@ package transformer.test;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.TransformProperties;
 import org.eclipse.transformer.action.impl.InputBufferImpl;
 import org.eclipse.transformer.action.impl.SelectionRuleImpl;
 import org.eclipse.transformer.action.impl.SignatureRuleImpl;
 import org.eclipse.transformer.action.impl.XmlActionImpl;
+import org.eclipse.transformer.util.FileUtils;
 import org.eclipse.transformer.util.InputStreamData;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import aQute.lib.utf8properties.UTF8Properties;
 import transformer.test.util.CaptureLoggerImpl;
 
 public class TestTransformXML extends CaptureTest {
@@ -222,4 +229,71 @@ public class TestTransformXML extends CaptureTest {
 		testTransform(TRANSACTION_MANAGER_XML_PATH, TM_INITIAL_OCCURRENCES, TM_FINAL_OCCURRENCES); 
 		// throws JakartaTransformException, IOException
 	}
+
+	@Test
+	public void testXmlSelection() {
+		Map<String, String> specificUpdates = Collections.singletonMap("specific", "value");
+		Map<String, String> wildcardUpdates = Collections.singletonMap("wildcard", "value");
+		Map<String, String> otherUpdates = Collections.singletonMap("other", "value");
+
+		Map<String, Map<String, String>> useXmlUpdates = new LinkedHashMap<String, Map<String, String>>(3);
+		useXmlUpdates.put("*.xml", wildcardUpdates);
+		useXmlUpdates.put("web.xml", specificUpdates);
+		useXmlUpdates.put("server?.xml", otherUpdates);
+
+		SignatureRuleImpl signatureRule = new SignatureRuleImpl(
+			getCaptureLogger(),
+			null, null, null,
+			useXmlUpdates,
+			null);
+
+		for ( int trial = 0; trial < 2; trial++ ) {
+			// Specific selectors have precedence over wildcard selectors.
+			Assertions.assertSame( specificUpdates, signatureRule.getXmlSubstitutions("WEB-INF/web.xml") );
+			Assertions.assertSame( wildcardUpdates, signatureRule.getXmlSubstitutions("META-INF/other.xml") );
+			Assertions.assertNull( signatureRule.getXmlSubstitutions("META-INF/web.txt") );
+		}
+
+		// The first of several matching wildcard selectors is selected.
+		Assertions.assertSame( wildcardUpdates, signatureRule.getXmlSubstitutions("server1.xml") );
+
+		// The second trial obtains each selection from the cache.
+		Assertions.assertEquals( 3L, signatureRule.getXmlResolutions().getHits() );
+
+		Map<String, Map<String, String>> reversedXmlUpdates = new LinkedHashMap<String, Map<String, String>>(2);
+		reversedXmlUpdates.put("server?.xml", otherUpdates);
+		reversedXmlUpdates.put("*.xml", wildcardUpdates);
+
+		SignatureRuleImpl reversedRule = new SignatureRuleImpl(
+			getCaptureLogger(),
+			null, null, null,
+			reversedXmlUpdates,
+			null);
+		Assertions.assertSame( otherUpdates, reversedRule.getXmlSubstitutions("server1.xml") );
+		Assertions.assertSame( wildcardUpdates, reversedRule.getXmlSubstitutions("other.xml") );
+
+		SignatureRuleImpl emptyRule = new SignatureRuleImpl( getCaptureLogger(), null, null, null, null, null );
+		Assertions.assertNull( emptyRule.getXmlSubstitutions("web.xml") );
+	}
+
+	/**
+	 * Master XML properties are converted in the order of the properties
+	 * file, which sets the precedence of wildcard selectors.
+	 */
+	@Test
+	public void testXmlSelectionOrder() throws IOException {
+		String masterText =
+			"*.xml=xml-substitutions.properties\n" +
+			"web.xml=web-substitutions.properties\n" +
+			"server?.xml=server-substitutions.properties\n" +
+			"a*.xml=a-substitutions.properties\n";
+
+		UTF8Properties masterProperties = FileUtils.createProperties();
+		masterProperties.load( new StringReader(masterText) );
+
+		Map<String, String> masterRefs = TransformProperties.convertPropertiesToMap(masterProperties);
+		Assertions.assertEquals(
+			Arrays.asList("*.xml", "web.xml", "server?.xml", "a*.xml"),
+			new ArrayList<String>( masterRefs.keySet() ) );
+	}
 }
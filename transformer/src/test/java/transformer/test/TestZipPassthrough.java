@@ -0,0 +1,225 @@
+/********************************************************************************
+ * Copyright (c) 2020 Contributors to the Eclipse Foundation
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0, or the Apache License, Version 2.0
+ * which is available at https://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * SPDX-License-Identifier: (EPL-2.0 OR Apache-2.0)
+ ********************************************************************************/
+
+package transformer.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.transformer.TransformException;
+import org.eclipse.transformer.action.impl.NullActionImpl;
+import org.eclipse.transformer.action.impl.SelectionRuleImpl;
+import org.eclipse.transformer.action.impl.SignatureRuleImpl;
+import org.eclipse.transformer.action.impl.ZipActionImpl;
+import org.eclipse.transformer.util.ByteData;
+import org.eclipse.transformer.util.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import transformer.test.util.CaptureLoggerImpl;
+
+public class TestZipPassthrough extends CaptureTest {
+
+	public static final int NUM_ENTRIES = 200;
+	public static final int MAX_ENTRY_SIZE = 64 * 1024;
+	public static final int NUM_ITERATIONS = 5;
+
+	public static byte[] createArchive() throws IOException {
+		Random random = new Random(17);
+
+		ByteArrayOutputStream archiveStream = new ByteArrayOutputStream();
+		try ( ZipOutputStream zipOutputStream = new ZipOutputStream(archiveStream) ) {
+			for ( int entryNo = 0; entryNo < NUM_ENTRIES; entryNo++ ) {
+				byte[] entryData = new byte[ random.nextInt(MAX_ENTRY_SIZE) ];
+				for ( int byteNo = 0; byteNo < entryData.length; byteNo++ ) {
+					entryData[byteNo] = (byte) ('a' + random.nextInt(16));
+				}
+
+				ZipEntry entry = new ZipEntry("entry" + entryNo + ".bin");
+				if ( (entryNo % 4) == 0 ) {
+					CRC32 crc = new CRC32();
+					crc.update(entryData);
+					entry.setMethod(ZipEntry.STORED);
+					entry.setSize(entryData.length);
+					entry.setCrc(crc.getValue());
+				}
+
+				zipOutputStream.putNextEntry(entry);
+				zipOutputStream.write(entryData);
+				zipOutputStream.closeEntry();
+			}
+		}
+		return archiveStream.toByteArray();
+	}
+
+	public static Map<String, byte[]> readArchive(byte[] archive) throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+
+		ZipInputStream zipInputStream = new ZipInputStream( new ByteArrayInputStream(archive) );
+		ZipEntry entry;
+		while ( (entry = zipInputStream.getNextEntry()) != null ) {
+			ByteData entryData = FileUtils.read(entry.getName(), zipInputStream);
+			entries.put( entry.getName(),
+				Arrays.copyOfRange(entryData.data, entryData.offset, entryData.offset + entryData.length) );
+		}
+
+		return entries;
+	}
+
+	public static Map<String, Long> readCompressedSizes(byte[] archive) throws IOException {
+		Map<String, Long> sizes = new LinkedHashMap<String, Long>();
+
+		ZipInputStream zipInputStream = new ZipInputStream( new ByteArrayInputStream(archive) );
+		ZipEntry entry;
+		while ( (entry = zipInputStream.getNextEntry()) != null ) {
+			FileUtils.read(entry.getName(), zipInputStream);
+			sizes.put( entry.getName(), Long.valueOf(entry.getCompressedSize()) );
+		}
+
+		return sizes;
+	}
+
+	public static void assertSameEntries(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+		Assertions.assertEquals(expected.keySet(), actual.keySet(), "Entry names");
+		for ( Map.Entry<String, byte[]> expectedEntry : expected.entrySet() ) {
+			String name = expectedEntry.getKey();
+			byte[] expectedData = expectedEntry.getValue();
+			byte[] actualData = actual.get(name);
+			Assertions.assertEquals(expectedData.length, actualData.length, "Entry [ " + name + " ] length");
+			for ( int byteNo = 0; byteNo < expectedData.length; byteNo++ ) {
+				if ( expectedData[byteNo] != actualData[byteNo] ) {
+					Assertions.fail("Entry [ " + name + " ] differs at [ " + byteNo + " ]");
+				}
+			}
+		}
+	}
+
+	//
+
+	/**
+	 * Copy an archive the way unselected and unaccepted entries were copied
+	 * before raw passthrough: Each entry is inflated then deflated a second time.
+	 */
+	public static byte[] recompressArchive(byte[] archive) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(archive.length);
+
+		ZipInputStream zipInputStream = new ZipInputStream( new ByteArrayInputStream(archive) );
+		ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+
+		byte[] buffer = new byte[FileUtils.BUFFER_ADJUSTMENT];
+
+		ZipEntry inputEntry;
+		while ( (inputEntry = zipInputStream.getNextEntry()) != null ) {
+			zipOutputStream.putNextEntry( new ZipEntry(inputEntry.getName()) );
+			FileUtils.transfer(zipInputStream, zipOutputStream, buffer);
+			zipOutputStream.closeEntry();
+		}
+		zipOutputStream.finish();
+
+		return outputStream.toByteArray();
+	}
+
+	public ZipActionImpl createZipAction(boolean withNullAction) {
+		CaptureLoggerImpl useLogger = getCaptureLogger();
+
+		SelectionRuleImpl selectionRule = createSelectionRule(
+			useLogger, Collections.emptySet(), Collections.emptySet() );
+		SignatureRuleImpl signatureRule = createSignatureRule(
+			useLogger,
+			Collections.emptyMap(), Collections.emptyMap(),
+			Collections.emptyMap(), Collections.emptyMap() );
+
+		ZipActionImpl zipAction = new ZipActionImpl(
+			useLogger, false, false,
+			createBuffer(),
+			selectionRule, signatureRule );
+
+		if ( withNullAction ) {
+			zipAction.addUsing( NullActionImpl::new );
+		}
+
+		return zipAction;
+	}
+
+	public static byte[] transformArchive(ZipActionImpl zipAction, byte[] archive) throws TransformException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(archive.length);
+		zipAction.apply( "test.zip", new ByteArrayInputStream(archive), archive.length, outputStream );
+		return outputStream.toByteArray();
+	}
+
+	//
+
+	@Test
+	public void testPassthroughContent() throws IOException, TransformException {
+		byte[] inputArchive = createArchive();
+
+		ZipActionImpl zipAction = createZipAction(false);
+		byte[] outputArchive = transformArchive(zipAction, inputArchive);
+
+		assertSameEntries( readArchive(inputArchive), readArchive(outputArchive) );
+
+		// Unaccepted entries retain their compressed form.
+		Assertions.assertEquals( readCompressedSizes(inputArchive), readCompressedSizes(outputArchive) );
+
+		Assertions.assertEquals( NUM_ENTRIES, zipAction.getLastActiveChanges().getAllUnselected() );
+	}
+
+	@Test
+	public void testTransformedContent() throws IOException, TransformException {
+		byte[] inputArchive = createArchive();
+
+		ZipActionImpl zipAction = createZipAction(true);
+		byte[] outputArchive = transformArchive(zipAction, inputArchive);
+
+		assertSameEntries( readArchive(inputArchive), readArchive(outputArchive) );
+
+		Assertions.assertEquals( NUM_ENTRIES, zipAction.getLastActiveChanges().getAllSelected() );
+	}
+
+	@Test
+	public void testPassthroughThroughput() throws IOException, TransformException {
+		byte[] inputArchive = createArchive();
+		ZipActionImpl zipAction = createZipAction(false);
+
+		// Warm up both paths.
+		recompressArchive(inputArchive);
+		transformArchive(zipAction, inputArchive);
+
+		long recompressNanos = 0L;
+		long passthroughNanos = 0L;
+
+		for ( int iteration = 0; iteration < NUM_ITERATIONS; iteration++ ) {
+			long startNanos = System.nanoTime();
+			recompressArchive(inputArchive);
+			recompressNanos += System.nanoTime() - startNanos;
+
+			startNanos = System.nanoTime();
+			transformArchive(zipAction, inputArchive);
+			passthroughNanos += System.nanoTime() - startNanos;
+		}
+
+		double megaBytes = ((double) inputArchive.length * NUM_ITERATIONS) / (1024.0 * 1024.0);
+
+		System.out.println("Archive [ " + inputArchive.length + " ] bytes; Entries [ " + NUM_ENTRIES + " ]; Iterations [ " + NUM_ITERATIONS + " ]");
+		System.out.println("Recompress  [ " + (recompressNanos / 1000000L) + " ms ] [ " + String.format("%.2f", megaBytes / (recompressNanos / 1.0E9)) + " MB/s ]");
+		System.out.println("Passthrough [ " + (passthroughNanos / 1000000L) + " ms ] [ " + String.format("%.2f", megaBytes / (passthroughNanos / 1.0E9)) + " MB/s ]");
+	}
+}
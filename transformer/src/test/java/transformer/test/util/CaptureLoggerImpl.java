@@ -195,11 +195,13 @@ public class CaptureLoggerImpl implements Logger {
         return capturedEvents;
     }
 
-    protected void addEvent(LogEvent logEvent) {
+    // Events may be logged by worker threads which transform container entries.
+
+    protected synchronized void addEvent(LogEvent logEvent) {
         capturedEvents.add(logEvent);
     }
 
-    public List<? extends LogEvent> consumeCapturedEvents() {
+    public synchronized List<? extends LogEvent> consumeCapturedEvents() {
         List<? extends LogEvent> events = new ArrayList<LogEvent>(capturedEvents);
         capturedEvents.clear();
         return events;